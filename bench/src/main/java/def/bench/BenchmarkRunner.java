@@ -0,0 +1,37 @@
+package def.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The entry point of the benchmark jar. With no arguments, runs every benchmark with the gc
+ * profiler attached, so allocation rates are reported next to throughput. Any arguments are
+ * passed straight to JMH instead.
+ * @author Louis Jacobowitz
+ */
+public class BenchmarkRunner {
+	/**
+	 * Runs the benchmarks
+	 * @param args - JMH command line options, or none to run everything with the gc profiler
+	 * @throws RunnerException if a benchmark fails
+	 * @throws CommandLineOptionException if the arguments are not valid JMH options
+	 */
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		Options options;
+		if(args.length == 0) {
+			options = new OptionsBuilder()
+					.include("def\\.bench\\..*Benchmark")
+					.addProfiler(GCProfiler.class)
+					.build();
+		}
+		else {
+			options = new CommandLineOptions(args);
+		}
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,51 @@
+package def.bench;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import def.model.BoardModel;
+
+/**
+ * The board shapes every benchmark is run over: from beginner up to ten thousand by ten thousand,
+ * at a range of mine densities.
+ * @author Louis Jacobowitz
+ */
+@State(Scope.Thread)
+public class BoardParams {
+	/** The seed every board is generated from, so every run sees the same boards */
+	static final long SEED = 0x5EEDL;
+	/** The board size, as rows x columns */
+	@Param({"9x9", "16x30", "100x100", "1000x1000", "10000x10000"})
+	public String size;
+	/** The fraction of cells that are mines */
+	@Param({"0.05", "0.12", "0.20"})
+	public double density;
+
+	/**
+	 * Returns the number of rows of the board
+	 * @return the height in the size parameter
+	 */
+	int height() {
+		return Integer.parseInt(size.substring(0, size.indexOf('x')));
+	}
+
+	/**
+	 * Returns the number of columns of the board
+	 * @return the width in the size parameter
+	 */
+	int width() {
+		return Integer.parseInt(size.substring(size.indexOf('x') + 1));
+	}
+
+	/**
+	 * Creates an empty board of the benchmarked size and density
+	 * @return a new model with no mines placed yet
+	 */
+	BoardModel newModel() {
+		int h = height();
+		int w = width();
+		int mines = (int) Math.min((long) h * w - 9, Math.round((double) h * w * density));
+		return new BoardModel(h, w, mines, SEED);
+	}
+}
@@ -0,0 +1,100 @@
+package def.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import def.model.BoardModel;
+import def.model.RevealDelta;
+
+/**
+ * Benchmarks chording: revealing every neighbor of a numbered cell whose mines have all been
+ * flagged. Each invocation gets a freshly generated and opened board, which is not counted in
+ * the measurement.
+ * @author Louis Jacobowitz
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class ChordBenchmark {
+	/** The board the moves are made on */
+	private BoardModel model;
+	/** The seed of the next board */
+	private long seed;
+	/** The row of the cell to chord */
+	private int chordRow;
+	/** The column of the cell to chord */
+	private int chordCol;
+
+	/**
+	 * Creates the model that every invocation reuses
+	 * @param params - the board shape
+	 */
+	@Setup(Level.Trial)
+	public void createModel(BoardParams params) {
+		model = params.newModel();
+	}
+
+	/**
+	 * Generates a new board, makes the first click, and sets up a cell ready to be chorded:
+	 * a revealed number on the edge of the opening, with all of its mines flagged
+	 */
+	@Setup(Level.Invocation)
+	public void newBoard() {
+		model.reset(seed++);
+		RevealDelta delta = model.reveal(model.getHeight() / 2, model.getWidth() / 2);
+		chordRow = model.getHeight() / 2;
+		chordCol = model.getWidth() / 2;
+		for(int i = 0; i < delta.size(); i++) {
+			int r = delta.get(i) / model.getWidth();
+			int c = delta.get(i) % model.getWidth();
+			if(model.getNumber(r, c) > 0 && hasHiddenSafeNeighbor(r, c)) {
+				chordRow = r;
+				chordCol = c;
+				break;
+			}
+		}
+		for(int r = chordRow - 1; r <= chordRow + 1; r++) {
+			for(int c = chordCol - 1; c <= chordCol + 1; c++) {
+				if(model.inBounds(r, c) && model.isMine(r, c)) model.flag(r, c);
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the given cell has a neighbor that is neither revealed nor a mine
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return whether chording the cell would reveal something
+	 */
+	private boolean hasHiddenSafeNeighbor(int row, int col) {
+		for(int r = row - 1; r <= row + 1; r++) {
+			for(int c = col - 1; c <= col + 1; c++) {
+				if(model.inBounds(r, c) && !model.isRevealed(r, c) && !model.isMine(r, c)) return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Chords the prepared cell, revealing its unflagged neighbors and any cascade they open
+	 * @return the number of cells revealed by the chord
+	 */
+	@Benchmark
+	public int chord() {
+		return model.chord(chordRow, chordCol).size();
+	}
+}
@@ -0,0 +1,64 @@
+package def.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import def.model.BoardModel;
+
+/**
+ * Benchmarks setting up a new board: placing the mines and counting every cell's neighbors.
+ * @author Louis Jacobowitz
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class GenerationBenchmark {
+	/** The board being set up */
+	private BoardModel model;
+	/** The seed of the next board to set up */
+	private long seed;
+
+	/**
+	 * Creates the model that every invocation reuses
+	 * @param params - the board shape
+	 */
+	@Setup(Level.Trial)
+	public void createModel(BoardParams params) {
+		model = params.newModel();
+	}
+
+	/**
+	 * Places the mines on a fresh board, counting the neighbors of every cell
+	 * @return the model, so the work is not optimized away
+	 */
+	@Benchmark
+	public BoardModel generate() {
+		model.reset(seed++);
+		model.placeMines(model.getHeight() / 2, model.getWidth() / 2);
+		return model;
+	}
+
+	/**
+	 * Counts the neighbors of every cell on an already generated board
+	 * @return the model, so the work is not optimized away
+	 */
+	@Benchmark
+	public BoardModel countNeighbors() {
+		model.computeNumbers();
+		return model;
+	}
+}
@@ -0,0 +1,62 @@
+package def.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import def.model.BoardModel;
+
+/**
+ * Benchmarks the cascade opened by the first click on a board. Each invocation gets a freshly
+ * generated board, which is not counted in the measurement.
+ * @author Louis Jacobowitz
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class RevealBenchmark {
+	/** The board the moves are made on */
+	private BoardModel model;
+	/** The seed of the next board */
+	private long seed;
+
+	/**
+	 * Creates the model that every invocation reuses
+	 * @param params - the board shape
+	 */
+	@Setup(Level.Trial)
+	public void createModel(BoardParams params) {
+		model = params.newModel();
+	}
+
+	/**
+	 * Generates a new board with nothing revealed
+	 */
+	@Setup(Level.Invocation)
+	public void newBoard() {
+		model.reset(seed++);
+		model.placeMines(model.getHeight() / 2, model.getWidth() / 2);
+	}
+
+	/**
+	 * Makes the first click in the middle of the board, opening up the cascade around it
+	 * @return the number of cells revealed
+	 */
+	@Benchmark
+	public int cascadeReveal() {
+		return model.reveal(model.getHeight() / 2, model.getWidth() / 2).size();
+	}
+}
@@ -0,0 +1,447 @@
+package def;
+
+import java.util.BitSet;
+
+import def.metrics.Metrics;
+import def.metrics.Operation;
+import def.model.BoardListener;
+import def.model.BoardModel;
+import javafx.animation.AnimationTimer;
+import javafx.event.EventHandler;
+import javafx.geometry.Orientation;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+
+/**
+ * A view that draws a whole board onto a single Canvas, for boards too big to give every tile its
+ * own Label. Only the part of the board inside the scrollable, zoomable viewport is ever drawn,
+ * and on each pulse only the cells that changed since the last pulse are repainted, so the number
+ * of nodes and the cost of a frame do not grow with the size of the board.
+ * @author Louis Jacobowitz
+ */
+public class CanvasBoardView extends Region implements BoardListener {
+	/** The size of a tile on screen at a zoom of 1, in pixels */
+	private static final double TILE_SIZE = 16;
+	/** The smallest allowed zoom */
+	private static final double MIN_ZOOM = 0.25;
+	/** The largest allowed zoom */
+	private static final double MAX_ZOOM = 4;
+	/** How much one notch of the scroll wheel zooms in or out */
+	private static final double ZOOM_STEP = 1.25;
+	/** The board controlling the game */
+	private MinesweeperBoard board;
+	/** The model being drawn */
+	private BoardModel model;
+	/** This view's mechanism for retrieving images */
+	private LocalImage icon;
+	/** The canvas the board is drawn on */
+	private Canvas canvas;
+	/** The horizontal scroll bar */
+	private ScrollBar hBar;
+	/** The vertical scroll bar */
+	private ScrollBar vBar;
+	/** The current zoom */
+	private double zoom;
+	/** The distance from the left edge of the board to the left edge of the viewport, in screen pixels */
+	private double offsetX;
+	/** The distance from the top edge of the board to the top edge of the viewport, in screen pixels */
+	private double offsetY;
+	/** The indices of the cells that changed since the last pulse */
+	private int[] dirtyCells;
+	/** The number of entries of dirtyCells in use */
+	private int dirtyCount;
+	/** Which cells are already in dirtyCells */
+	private BitSet dirtySet;
+	/** Whether the whole viewport has to be redrawn on the next pulse */
+	private boolean fullRedraw;
+	/** The cell currently pressed down by the mouse, or -1 if none */
+	private int pressedCell;
+	/** Whether the mines should be shown, because the game is over */
+	private boolean showMines;
+	/** Whether every mine should be drawn flagged, because the game was won */
+	private boolean flagMines;
+	/** Whether this view responds to the mouse */
+	private boolean interactable;
+	/** The timer calling redraw() once every pulse */
+	private AnimationTimer pulse;
+
+	/**
+	 * Creates a new CanvasBoardView drawing the given model
+	 * @param b - the board controlling the game
+	 * @param m - the model to draw
+	 */
+	public CanvasBoardView(MinesweeperBoard b, BoardModel m) {
+		super();
+		board = b;
+		model = m;
+		icon = LocalImage.initialize();
+		zoom = 1;
+		dirtyCells = new int[64];
+		dirtySet = new BitSet();
+		fullRedraw = true;
+		pressedCell = -1;
+		interactable = true;
+		canvas = new Canvas();
+		hBar = new ScrollBar();
+		hBar.setOrientation(Orientation.HORIZONTAL);
+		vBar = new ScrollBar();
+		vBar.setOrientation(Orientation.VERTICAL);
+		hBar.valueProperty().addListener((obs, oldValue, newValue) -> {
+			offsetX = newValue.doubleValue();
+			fullRedraw = true;
+		});
+		vBar.valueProperty().addListener((obs, oldValue, newValue) -> {
+			offsetY = newValue.doubleValue();
+			fullRedraw = true;
+		});
+		getChildren().addAll(canvas, hBar, vBar);
+		canvas.setOnMouseClicked(new ClickHandler());
+		canvas.setOnMousePressed(new PressedHandler());
+		canvas.setOnMouseReleased(new ReleaseHandler());
+		canvas.setOnMouseExited(new ReleaseHandler());
+		canvas.setOnScroll(new ScrollHandler());
+		model.addListener(this);
+		pulse = new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				redraw();
+			}
+		};
+		pulse.start();
+	}
+
+	/**
+	 * Stops drawing and stops listening to the model. Should be called once this view is discarded.
+	 */
+	public void dispose() {
+		pulse.stop();
+		model.removeListener(this);
+	}
+
+	/**
+	 * Sets whether this view responds to the mouse
+	 * @param b - whether the board should be interactable
+	 */
+	public void setInteractable(boolean b) {
+		interactable = b;
+	}
+
+	/**
+	 * Shows every mine on the board, for when the game has ended
+	 */
+	public void showMines() {
+		showMines = true;
+		fullRedraw = true;
+	}
+
+	/**
+	 * Draws every mine flagged, for when the game has been won
+	 */
+	public void flagMines() {
+		flagMines = true;
+		fullRedraw = true;
+	}
+
+	/**
+	 * Goes back to drawing the board as it is, for when the move that ended the game was taken back
+	 */
+	public void hideMines() {
+		showMines = false;
+		flagMines = false;
+		fullRedraw = true;
+	}
+
+	/**
+	 * Marks a changed cell to be repainted on the next pulse
+	 * @param row - the row of the changed cell
+	 * @param col - the column of the changed cell
+	 */
+	@Override
+	public void cellChanged(int row, int col) {
+		markDirty(model.index(row, col));
+	}
+
+	/**
+	 * Does nothing; the mine counter is drawn by the board
+	 * @param minesRemaining - the number of mines not yet flagged
+	 */
+	@Override
+	public void minesRemainingChanged(int minesRemaining) {
+	}
+
+	/**
+	 * Adds a cell to the set of cells to repaint on the next pulse
+	 * @param index - the flat index of the cell
+	 */
+	private void markDirty(int index) {
+		if(fullRedraw || dirtySet.get(index)) return;
+		if(dirtyCount == dirtyCells.length) {
+			// More changed cells than are worth tracking one by one - just redraw everything visible
+			if(dirtyCount >= visibleCellCount()) {
+				fullRedraw = true;
+				return;
+			}
+			int[] bigger = new int[dirtyCells.length * 2];
+			System.arraycopy(dirtyCells, 0, bigger, 0, dirtyCount);
+			dirtyCells = bigger;
+		}
+		dirtySet.set(index);
+		dirtyCells[dirtyCount++] = index;
+	}
+
+	/**
+	 * Returns the number of cells that fit in the viewport
+	 * @return the number of visible cells
+	 */
+	private int visibleCellCount() {
+		double tile = TILE_SIZE * zoom;
+		return (int) ((Math.ceil(canvas.getWidth() / tile) + 1) * (Math.ceil(canvas.getHeight() / tile) + 1));
+	}
+
+	/**
+	 * Repaints whatever has changed since the last pulse
+	 */
+	private void redraw() {
+		if(!fullRedraw && dirtyCount == 0) return;
+		long start = Metrics.start();
+		int drawn = 0;
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		double tile = TILE_SIZE * zoom;
+		Image[] images = icon.atScale(zoom * LocalImage.outputScale(canvas));
+		int firstCol = Math.max(0, (int) (offsetX / tile));
+		int firstRow = Math.max(0, (int) (offsetY / tile));
+		int lastCol = Math.min(model.getWidth() - 1, (int) ((offsetX + canvas.getWidth()) / tile));
+		int lastRow = Math.min(model.getHeight() - 1, (int) ((offsetY + canvas.getHeight()) / tile));
+		if(fullRedraw) {
+			gc.setFill(Color.LIGHTGRAY);
+			gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+			for(int i = firstRow; i <= lastRow; i++) {
+				for(int j = firstCol; j <= lastCol; j++) {
+					drawCell(gc, images, i, j, tile);
+				}
+			}
+			drawn = Math.max(0, lastRow - firstRow + 1) * Math.max(0, lastCol - firstCol + 1);
+		}
+		else {
+			int width = model.getWidth();
+			for(int k = 0; k < dirtyCount; k++) {
+				int row = dirtyCells[k] / width;
+				int col = dirtyCells[k] % width;
+				if(row >= firstRow && row <= lastRow && col >= firstCol && col <= lastCol) {
+					drawCell(gc, images, row, col, tile);
+					drawn++;
+				}
+			}
+		}
+		for(int k = 0; k < dirtyCount; k++) {
+			dirtySet.clear(dirtyCells[k]);
+		}
+		dirtyCount = 0;
+		fullRedraw = false;
+		Metrics.finish(Operation.FRAME, start, drawn);
+	}
+
+	/**
+	 * Draws a single cell at its place in the viewport
+	 * @param gc - the graphics context of the canvas
+	 * @param images - every sprite, scaled for the current zoom
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @param tile - the size of a tile on screen
+	 */
+	private void drawCell(GraphicsContext gc, Image[] images, int row, int col, double tile) {
+		gc.drawImage(images[spriteFor(row, col).ordinal()], col * tile - offsetX, row * tile - offsetY, tile, tile);
+	}
+
+	/**
+	 * Returns the sprite that should currently be shown for the given cell
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return the sprite for that cell
+	 */
+	private Sprite spriteFor(int row, int col) {
+		if(model.isRevealed(row, col)) {
+			return model.isMine(row, col) ? Sprite.ACTIVE_MINE : Sprite.known(model.getNumber(row, col));
+		}
+		if(model.isFlagged(row, col)) {
+			return showMines && !model.isMine(row, col) ? Sprite.NOT_MINE : Sprite.FLAG;
+		}
+		if(flagMines && model.isMine(row, col)) {
+			return Sprite.FLAG;
+		}
+		if(showMines && model.isMine(row, col)) {
+			return Sprite.MINE;
+		}
+		if(pressedCell == model.index(row, col)) {
+			return Sprite.KNOWN_0;
+		}
+		return Sprite.UNKNOWN;
+	}
+
+	/**
+	 * Returns the flat index of the cell under the given point of the canvas
+	 * @param x - the x coordinate on the canvas
+	 * @param y - the y coordinate on the canvas
+	 * @return the index of the cell there, or -1 if there is no cell there
+	 */
+	private int cellAt(double x, double y) {
+		double tile = TILE_SIZE * zoom;
+		int col = (int) Math.floor((x + offsetX) / tile);
+		int row = (int) Math.floor((y + offsetY) / tile);
+		return model.inBounds(row, col) ? model.index(row, col) : -1;
+	}
+
+	/**
+	 * Sets the zoom, keeping the given point of the canvas over the same spot on the board
+	 * @param newZoom - the new zoom
+	 * @param x - the x coordinate on the canvas to zoom around
+	 * @param y - the y coordinate on the canvas to zoom around
+	 */
+	public void setZoom(double newZoom, double x, double y) {
+		newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, newZoom));
+		double scale = newZoom / zoom;
+		zoom = newZoom;
+		updateScrollBars();
+		hBar.setValue(Math.max(hBar.getMin(), Math.min(hBar.getMax(), (offsetX + x) * scale - x)));
+		vBar.setValue(Math.max(vBar.getMin(), Math.min(vBar.getMax(), (offsetY + y) * scale - y)));
+		fullRedraw = true;
+	}
+
+	/**
+	 * Sets the range of the scroll bars to match the size of the board and the viewport
+	 */
+	private void updateScrollBars() {
+		double tile = TILE_SIZE * zoom;
+		hBar.setMax(Math.max(0, model.getWidth() * tile - canvas.getWidth()));
+		vBar.setMax(Math.max(0, model.getHeight() * tile - canvas.getHeight()));
+		hBar.setVisibleAmount(canvas.getWidth());
+		vBar.setVisibleAmount(canvas.getHeight());
+		hBar.setUnitIncrement(tile);
+		vBar.setUnitIncrement(tile);
+		hBar.setBlockIncrement(canvas.getWidth());
+		vBar.setBlockIncrement(canvas.getHeight());
+	}
+
+	/**
+	 * Lays out the canvas to fill this view, with the scroll bars along its right and bottom edges
+	 */
+	@Override
+	protected void layoutChildren() {
+		double barWidth = vBar.prefWidth(-1);
+		double barHeight = hBar.prefHeight(-1);
+		double w = Math.max(0, getWidth() - barWidth);
+		double h = Math.max(0, getHeight() - barHeight);
+		canvas.setWidth(w);
+		canvas.setHeight(h);
+		hBar.resizeRelocate(0, h, w, barHeight);
+		vBar.resizeRelocate(w, 0, barWidth, h);
+		updateScrollBars();
+		fullRedraw = true;
+	}
+
+	/**
+	 * Returns the preferred width of this view: the whole board, if it would fit on a typical screen
+	 * @param height - the height this view will be given
+	 * @return the preferred width
+	 */
+	@Override
+	protected double computePrefWidth(double height) {
+		return Math.min(model.getWidth() * TILE_SIZE, 1024) + vBar.prefWidth(-1);
+	}
+
+	/**
+	 * Returns the preferred height of this view: the whole board, if it would fit on a typical screen
+	 * @param width - the width this view will be given
+	 * @return the preferred height
+	 */
+	@Override
+	protected double computePrefHeight(double width) {
+		return Math.min(model.getHeight() * TILE_SIZE, 768) + hBar.prefHeight(-1);
+	}
+
+	/**
+	 * A class for handling click events
+	 * @author Louis Jacobowitz
+	 */
+	private class ClickHandler implements EventHandler<MouseEvent> {
+		/**
+		 * Registers when a cell is clicked, and alerts the board of this fact.
+		 * @param e - some mouse event
+		 */
+		@Override
+		public void handle(MouseEvent e) {
+			int index = cellAt(e.getX(), e.getY());
+			if(!interactable || board.isFrozen() || index < 0) return;
+			board.getInput().clicked(index / model.getWidth(), index % model.getWidth(), e.getButton(), System.nanoTime());
+		}
+	}
+
+	/**
+	 * A class for handling mouse pressed events
+	 * @author Louis Jacobowitz
+	 */
+	private class PressedHandler implements EventHandler<MouseEvent> {
+		/**
+		 * Registers when the mouse pressed down on a cell, and draws it pressed in until the mouse is released
+		 * @param e - some mouse event
+		 */
+		@Override
+		public void handle(MouseEvent e) {
+			int index = cellAt(e.getX(), e.getY());
+			if(!interactable || board.isFrozen() || index < 0) return;
+			board.getInput().pressed(e.isPrimaryButtonDown(), e.isSecondaryButtonDown());
+			if(e.getButton() != MouseButton.PRIMARY) return;
+			if((model.cell(index) & (BoardModel.REVEALED | BoardModel.FLAGGED)) == 0) {
+				pressedCell = index;
+				markDirty(index);
+			}
+		}
+	}
+
+	/**
+	 * A class for handling release events
+	 * @author Louis Jacobowitz
+	 */
+	private class ReleaseHandler implements EventHandler<MouseEvent> {
+		/**
+		 * Registers when the mouse is released or leaves the canvas, and draws the pressed cell normally again
+		 * @param e - some mouse event
+		 */
+		@Override
+		public void handle(MouseEvent e) {
+			if(pressedCell >= 0) {
+				markDirty(pressedCell);
+				pressedCell = -1;
+			}
+		}
+	}
+
+	/**
+	 * A class for handling the scroll wheel
+	 * @author Louis Jacobowitz
+	 */
+	private class ScrollHandler implements EventHandler<ScrollEvent> {
+		/**
+		 * Zooms if the control key is held down, and scrolls otherwise
+		 * @param e - some scroll event
+		 */
+		@Override
+		public void handle(ScrollEvent e) {
+			if(e.isControlDown()) {
+				setZoom(e.getDeltaY() > 0 ? zoom * ZOOM_STEP : zoom / ZOOM_STEP, e.getX(), e.getY());
+			}
+			else {
+				hBar.setValue(Math.max(hBar.getMin(), Math.min(hBar.getMax(), offsetX - e.getDeltaX())));
+				vBar.setValue(Math.max(vBar.getMin(), Math.min(vBar.getMax(), offsetY - e.getDeltaY())));
+			}
+			e.consume();
+		}
+	}
+}
@@ -0,0 +1,297 @@
+package def;
+
+import def.endless.ChunkedBoard;
+import def.metrics.Metrics;
+import def.metrics.Operation;
+import def.model.BoardModel;
+import javafx.animation.AnimationTimer;
+import javafx.event.EventHandler;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+
+/**
+ * A view that draws an endless board onto a single Canvas. The board has no edges, so instead of
+ * scroll bars the view is panned by dragging or with the scroll wheel, and zoomed with the scroll
+ * wheel while the control key is held. Only the cells inside the viewport are ever looked at, so
+ * chunks are generated as they scroll into view.
+ * @author Louis Jacobowitz
+ */
+public class EndlessBoardView extends Region {
+	/** The size of a tile on screen at a zoom of 1, in pixels */
+	private static final double TILE_SIZE = 16;
+	/** The smallest allowed zoom */
+	private static final double MIN_ZOOM = 0.25;
+	/** The largest allowed zoom */
+	private static final double MAX_ZOOM = 4;
+	/** How much one notch of the scroll wheel zooms in or out */
+	private static final double ZOOM_STEP = 1.25;
+	/** The board controlling the game */
+	private MinesweeperBoard board;
+	/** The endless board being drawn */
+	private ChunkedBoard cells;
+	/** This view's mechanism for retrieving images */
+	private LocalImage icon;
+	/** The canvas the board is drawn on */
+	private Canvas canvas;
+	/** The current zoom */
+	private double zoom;
+	/** The distance from column 0 to the left edge of the viewport, in screen pixels */
+	private double offsetX;
+	/** The distance from row 0 to the top edge of the viewport, in screen pixels */
+	private double offsetY;
+	/** Where the mouse was when it was last pressed or dragged, in canvas coordinates */
+	private double dragX;
+	/** Where the mouse was when it was last pressed or dragged, in canvas coordinates */
+	private double dragY;
+	/** Whether the viewport has to be redrawn on the next pulse */
+	private boolean dirty;
+	/** Whether the mines should be shown, because the game is over */
+	private boolean showMines;
+	/** Whether this view responds to the mouse */
+	private boolean interactable;
+	/** The timer calling redraw() once every pulse */
+	private AnimationTimer pulse;
+
+	/**
+	 * Creates a new EndlessBoardView drawing the given board, with the origin in the middle
+	 * @param b - the board controlling the game
+	 * @param c - the endless board to draw
+	 */
+	public EndlessBoardView(MinesweeperBoard b, ChunkedBoard c) {
+		super();
+		board = b;
+		cells = c;
+		icon = LocalImage.initialize();
+		zoom = 1;
+		dirty = true;
+		interactable = true;
+		canvas = new Canvas();
+		getChildren().add(canvas);
+		canvas.setOnMouseClicked(new ClickHandler());
+		canvas.setOnMousePressed(new PressedHandler());
+		canvas.setOnMouseDragged(new DragHandler());
+		canvas.setOnScroll(new ScrollHandler());
+		pulse = new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				if(dirty) redraw();
+			}
+		};
+		pulse.start();
+	}
+
+	/**
+	 * Stops drawing. Should be called once this view is discarded.
+	 */
+	public void dispose() {
+		pulse.stop();
+	}
+
+	/**
+	 * Sets whether this view responds to clicks. It can always be panned and zoomed.
+	 * @param b - whether the board should be interactable
+	 */
+	public void setInteractable(boolean b) {
+		interactable = b;
+	}
+
+	/**
+	 * Shows every mine in view, for when the game has ended
+	 */
+	public void showMines() {
+		showMines = true;
+		dirty = true;
+	}
+
+	/**
+	 * Marks the viewport to be redrawn on the next pulse, after a move changed the board
+	 */
+	public void refresh() {
+		dirty = true;
+	}
+
+	/**
+	 * Redraws every cell in the viewport
+	 */
+	private void redraw() {
+		long start = Metrics.start();
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		double tile = TILE_SIZE * zoom;
+		Image[] images = icon.atScale(zoom * LocalImage.outputScale(canvas));
+		long firstCol = (long) Math.floor(offsetX / tile);
+		long firstRow = (long) Math.floor(offsetY / tile);
+		long lastCol = (long) Math.floor((offsetX + canvas.getWidth()) / tile);
+		long lastRow = (long) Math.floor((offsetY + canvas.getHeight()) / tile);
+		for(long i = firstRow; i <= lastRow; i++) {
+			for(long j = firstCol; j <= lastCol; j++) {
+				gc.drawImage(images[spriteFor(cells.cell(i, j)).ordinal()], j * tile - offsetX, i * tile - offsetY, tile, tile);
+			}
+		}
+		dirty = false;
+		Metrics.finish(Operation.FRAME, start, (lastRow - firstRow + 1) * (lastCol - firstCol + 1));
+	}
+
+	/**
+	 * Returns the sprite that should currently be shown for a cell
+	 * @param cell - the packed state of the cell
+	 * @return the sprite for that cell
+	 */
+	private Sprite spriteFor(int cell) {
+		boolean mine = (cell & BoardModel.MINE) != 0;
+		if((cell & BoardModel.REVEALED) != 0) {
+			return mine ? Sprite.ACTIVE_MINE : Sprite.known(cell & BoardModel.NUMBER_MASK);
+		}
+		if((cell & BoardModel.FLAGGED) != 0) {
+			return showMines && !mine ? Sprite.NOT_MINE : Sprite.FLAG;
+		}
+		if(showMines && mine) {
+			return Sprite.MINE;
+		}
+		return Sprite.UNKNOWN;
+	}
+
+	/**
+	 * Sets the zoom, keeping the given point of the canvas over the same spot on the board
+	 * @param newZoom - the new zoom
+	 * @param x - the x coordinate on the canvas to zoom around
+	 * @param y - the y coordinate on the canvas to zoom around
+	 */
+	public void setZoom(double newZoom, double x, double y) {
+		newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, newZoom));
+		double scale = newZoom / zoom;
+		zoom = newZoom;
+		offsetX = (offsetX + x) * scale - x;
+		offsetY = (offsetY + y) * scale - y;
+		dirty = true;
+	}
+
+	/**
+	 * Lays out the canvas to fill this view, keeping the origin centered the first time
+	 */
+	@Override
+	protected void layoutChildren() {
+		boolean first = canvas.getWidth() == 0 && canvas.getHeight() == 0;
+		canvas.setWidth(getWidth());
+		canvas.setHeight(getHeight());
+		if(first) {
+			offsetX = (TILE_SIZE - getWidth()) / 2;
+			offsetY = (TILE_SIZE - getHeight()) / 2;
+		}
+		dirty = true;
+	}
+
+	/**
+	 * Returns the preferred width of this view
+	 * @param height - the height this view will be given
+	 * @return the preferred width
+	 */
+	@Override
+	protected double computePrefWidth(double height) {
+		return 40 * TILE_SIZE;
+	}
+
+	/**
+	 * Returns the preferred height of this view
+	 * @param width - the width this view will be given
+	 * @return the preferred height
+	 */
+	@Override
+	protected double computePrefHeight(double width) {
+		return 30 * TILE_SIZE;
+	}
+
+	/**
+	 * A class for handling click events
+	 * @author Louis Jacobowitz
+	 */
+	private class ClickHandler implements EventHandler<MouseEvent> {
+		/**
+		 * Makes a move on the clicked cell, unless the mouse was dragged to pan the view. The primary
+		 * button reveals a hidden cell or chords a revealed one, the secondary button flags, and the
+		 * middle button chords.
+		 * @param e - some mouse event
+		 */
+		@Override
+		public void handle(MouseEvent e) {
+			if(!interactable || !e.isStillSincePress()) return;
+			double tile = TILE_SIZE * zoom;
+			long col = (long) Math.floor((e.getX() + offsetX) / tile);
+			long row = (long) Math.floor((e.getY() + offsetY) / tile);
+			int cell = cells.cell(row, col);
+			if(e.getButton() == MouseButton.SECONDARY) {
+				cells.toggleFlag(row, col);
+			}
+			else if(e.getButton() == MouseButton.MIDDLE || (cell & BoardModel.REVEALED) != 0) {
+				cells.chord(row, col);
+			}
+			else if(e.getButton() == MouseButton.PRIMARY) {
+				cells.reveal(row, col);
+			}
+			dirty = true;
+			board.endlessMoveMade();
+		}
+	}
+
+	/**
+	 * A class for handling mouse pressed events
+	 * @author Louis Jacobowitz
+	 */
+	private class PressedHandler implements EventHandler<MouseEvent> {
+		/**
+		 * Remembers where the mouse was pressed, in case it is dragged
+		 * @param e - some mouse event
+		 */
+		@Override
+		public void handle(MouseEvent e) {
+			dragX = e.getX();
+			dragY = e.getY();
+		}
+	}
+
+	/**
+	 * A class for handling drag events
+	 * @author Louis Jacobowitz
+	 */
+	private class DragHandler implements EventHandler<MouseEvent> {
+		/**
+		 * Pans the view along with the mouse
+		 * @param e - some mouse event
+		 */
+		@Override
+		public void handle(MouseEvent e) {
+			offsetX -= e.getX() - dragX;
+			offsetY -= e.getY() - dragY;
+			dragX = e.getX();
+			dragY = e.getY();
+			dirty = true;
+		}
+	}
+
+	/**
+	 * A class for handling the scroll wheel
+	 * @author Louis Jacobowitz
+	 */
+	private class ScrollHandler implements EventHandler<ScrollEvent> {
+		/**
+		 * Zooms if the control key is held down, and pans otherwise
+		 * @param e - some scroll event
+		 */
+		@Override
+		public void handle(ScrollEvent e) {
+			if(e.isControlDown()) {
+				setZoom(e.getDeltaY() > 0 ? zoom * ZOOM_STEP : zoom / ZOOM_STEP, e.getX(), e.getY());
+			}
+			else {
+				offsetX -= e.getDeltaX();
+				offsetY -= e.getDeltaY();
+				dirty = true;
+			}
+			e.consume();
+		}
+	}
+}
@@ -2,7 +2,6 @@ package def;
 
 import javafx.event.EventHandler;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
 
@@ -14,28 +13,25 @@ import javafx.scene.input.MouseEvent;
 public class FaceLabel extends Label {
 	/** A default Serial Version ID */
 	private static final long serialVersionUID = 1L;
-	/** An icon for a happy face */
-	public static ImageView happyFace;
-	/** An icon for a pressed-down happy face */
-	public static ImageView pressedFace;
-	/** An icon for a surprised face */
-	public static ImageView surprisedFace;
-	/** An icon for a dead face */
-	public static ImageView deadFace;
+	/** The view showing the current face */
+	private ImageView face;
+	/** The output scale of the screen the faces are drawn for */
+	private double scale;
 	/** The board holding this label */
 	private MinesweeperBoard board;
 	
 	/**
-	 * Constructs a new FaceLabel and initializes all the possible image icons
+	 * Constructs a new FaceLabel. Its faces come from the shared sprite atlas, so constructing
+	 * one loads no images.
 	 * @param b - board on which this is
 	 */
 	public FaceLabel(MinesweeperBoard b) {
 		super();
 		board = b;
-		happyFace = new ImageView(new Image("assets/smileyFace.png", 32, 32, true, false));
-		pressedFace = new ImageView(new Image("assets/pressedFace.png", 32, 32, true, false));
-		surprisedFace = new ImageView(new Image("assets/surprisedFace.png", 32, 32, true, false));
-		deadFace = new ImageView(new Image("assets/deadFace.png", 32, 32, true, false));
+		scale = LocalImage.screenScale();
+		face = new ImageView();
+		face.setFitWidth(Sprite.HAPPY_FACE.getSize());
+		face.setFitHeight(Sprite.HAPPY_FACE.getSize());
 		ClickHandler click = new ClickHandler();
 		PressedHandler press = new PressedHandler();
 		ReleasedHandler release = new ReleasedHandler();
@@ -45,6 +41,15 @@ public class FaceLabel extends Label {
 		this.setOnMouseDragExited(release);
 	}
 
+	/**
+	 * Shows the given face on this label
+	 * @param sprite - the face to show
+	 */
+	public void show(Sprite sprite) {
+		face.setImage(LocalImage.initialize().get(sprite, scale));
+		setGraphic(face);
+	}
+
 	private class ClickHandler implements EventHandler<MouseEvent> {
 		/**
 		 * Activates when clicked. Starts a new game.
@@ -61,7 +66,7 @@ public class FaceLabel extends Label {
 		 */
 		@Override
 		public void handle(MouseEvent e) {
-			FaceLabel.this.setGraphic(pressedFace);
+			show(Sprite.PRESSED_FACE);
 		}
 	}
 
@@ -71,7 +76,7 @@ public class FaceLabel extends Label {
 		 */
 		@Override
 		public void handle(MouseEvent e) {
-			FaceLabel.this.setGraphic(happyFace);
+			show(Sprite.HAPPY_FACE);
 		}
 	}
 }
@@ -0,0 +1,76 @@
+package def;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.control.Label;
+
+/**
+ * The game clock. It runs off the JavaFX pulse, so the time label is only ever touched on the
+ * FX thread, and it only changes the label's text when the displayed second actually changes.
+ * @author Louis Jacobowitz
+ */
+public class GameClock extends AnimationTimer {
+	/** The number of nanoseconds in a second */
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+	/** The label that displays the time */
+	private Label timeLabel;
+	/** The pulse time at which the clock started, or -1 if it has not seen a pulse yet */
+	private long startTime;
+	/** The time the clock started from, in seconds */
+	private int baseTime;
+	/** The time in the game so far, in seconds */
+	private int time;
+
+	/**
+	 * Creates a new, stopped GameClock
+	 * @param label - the label to display the time in
+	 */
+	public GameClock(Label label) {
+		super();
+		timeLabel = label;
+		startTime = -1;
+	}
+
+	/**
+	 * Resets the time to zero and starts counting
+	 */
+	public void restart() {
+		restart(0);
+	}
+
+	/**
+	 * Sets the time and starts counting up from it, for resuming a saved game
+	 * @param seconds - the time to start from
+	 */
+	public void restart(int seconds) {
+		stop();
+		startTime = -1;
+		baseTime = seconds;
+		time = seconds;
+		timeLabel.setText(String.format("Time: %3d", time));
+		start();
+	}
+
+	/**
+	 * Returns the time in the game so far
+	 * @return the number of whole seconds on the clock
+	 */
+	public int getTime() {
+		return time;
+	}
+
+	/**
+	 * Updates the time label if another second has passed
+	 * @param now - the time of the current pulse, in nanoseconds
+	 */
+	@Override
+	public void handle(long now) {
+		if(startTime < 0) {
+			startTime = now;
+		}
+		int seconds = baseTime + (int) ((now - startTime) / NANOS_PER_SECOND);
+		if(seconds != time) {
+			time = seconds;
+			timeLabel.setText(String.format("Time: %3d", time));
+		}
+	}
+}
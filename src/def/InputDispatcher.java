@@ -0,0 +1,98 @@
+package def;
+
+import javafx.scene.input.MouseButton;
+
+/**
+ * Turns the mouse input on the board's cells into game moves. There is a single dispatcher per
+ * board, shared by every cell, and double clicks are detected by comparing the times of
+ * successive clicks rather than with a timer per cell. Chords can be made by double clicking a
+ * revealed cell, by clicking it with the middle button, or by pressing the left and right
+ * buttons down on it together.
+ * @author Louis Jacobowitz
+ */
+public class InputDispatcher {
+	/** The longest time between two clicks that still makes them a double click, in nanoseconds */
+	private static final long DOUBLE_CLICK_NANOS = 300_000_000L;
+	/** The board the moves are made on */
+	private MinesweeperBoard board;
+	/** The row of the last primary click on a revealed cell, or -1 if none */
+	private int lastRow;
+	/** The column of the last primary click on a revealed cell */
+	private int lastCol;
+	/** The time of the last primary click on a revealed cell, in nanoseconds */
+	private long lastTime;
+	/** Whether both primary and secondary buttons were pressed down together, making the next click a chord */
+	private boolean chording;
+	/** The time of the last two-button chord, in nanoseconds, or -1 once its second click has been seen */
+	private long chordTime;
+
+	/**
+	 * Creates a new InputDispatcher for the given board
+	 * @param b - the board the moves are made on
+	 */
+	public InputDispatcher(MinesweeperBoard b) {
+		board = b;
+		lastRow = -1;
+		chordTime = -1;
+	}
+
+	/**
+	 * Registers a mouse button being pressed down on a cell
+	 * @param primaryDown - whether the primary button is now down
+	 * @param secondaryDown - whether the secondary button is now down
+	 */
+	public void pressed(boolean primaryDown, boolean secondaryDown) {
+		if(primaryDown && secondaryDown) {
+			chording = true;
+		}
+	}
+
+	/**
+	 * Registers a click on a cell and makes the move it stands for
+	 * @param row - the row of the clicked cell
+	 * @param col - the column of the clicked cell
+	 * @param button - the button that was clicked
+	 * @param now - the time of the click, in nanoseconds
+	 */
+	public void clicked(int row, int col, MouseButton button, long now) {
+		boolean revealed = board.getModel().isRevealed(row, col);
+		if(chording) {
+			// The first button released after a two-button press makes the chord
+			chording = false;
+			chordTime = now;
+			if(revealed) board.cellChorded(row, col);
+			lastRow = -1;
+			return;
+		}
+		if(chordTime >= 0 && now - chordTime <= DOUBLE_CLICK_NANOS) {
+			// The other button of a two-button chord being released
+			chordTime = -1;
+			return;
+		}
+		chordTime = -1;
+		if(!revealed && button == MouseButton.SECONDARY) {
+			board.cellFlagged(row, col);
+		}
+		else if(button == MouseButton.PRIMARY) {
+			if(!revealed) {
+				board.cellClicked(row, col);
+			}
+			else if(row == lastRow && col == lastCol && now - lastTime <= DOUBLE_CLICK_NANOS) {
+				// double clicked.
+				lastRow = -1;
+				board.cellChorded(row, col);
+				return;
+			}
+			else {
+				lastRow = row;
+				lastCol = col;
+				lastTime = now;
+				return;
+			}
+		}
+		else if(revealed && button == MouseButton.MIDDLE) {
+			board.cellChorded(row, col);
+		}
+		lastRow = -1;
+	}
+}
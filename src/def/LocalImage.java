@@ -1,100 +1,193 @@
 package def;
 
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import javafx.scene.Node;
+import javafx.scene.Scene;
 import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.stage.Screen;
+import javafx.stage.Window;
 
 /**
  * A class to hold all instances of images, to diminish the time it would take to load them
- * individually. It is more efficient to access them all from here, preloaded. A singleton
- * architecture is used for the task.
+ * individually. Every image is cut from a single sprite atlas, which is read from disk once. For
+ * each size a tile is drawn at on screen - which depends on the zoom and on the scale of a HiDPI
+ * screen - a copy of every sprite is scaled down from the atlas the first time that size is asked
+ * for and kept, so that drawing never resamples an image and zooming back and forth costs nothing
+ * after the first time. A singleton architecture is used for the task.
+ * <p>
+ * Only images are handed out, never nodes: a node can only be shown in one place, so each tile
+ * that shows a sprite keeps an ImageView of its own, and canvases draw the images directly.
  * @author Louis Jacobowitz
  */
 public class LocalImage {
 	/** The singleton instance of this class */
 	static LocalImage singleton = null;
-	/** An icon for a mine */
-	private ImageView mine;
-	/** An icon for a triggered mine */
-	private ImageView activeMine;
-	/** An icon for a flagged tile */
-	private ImageView flag;
-	/** An icon for a mistakenly flagged tile */
-	private ImageView notMine;
-	/** An array of icons representing clicked, non-mine tiles with varying number values */
-	private ImageView[] known;
-	/** An icon for a tile that has not been clicked on */
-	private ImageView unknown;
 	/** The maximum number of mines that can surround a square - eight, on a grid. */
 	private static final int MAX_NUM_MINES = 8;
-	
+	/** The size of a tile on screen at a zoom of 1, in pixels */
+	private static final int TILE_SIZE = Sprite.UNKNOWN.getSize();
+	/** The getOutputScaleX method of Window, or null if this version of JavaFX has none */
+	private static final Method WINDOW_SCALE = scaleMethod(Window.class);
+	/** The getOutputScaleX method of Screen, or null if this version of JavaFX has none */
+	private static final Method SCREEN_SCALE = scaleMethod(Screen.class);
+	/** The pixels of the atlas, as ARGB */
+	private int[] atlas;
+	/** The width of the atlas */
+	private int atlasWidth;
+	/** Every sprite scaled for each tile size asked for so far, keyed by the size of a tile in pixels */
+	private Map<Integer, Image[]> scaled;
+
 	/**
-	 * Constructs a new LocalImage, initializing all of the ImageViews to the respective images they represent
+	 * Constructs a new LocalImage, reading the atlas into memory
 	 */
 	private LocalImage() {
+		scaled = new HashMap<>();
 		try {
-			mine = new ImageView(new Image("assets/mine.png", 16, 16, true, false));
-			activeMine = new ImageView(new Image("assets/activeMine.png", 16, 16, true, false));
-			flag = new ImageView(new Image("assets/flag.png", 16, 16, true, false));
-			notMine = new ImageView(new Image("assets/notMine.png", 16, 16, true, false));
-			unknown = new ImageView(new Image("/assets/unknown.png", 16, 16, true, false));
-			known = new ImageView[MAX_NUM_MINES + 1];
-			for(int i = 0; i < MAX_NUM_MINES + 1; i++) {
-				known[i] = new ImageView(new Image("assets/known".concat(String.valueOf(i)).concat(".png"), 16, 16, true, false));
-			}
+			Image image = new Image("assets/sprites.png");
+			atlasWidth = (int) image.getWidth();
+			int atlasHeight = (int) image.getHeight();
+			atlas = new int[atlasWidth * atlasHeight];
+			image.getPixelReader().getPixels(0, 0, atlasWidth, atlasHeight, PixelFormat.getIntArgbInstance(), atlas, 0, atlasWidth);
 		} catch (NullPointerException | IllegalArgumentException e) {
 			e.printStackTrace();
 		}
 	}
-	
+
 	/**
-	 * Returns an image of a mine tile (viewed at endgame)
-	 * @return an ImageView for an active mine
+	 * Returns every sprite scaled for drawing at the given scale, indexed by Sprite.ordinal()
+	 * @param scale - the zoom times the output scale of the screen; 1 draws a tile 16 pixels wide
+	 * @return the scaled images
+	 */
+	public Image[] atScale(double scale) {
+		int tile = Math.max(1, (int) Math.round(TILE_SIZE * scale));
+		Image[] images = scaled.get(tile);
+		if(images == null) {
+			Sprite[] sprites = Sprite.values();
+			images = new Image[sprites.length];
+			for(int i = 0; i < sprites.length; i++) {
+				images[i] = scale(sprites[i], Math.max(1, Math.round((float) sprites[i].getSize() * tile / TILE_SIZE)));
+			}
+			scaled.put(tile, images);
+		}
+		return images;
+	}
+
+	/**
+	 * Returns a sprite scaled for drawing at the given scale
+	 * @param sprite - which sprite
+	 * @param scale - the zoom times the output scale of the screen
+	 * @return the scaled image
+	 */
+	public Image get(Sprite sprite, double scale) {
+		return atScale(scale)[sprite.ordinal()];
+	}
+
+	/**
+	 * Returns the tile for a clicked, non-mine cell, scaled for drawing at the given scale
+	 * @param num - number of surrounding mines
+	 * @param scale - the zoom times the output scale of the screen
+	 * @return an image to represent that tile
 	 */
-	public ImageView mine() {
-		return mine;
+	public Image known(int num, double scale) {
+		return get(Sprite.known(Math.min(num, MAX_NUM_MINES)), scale);
 	}
-	
+
 	/**
-	 * Returns an image of the mine tile that was clicked on
-	 * @return an ImageView for an active mine
+	 * Cuts one sprite out of the atlas and scales it to a square of the given size. Each pixel
+	 * of the result is the average of the pixels of the atlas it covers, weighted by their alpha,
+	 * so that thin lines fade rather than vanish when a tile is drawn small.
+	 * @param sprite - which sprite
+	 * @param size - the width and height of the result, in pixels
+	 * @return the scaled image
 	 */
-	public ImageView activeMine() {
-		return activeMine;
+	private Image scale(Sprite sprite, int size) {
+		int source = sprite.getSourceSize();
+		int[] pixels = new int[size * size];
+		if(atlas != null) {
+			for(int y = 0; y < size; y++) {
+				int sy0 = y * source / size;
+				int sy1 = Math.max(sy0 + 1, (y + 1) * source / size);
+				for(int x = 0; x < size; x++) {
+					int sx0 = x * source / size;
+					int sx1 = Math.max(sx0 + 1, (x + 1) * source / size);
+					long a = 0, r = 0, g = 0, b = 0;
+					for(int sy = sy0; sy < sy1; sy++) {
+						int row = (sprite.getY() + sy) * atlasWidth + sprite.getX();
+						for(int sx = sx0; sx < sx1; sx++) {
+							int argb = atlas[row + sx];
+							int alpha = argb >>> 24;
+							a += alpha;
+							r += alpha * (argb >> 16 & 0xFF);
+							g += alpha * (argb >> 8 & 0xFF);
+							b += alpha * (argb & 0xFF);
+						}
+					}
+					int count = (sy1 - sy0) * (sx1 - sx0);
+					if(a > 0) {
+						pixels[y * size + x] = (int) (a / count) << 24 | (int) (r / a) << 16 | (int) (g / a) << 8 | (int) (b / a);
+					}
+				}
+			}
+		}
+		WritableImage image = new WritableImage(size, size);
+		image.getPixelWriter().setPixels(0, 0, size, size, PixelFormat.getIntArgbInstance(), pixels, 0, size);
+		return image;
 	}
-	
+
 	/**
-	 * Returns an image of a tile that was flagged
-	 * @return an ImageView for a flagged tile
+	 * Returns how many physical pixels the window showing a node has for each of its pixels, so
+	 * images can be drawn sharp on HiDPI screens. Versions of JavaFX that do not report this are
+	 * taken to have one.
+	 * @param node - the node
+	 * @return the output scale of the node's window, or of the primary screen if it is not showing
 	 */
-	public ImageView flag() {
-		return flag;
+	public static double outputScale(Node node) {
+		Scene scene = node.getScene();
+		Window window = scene == null ? null : scene.getWindow();
+		return window == null ? screenScale() : invokeScale(WINDOW_SCALE, window);
 	}
-	
+
 	/**
-	 * Returns an image of a tile that was flagged but ended up actually not being a mine
-	 * @return an ImageView for a mistakenly flagged tile
+	 * Returns how many physical pixels the primary screen has for each of its pixels
+	 * @return the output scale of the primary screen
 	 */
-	public ImageView notMine() {
-		return notMine;
+	public static double screenScale() {
+		return invokeScale(SCREEN_SCALE, Screen.getPrimary());
 	}
-	
+
 	/**
-	 * Returns an image of an unclicked tile
-	 * @return an ImageView for an unclicked tile
+	 * Calls a getOutputScaleX method
+	 * @param method - the method, or null if there is none
+	 * @param target - the object to call it on
+	 * @return the scale it returns, or 1 if it cannot be called
 	 */
-	public ImageView unknown() {
-		return unknown;
+	private static double invokeScale(Method method, Object target) {
+		if(method == null) return 1;
+		try {
+			return Math.max(1.0, (Double) method.invoke(target));
+		} catch (ReflectiveOperationException e) {
+			return 1;
+		}
 	}
-	
+
 	/**
-	 * Returns an ImageView corresponding to the known square with the given number of surrounding mines
-	 * @param num - number of surrounding mines
-	 * @return an image to represent that tile
+	 * Looks up the getOutputScaleX method of a class, which only exists from JavaFX 9 on
+	 * @param type - the class
+	 * @return the method, or null if it does not exist
 	 */
-	public ImageView known(int num) {
-		return known[num];
+	private static Method scaleMethod(Class<?> type) {
+		try {
+			return type.getMethod("getOutputScaleX");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
 	}
-	
+
 	/**
 	 * Returns the existing singleton instance of LocalImage if it exists, or creates one if it doesn't
 	 * @return the singleton instance of LocalImage
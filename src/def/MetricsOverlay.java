@@ -0,0 +1,64 @@
+package def;
+
+import def.metrics.Metrics;
+import javafx.animation.AnimationTimer;
+import javafx.scene.control.Label;
+import javafx.scene.text.Font;
+
+/**
+ * A debug overlay showing the metrics report. Showing it turns on collecting metrics; it then
+ * refreshes the report twice a second off the JavaFX pulse, like GameClock, and stops refreshing
+ * when it is hidden. Collecting carries on once it is hidden, so the report printed on exit covers
+ * the whole session.
+ * @author Louis Jacobowitz
+ */
+public class MetricsOverlay extends AnimationTimer {
+	/** The number of nanoseconds between refreshes */
+	private static final long REFRESH_NANOS = 500_000_000L;
+	/** The label the report is shown in */
+	private Label label;
+	/** The pulse time of the last refresh */
+	private long lastRefresh;
+	/** Whether the overlay is showing */
+	private boolean showing;
+
+	/**
+	 * Creates a new, hidden MetricsOverlay
+	 * @param l - the label to show the report in
+	 */
+	public MetricsOverlay(Label l) {
+		super();
+		label = l;
+		label.setFont(Font.font("Monospaced", 11));
+		label.setVisible(false);
+		label.setManaged(false);
+	}
+
+	/**
+	 * Shows the overlay if it is hidden, or hides it if it is showing
+	 */
+	public void toggle() {
+		showing = !showing;
+		label.setVisible(showing);
+		label.setManaged(showing);
+		if(showing) {
+			Metrics.setCollecting(true);
+			label.setText(Metrics.report());
+			start();
+		}
+		else {
+			stop();
+		}
+	}
+
+	/**
+	 * Refreshes the report if enough time has passed since the last refresh
+	 * @param now - the time of the current pulse, in nanoseconds
+	 */
+	@Override
+	public void handle(long now) {
+		if(now - lastRefresh < REFRESH_NANOS) return;
+		lastRefresh = now;
+		label.setText(Metrics.report());
+	}
+}
@@ -1,20 +1,17 @@
 package def;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-
-import javax.swing.Timer;
-
+import def.model.BoardModel;
 import javafx.scene.control.Label;
+import javafx.scene.image.ImageView;
 import javafx.event.EventHandler;
 import javafx.event.EventType;
-import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 
 /**
- * A class representing a single tile on a Minesweeper board.
+ * A class representing a single tile on a Minesweeper board. This is only a view; the tile's
+ * state is kept in the board's BoardModel.
  * @author Louis Jacobowitz
  */
-public class MineSquare implements ActionListener{
+public class MineSquare {
 	/** A serial version ID */
 	private static final long serialVersionUID = 1L;
 	/** This tile's X coordinate */
@@ -23,22 +20,16 @@ public class MineSquare implements ActionListener{
 	private int ycoord;
 	/** The board of which this tile is part */
 	private MinesweeperBoard board;
+	/** The model holding this tile's state */
+	private BoardModel model;
 	/** This tile's mechanism for retrieving images */
 	private LocalImage icon;
 	/** This tile's label */
 	private Label label;
-	/** Whether or not this tile has been revealed */
-	private boolean revealed;
-	/** Whether or not this tile is a mine */
-	private boolean isMine;
-	/** Whether or not this tile has been flagged */
-	private boolean flagged;
-	/** The number of mines surrounding this tile */
-	private int number;
-	/** A temporary variable for checking double clicks */
-	private boolean clickedOnce;
-	/** The timer we'll use for checking double clicks */
-	private Timer timer;
+	/** The view showing this tile's image; each tile has its own, as a node can only be shown once */
+	private ImageView view;
+	/** The output scale of the screen the images are drawn for */
+	private double scale;
 	/** Whether or not this tile is interactable */
 	private boolean interactable;
 	
@@ -47,8 +38,9 @@ public class MineSquare implements ActionListener{
 	 * @param x - the new MineSquare's X coordinate on the board
 	 * @param y - the new MineSquare's Y coordinate on the board
 	 * @param theBoard - the board on which this square is situated
+	 * @param theModel - the model holding this square's state
 	 */
-	public MineSquare(int x, int y, MinesweeperBoard theBoard) {
+	public MineSquare(int x, int y, MinesweeperBoard theBoard, BoardModel theModel) {
 		super();
 		/*this.setSize(16, 16);
 		this.setMaximumSize(new Dimension(16, 16));
@@ -59,14 +51,14 @@ public class MineSquare implements ActionListener{
 		xcoord = x;
 		ycoord = y;
 		board = theBoard;
-		revealed = false;
-		isMine = false;
-		flagged = false;
+		model = theModel;
 		interactable = true;
-		clickedOnce = false;
-		timer = new Timer(300, this);
 		// create label
-		label = new Label(null, icon.unknown());
+		scale = LocalImage.screenScale();
+		view = new ImageView(icon.get(Sprite.UNKNOWN, scale));
+		view.setFitWidth(16);
+		view.setFitHeight(16);
+		label = new Label(null, view);
 		label.setMinSize(16, 16);
 		label.setMaxSize(16, 16);
 		label.setPrefSize(16, 16);
@@ -89,73 +81,50 @@ public class MineSquare implements ActionListener{
 		return label;
 	}
 	
-	/**
-	 * Sets this square's number of mines to the given value
-	 * @param n - the number of mines surrounding this square
-	 */
-	public void setNumber(int n) {
-		number = n;
-	}
-	
 	/**
 	 * Returns the number of mines surrounding this tile
-	 * @return this object's number variable
+	 * @return the number stored in the model for this tile
 	 */
 	public int getNumber() {
-		return number;
+		return model.getNumber(xcoord, ycoord);
 	}
 	
 	/**
 	 * Returns true if this tile has been revealed already
-	 * @return this object's revealed variable
+	 * @return whether the model has this tile revealed
 	 */
 	public boolean isRevealed() {
-		return revealed;
-	}
-	
-	/**
-	 * Sets this tile to be a mine.
-	 */
-	public void setMine() {
-		isMine = true;
+		return model.isRevealed(xcoord, ycoord);
 	}
 	
 	/**
 	 * Returns true if this tile is a mine, false otherwise
-	 * @return the value of the private isMine variable
+	 * @return whether the model has a mine on this tile
 	 */
 	public boolean isMine() {
-		return isMine;
+		return model.isMine(xcoord, ycoord);
 	}
 	
 	/**
 	 * Flags this tile, if it has not yet been revealed and is not already flagged
 	 */
 	public void flag() {
-		if(!revealed && !flagged) {
-			flagged = true;
-			label.setGraphic(icon.flag());
-			board.incrementMineCount();
-		}
+		model.flag(xcoord, ycoord);
 	}
 	
 	/**
 	 * Unflags this tile if it is flagged
 	 */
 	public void unflag() {
-		if(!revealed && !flagged) {
-			flagged = false;
-			label.setGraphic(icon.unknown());
-			board.decrementMineCount();
-		}
+		model.unflag(xcoord, ycoord);
 	}
 	
 	/**
 	 * Returns true if this tile has been flagged.
-	 * @return the value of this object's flagged variable
+	 * @return whether the model has this tile flagged
 	 */
 	public boolean isFlagged() {
-		return flagged;
+		return model.isFlagged(xcoord, ycoord);
 	}
 	
 	/**
@@ -167,23 +136,36 @@ public class MineSquare implements ActionListener{
 	}
 	
 	/**
-	 * Sets this tile to a revealed state, changing the revealed variable and changing its image.
-	 * If this tile is a mine, ends the game, because you clicked on a mine
+	 * Returns true if this square responds to the mouse: it has not been disabled, and the game is not over
+	 * @return whether this square is interactable
+	 */
+	private boolean isInteractable() {
+		return interactable && !board.isFrozen();
+	}
+	
+	/**
+	 * Updates this tile's image to match its state in the model
 	 */
-	public void setRevealed() {
-		revealed = true;
-		if(isMine) {
-			label.setGraphic(icon.activeMine());
-			//board.failGame(this);
+	public void refresh() {
+		if(isRevealed()) {
+			show(isMine() ? Sprite.ACTIVE_MINE : Sprite.known(getNumber()));
+		}
+		else if(isFlagged()) {
+			show(Sprite.FLAG);
 		}
 		else {
-			label.setGraphic(icon.known(number));
-			if(number == 0) {
-				board.clearAllAround(this);
-			}
+			show(Sprite.UNKNOWN);
 		}
 	}
 	
+	/**
+	 * Shows the given sprite on this tile, whatever its state in the model
+	 * @param sprite - the sprite to show
+	 */
+	public void show(Sprite sprite) {
+		view.setImage(icon.get(sprite, scale));
+	}
+	
 	/**
 	 * Returns this tile's x coordinate on the board
 	 * @return the value of this object's xcoord variable
@@ -211,28 +193,8 @@ public class MineSquare implements ActionListener{
 		 */
 		@Override
 		public void handle(MouseEvent e) {
-			System.out.printf("x:%d, y:%d, n:%d\n", xcoord, ycoord, number);
-			if(interactable) {
-				if (!revealed && e.getButton() == MouseButton.SECONDARY) {
-					if(flagged) unflag();
-					else flag();
-				}
-				else if(e.getButton() == MouseButton.PRIMARY) {
-					if(!revealed) {
-						board.squareClicked(MineSquare.this);
-					}
-					else if(!clickedOnce) {
-						clickedOnce = true;
-						timer.start();
-					}
-					else {
-						// double clicked.
-						board.clearAllAround(MineSquare.this);
-					}
-				}
-				else if(revealed && e.getButton() == MouseButton.MIDDLE) {
-					board.clearAllAround(MineSquare.this);
-				}
+			if(isInteractable()) {
+				board.getInput().clicked(xcoord, ycoord, e.getButton(), System.nanoTime());
 			}
 		}
 	}
@@ -249,8 +211,11 @@ public class MineSquare implements ActionListener{
 		 */
 		@Override
 		public void handle(MouseEvent e) {
-			if(!revealed && !flagged && interactable) {
-				label.setGraphic(icon.known(0));
+			if(isInteractable()) {
+				board.getInput().pressed(e.isPrimaryButtonDown(), e.isSecondaryButtonDown());
+			}
+			if(!isRevealed() && !isFlagged() && isInteractable()) {
+				show(Sprite.KNOWN_0);
 			}
 		}
 	}
@@ -267,23 +232,10 @@ public class MineSquare implements ActionListener{
 		 */
 		@Override
 		public void handle(MouseEvent e) {
-			if(!revealed && !flagged) {
-				label.setGraphic(icon.unknown());
+			if(!isRevealed() && !isFlagged()) {
+				show(Sprite.UNKNOWN);
 			}
 		}
 	}
-
-	/**
-	 * Executes if an action was performed on this object. Should ONLY be invoked by a timer, in this implementation.
-	 * Sets clickedOnce to be false, because the time to double click was too great.
-	 * @param e - triggering event
-	 */
-	@Override
-	public void actionPerformed(ActionEvent e) {
-		if(e.getSource() == timer) {
-			clickedOnce = false;
-			timer.stop();
-		}
-	}
 	
 }
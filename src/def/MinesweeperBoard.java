@@ -1,32 +1,58 @@
 package def;
 
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-
 import javafx.application.Application;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
+import javafx.scene.input.KeyCode;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
-import javax.swing.*;
+import def.endless.ChunkedBoard;
+import def.metrics.Metrics;
+import def.metrics.Operation;
+import def.model.BoardHistory;
+import def.model.BoardListener;
+import def.model.BoardModel;
+import def.model.GameState;
+import def.model.Move;
+import def.model.MoveLog;
+import def.model.Replayer;
+import def.model.SaveFile;
+import def.model.SavedGame;
+import def.solver.ConstraintSolver;
+import def.solver.NoGuessPool;
 
-import java.util.Random;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.SplittableRandom;
 
 /**
  * A class representing the board on which Minesweeper is played. Generally controls the game.
  * @author Louis Jacobowitz
  *
  */
-public class MinesweeperBoard extends Application implements ActionListener {
+public class MinesweeperBoard extends Application implements BoardListener {
 	/** A default Serial Version ID */
 	private static final long serialVersionUID = 1L;
 	/** The app name */
 	private static final String APP_NAME = "Minesweeper";
-	/** The board - an array of MineSquares that share responsibility for running the game */
+	/** Boards with more cells than this are drawn on a canvas rather than with one label per tile */
+	private static final int CANVAS_THRESHOLD = 2500;
+	/** The file type of saved games */
+	private static final FileChooser.ExtensionFilter SAVE_FILTER = new FileChooser.ExtensionFilter("Saved games", "*.msw");
+	/** The file type of move logs */
+	private static final FileChooser.ExtensionFilter LOG_FILTER = new FileChooser.ExtensionFilter("Move logs", "*.mswl");
+	/** The height, width and number of mines of the standard difficulties, kept ready in no-guess mode */
+	private static final int[][] PRESETS = { { 9, 9, 10 }, { 16, 16, 40 }, { 16, 30, 99 } };
+	/** The board - an array of MineSquares that display the state of the model */
 	private MineSquare[][] board;
+	/** The model holding the state of every tile on the board */
+	private BoardModel model;
 	/** The height of the board */
 	private int boardHeight;
 	/** The width of the board */
@@ -43,16 +69,50 @@ public class MinesweeperBoard extends Application implements ActionListener {
 	private BorderPane topPanel;
 	/** The bottom panel, in which the mines are placed */
 	private GridPane bottomPanel;
-	/** The time in the game so far */
-	private int time;
-	/** A timer for counting up the time */
-	private Timer timeTimer;
+	/** The view drawing the board on a canvas, or null if the board is drawn with labels */
+	private CanvasBoardView canvasView;
+	/** Whether to draw the board on a canvas regardless of its size */
+	private boolean forceCanvas;
+	/** Whether to play on an endless board rather than one of fixed size */
+	private boolean endlessMode;
+	/** The chance of a cell of an endless board being a mine */
+	private double endlessDensity;
+	/** The most chunks of an endless board to keep in memory */
+	private int endlessChunks;
+	/** The endless board, or null if the game is on a board of fixed size */
+	private ChunkedBoard endless;
+	/** The view drawing the endless board, or null if the game is on a board of fixed size */
+	private EndlessBoardView endlessView;
+	/** The source of the seed for each new game */
+	private SplittableRandom seeds;
+	/** The clock counting up the time */
+	private GameClock clock;
+	/** The dispatcher turning clicks on the board into moves */
+	private InputDispatcher input;
+	/** The solver used to give hints */
+	private ConstraintSolver solver;
+	/** The pool of boards that need no guessing, or null to play on ordinary boards */
+	private NoGuessPool noGuessPool;
+	/** The window the game is shown in */
+	private Stage stage;
+	/** Whether the game is over, so the board no longer responds to the mouse */
+	private boolean frozen;
+	/** The moves of the game being played, to take back and make again, or null on an endless board */
+	private BoardHistory history;
+	/** The replay being shown, or null if the game is being played */
+	private Replayer replayer;
+	/** The game being played, put aside while it is replayed */
+	private BoardModel liveModel;
+	/** The time on the clock when the replay started */
+	private int liveTime;
 	/** The label that displays the time */
 	private Label timeLabel;
 	/** The label that the mine counter uses */
 	private Label mineLabel;
 	/** The face label */
 	private FaceLabel faceLabel;
+	/** The debug overlay showing how long gameplay operations take */
+	private MetricsOverlay metricsOverlay;
 	
 	/**
 	 * Creates a new MinesweeperBoard, initializing the display and calling newGame().
@@ -66,119 +126,415 @@ public class MinesweeperBoard extends Application implements ActionListener {
 	 * Starts a new game, initializing the board and the mines.
 	 */
 	public void newGame() {
+		if(endlessMode) {
+			clearBoard();
+			history = null;
+			newEndlessGame();
+			return;
+		}
+		// Mines are placed from the seed on the first click, so that the first click is never a mine
+		long start = Metrics.start();
+		replayer = null;
+		showBoard(new BoardModel(boardHeight, boardWidth, numMines, seeds.nextLong()));
+		// Moves are packed with their cell in 30 bits, so a bigger board is played with no log or undo
+		if(model.size() <= Move.MAX_CELLS) {
+			model.setMoveLog(MoveLog.of(model));
+			history = new BoardHistory(model);
+		}
+		else {
+			history = null;
+		}
+		clock.restart();
+		Metrics.finish(Operation.NEW_GAME, start, model.size());
+	}
+
+	/**
+	 * Removes the current board and its views
+	 */
+	private void clearBoard() {
+		if(model != null) model.removeListener(this);
 		bottomPanel.getChildren().clear();
-		// Set up board
-		board = new MineSquare[boardHeight][boardWidth];
-		for(int i = 0; i < boardHeight; i++) {
-			for(int j = 0; j < boardWidth; j++) {
-				board[i][j] = new MineSquare(i, j, this);
-			}
+		if(canvasView != null) {
+			canvasView.dispose();
+			root.getChildren().remove(canvasView);
+			canvasView = null;
+		}
+		if(endlessView != null) {
+			endlessView.dispose();
+			root.getChildren().remove(endlessView);
+			endlessView = null;
+			endless.close();
+			endless = null;
+		}
+	}
+
+	/**
+	 * Replaces the current board with the given one, and sets up the views to show it
+	 * @param m - the model of the new board
+	 */
+	private void showBoard(BoardModel m) {
+		clearBoard();
+		model = m;
+		frozen = false;
+		boardHeight = model.getHeight();
+		boardWidth = model.getWidth();
+		numMines = model.getNumMines();
+		model.addListener(this);
+		if(solver != null) solver.dispose();
+		solver = new ConstraintSolver(model);
+		// Set up the view - big boards go on a single canvas, small ones get a label per tile
+		if(forceCanvas || (long) boardHeight * boardWidth > CANVAS_THRESHOLD) {
+			board = null;
+			canvasView = new CanvasBoardView(this, model);
+			root.getChildren().add(canvasView);
+			VBox.setVgrow(canvasView, Priority.ALWAYS);
 		}
-		// Set up mines
-		Random rand = new Random();
-		for(int k = 0; k < numMines; k++) {
-			MineSquare randomSquare;
-			do {
-				randomSquare = board[rand.nextInt(boardHeight)][rand.nextInt(boardWidth)];
-			} while (randomSquare.isMine());
-			randomSquare.setMine();
-		}
-		// Add the tiles to the board
-		// Also set the number of adjacent mines.
-		for(int i = 0; i < boardHeight; i++) {
-			for(int j = 0; j < boardWidth; j++) {
-				bottomPanel.getChildren().add(board[i][j].getLabel());
-				//board[i][j].setSize(16,16);
-				int mineCount = 0;
-				if(i - 1 >= 0 && j - 1 >= 0 && board[i - 1][j - 1].isMine()) mineCount++;
-				if(i - 1 >= 0 && board[i - 1][j].isMine()) mineCount++;
-				if(i - 1 >= 0 && j + 1 < boardWidth && board[i - 1][j + 1].isMine()) mineCount++;
-				if(j - 1 >= 0 && board[i][j - 1].isMine()) mineCount++;
-				if(j + 1 < boardWidth && board[i][j + 1].isMine()) mineCount++;
-				if(i + 1 < boardHeight && j - 1 >= 0 && board[i + 1][j - 1].isMine()) mineCount++;
-				if(i + 1 < boardHeight && board[i + 1][j].isMine()) mineCount++;
-				if(i + 1 < boardHeight && j + 1 < boardWidth && board[i + 1][j + 1].isMine()) mineCount++;
-				board[i][j].setNumber(mineCount);
-				//if(board[i][j].isMine()) board[i][j].setIcon(icon.mine());
-				//else board[i][j].setIcon(icon.known(board[i][j].getNumber()));
+		else {
+			board = new MineSquare[boardHeight][boardWidth];
+			for(int i = 0; i < boardHeight; i++) {
+				for(int j = 0; j < boardWidth; j++) {
+					board[i][j] = new MineSquare(i, j, this, model);
+					bottomPanel.add(board[i][j].getLabel(), j, i);
+				}
 			}
 		}
-		// Initialize time
-		time = 0;
-		timeLabel.setText("Time: 000");
-		timeTimer.stop();
-		timeTimer.start();
+		currentNumMines = model.getMinesRemaining();
+		mineLabel.setText(String.format("Mines: %3d", currentNumMines));
+	}
+
+	/**
+	 * Asks for a file and saves the current game to it
+	 */
+	public void saveGame() {
+		if(endlessMode) return;
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Save Game");
+		chooser.getExtensionFilters().add(SAVE_FILTER);
+		File file = chooser.showSaveDialog(stage);
+		if(file == null) return;
+		try {
+			SaveFile.save(model, clock.getTime(), file.toPath());
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Asks for a saved game and resumes it, with the clock where it was left
+	 */
+	public void loadGame() {
+		if(endlessMode) return;
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Load Game");
+		chooser.getExtensionFilters().add(SAVE_FILTER);
+		File file = chooser.showOpenDialog(stage);
+		if(file == null) return;
+		SavedGame saved;
+		try {
+			saved = SaveFile.open(file.toPath());
+		} catch(IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		replayer = null;
+		showBoard(saved.restore());
+		history = model.size() <= Move.MAX_CELLS ? new BoardHistory(model) : null;
+		clock.restart(saved.getTime());
+		// A game saved after it ended stays over
+		checkGameOver();
+	}
+
+	/**
+	 * Asks for a file and writes the log of every move made in the current game to it
+	 */
+	public void exportMoveLog() {
+		if(endlessMode || model.getMoveLog() == null) return;
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Export Moves");
+		chooser.getExtensionFilters().add(LOG_FILTER);
+		File file = chooser.showSaveDialog(stage);
+		if(file == null) return;
+		try {
+			model.getMoveLog().save(file.toPath());
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
 	}
 
+	/**
+	 * Switches between playing the current game and replaying it. While replaying, the board
+	 * shows the game as it was after some move, and clicks are ignored; leaving the replay puts
+	 * the game back where it was, with the clock where it stopped.
+	 */
+	public void toggleReplay() {
+		if(endlessMode) return;
+		if(replayer == null) {
+			MoveLog log = model.getMoveLog();
+			if(log == null) return;
+			liveModel = model;
+			liveTime = clock.getTime();
+			clock.stop();
+			replayer = new Replayer(log);
+			showBoard(replayer.getModel());
+			replayer.seek(replayer.length());
+			frozen = true;
+		}
+		else {
+			replayer = null;
+			showBoard(liveModel);
+			liveModel = null;
+			clock.restart(liveTime);
+			checkGameOver();
+		}
+	}
+
+	/**
+	 * Moves the replay forward or back by some number of moves
+	 * @param moves - how many moves to go forward, or back if negative
+	 */
+	public void stepReplay(int moves) {
+		if(replayer != null) replayer.seek(replayer.getPosition() + moves);
+	}
+
+
+	/**
+	 * Starts a new game on an endless board, with the cells around the origin already revealed
+	 */
+	private void newEndlessGame() {
+		try {
+			endless = new ChunkedBoard(seeds.nextLong(), endlessDensity, endlessChunks);
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		endless.reveal(0, 0);
+		endlessView = new EndlessBoardView(this, endless);
+		root.getChildren().add(endlessView);
+		VBox.setVgrow(endlessView, Priority.ALWAYS);
+		mineLabel.setText(String.format("Cleared: %d", endless.getRevealedCount()));
+		clock.restart();
+	}
+
+	/**
+	 * Updates the counter after a move on the endless board, failing the game if a mine was revealed
+	 */
+	public void endlessMoveMade() {
+		mineLabel.setText(String.format("Cleared: %d", endless.getRevealedCount()));
+		if(endless.hasExploded()) {
+			endlessView.setInteractable(false);
+			endlessView.showMines();
+			clock.stop();
+		}
+	}
+
+	/**
+	 * Reveals the given square, failing the game if it was a mine
+	 * @param sender - the square that was clicked
+	 */
 	public void squareClicked(MineSquare sender) {
-		if(sender.isRevealed()) return;
-		sender.setRevealed();
+		cellClicked(sender.getx(), sender.gety());
 	}
 	
 	/**
-	 * Increments the mine counter, changing the label to match
+	 * Reveals the cell at the given position, failing the game if it was a mine
+	 * @param row - the row of the cell that was clicked
+	 * @param col - the column of the cell that was clicked
 	 */
-	public void incrementMineCount() {
-		currentNumMines++;
-		mineLabel.setText(String.format("Mines: %3d", currentNumMines));
+	public void cellClicked(int row, int col) {
+		if(model.isRevealed(row, col)) return;
+		if(!model.areMinesPlaced() && noGuessPool != null) {
+			// Take a ready board if there is one; otherwise fall back to placing mines from the seed
+			int[] mines = noGuessPool.take(boardHeight, boardWidth, numMines, row, col);
+			if(mines != null) model.placeMines(mines);
+		}
+		if(history != null) history.reveal(row, col);
+		else model.reveal(row, col);
+		checkGameOver();
 	}
 	
 	/**
-	 * Decrements the mine counter, changing the label to match
+	 * Updates the tile view of a cell whose state changed in the model
+	 * @param row - the row of the changed cell
+	 * @param col - the column of the changed cell
 	 */
-	public void decrementMineCount() {
-		currentNumMines--;
+	@Override
+	public void cellChanged(int row, int col) {
+		if(board != null) board[row][col].refresh();
+	}
+	
+	/**
+	 * Updates the mine counter, changing the label to match
+	 * @param minesRemaining - the number of mines not yet flagged
+	 */
+	@Override
+	public void minesRemainingChanged(int minesRemaining) {
+		currentNumMines = minesRemaining;
 		mineLabel.setText(String.format("Mines: %3d", currentNumMines));
 	}
 	
+	/**
+	 * Ends the game after a mine was revealed, showing every other mine and disabling all tiles
+	 * @param sender - the tile holding the mine that was revealed
+	 */
 	public void failGame(MineSquare sender) {
-		for(int i = 0; i < boardHeight; i++) {
-			for(int j = 0; j < boardWidth; j++) {
-				board[i][j].setInteractable(false);
-				if(board[i][j].isMine() && board[i][j] != sender) {
-					board[i][j].getLabel().setGraphic(icon.mine());
+		failGame(sender.getx(), sender.gety());
+	}
+	
+	/**
+	 * Ends the game after a mine was revealed, showing every other mine and disabling all tiles
+	 * @param row - the row of the cell that caused the game to end
+	 * @param col - the column of the cell that caused the game to end
+	 */
+	public void failGame(int row, int col) {
+		frozen = true;
+		if(canvasView != null) {
+			canvasView.showMines();
+		}
+		else {
+			for(int index : model.getMines()) {
+				MineSquare square = board[index / boardWidth][index % boardWidth];
+				if(!square.isRevealed() && !square.isFlagged()) {
+					square.show(Sprite.MINE);
 				}
 			}
 		}
-		timeTimer.stop();
+		clock.stop();
+	}
+
+	/**
+	 * Ends the game after every safe cell was revealed or every mine flagged, flagging any mines
+	 * left and disabling the board
+	 */
+	public void winGame() {
+		frozen = true;
+		if(canvasView != null) {
+			canvasView.flagMines();
+		}
+		else {
+			for(int index : model.getMines()) {
+				board[index / boardWidth][index % boardWidth].show(Sprite.FLAG);
+			}
+		}
+		mineLabel.setText(String.format("Mines: %3d", 0));
+		clock.stop();
+	}
+
+	/**
+	 * Ends the game if the last move won or lost it
+	 */
+	private void checkGameOver() {
+		if(model.getState() == GameState.LOST) failGame(-1, -1);
+		else if(model.getState() == GameState.WON) winGame();
+	}
+
+	/**
+	 * Returns true once the game is over and the board no longer responds to the mouse
+	 * @return the value of this object's frozen variable
+	 */
+	public boolean isFrozen() {
+		return frozen;
 	}
 	
+	/**
+	 * Reveals every unflagged tile around the given one, if it has as many flags around it as it has mines
+	 * @param sender - the revealed tile being chorded
+	 */
 	public void clearAllAround(MineSquare sender) {
-		// First, check the number of mines around the sender
-		int minesAround = 0;
-		int i = sender.getx();
-		int j = sender.gety();
-		if(i - 1 >= 0 && j - 1 >= 0 && board[i - 1][j - 1].isFlagged()) minesAround++;
-		if(i - 1 >= 0 && board[i - 1][j].isFlagged()) minesAround++;
-		if(i - 1 >= 0 && j + 1 < boardHeight && board[i - 1][j + 1].isFlagged()) minesAround++;
-		if(j - 1 >= 0 && board[i][j - 1].isFlagged()) minesAround++;
-		if(j + 1 < j && board[i][j + 1].isFlagged()) minesAround++;
-		if(i + 1 < boardWidth && j - 1 >= 0 && board[i + 1][j - 1].isFlagged()) minesAround++;
-		if(i + 1 < boardWidth && board[i + 1][j].isFlagged()) minesAround++;
-		if(i + 1 < boardWidth && j + 1 < boardHeight && board[i + 1][j + 1].isFlagged()) minesAround++;
-		// If number of flagged mines is equal to the number there are supposed to be, then clear all non-flagged
-		if(minesAround == sender.getNumber() || sender.getNumber() == 0) {
-			if(i - 1 >= 0 && j - 1 >= 0 && !board[i - 1][j - 1].isFlagged() && !board[i - 1][j - 1].isRevealed()) board[i - 1][j - 1].setRevealed();
-			if(i - 1 >= 0 && !board[i - 1][j].isFlagged() && !board[i - 1][j].isRevealed()) board[i - 1][j].setRevealed();
-			if(i - 1 >= 0 && j + 1 < boardHeight && !board[i - 1][j + 1].isFlagged() && !board[i - 1][j + 1].isRevealed()) board[i - 1][j + 1].setRevealed();
-			if(j - 1 >= 0 && !board[i][j - 1].isFlagged() && !board[i][j - 1].isRevealed()) board[i][j - 1].setRevealed();
-			if(j + 1 < j && !board[i][j + 1].isFlagged() && !board[i][j + 1].isRevealed()) board[i][j + 1].setRevealed();
-			if(i + 1 < boardWidth && j - 1 >= 0 && !board[i + 1][j - 1].isFlagged() && !board[i + 1][j - 1].isRevealed()) board[i + 1][j - 1].setRevealed();
-			if(i + 1 < boardWidth && !board[i + 1][j].isFlagged() && !board[i + 1][j].isRevealed()) board[i + 1][j].setRevealed();
-			if(i + 1 < boardWidth && j + 1 < boardHeight && !board[i + 1][j + 1].isFlagged() && !board[i + 1][j + 1].isRevealed()) board[i + 1][j + 1].setRevealed();
+		cellChorded(sender.getx(), sender.gety());
+	}
+	
+	/**
+	 * Reveals every unflagged cell around the given one, if it has as many flags around it as it has mines
+	 * @param row - the row of the revealed cell being chorded
+	 * @param col - the column of the revealed cell being chorded
+	 */
+	public void cellChorded(int row, int col) {
+		if(history != null) history.chord(row, col);
+		else model.chord(row, col);
+		checkGameOver();
+	}
+
+	/**
+	 * Flags the cell at the given position if it is unflagged, or unflags it if it is flagged
+	 * @param row - the row of the cell
+	 * @param col - the column of the cell
+	 */
+	public void cellFlagged(int row, int col) {
+		if(history != null) history.toggleFlag(row, col);
+		else model.toggleFlag(row, col);
+		checkGameOver();
+	}
+
+	/**
+	 * Takes back the last move, even one that ended the game
+	 */
+	public void undo() {
+		if(endlessMode || replayer != null || history == null) return;
+		boolean over = frozen;
+		if(history.undo()) historyMoved(over);
+	}
+
+	/**
+	 * Makes the last move taken back again
+	 */
+	public void redo() {
+		if(endlessMode || replayer != null || history == null) return;
+		boolean over = frozen;
+		if(history.redo()) historyMoved(over);
+	}
+
+	/**
+	 * Brings the views up to date after a step through the history, which the listeners have
+	 * already been told the changed cells of
+	 * @param over - whether the game was over before the step
+	 */
+	private void historyMoved(boolean over) {
+		// What the solver found may rest on a flag or the mines that are no longer there
+		solver.rescan();
+		if(over && model.getState() == GameState.PLAYING) {
+			// The views still show the end of the game - every mine, or every mine flagged
+			frozen = false;
+			if(canvasView != null) {
+				canvasView.hideMines();
+			}
+			else {
+				for(int index : model.getMines()) {
+					board[index / boardWidth][index % boardWidth].refresh();
+				}
+			}
+			mineLabel.setText(String.format("Mines: %3d", currentNumMines));
+			clock.restart(clock.getTime());
+		}
+		else if(!over) {
+			checkGameOver();
 		}
 	}
 
-	@Override
-	public void actionPerformed(ActionEvent e) {
-		//System.out.println("Start timer");
-		if(e.getSource() == timeTimer) {
-			// Increment time
-			time++;
-			timeLabel.setText(String.format("Time: %3d", time));
-			
+	/**
+	 * Gives the player a hint by revealing a cell the solver has found to be certainly safe,
+	 * if there is one
+	 */
+	public void hint() {
+		if(endlessMode || replayer != null || !model.areMinesPlaced()) return;
+		int index = solver.nextSafe();
+		if(index >= 0) {
+			cellClicked(index / boardWidth, index % boardWidth);
 		}
-		
+	}
+	
+	/**
+	 * Returns the model holding the state of the current game
+	 * @return the value of this object's model variable
+	 */
+	public BoardModel getModel() {
+		return model;
+	}
+	
+	/**
+	 * Returns the dispatcher that turns clicks on the board into moves
+	 * @return the value of this object's input variable
+	 */
+	public InputDispatcher getInput() {
+		return input;
 	}
 
 	public static void main(String[] args) {
@@ -192,23 +548,40 @@ public class MinesweeperBoard extends Application implements ActionListener {
 	public void start(Stage primaryStage) throws Exception {
 		// First set title
 		primaryStage.setTitle(APP_NAME);
+		stage = primaryStage;
 		// Set up main container
 		root = new VBox();
 		topPanel = new BorderPane();
 		bottomPanel = new GridPane();
 		root.getChildren().addAll(topPanel, bottomPanel);
-		// Set default boardHeight and boardWidth
-		boardHeight = 10;//16;
-		boardWidth = 19;//30;
-		numMines = 10;//99;
+		// Set default boardHeight and boardWidth, which can be overridden on the command line
+		boardHeight = Integer.getInteger("minesweeper.height", 10);//16;
+		boardWidth = Integer.getInteger("minesweeper.width", 19);//30;
+		numMines = Integer.getInteger("minesweeper.mines", 10);//99;
+		forceCanvas = "canvas".equals(System.getProperty("minesweeper.renderer"));
+		// An endless board is chosen with -Dminesweeper.mode=endless; its size then comes from the density
+		endlessMode = "endless".equals(System.getProperty("minesweeper.mode"));
+		endlessDensity = Double.parseDouble(System.getProperty("minesweeper.density", String.valueOf(ChunkedBoard.DEFAULT_DENSITY)));
+		endlessChunks = Integer.getInteger("minesweeper.chunks", ChunkedBoard.DEFAULT_MAX_CHUNKS);
+		// Games are reproducible if a seed is given
+		Long seed = Long.getLong("minesweeper.seed");
+		seeds = seed == null ? new SplittableRandom() : new SplittableRandom(seed);
+		// Boards that need no guessing are generated in the background, starting with the current size
+		if(Boolean.getBoolean("minesweeper.noguess")) {
+			noGuessPool = new NoGuessPool(NoGuessPool.DEFAULT_DEPTH);
+			noGuessPool.register(boardHeight, boardWidth, numMines);
+			for(int[] preset : PRESETS) {
+				noGuessPool.register(preset[0], preset[1], preset[2]);
+			}
+		}
 		
 		// Initialize icon
 		icon = LocalImage.initialize();
 		
 		// Put things in the top panel! Start with initializing the timer.
 		timeLabel = new Label("Time: 000");
-		timeTimer = new Timer(1000, this);
-		timeTimer.start();
+		clock = new GameClock(timeLabel);
+		input = new InputDispatcher(this);
 		topPanel.setRight(timeLabel);
 		// Next, initialize the mine label
 		currentNumMines = numMines;
@@ -217,9 +590,29 @@ public class MinesweeperBoard extends Application implements ActionListener {
 		// Finally, add the face label
 		faceLabel = new FaceLabel(this);
 		topPanel.setCenter(faceLabel);
+		// The metrics overlay sits under the top panel, hidden until F3 is pressed
+		Label metricsLabel = new Label();
+		metricsOverlay = new MetricsOverlay(metricsLabel);
+		topPanel.setBottom(metricsLabel);
 		
 		newGame();
-		primaryStage.setScene(new Scene(root, 500, 500));
+		Scene scene = new Scene(root, 500, 500);
+		scene.setOnKeyPressed(e -> {
+			if(e.getCode() == KeyCode.H) hint();
+			else if(e.getCode() == KeyCode.S && e.isShortcutDown()) saveGame();
+			else if(e.getCode() == KeyCode.O && e.isShortcutDown()) loadGame();
+			else if(e.getCode() == KeyCode.E && e.isShortcutDown()) exportMoveLog();
+			else if(e.getCode() == KeyCode.Z && e.isShortcutDown() && e.isShiftDown()) redo();
+			else if(e.getCode() == KeyCode.Z && e.isShortcutDown()) undo();
+			else if(e.getCode() == KeyCode.Y && e.isShortcutDown()) redo();
+			else if(e.getCode() == KeyCode.R) toggleReplay();
+			else if(e.getCode() == KeyCode.LEFT) stepReplay(-1);
+			else if(e.getCode() == KeyCode.RIGHT) stepReplay(1);
+			else if(e.getCode() == KeyCode.HOME) stepReplay(Integer.MIN_VALUE / 2);
+			else if(e.getCode() == KeyCode.END) stepReplay(Integer.MAX_VALUE / 2);
+			else if(e.getCode() == KeyCode.F3) metricsOverlay.toggle();
+		});
+		primaryStage.setScene(scene);
 		System.out.println("Finished constructor");
 		
 	}
@@ -0,0 +1,113 @@
+package def;
+
+/**
+ * The images packed into the sprite atlas, each with the region of the atlas it is cut from and
+ * the size it is shown at on screen at a zoom of 1. Tiles are drawn from 32 pixel squares and
+ * shown at 16; faces are drawn from 52 pixel squares and shown at 32, so there is detail to spare
+ * when zooming in or on HiDPI screens.
+ * @author Louis Jacobowitz
+ */
+public enum Sprite {
+	/** A tile that has not been clicked on */
+	UNKNOWN(0, 0, 32, 16),
+	/** A clicked tile with no mines around it */
+	KNOWN_0(32, 0, 32, 16),
+	/** A clicked tile with one mine around it */
+	KNOWN_1(64, 0, 32, 16),
+	/** A clicked tile with two mines around it */
+	KNOWN_2(96, 0, 32, 16),
+	/** A clicked tile with three mines around it */
+	KNOWN_3(128, 0, 32, 16),
+	/** A clicked tile with four mines around it */
+	KNOWN_4(160, 0, 32, 16),
+	/** A clicked tile with five mines around it */
+	KNOWN_5(192, 0, 32, 16),
+	/** A clicked tile with six mines around it */
+	KNOWN_6(224, 0, 32, 16),
+	/** A clicked tile with seven mines around it */
+	KNOWN_7(256, 0, 32, 16),
+	/** A clicked tile with eight mines around it */
+	KNOWN_8(288, 0, 32, 16),
+	/** A mine, shown at the end of the game */
+	MINE(320, 0, 32, 16),
+	/** The mine that was clicked on */
+	ACTIVE_MINE(352, 0, 32, 16),
+	/** A flagged tile */
+	FLAG(384, 0, 32, 16),
+	/** A tile that was flagged but was not a mine */
+	NOT_MINE(416, 0, 32, 16),
+	/** The face while a game is being played */
+	HAPPY_FACE(0, 32, 52, 32),
+	/** The face while it is pressed down */
+	PRESSED_FACE(52, 32, 52, 32),
+	/** The face while a tile is pressed down */
+	SURPRISED_FACE(104, 32, 52, 32),
+	/** The face after a game is lost */
+	DEAD_FACE(156, 32, 52, 32);
+
+	/** The tiles for clicked cells, indexed by the number of mines around them */
+	private static final Sprite[] KNOWN = {KNOWN_0, KNOWN_1, KNOWN_2, KNOWN_3, KNOWN_4, KNOWN_5, KNOWN_6, KNOWN_7, KNOWN_8};
+	/** The x coordinate of the sprite's region of the atlas */
+	private final int x;
+	/** The y coordinate of the sprite's region of the atlas */
+	private final int y;
+	/** The width and height of the sprite's region of the atlas */
+	private final int sourceSize;
+	/** The width and height of the sprite on screen at a zoom of 1 */
+	private final int size;
+
+	/**
+	 * Creates a new Sprite
+	 * @param x - the x coordinate of its region of the atlas
+	 * @param y - the y coordinate of its region of the atlas
+	 * @param sourceSize - the width and height of its region of the atlas
+	 * @param size - its width and height on screen at a zoom of 1
+	 */
+	Sprite(int x, int y, int sourceSize, int size) {
+		this.x = x;
+		this.y = y;
+		this.sourceSize = sourceSize;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the tile for a clicked, non-mine cell with the given number of mines around it
+	 * @param num - number of surrounding mines
+	 * @return the sprite for that tile
+	 */
+	public static Sprite known(int num) {
+		return KNOWN[num];
+	}
+
+	/**
+	 * Returns the x coordinate of this sprite's region of the atlas
+	 * @return the value of this object's x variable
+	 */
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 * Returns the y coordinate of this sprite's region of the atlas
+	 * @return the value of this object's y variable
+	 */
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * Returns the width and height of this sprite's region of the atlas
+	 * @return the value of this object's sourceSize variable
+	 */
+	public int getSourceSize() {
+		return sourceSize;
+	}
+
+	/**
+	 * Returns the width and height of this sprite on screen at a zoom of 1
+	 * @return the value of this object's size variable
+	 */
+	public int getSize() {
+		return size;
+	}
+}
@@ -0,0 +1,156 @@
+package def.bot;
+
+import java.util.Arrays;
+
+import def.model.GameState;
+
+/**
+ * What a batch of moves did to the board: for each move in turn, the cells it changed and what
+ * each of those cells now shows. The changes of every move are kept end to end in two parallel
+ * primitive arrays, with the end of each move's run kept in a third, so a result can be filled
+ * and read again and again without allocating once its arrays have grown to fit.
+ * <p>
+ * A cell's value is its packed cell byte as seen by the player: a revealed cell shows its number
+ * and whether it is a mine, and a hidden cell shows only whether it is flagged. The bits are
+ * those of BoardModel.
+ * @author Louis Jacobowitz
+ */
+public class BatchResult {
+	/** The flat indices of the changed cells of every move, end to end */
+	private int[] cells;
+	/** The value each changed cell now shows, parallel to cells */
+	private byte[] values;
+	/** For each move, the index in cells after its last changed cell */
+	private int[] ends;
+	/** The number of entries of cells and values in use */
+	private int count;
+	/** The number of moves the result covers */
+	private int moves;
+	/** The state of the game after the batch */
+	private GameState state;
+	/** The number of mines minus the number of flags after the batch */
+	private int minesRemaining;
+
+	/**
+	 * Creates a new, empty BatchResult
+	 * @param capacity - the number of moves, and of changed cells, the result can hold without growing
+	 */
+	public BatchResult(int capacity) {
+		capacity = Math.max(capacity, 16);
+		cells = new int[capacity];
+		values = new byte[capacity];
+		ends = new int[capacity];
+		state = GameState.PLAYING;
+	}
+
+	/**
+	 * Empties the result so it can be filled again
+	 */
+	void clear() {
+		count = 0;
+		moves = 0;
+	}
+
+	/**
+	 * Records a cell changed by the current move
+	 * @param index - the flat index of the cell
+	 * @param value - the value the cell now shows
+	 */
+	void add(int index, int value) {
+		if(count == cells.length) {
+			cells = Arrays.copyOf(cells, count * 2);
+			values = Arrays.copyOf(values, count * 2);
+		}
+		cells[count] = index;
+		values[count++] = (byte) value;
+	}
+
+	/**
+	 * Ends the current move, so the cells recorded next belong to the move after it
+	 */
+	void endMove() {
+		if(moves == ends.length) {
+			ends = Arrays.copyOf(ends, moves * 2);
+		}
+		ends[moves++] = count;
+	}
+
+	/**
+	 * Records how the game stands after the batch
+	 * @param state - the state of the game
+	 * @param minesRemaining - the number of mines minus the number of flags
+	 */
+	void finish(GameState state, int minesRemaining) {
+		this.state = state;
+		this.minesRemaining = minesRemaining;
+	}
+
+	/**
+	 * Returns the number of moves the result covers, which is the size of the batch
+	 * @return the value of this object's moves variable
+	 */
+	public int moves() {
+		return moves;
+	}
+
+	/**
+	 * Returns the position of the first cell changed by a move
+	 * @param move - which move of the batch
+	 * @return the index, for cell() and value(), of the move's first changed cell
+	 */
+	public int start(int move) {
+		return move == 0 ? 0 : ends[move - 1];
+	}
+
+	/**
+	 * Returns the position after the last cell changed by a move. A move that changed nothing,
+	 * because it was made on a revealed cell or after the game ended, has start(move) == end(move).
+	 * @param move - which move of the batch
+	 * @return the index, for cell() and value(), after the move's last changed cell
+	 */
+	public int end(int move) {
+		return ends[move];
+	}
+
+	/**
+	 * Returns the number of cells changed by the whole batch
+	 * @return the value of this object's count variable
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Returns one of the changed cells
+	 * @param i - which changed cell, from 0 to size() - 1
+	 * @return the flat index of the cell
+	 */
+	public int cell(int i) {
+		return cells[i];
+	}
+
+	/**
+	 * Returns what one of the changed cells now shows
+	 * @param i - which changed cell, from 0 to size() - 1
+	 * @return the cell's packed byte as seen by the player
+	 */
+	public int value(int i) {
+		return values[i];
+	}
+
+	/**
+	 * Returns the state of the game after the batch
+	 * @return the value of this object's state variable
+	 */
+	public GameState getState() {
+		return state;
+	}
+
+	/**
+	 * Returns the number of mines minus the number of flags after the batch
+	 * @return the value of this object's minesRemaining variable
+	 */
+	public int getMinesRemaining() {
+		return minesRemaining;
+	}
+}
@@ -0,0 +1,280 @@
+package def.bot;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import def.model.BoardModel;
+import def.model.GameState;
+import def.model.Move;
+import def.model.RevealDelta;
+
+/**
+ * A game for a program to play. Moves are made a batch at a time, and the cells each move
+ * changed come back in a BatchResult, without the board, its mines or any GUI ever being
+ * exposed to the agent.
+ * <p>
+ * A batch can be played at once with play(), or pipelined: the session keeps a few slots, each
+ * holding a MoveBatch and a BatchResult, and a thread of its own that plays submitted batches in
+ * order. An agent takes a free batch with nextBatch(), fills it and submit()s it, and may then
+ * fill and submit the next one while the first is still being played, up to the number of slots.
+ * Results come back in order from take(), and are handed back with release() once read. The
+ * slots and their buffers are reused for the life of the session, so a running agent allocates
+ * nothing. A session is meant to be driven by one agent thread.
+ * @author Louis Jacobowitz
+ */
+public class BotSession implements AutoCloseable {
+	/** The number of moves, and of changed cells, the buffers of a slot start out holding */
+	private static final int INITIAL_CAPACITY = 256;
+	/** The board being played */
+	private final BoardModel model;
+	/** The slots not in use */
+	private final BlockingQueue<Slot> free;
+	/** The slots submitted and waiting to be played */
+	private final BlockingQueue<Slot> pending;
+	/** The slots played and waiting to be taken */
+	private final BlockingQueue<Slot> done;
+	/** The thread batches are played on */
+	private final Thread worker;
+	/** The slot whose batch is being filled, or null if there is none */
+	private Slot filling;
+	/** The slot whose result has been taken and not yet released, or null if there is none */
+	private Slot taken;
+	/** The number of batches submitted and not yet taken */
+	private int inFlight;
+
+	/**
+	 * Creates a new BotSession and its first game
+	 * @param height - the number of rows
+	 * @param width - the number of columns
+	 * @param mines - the number of mines
+	 * @param seed - the seed the first game's mines are placed from
+	 * @param depth - the number of batches that can be in flight at once
+	 */
+	public BotSession(int height, int width, int mines, long seed, int depth) {
+		model = new BoardModel(height, width, mines, seed);
+		free = new ArrayBlockingQueue<>(depth);
+		pending = new ArrayBlockingQueue<>(depth);
+		done = new ArrayBlockingQueue<>(depth);
+		for(int i = 0; i < depth; i++) {
+			free.add(new Slot());
+		}
+		worker = new Thread(new Worker(), "bot-session");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Returns the number of rows of the board
+	 * @return the height of the board
+	 */
+	public int getHeight() {
+		return model.getHeight();
+	}
+
+	/**
+	 * Returns the number of columns of the board
+	 * @return the width of the board
+	 */
+	public int getWidth() {
+		return model.getWidth();
+	}
+
+	/**
+	 * Returns the number of cells of the board
+	 * @return the height times the width
+	 */
+	public int size() {
+		return model.size();
+	}
+
+	/**
+	 * Returns the number of mines on the board
+	 * @return the number of mines
+	 */
+	public int getNumMines() {
+		return model.getNumMines();
+	}
+
+	/**
+	 * Starts a new game on the same board. Every batch submitted must have been taken first.
+	 * @param seed - the seed the new game's mines are placed from
+	 * @throws IllegalStateException if a batch is still in flight
+	 */
+	public void newGame(long seed) {
+		checkIdle();
+		model.reset(seed);
+	}
+
+	/**
+	 * Plays a batch of moves straight away, on the calling thread. Every batch submitted must
+	 * have been taken first.
+	 * @param batch - the moves to make, in order
+	 * @param result - where to put what the moves changed; its old contents are discarded
+	 * @throws IllegalStateException if a batch is still in flight
+	 * @throws IllegalArgumentException if a move is not a valid move on this board
+	 */
+	public void play(MoveBatch batch, BatchResult result) {
+		checkIdle();
+		check(batch);
+		playBatch(batch, result);
+	}
+
+	/**
+	 * Takes a free, empty batch to fill with moves, waiting for one to be free if every slot is in flight
+	 * @return the batch, which belongs to the session; submit it once filled
+	 * @throws InterruptedException if interrupted while waiting
+	 * @throws IllegalStateException if the last batch taken has not yet been submitted
+	 */
+	public MoveBatch nextBatch() throws InterruptedException {
+		if(filling != null) throw new IllegalStateException("The last batch has not been submitted");
+		filling = free.take();
+		filling.batch.clear();
+		return filling.batch;
+	}
+
+	/**
+	 * Hands the batch taken by nextBatch() to the session's thread to be played, and returns at once
+	 * @throws IllegalStateException if no batch has been taken
+	 * @throws IllegalArgumentException if a move is not a valid move on this board, in which case the batch is kept to be fixed
+	 */
+	public void submit() {
+		if(filling == null) throw new IllegalStateException("No batch has been taken");
+		check(filling.batch);
+		inFlight++;
+		pending.add(filling);
+		filling = null;
+	}
+
+	/**
+	 * Returns the result of the oldest batch submitted and not yet taken, waiting for it to be played if need be
+	 * @return the result, which belongs to the session; release it once read
+	 * @throws InterruptedException if interrupted while waiting
+	 * @throws IllegalStateException if no batch is in flight, or the last result taken has not been released
+	 */
+	public BatchResult take() throws InterruptedException {
+		if(taken != null) throw new IllegalStateException("The last result has not been released");
+		if(inFlight == 0) throw new IllegalStateException("No batch is in flight");
+		taken = done.take();
+		inFlight--;
+		return taken.result;
+	}
+
+	/**
+	 * Hands the result returned by take() back to the session, freeing its slot for another batch
+	 * @throws IllegalStateException if no result has been taken
+	 */
+	public void release() {
+		if(taken == null) throw new IllegalStateException("No result has been taken");
+		free.add(taken);
+		taken = null;
+	}
+
+	/**
+	 * Returns the number of batches submitted whose results have not yet been taken
+	 * @return the value of this object's inFlight variable
+	 */
+	public int getInFlight() {
+		return inFlight;
+	}
+
+	/**
+	 * Stops the session's thread. Batches still in flight are dropped.
+	 */
+	@Override
+	public void close() {
+		worker.interrupt();
+	}
+
+	/**
+	 * Makes sure no batch is in flight, so the board may be touched from the calling thread
+	 * @throws IllegalStateException if a batch is in flight
+	 */
+	private void checkIdle() {
+		if(inFlight > 0) throw new IllegalStateException(inFlight + " batches are still in flight");
+	}
+
+	/**
+	 * Makes sure every move of a batch can be made on this board
+	 * @param batch - the moves
+	 * @throws IllegalArgumentException if a move has an unknown action or is off the board
+	 */
+	private void check(MoveBatch batch) {
+		for(int i = 0; i < batch.size(); i++) {
+			int move = batch.get(i);
+			if(Move.action(move) > Move.CHORD || Move.cell(move) >= model.size()) {
+				throw new IllegalArgumentException("Invalid move " + i + " of batch: " + move);
+			}
+		}
+	}
+
+	/**
+	 * Makes every move of a batch in order, recording what each one changed
+	 * @param batch - the moves, already checked
+	 * @param result - where to put what the moves changed
+	 */
+	private void playBatch(MoveBatch batch, BatchResult result) {
+		result.clear();
+		for(int i = 0; i < batch.size(); i++) {
+			int move = batch.get(i);
+			if(model.getState() == GameState.PLAYING) {
+				int index = Move.cell(move);
+				if(Move.action(move) == Move.FLAG) {
+					int before = model.cell(index);
+					model.apply(move);
+					if(model.cell(index) != before) result.add(index, visible(index));
+				}
+				else {
+					RevealDelta delta = model.apply(move);
+					for(int c = 0; c < delta.size(); c++) {
+						result.add(delta.get(c), visible(delta.get(c)));
+					}
+				}
+			}
+			result.endMove();
+		}
+		result.finish(model.getState(), model.getMinesRemaining());
+	}
+
+	/**
+	 * Returns what a cell shows the player
+	 * @param index - the flat index of the cell
+	 * @return the whole cell byte if the cell is revealed, or only its flag if it is hidden
+	 */
+	private int visible(int index) {
+		int cell = model.cell(index);
+		return (cell & BoardModel.REVEALED) != 0 ? cell : cell & BoardModel.FLAGGED;
+	}
+
+	/**
+	 * A batch and the buffer its result is put in, which travel together through the queues
+	 * @author Louis Jacobowitz
+	 */
+	private static class Slot {
+		/** The moves to make */
+		private final MoveBatch batch = new MoveBatch(INITIAL_CAPACITY);
+		/** What the moves changed */
+		private final BatchResult result = new BatchResult(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Plays submitted batches in order on the session's thread, until the session is closed
+	 * @author Louis Jacobowitz
+	 */
+	private class Worker implements Runnable {
+		/**
+		 * Plays each batch as it is submitted
+		 */
+		@Override
+		public void run() {
+			try {
+				while(true) {
+					Slot slot = pending.take();
+					playBatch(slot.batch, slot.result);
+					done.add(slot);
+				}
+			} catch(InterruptedException e) {
+				// The session was closed
+			}
+		}
+	}
+}
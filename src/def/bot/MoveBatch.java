@@ -0,0 +1,90 @@
+package def.bot;
+
+import java.util.Arrays;
+
+import def.model.Move;
+
+/**
+ * A batch of moves for a BotSession to make in one go, kept as moves packed by the Move class in
+ * a plain int array. A batch is filled, submitted, then cleared and filled again, so once its
+ * array has grown to fit the longest batch an agent makes, filling it allocates nothing.
+ * @author Louis Jacobowitz
+ */
+public class MoveBatch {
+	/** The packed moves; only the first count entries are used */
+	private int[] moves;
+	/** The number of moves in the batch */
+	private int count;
+
+	/**
+	 * Creates a new, empty MoveBatch
+	 * @param capacity - the number of moves the batch can hold without growing
+	 */
+	public MoveBatch(int capacity) {
+		moves = new int[Math.max(capacity, 16)];
+	}
+
+	/**
+	 * Adds a move packed by the Move class
+	 * @param move - the packed move
+	 * @return this batch, so moves can be chained
+	 */
+	public MoveBatch add(int move) {
+		if(count == moves.length) {
+			moves = Arrays.copyOf(moves, count * 2);
+		}
+		moves[count++] = move;
+		return this;
+	}
+
+	/**
+	 * Adds a reveal of the cell at the given flat index
+	 * @param index - the flat index of the cell
+	 * @return this batch, so moves can be chained
+	 */
+	public MoveBatch reveal(int index) {
+		return add(Move.of(Move.REVEAL, index));
+	}
+
+	/**
+	 * Adds a flag, or unflag, of the cell at the given flat index
+	 * @param index - the flat index of the cell
+	 * @return this batch, so moves can be chained
+	 */
+	public MoveBatch flag(int index) {
+		return add(Move.of(Move.FLAG, index));
+	}
+
+	/**
+	 * Adds a chord on the cell at the given flat index
+	 * @param index - the flat index of the cell
+	 * @return this batch, so moves can be chained
+	 */
+	public MoveBatch chord(int index) {
+		return add(Move.of(Move.CHORD, index));
+	}
+
+	/**
+	 * Returns the number of moves in the batch
+	 * @return the value of this object's count variable
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Returns one of the moves in the batch
+	 * @param i - which move, from 0 to size() - 1
+	 * @return the packed move
+	 */
+	public int get(int i) {
+		return moves[i];
+	}
+
+	/**
+	 * Empties the batch so it can be filled again
+	 */
+	public void clear() {
+		count = 0;
+	}
+}
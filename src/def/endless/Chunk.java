@@ -0,0 +1,86 @@
+package def.endless;
+
+import def.model.BoardModel;
+
+/**
+ * A square block of cells of an endless board. Cells are packed one byte each in the same format
+ * as BoardModel, row by row. A chunk is always generated whole: its mines come from the board's
+ * seed, and its numbers are counted from the mines of its own cells and of the cells just outside
+ * it, so a chunk never needs its neighbors to be loaded.
+ * @author Louis Jacobowitz
+ */
+class Chunk {
+	/** The number of bits in a chunk coordinate, within the cell coordinate */
+	static final int SHIFT = 6;
+	/** The number of rows and columns of cells in a chunk */
+	static final int SIZE = 1 << SHIFT;
+	/** Masks a cell coordinate down to its coordinate within its chunk */
+	static final int MASK = SIZE - 1;
+	/** The row of this chunk, counted in chunks */
+	final int chunkRow;
+	/** The column of this chunk, counted in chunks */
+	final int chunkCol;
+	/** The packed state of every cell, row by row */
+	final byte[] cells;
+	/** Whether any cell has been revealed or flagged since the chunk was generated or loaded */
+	boolean dirty;
+	/** Whether the chunk has been evicted from memory, so that changes to it would be lost */
+	boolean evicted;
+
+	/**
+	 * Generates a chunk, with no cell revealed or flagged
+	 * @param board - the board the chunk belongs to, which decides where the mines are
+	 * @param chunkRow - the row of the chunk, counted in chunks
+	 * @param chunkCol - the column of the chunk, counted in chunks
+	 */
+	Chunk(ChunkedBoard board, int chunkRow, int chunkCol) {
+		this.chunkRow = chunkRow;
+		this.chunkCol = chunkCol;
+		cells = new byte[SIZE * SIZE];
+		// The mines of this chunk plus a one-cell border from the chunks around it
+		int padded = SIZE + 2;
+		boolean[] mines = new boolean[padded * padded];
+		long firstRow = (long) chunkRow << SHIFT;
+		long firstCol = (long) chunkCol << SHIFT;
+		for(int r = 0; r < padded; r++) {
+			for(int c = 0; c < padded; c++) {
+				mines[r * padded + c] = board.isMineAt(firstRow + r - 1, firstCol + c - 1);
+			}
+		}
+		for(int r = 0; r < SIZE; r++) {
+			for(int c = 0; c < SIZE; c++) {
+				int center = (r + 1) * padded + c + 1;
+				if(mines[center]) {
+					cells[r * SIZE + c] = BoardModel.MINE;
+					continue;
+				}
+				int count = 0;
+				for(int dr = -padded; dr <= padded; dr += padded) {
+					for(int dc = -1; dc <= 1; dc++) {
+						if(mines[center + dr + dc]) count++;
+					}
+				}
+				cells[r * SIZE + c] = (byte) count;
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of a cell within its chunk
+	 * @param row - the row of the cell on the board
+	 * @param col - the column of the cell on the board
+	 * @return the index into the chunk's cells
+	 */
+	static int localIndex(long row, long col) {
+		return (int) (row & MASK) * SIZE + (int) (col & MASK);
+	}
+
+	/**
+	 * Returns the chunk coordinate holding a cell coordinate
+	 * @param coordinate - the row or column of a cell
+	 * @return the row or column of its chunk
+	 */
+	static int chunkOf(long coordinate) {
+		return (int) (coordinate >> SHIFT);
+	}
+}
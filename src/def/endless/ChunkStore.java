@@ -0,0 +1,100 @@
+package def.endless;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import def.model.BoardModel;
+
+/**
+ * Keeps evicted chunks on disk. Mines and numbers are never written, since they can always be
+ * generated again from the seed; only the revealed and flagged bits are, one bit per cell each,
+ * compressed. A chunk the player has swept completely, or barely touched, compresses to a few
+ * dozen bytes. Each chunk gets its own file, so nothing about the stored chunks is kept in memory.
+ * @author Louis Jacobowitz
+ */
+class ChunkStore {
+	/** The number of bytes needed for one bit per cell of a chunk */
+	private static final int BITMAP_BYTES = Chunk.SIZE * Chunk.SIZE / 8;
+	/** The directory the chunks are kept in */
+	private final File directory;
+
+	/**
+	 * Creates a new ChunkStore keeping chunks in the given directory
+	 * @param directory - the directory to keep chunks in; must exist
+	 */
+	ChunkStore(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Writes the revealed and flagged bits of a chunk
+	 * @param chunk - the chunk to write
+	 */
+	void save(Chunk chunk) {
+		byte[] revealed = new byte[BITMAP_BYTES];
+		byte[] flagged = new byte[BITMAP_BYTES];
+		for(int i = 0; i < chunk.cells.length; i++) {
+			if((chunk.cells[i] & BoardModel.REVEALED) != 0) revealed[i >> 3] |= 1 << (i & 7);
+			if((chunk.cells[i] & BoardModel.FLAGGED) != 0) flagged[i >> 3] |= 1 << (i & 7);
+		}
+		try(DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(
+				new FileOutputStream(fileFor(chunk.chunkRow, chunk.chunkCol)), new Deflater(Deflater.BEST_SPEED)))) {
+			out.write(revealed);
+			out.write(flagged);
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Sets the revealed and flagged bits of a freshly generated chunk from disk, if it was stored
+	 * @param chunk - the chunk to fill in
+	 * @return true if the chunk was stored
+	 */
+	boolean load(Chunk chunk) {
+		File file = fileFor(chunk.chunkRow, chunk.chunkCol);
+		if(!file.exists()) return false;
+		byte[] revealed = new byte[BITMAP_BYTES];
+		byte[] flagged = new byte[BITMAP_BYTES];
+		try(DataInputStream in = new DataInputStream(new InflaterInputStream(new FileInputStream(file)))) {
+			in.readFully(revealed);
+			in.readFully(flagged);
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		for(int i = 0; i < chunk.cells.length; i++) {
+			if((revealed[i >> 3] & (1 << (i & 7))) != 0) chunk.cells[i] |= BoardModel.REVEALED;
+			if((flagged[i >> 3] & (1 << (i & 7))) != 0) chunk.cells[i] |= BoardModel.FLAGGED;
+		}
+		return true;
+	}
+
+	/**
+	 * Deletes every stored chunk and the directory they were kept in
+	 */
+	void clear() {
+		File[] files = directory.listFiles();
+		if(files != null) {
+			for(File f : files) f.delete();
+		}
+		directory.delete();
+	}
+
+	/**
+	 * Returns the file a chunk is stored in
+	 * @param chunkRow - the row of the chunk, counted in chunks
+	 * @param chunkCol - the column of the chunk, counted in chunks
+	 * @return the chunk's file
+	 */
+	private File fileFor(int chunkRow, int chunkCol) {
+		return new File(directory, chunkRow + "_" + chunkCol + ".chunk");
+	}
+}
@@ -0,0 +1,301 @@
+package def.endless;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import def.model.BoardModel;
+import def.model.Seeds;
+
+/**
+ * An endless Minesweeper board, stretching as far as the player cares to go in every direction.
+ * The board is split into square chunks, which are generated only when something looks at them -
+ * the view scrolling over them, or a cascade running into them. Whether a cell is a mine is a
+ * hash of the board's seed, the coordinates of its chunk and its place in the chunk, so any chunk
+ * can be generated on its own, in any order, and always comes out the same.
+ * <p>
+ * Only a bounded number of chunks are kept in memory, in least-recently-used order. A chunk pushed
+ * out is written to a ChunkStore if the player changed it, and read back if it is needed again;
+ * chunks nobody changed are simply dropped and generated afresh. However far the player explores,
+ * memory holds at most the chunk limit.
+ * <p>
+ * The cells around the origin are never mines, so the game can start by revealing the origin.
+ * Coordinates are longs, with rows increasing downward and columns to the right.
+ * @author Louis Jacobowitz
+ */
+public class ChunkedBoard {
+	/** By default, the chance of a cell being a mine */
+	public static final double DEFAULT_DENSITY = 0.16;
+	/**
+	 * The lowest allowed chance of a cell being a mine. Any lower and cells with no surrounding
+	 * mines would be common enough to join up into openings with no end.
+	 */
+	public static final double MIN_DENSITY = 0.12;
+	/** By default, how many chunks are kept in memory */
+	public static final int DEFAULT_MAX_CHUNKS = 256;
+	/** The seed the mines are derived from */
+	private final long seed;
+	/** A cell is a mine if the top 53 bits of its hash are below this */
+	private final long mineThreshold;
+	/** The chunks in memory, least recently used first */
+	private final LinkedHashMap<Long, Chunk> chunks;
+	/** Where chunks pushed out of memory are kept */
+	private final ChunkStore store;
+	/** The chunk most recently looked up, which the next lookup very likely wants again */
+	private Chunk lastChunk;
+	/** The cells queued by the reveal in progress, as row and column pairs */
+	private long[] queue;
+	/** The number of entries of the queue in use */
+	private int queueSize;
+	/** The number of safe cells revealed */
+	private long revealedCount;
+	/** The number of cells flagged */
+	private long flagCount;
+	/** Whether a mine has been revealed */
+	private boolean exploded;
+
+	/**
+	 * Creates a new endless board, keeping evicted chunks in a new temporary directory
+	 * @param seed - the seed the mines are derived from
+	 * @param density - the chance of a cell being a mine, from MIN_DENSITY up to 1
+	 * @param maxChunks - the most chunks to keep in memory
+	 * @throws IOException if the temporary directory cannot be created
+	 */
+	public ChunkedBoard(long seed, double density, int maxChunks) throws IOException {
+		this(seed, density, maxChunks, Files.createTempDirectory("minesweeper-chunks").toFile());
+	}
+
+	/**
+	 * Creates a new endless board
+	 * @param seed - the seed the mines are derived from
+	 * @param density - the chance of a cell being a mine, from MIN_DENSITY up to 1
+	 * @param maxChunks - the most chunks to keep in memory
+	 * @param directory - the existing directory to keep evicted chunks in
+	 */
+	public ChunkedBoard(long seed, double density, int maxChunks, File directory) {
+		if(!(density >= MIN_DENSITY && density < 1)) {
+			throw new IllegalArgumentException("Invalid mine density: " + density);
+		}
+		this.seed = seed;
+		mineThreshold = (long) (density * (1L << 53));
+		// A chord or cascade touches up to four chunks at once, so never keep fewer than that
+		final int limit = Math.max(maxChunks, 4);
+		chunks = new LinkedHashMap<Long, Chunk>(limit * 2, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+				if(size() <= limit) return false;
+				evict(eldest.getValue());
+				return true;
+			}
+		};
+		store = new ChunkStore(directory);
+		queue = new long[64];
+	}
+
+	/**
+	 * Returns true if the given cell is a mine. Decided by the seed alone, without loading anything.
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return whether the cell is a mine
+	 */
+	boolean isMineAt(long row, long col) {
+		if(Math.abs(row) <= 1 && Math.abs(col) <= 1) return false;
+		long chunkSeed = Seeds.derive(Seeds.derive(seed, Chunk.chunkOf(row)), Chunk.chunkOf(col));
+		return Seeds.derive(chunkSeed, Chunk.localIndex(row, col)) >>> 11 < mineThreshold;
+	}
+
+	/**
+	 * Returns the packed state of a cell, in the format of BoardModel, generating its chunk if needed
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return the packed cell byte, as an int
+	 */
+	public int cell(long row, long col) {
+		return chunk(row, col).cells[Chunk.localIndex(row, col)];
+	}
+
+	/**
+	 * Reveals a cell, if it is neither revealed nor flagged. If the cell has no surrounding mines,
+	 * the whole opening around it is revealed as well, across as many chunks as it spans.
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return the number of cells newly revealed
+	 */
+	public int reveal(long row, long col) {
+		queueSize = 0;
+		push(row, col);
+		return fill();
+	}
+
+	/**
+	 * Reveals every unflagged neighbor of a revealed cell, if the number of flags around it
+	 * matches its number of surrounding mines
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return the number of cells newly revealed
+	 */
+	public int chord(long row, long col) {
+		queueSize = 0;
+		int cell = cell(row, col);
+		if((cell & BoardModel.REVEALED) == 0 || (cell & BoardModel.MINE) != 0) return 0;
+		int flagsAround = 0;
+		for(long r = row - 1; r <= row + 1; r++) {
+			for(long c = col - 1; c <= col + 1; c++) {
+				if((cell(r, c) & BoardModel.FLAGGED) != 0) flagsAround++;
+			}
+		}
+		if(flagsAround != (cell & BoardModel.NUMBER_MASK)) return 0;
+		pushNeighbors(row, col);
+		return fill();
+	}
+
+	/**
+	 * Flags a cell if it is unflagged, or unflags it if it is flagged. Revealed cells are left alone.
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 */
+	public void toggleFlag(long row, long col) {
+		Chunk chunk = chunk(row, col);
+		int index = Chunk.localIndex(row, col);
+		int cell = chunk.cells[index];
+		if((cell & BoardModel.REVEALED) != 0) return;
+		chunk.cells[index] = (byte) (cell ^ BoardModel.FLAGGED);
+		chunk.dirty = true;
+		flagCount += (cell & BoardModel.FLAGGED) != 0 ? -1 : 1;
+	}
+
+	/**
+	 * Returns the number of safe cells revealed so far
+	 * @return the value of this object's revealedCount variable
+	 */
+	public long getRevealedCount() {
+		return revealedCount;
+	}
+
+	/**
+	 * Returns the number of cells currently flagged
+	 * @return the value of this object's flagCount variable
+	 */
+	public long getFlagCount() {
+		return flagCount;
+	}
+
+	/**
+	 * Returns true once a mine has been revealed
+	 * @return the value of this object's exploded variable
+	 */
+	public boolean hasExploded() {
+		return exploded;
+	}
+
+	/**
+	 * Returns the number of chunks currently in memory
+	 * @return the number of loaded chunks
+	 */
+	public int loadedChunks() {
+		return chunks.size();
+	}
+
+	/**
+	 * Discards every chunk, in memory and on disk. The board must not be used afterward.
+	 */
+	public void close() {
+		chunks.clear();
+		lastChunk = null;
+		store.clear();
+	}
+
+	/**
+	 * Returns the chunk holding a cell, loading or generating it if it is not in memory
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return the chunk
+	 */
+	private Chunk chunk(long row, long col) {
+		int chunkRow = Chunk.chunkOf(row);
+		int chunkCol = Chunk.chunkOf(col);
+		Chunk chunk = lastChunk;
+		if(chunk != null && !chunk.evicted && chunk.chunkRow == chunkRow && chunk.chunkCol == chunkCol) {
+			return chunk;
+		}
+		Long key = ((long) chunkRow << 32) | (chunkCol & 0xFFFFFFFFL);
+		chunk = chunks.get(key);
+		if(chunk == null) {
+			chunk = new Chunk(this, chunkRow, chunkCol);
+			store.load(chunk);
+			chunks.put(key, chunk);
+		}
+		lastChunk = chunk;
+		return chunk;
+	}
+
+	/**
+	 * Pushes a chunk out of memory, writing it to disk if the player changed it
+	 * @param chunk - the least recently used chunk
+	 */
+	private void evict(Chunk chunk) {
+		chunk.evicted = true;
+		if(chunk.dirty) store.save(chunk);
+	}
+
+	/**
+	 * Expands every queued cell with no surrounding mines, until the queue is exhausted
+	 * @return the number of cells revealed
+	 */
+	private int fill() {
+		int mines = 0;
+		for(int head = 0; head < queueSize; head += 2) {
+			long row = queue[head];
+			long col = queue[head + 1];
+			int cell = cell(row, col);
+			if((cell & BoardModel.MINE) != 0) {
+				exploded = true;
+				mines++;
+			}
+			else if((cell & BoardModel.NUMBER_MASK) == 0) {
+				pushNeighbors(row, col);
+			}
+		}
+		int revealed = queueSize / 2;
+		revealedCount += revealed - mines;
+		return revealed;
+	}
+
+	/**
+	 * Queues every neighbor of a cell
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 */
+	private void pushNeighbors(long row, long col) {
+		for(long r = row - 1; r <= row + 1; r++) {
+			for(long c = col - 1; c <= col + 1; c++) {
+				push(r, c);
+			}
+		}
+	}
+
+	/**
+	 * Marks a cell revealed and queues it, unless it is already revealed or flagged
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 */
+	private void push(long row, long col) {
+		Chunk chunk = chunk(row, col);
+		int index = Chunk.localIndex(row, col);
+		int cell = chunk.cells[index];
+		if((cell & (BoardModel.REVEALED | BoardModel.FLAGGED)) != 0) return;
+		chunk.cells[index] = (byte) (cell | BoardModel.REVEALED);
+		chunk.dirty = true;
+		if(queueSize + 2 > queue.length) {
+			long[] bigger = new long[queue.length * 2];
+			System.arraycopy(queue, 0, bigger, 0, queueSize);
+			queue = bigger;
+		}
+		queue[queueSize++] = row;
+		queue[queueSize++] = col;
+	}
+}
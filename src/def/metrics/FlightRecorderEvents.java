@@ -0,0 +1,66 @@
+package def.metrics;
+
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+
+/**
+ * The bridge between Metrics and Flight Recorder. It is kept apart from Metrics so that on a JVM
+ * without Flight Recorder, only this class fails to load, and metrics can still be collected.
+ * @author Louis Jacobowitz
+ */
+final class FlightRecorderEvents {
+	/**
+	 * FlightRecorderEvents is never instantiated
+	 */
+	private FlightRecorderEvents() {
+	}
+
+	/**
+	 * Starts following recordings, so events are only created while one of them wants them
+	 */
+	static void install() {
+		FlightRecorder.addListener(new RecordingListener());
+		// A recording may have been started with the JVM, before the listener was added
+		if(FlightRecorder.isInitialized()) update();
+	}
+
+	/**
+	 * Tells Metrics whether any recording has the operation event enabled
+	 */
+	private static void update() {
+		Metrics.setRecording(EventType.getEventType(OperationEvent.class).isEnabled());
+	}
+
+	/**
+	 * Sends out one measurement as an event
+	 * @param operation - which operation it was
+	 * @param nanos - how long it took, in nanoseconds
+	 * @param size - how much it did, in the operation's unit
+	 */
+	static void emit(Operation operation, long nanos, long size) {
+		OperationEvent event = new OperationEvent();
+		if(!event.shouldCommit()) return;
+		event.operation = operation.getLabel();
+		event.latency = nanos;
+		event.size = size;
+		event.unit = operation.getUnit();
+		event.commit();
+	}
+
+	/**
+	 * A listener checking whether the event is wanted every time a recording starts or stops
+	 * @author Louis Jacobowitz
+	 */
+	private static class RecordingListener implements FlightRecorderListener {
+		/**
+		 * Checks whether the event is wanted, now that the set of recordings has changed
+		 * @param recording - the recording that changed
+		 */
+		@Override
+		public void recordingStateChanged(Recording recording) {
+			update();
+		}
+	}
+}
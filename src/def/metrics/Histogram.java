@@ -0,0 +1,131 @@
+package def.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative values with buckets of exponentially growing width: each power of
+ * two is split into eight buckets, so a value is recorded with a couple of adds and no search,
+ * any long fits in a few hundred buckets, and percentiles are known to within an eighth. Like
+ * SimulationStats, the buckets are LongAdders, so threads recording at once do not contend, and
+ * the histogram can be read at any time while it is being written.
+ * @author Louis Jacobowitz
+ */
+public class Histogram {
+	/** The number of bits of a value, after its leading one, that pick its bucket within its power of two */
+	private static final int SUB_BITS = 3;
+	/** The number of buckets each power of two is split into */
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	/** The number of buckets; values below SUB_BUCKETS each have their own */
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+	/** The number of values recorded in each bucket */
+	private final LongAdder[] buckets;
+	/** The number of values recorded */
+	private final LongAdder count = new LongAdder();
+	/** The sum of the values recorded */
+	private final LongAdder sum = new LongAdder();
+	/** The largest value recorded */
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Creates a new, empty Histogram
+	 */
+	public Histogram() {
+		buckets = new LongAdder[BUCKETS];
+		for(int b = 0; b < BUCKETS; b++) {
+			buckets[b] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records one value
+	 * @param value - the value; negative values are recorded as 0
+	 */
+	public void record(long value) {
+		value = Math.max(value, 0);
+		buckets[bucket(value)].increment();
+		count.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * Returns the number of values recorded
+	 * @return the count
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Returns the average of the values recorded
+	 * @return the mean, or 0 if nothing has been recorded
+	 */
+	public double getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : (double) sum.sum() / n;
+	}
+
+	/**
+	 * Returns the largest value recorded
+	 * @return the maximum, or 0 if nothing has been recorded
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns a bound that at least the given fraction of the values recorded are no larger than
+	 * @param fraction - the fraction of values, from 0 to 1; 0.99 gives the 99th percentile
+	 * @return the top of the bucket the percentile falls in, but no more than the maximum
+	 */
+	public long getPercentile(double fraction) {
+		long n = count.sum();
+		if(n == 0) return 0;
+		long rank = (long) Math.ceil(fraction * n);
+		long seen = 0;
+		for(int b = 0; b < BUCKETS; b++) {
+			seen += buckets[b].sum();
+			if(seen >= rank) {
+				return Math.min(top(b), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * Returns the bucket a value falls in
+	 * @param value - the value, which is not negative
+	 * @return the index of its bucket
+	 */
+	private static int bucket(long value) {
+		if(value < SUB_BUCKETS) return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Returns the largest value that falls in a bucket
+	 * @param bucket - the index of the bucket
+	 * @return the top of its range
+	 */
+	private static long top(int bucket) {
+		if(bucket < SUB_BUCKETS) return bucket;
+		int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		long sub = bucket % SUB_BUCKETS;
+		return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+	}
+
+	/**
+	 * Forgets every value recorded. Values recorded while this runs may or may not be kept.
+	 */
+	public void reset() {
+		for(LongAdder bucket : buckets) {
+			bucket.reset();
+		}
+		count.reset();
+		sum.reset();
+		max.reset();
+	}
+}
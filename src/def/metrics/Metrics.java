@@ -0,0 +1,129 @@
+package def.metrics;
+
+/**
+ * Measures how long gameplay operations take and how much they do. An operation is timed by
+ * calling start() before it and finish() after it; the measurement goes to the operation's
+ * histograms if metrics are being collected in-process, and out as a JDK Flight Recorder event if
+ * a recording has that event enabled. When neither is on, start() is a single read of a field and
+ * finish() returns at once, so the calls can stay in the hottest paths of the game.
+ * <p>
+ * Collecting is turned on with -Dminesweeper.metrics=true, or at any time with setCollecting();
+ * once it has been on, a report is printed to standard error when the program exits. Flight
+ * Recorder events are turned on by starting a recording, with -XX:StartFlightRecording or from
+ * JDK Mission Control, on any JVM that has Flight Recorder.
+ * @author Louis Jacobowitz
+ */
+public final class Metrics {
+	/** Whether measurements are kept in the histograms */
+	private static volatile boolean collecting;
+	/** Whether measurements are sent out as Flight Recorder events */
+	private static volatile boolean recording;
+	/** Whether measurements are taken at all */
+	private static volatile boolean active;
+	/** Whether the report has been set to print on exit */
+	private static boolean dumpOnExit;
+
+	static {
+		setCollecting(Boolean.getBoolean("minesweeper.metrics"));
+		try {
+			FlightRecorderEvents.install();
+		} catch(LinkageError | RuntimeException e) {
+			// No Flight Recorder on this JVM; metrics can still be collected in-process
+		}
+	}
+
+	/**
+	 * Metrics is never instantiated
+	 */
+	private Metrics() {
+	}
+
+	/**
+	 * Marks the start of an operation
+	 * @return the time, in nanoseconds, or 0 if nothing is being measured
+	 */
+	public static long start() {
+		return active ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Marks the end of an operation, recording how long it took since start() was called
+	 * @param operation - which operation it was
+	 * @param start - what start() returned
+	 * @param size - how much it did, in the operation's unit
+	 */
+	public static void finish(Operation operation, long start, long size) {
+		if(start == 0) return;
+		long nanos = System.nanoTime() - start;
+		if(collecting) {
+			operation.getLatency().record(nanos);
+			operation.getSize().record(size);
+		}
+		if(recording) {
+			FlightRecorderEvents.emit(operation, nanos, size);
+		}
+	}
+
+	/**
+	 * Returns whether measurements are kept in the histograms
+	 * @return the value of the collecting variable
+	 */
+	public static boolean isCollecting() {
+		return collecting;
+	}
+
+	/**
+	 * Sets whether measurements are kept in the histograms. The first time it is turned on, a
+	 * report is set to print when the program exits.
+	 * @param b - whether to collect measurements
+	 */
+	public static synchronized void setCollecting(boolean b) {
+		collecting = b;
+		active = collecting || recording;
+		if(b && !dumpOnExit) {
+			dumpOnExit = true;
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.print(report()), "metrics-report"));
+		}
+	}
+
+	/**
+	 * Sets whether measurements are sent out as Flight Recorder events
+	 * @param b - whether a recording has the events enabled
+	 */
+	static synchronized void setRecording(boolean b) {
+		recording = b;
+		active = collecting || recording;
+	}
+
+	/**
+	 * Forgets every measurement collected so far
+	 */
+	public static void reset() {
+		for(Operation operation : Operation.values()) {
+			operation.getLatency().reset();
+			operation.getSize().reset();
+		}
+	}
+
+	/**
+	 * Returns a table of every operation measured so far, with latencies in microseconds
+	 * @return the report, one line per operation
+	 */
+	public static String report() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%-12s %8s %9s %9s %9s %9s %-16s%n", "operation", "count", "mean us", "p50 us", "p99 us", "max us", "mean size"));
+		for(Operation operation : Operation.values()) {
+			Histogram latency = operation.getLatency();
+			if(latency.getCount() == 0) continue;
+			sb.append(String.format("%-12s %8d %9.1f %9.1f %9.1f %9.1f %-16s%n",
+					operation.getLabel(),
+					latency.getCount(),
+					latency.getMean() / 1000,
+					latency.getPercentile(0.5) / 1000.0,
+					latency.getPercentile(0.99) / 1000.0,
+					latency.getMax() / 1000.0,
+					String.format("%.1f %s", operation.getSize().getMean(), operation.getUnit())));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,76 @@
+package def.metrics;
+
+/**
+ * The operations whose cost is measured. Each keeps a histogram of how long it took, in
+ * nanoseconds, and one of how much it did, in whatever unit suits it.
+ * @author Louis Jacobowitz
+ */
+public enum Operation {
+	/** Setting up a new game and the views showing it */
+	NEW_GAME("New game", "cells"),
+	/** Placing the mines and counting the numbers, on the first click */
+	PLACE_MINES("Place mines", "mines"),
+	/** Revealing a cell and the cascade it sets off */
+	REVEAL("Reveal", "cells"),
+	/** Revealing the unflagged cells around a number */
+	CHORD("Chord", "cells"),
+	/** Taking moves back or making them again, putting back the cells that differ */
+	UNDO("Undo/redo", "cells"),
+	/** Drawing one frame of a board on a canvas */
+	FRAME("Frame", "cells"),
+	/** The solver working through the constraints touched since it was last asked for a move */
+	SOLVER("Solver", "constraints");
+
+	/** The name shown for this operation */
+	private final String label;
+	/** The unit the size of this operation is counted in */
+	private final String unit;
+	/** How long this operation took, in nanoseconds */
+	private final Histogram latency;
+	/** How much this operation did, in units */
+	private final Histogram size;
+
+	/**
+	 * Creates a new Operation
+	 * @param label - the name shown for it
+	 * @param unit - the unit its size is counted in
+	 */
+	Operation(String label, String unit) {
+		this.label = label;
+		this.unit = unit;
+		latency = new Histogram();
+		size = new Histogram();
+	}
+
+	/**
+	 * Returns the name shown for this operation
+	 * @return the value of this object's label variable
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Returns the unit the size of this operation is counted in
+	 * @return the value of this object's unit variable
+	 */
+	public String getUnit() {
+		return unit;
+	}
+
+	/**
+	 * Returns how long this operation has taken
+	 * @return a histogram of latencies, in nanoseconds
+	 */
+	public Histogram getLatency() {
+		return latency;
+	}
+
+	/**
+	 * Returns how much this operation has done
+	 * @return a histogram of sizes, in units
+	 */
+	public Histogram getSize() {
+		return size;
+	}
+}
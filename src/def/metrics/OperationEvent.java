@@ -0,0 +1,34 @@
+package def.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The Flight Recorder event sent for each measured operation. Stack traces are off by default,
+ * as the operations are frequent and their callers few.
+ * @author Louis Jacobowitz
+ */
+@Name("minesweeper.Operation")
+@Label("Gameplay Operation")
+@Category("Minesweeper")
+@Description("A timed gameplay operation: a new game, mine placement, reveal, chord, frame or solver call")
+@StackTrace(false)
+class OperationEvent extends jdk.jfr.Event {
+	/** Which operation it was */
+	@Label("Operation")
+	String operation;
+	/** How long the operation took */
+	@Label("Latency")
+	@Timespan(Timespan.NANOSECONDS)
+	long latency;
+	/** How much the operation did */
+	@Label("Size")
+	long size;
+	/** The unit the size is counted in */
+	@Label("Unit")
+	String unit;
+}
@@ -0,0 +1,119 @@
+package def.model;
+
+/**
+ * How hard a board's layout is, as worked out by BoardAnalyzer from its mines alone. An opening
+ * is a connected region of cells with no surrounding mines, which a single click clears along
+ * with the numbers around its edge; its size counts both. An isolated number is a safe cell
+ * next to no opening, which has to be clicked on its own, and an island is a connected group of
+ * isolated numbers. The 3BV - the fewest clicks that clear the board - is one per opening plus
+ * one per isolated number.
+ * @author Louis Jacobowitz
+ */
+public class BoardAnalysis {
+	/** The number of openings */
+	private final int openings;
+	/** The number of isolated numbers */
+	private final int isolatedNumbers;
+	/** The number of islands */
+	private final int islands;
+	/** The number of cells in each opening, in the order of each opening's first cell */
+	private final int[] openingSizes;
+	/** The number of cells in the largest island */
+	private final int largestIsland;
+
+	/**
+	 * Creates a new BoardAnalysis
+	 * @param openings - the number of openings
+	 * @param isolatedNumbers - the number of isolated numbers
+	 * @param islands - the number of islands
+	 * @param openingSizes - the number of cells in each opening
+	 * @param largestIsland - the number of cells in the largest island
+	 */
+	BoardAnalysis(int openings, int isolatedNumbers, int islands, int[] openingSizes, int largestIsland) {
+		this.openings = openings;
+		this.isolatedNumbers = isolatedNumbers;
+		this.islands = islands;
+		this.openingSizes = openingSizes;
+		this.largestIsland = largestIsland;
+	}
+
+	/**
+	 * Returns the fewest clicks that clear the board, without flagging or chording
+	 * @return the board's 3BV
+	 */
+	public long get3BV() {
+		return (long) openings + isolatedNumbers;
+	}
+
+	/**
+	 * Returns the number of openings
+	 * @return the value of this object's openings variable
+	 */
+	public int getOpenings() {
+		return openings;
+	}
+
+	/**
+	 * Returns the number of safe cells next to no opening
+	 * @return the value of this object's isolatedNumbers variable
+	 */
+	public int getIsolatedNumbers() {
+		return isolatedNumbers;
+	}
+
+	/**
+	 * Returns the number of connected groups of isolated numbers
+	 * @return the value of this object's islands variable
+	 */
+	public int getIslands() {
+		return islands;
+	}
+
+	/**
+	 * Returns the number of cells one opening clears, including the numbers around its edge
+	 * @param i - which opening, from 0 to getOpenings() - 1, in the order of each opening's first cell
+	 * @return the size of the opening
+	 */
+	public int getOpeningSize(int i) {
+		return openingSizes[i];
+	}
+
+	/**
+	 * Returns the number of cells the largest opening clears
+	 * @return the size of the largest opening, or 0 if there are none
+	 */
+	public int getLargestOpening() {
+		int largest = 0;
+		for(int size : openingSizes) {
+			largest = Math.max(largest, size);
+		}
+		return largest;
+	}
+
+	/**
+	 * Returns the average number of cells an opening clears
+	 * @return the mean size of an opening, or 0 if there are none
+	 */
+	public double getMeanOpening() {
+		long total = 0;
+		for(int size : openingSizes) {
+			total += size;
+		}
+		return openings == 0 ? 0 : (double) total / openings;
+	}
+
+	/**
+	 * Returns the number of cells in the largest island
+	 * @return the value of this object's largestIsland variable
+	 */
+	public int getLargestIsland() {
+		return largestIsland;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("3BV: %d  openings: %d  largest opening: %d  mean opening: %.1f  isolated numbers: %d  "
+				+ "islands: %d  largest island: %d", get3BV(), openings, getLargestOpening(), getMeanOpening(),
+				isolatedNumbers, islands, largestIsland);
+	}
+}
@@ -0,0 +1,486 @@
+package def.model;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Works out the openings, isolated numbers and islands of a board, and from them its 3BV, by
+ * finding connected components with a union-find over one int per cell. Every cell is first
+ * sorted, into a grid of one byte per cell, as a cell with no surrounding mines, an isolated
+ * number, or neither; cells of the first two sorts are then joined to their neighbors of the
+ * same sort. The board's neighbor table says which cells are neighbors, so every topology is
+ * analyzed the same way.
+ * <p>
+ * The board is split into stripes of rows, which are analyzed in parallel in three passes with
+ * short sequential steps between them:
+ * <ol>
+ * <li>Each stripe sorts its cells and joins each to its earlier neighbors within the stripe, so
+ * stripes never touch each other's trees, and notes the cells with earlier neighbors outside it. Those cells
+ * are then joined across the stripe edges, one stripe after another.</li>
+ * <li>Every cell is pointed straight at the root of its tree, and each stripe counts the roots
+ * it holds. The roots of each stripe then get a run of component numbers of their own, which
+ * replace the roots' entries.</li>
+ * <li>Each stripe adds up the size of every component, including the numbers bordering each
+ * opening. A stripe adds straight into the sizes of the components rooted in it; sizes of
+ * components rooted elsewhere, which are few since every tree is rooted at its first cell, are
+ * gathered in a small map and added in afterward, so no two threads ever write to the same
+ * place.</li>
+ * </ol>
+ * <p>
+ * Usage: java def.model.BoardAnalyzer SAVE...
+ * <br>Prints the analysis of each saved game.
+ * @author Louis Jacobowitz
+ */
+public final class BoardAnalyzer {
+	/** The sort of a cell in no component: a mine, or a number next to an opening */
+	private static final byte OTHER = 0;
+	/** The sort of a cell with no surrounding mines, which is part of an opening */
+	private static final byte ZERO = 1;
+	/** The sort of a number next to no opening */
+	private static final byte ISOLATED = 2;
+	/** The fewest rows a stripe will hold */
+	private static final int MIN_STRIPE_ROWS = 16;
+	/** The number of stripes given to each core, so that stripes with more work do not hold up the rest */
+	private static final int STRIPES_PER_CORE = 4;
+	/** Boards with fewer cells than this are analyzed as one stripe */
+	private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	/**
+	 * This class only holds static methods and is never instantiated
+	 */
+	private BoardAnalyzer() {
+	}
+
+	/**
+	 * Analyzes the layout of a board's mines. Only the mines and numbers are looked at, so
+	 * it makes no difference what has been revealed or flagged.
+	 * @param model - the board, whose mines must have been placed
+	 * @return the analysis
+	 * @throws IllegalStateException if the mines have not been placed
+	 */
+	public static BoardAnalysis analyze(BoardModel model) {
+		if(!model.areMinesPlaced()) throw new IllegalStateException("The mines have not been placed");
+		int height = model.getHeight();
+		int width = model.getWidth();
+		NeighborTable neighbors = model.getNeighbors();
+		int[] parent = new int[model.size()];
+		byte[] sorts = new byte[model.size()];
+		int stripeRows = model.size() < PARALLEL_THRESHOLD ? height
+				: Math.max(MIN_STRIPE_ROWS, height / (STRIPES_PER_CORE * Runtime.getRuntime().availableProcessors()));
+		Stripe[] stripes = new Stripe[(height + stripeRows - 1) / stripeRows];
+		for(int s = 0; s < stripes.length; s++) {
+			stripes[s] = new Stripe(model, neighbors, parent, sorts, s * stripeRows * width, Math.min(height, (s + 1) * stripeRows) * width);
+		}
+		IntStream.range(0, stripes.length).parallel().forEach(s -> stripes[s].join());
+		for(Stripe stripe : stripes) {
+			stripe.joinEdge();
+		}
+		IntStream.range(0, stripes.length).parallel().forEach(s -> stripes[s].findRoots());
+		// Each stripe's components are numbered after those of the stripes before it, openings first
+		int openings = 0;
+		int islands = 0;
+		for(Stripe stripe : stripes) {
+			stripe.firstOpening = openings;
+			openings += stripe.openingRoots;
+		}
+		for(Stripe stripe : stripes) {
+			stripe.firstIsland = openings + islands;
+			islands += stripe.islandRoots;
+		}
+		int[] sizes = new int[openings + islands];
+		IntStream.range(0, stripes.length).parallel().forEach(s -> stripes[s].number());
+		IntStream.range(0, stripes.length).parallel().forEach(s -> stripes[s].measure(sizes));
+		int isolated = 0;
+		for(Stripe stripe : stripes) {
+			stripe.addForeignSizes(sizes);
+			isolated += stripe.isolatedNumbers;
+		}
+		int largestIsland = 0;
+		for(int i = openings; i < sizes.length; i++) {
+			largestIsland = Math.max(largestIsland, sizes[i]);
+		}
+		return new BoardAnalysis(openings, isolated, islands, Arrays.copyOf(sizes, openings), largestIsland);
+	}
+
+	/**
+	 * Finds the root of a cell's tree, halving the path to it along the way
+	 * @param parent - the union-find
+	 * @param x - the flat index of a cell in the union-find
+	 * @return the flat index of the root
+	 */
+	private static int find(int[] parent, int x) {
+		while(true) {
+			int p = parent[x];
+			if(p == x) return x;
+			int g = parent[p];
+			if(g == p) return p;
+			parent[x] = g;
+			x = g;
+		}
+	}
+
+	/**
+	 * Joins the trees of two cells, rooting the joined tree at the earlier of their roots, so
+	 * every tree stays rooted at its first cell
+	 * @param parent - the union-find
+	 * @param a - the flat index of one cell
+	 * @param b - the flat index of the other
+	 */
+	private static void union(int[] parent, int a, int b) {
+		int ra = find(parent, a);
+		int rb = find(parent, b);
+		if(ra < rb) parent[rb] = ra;
+		else if(rb < ra) parent[ra] = rb;
+	}
+
+	/**
+	 * Analyzes saved games from the command line
+	 * @param args - the save files
+	 */
+	public static void main(String[] args) {
+		if(args.length == 0) {
+			System.err.println("Usage: java def.model.BoardAnalyzer SAVE...");
+			return;
+		}
+		for(String arg : args) {
+			Path path = Paths.get(arg);
+			try {
+				SavedGame game = SaveFile.open(path);
+				if(!game.areMinesPlaced()) {
+					System.out.println(path + ": no mines placed yet");
+					continue;
+				}
+				BoardModel model = game.restore();
+				long start = System.nanoTime();
+				BoardAnalysis analysis = analyze(model);
+				long millis = (System.nanoTime() - start) / 1_000_000L;
+				System.out.printf("%s: %dx%d %s, %d mines  %s  (%d ms)%n", path, model.getHeight(), model.getWidth(),
+						model.getTopology().getLabel(), model.getNumMines(), analysis, millis);
+			} catch(IOException e) {
+				System.out.println(path + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * A stripe of rows of the board being analyzed, and everything worked out about it
+	 * @author Louis Jacobowitz
+	 */
+	private static class Stripe {
+		/** The board */
+		private final BoardModel model;
+		/** The board's neighbor table, giving the pattern of neighbors of each cell */
+		private final NeighborTable table;
+		/** The start of each pattern's run of offsets in deltas */
+		private final int[] starts;
+		/** The offsets from a cell to its neighbors, each pattern's in ascending order */
+		private final int[] deltas;
+		/** For each pattern, the index in deltas after its last negative offset, which reaches an earlier neighbor */
+		private final int[] backs;
+		/** The union-find over the whole board; the entries of cells of no component are never used */
+		private final int[] parent;
+		/** The sort of every cell of the board: OTHER, ZERO or ISOLATED */
+		private final byte[] sorts;
+		/** The flat index of the first cell of the stripe */
+		private final int start;
+		/** The flat index after the last cell of the stripe */
+		private final int end;
+		/** The cells of the stripe in the union-find with an earlier neighbor in another stripe */
+		private int[] edge;
+		/** The number of entries of edge in use */
+		private int edgeCount;
+		/** The number of openings rooted in the stripe */
+		private int openingRoots;
+		/** The number of islands rooted in the stripe */
+		private int islandRoots;
+		/** The component number of the stripe's first opening */
+		private int firstOpening;
+		/** The component number of the stripe's first island */
+		private int firstIsland;
+		/** The number of isolated numbers in the stripe */
+		private int isolatedNumbers;
+		/** The cells the stripe counted toward components rooted in other stripes, by component number */
+		private final IntCounter foreign;
+
+		/**
+		 * Creates a new Stripe
+		 * @param model - the board
+		 * @param neighbors - the board's neighbor table
+		 * @param parent - the union-find over the whole board
+		 * @param sorts - the sort of every cell of the board, filled in by join()
+		 * @param start - the flat index of the first cell of the stripe
+		 * @param end - the flat index after the last cell of the stripe
+		 */
+		Stripe(BoardModel model, NeighborTable neighbors, int[] parent, byte[] sorts, int start, int end) {
+			this.model = model;
+			table = neighbors;
+			starts = neighbors.starts;
+			deltas = neighbors.deltas;
+			backs = new int[starts.length - 1];
+			for(int k = 0; k < backs.length; k++) {
+				backs[k] = starts[k];
+				while(backs[k] < starts[k + 1] && deltas[backs[k]] < 0) backs[k]++;
+			}
+			this.parent = parent;
+			this.sorts = sorts;
+			this.start = start;
+			this.end = end;
+			edge = new int[64];
+			foreign = new IntCounter();
+		}
+
+		/**
+		 * Returns 1 if a cell has no surrounding mines and is not a mine, without branching
+		 * @param index - the flat index of the cell
+		 * @return 1 if the cell is part of an opening, or 0
+		 */
+		private int zero(int index) {
+			return ((model.cell(index) & (BoardModel.MINE | BoardModel.NUMBER_MASK)) - 1) >>> 31;
+		}
+
+		/**
+		 * Sorts every cell of the stripe and joins each cell of a component to its earlier
+		 * neighbors of the same sort within the stripe
+		 */
+		void join() {
+			for(int index = start; index < end; index++) {
+				int kind = table.kind(index);
+				byte sort;
+				if(zero(index) == 1) {
+					sort = ZERO;
+				}
+				else if((model.cell(index) & BoardModel.MINE) != 0) {
+					sort = OTHER;
+				}
+				else {
+					// A number next to an opening is cleared by it, so belongs to no component of its own
+					int zeros = 0;
+					for(int i = starts[kind], last = starts[kind + 1]; i < last; i++) {
+						zeros |= zero(index + deltas[i]);
+					}
+					sort = zeros == 0 ? ISOLATED : OTHER;
+				}
+				sorts[index] = sort;
+				if(sort == OTHER) continue;
+				parent[index] = index;
+				int back = backs[kind];
+				if(back > starts[kind] && index + deltas[starts[kind]] < start) {
+					// Joined across the stripe's edge once every stripe is sorted
+					if(edgeCount == edge.length) edge = Arrays.copyOf(edge, edgeCount * 2);
+					edge[edgeCount++] = index;
+				}
+				boolean joined = false;
+				for(int i = starts[kind]; i < back; i++) {
+					int neighbor = index + deltas[i];
+					if(neighbor < start || sorts[neighbor] != sort) continue;
+					// The cell is still alone in its tree the first time, so it can go straight under the neighbor's root
+					if(joined) union(parent, index, neighbor);
+					else parent[index] = find(parent, neighbor);
+					joined = true;
+				}
+			}
+		}
+
+		/**
+		 * Joins the cells of the stripe that have earlier neighbors outside it to those
+		 * neighbors. Run on one thread, once every stripe has been joined.
+		 */
+		void joinEdge() {
+			for(int e = 0; e < edgeCount; e++) {
+				int index = edge[e];
+				int kind = table.kind(index);
+				for(int i = starts[kind]; i < backs[kind]; i++) {
+					int neighbor = index + deltas[i];
+					if(neighbor < start && sorts[neighbor] == sorts[index]) union(parent, index, neighbor);
+				}
+			}
+		}
+
+		/**
+		 * Points every cell of the stripe straight at its root and counts the roots. Only the
+		 * stripe's own entries are written, and every entry only ever points further back up its
+		 * tree, so the roots of other stripes' cells are found by reading alone.
+		 */
+		void findRoots() {
+			// Neighboring cells often share a parent, so the last root found is kept
+			int lastParent = -1;
+			int lastRoot = -1;
+			for(int index = start; index < end; index++) {
+				if(sorts[index] == OTHER) continue;
+				int p = parent[index];
+				if(p == index) {
+					if(sorts[index] == ZERO) openingRoots++;
+					else islandRoots++;
+					continue;
+				}
+				if(p != lastParent) {
+					lastParent = p;
+					lastRoot = p;
+					while(parent[lastRoot] != lastRoot) lastRoot = parent[lastRoot];
+				}
+				parent[index] = lastRoot;
+			}
+		}
+
+		/**
+		 * Numbers the components rooted in the stripe, in order, putting each number in place
+		 * of its root's entry as -1 - number. Every other cell's entry still holds its root.
+		 */
+		void number() {
+			int opening = firstOpening;
+			int island = firstIsland;
+			for(int index = start; index < end; index++) {
+				if(sorts[index] != OTHER && parent[index] == index) parent[index] = -1 - (sorts[index] == ZERO ? opening++ : island++);
+			}
+		}
+
+		/**
+		 * Counts every cell of the stripe toward the size of its component, and every number
+		 * bordering openings toward the size of each of them. Sizes of the stripe's own
+		 * components go straight into the array; the rest are kept until addForeignSizes().
+		 * @param sizes - the size of every component, by component number
+		 */
+		void measure(int[] sizes) {
+			int[] seen = new int[9];
+			// Cells of a component come in runs along a row, so each run is counted in one go
+			int runRoot = -1;
+			int run = 0;
+			for(int index = start; index < end; index++) {
+				byte sort = sorts[index];
+				if(sort != OTHER) {
+					if(sort == ISOLATED) isolatedNumbers++;
+					int p = parent[index];
+					int root = p < 0 ? index : p;
+					if(root != runRoot) {
+						if(run > 0) count(runRoot, run, sizes);
+						runRoot = root;
+						run = 0;
+					}
+					run++;
+					continue;
+				}
+				if((model.cell(index) & BoardModel.MINE) != 0) continue;
+				// A number bordering openings is counted once toward each of them
+				int n = 0;
+				int kind = table.kind(index);
+				for(int i = starts[kind], last = starts[kind + 1]; i < last; i++) {
+					int neighbor = index + deltas[i];
+					if(sorts[neighbor] != ZERO) continue;
+					int root = parent[neighbor] < 0 ? neighbor : parent[neighbor];
+					boolean counted = false;
+					for(int j = 0; j < n && !counted; j++) {
+						counted = seen[j] == root;
+					}
+					if(!counted) {
+						seen[n++] = root;
+						count(root, 1, sizes);
+					}
+				}
+			}
+			if(run > 0) count(runRoot, run, sizes);
+		}
+
+		/**
+		 * Counts cells toward the size of a component
+		 * @param root - the flat index of the component's root, whose entry holds its number
+		 * @param cells - the number of cells
+		 * @param sizes - the size of every component, by component number
+		 */
+		private void count(int root, int cells, int[] sizes) {
+			int component = -1 - parent[root];
+			if(root >= start && root < end) sizes[component] += cells;
+			else foreign.add(component, cells);
+		}
+
+		/**
+		 * Adds in the cells the stripe counted toward components rooted in other stripes.
+		 * Run on one thread, once every stripe has been measured.
+		 * @param sizes - the size of every component, by component number
+		 */
+		void addForeignSizes(int[] sizes) {
+			foreign.addTo(sizes);
+		}
+	}
+
+	/**
+	 * Counts occurrences of non-negative ints, in an open-addressed hash table, for the few
+	 * components a stripe shares with earlier stripes
+	 * @author Louis Jacobowitz
+	 */
+	private static class IntCounter {
+		/** The counted ints plus one, or 0 for an empty slot */
+		private int[] keys;
+		/** The count of each int, parallel to keys */
+		private int[] counts;
+		/** The number of distinct ints counted */
+		private int size;
+
+		/**
+		 * Creates a new, empty IntCounter
+		 */
+		IntCounter() {
+			keys = new int[16];
+			counts = new int[16];
+		}
+
+		/**
+		 * Counts occurrences of an int
+		 * @param key - the int, which is not negative
+		 * @param occurrences - the number of occurrences
+		 */
+		void add(int key, int occurrences) {
+			int slot = slot(key, keys.length);
+			while(keys[slot] != 0 && keys[slot] != key + 1) {
+				slot = (slot + 1) & (keys.length - 1);
+			}
+			counts[slot] += occurrences;
+			if(keys[slot] == 0) {
+				keys[slot] = key + 1;
+				if(++size * 2 > keys.length) grow();
+			}
+		}
+
+		/**
+		 * Returns the slot an int's search starts from
+		 * @param key - the int
+		 * @param length - the size of the table, a power of two
+		 * @return the first slot to look in
+		 */
+		private static int slot(int key, int length) {
+			int h = key * 0x9E3779B9;
+			return (h ^ (h >>> 16)) & (length - 1);
+		}
+
+		/**
+		 * Doubles the table, putting every int back in its new slot
+		 */
+		private void grow() {
+			int[] oldKeys = keys;
+			int[] oldCounts = counts;
+			keys = new int[oldKeys.length * 2];
+			counts = new int[oldKeys.length * 2];
+			for(int i = 0; i < oldKeys.length; i++) {
+				if(oldKeys[i] == 0) continue;
+				int slot = slot(oldKeys[i] - 1, keys.length);
+				while(keys[slot] != 0) {
+					slot = (slot + 1) & (keys.length - 1);
+				}
+				keys[slot] = oldKeys[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+
+		/**
+		 * Adds every count to an array indexed by the counted ints
+		 * @param totals - the array to add to
+		 */
+		void addTo(int[] totals) {
+			for(int i = 0; i < keys.length; i++) {
+				if(keys[i] != 0) totals[keys[i] - 1] += counts[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package def.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import def.metrics.Metrics;
+import def.metrics.Operation;
+
+/**
+ * Lets moves on a BoardModel be taken back and made again, including a reveal that hit a mine.
+ * After every move that changes the board a version of it is kept, and the versions share their
+ * cells through a CellTrie: each holds a copy of only the blocks of cells its move changed, so a
+ * flag costs a few hundred bytes however big the board, and a cascade costs in proportion to the
+ * cells it opened. Going back or forward a step compares the two versions, skipping every block
+ * they share, and puts back only the cells that differ, so it too costs in proportion to the move
+ * rather than to the board. The one exception is the first reveal, which places the mines and so
+ * changes every cell.
+ * <p>
+ * Moves must be made through the history for it to see them; the only thing that may be done to
+ * the board directly is placing the mines before the first reveal. Making a move after taking
+ * some back forgets the moves taken back. If the board has a MoveLog, moves taken back are taken
+ * out of it too, so the log always replays to the board as it stands.
+ * @author Louis Jacobowitz
+ */
+public class BoardHistory {
+	/** The board */
+	private final BoardModel model;
+	/** Every version of the board kept, from before the first move to after the last one made */
+	private final List<Version> versions;
+	/** The index in versions of the version the board is at */
+	private int position;
+	/** Scratch space for the cells changed by a move or a step through the history */
+	private final CellTrie.Changes changes;
+
+	/**
+	 * Creates a new BoardHistory, starting from the board as it is now
+	 * @param model - the board
+	 * @throws IllegalArgumentException if the board has more cells than a move can address
+	 */
+	public BoardHistory(BoardModel model) {
+		if(model.size() > Move.MAX_CELLS) throw new IllegalArgumentException("Too many cells to keep the history of: " + model.size());
+		this.model = model;
+		versions = new ArrayList<>();
+		changes = new CellTrie.Changes();
+		versions.add(new Version(CellTrie.of(model), model, -1));
+	}
+
+	/**
+	 * Returns the board
+	 * @return the value of this object's model variable
+	 */
+	public BoardModel getModel() {
+		return model;
+	}
+
+	/**
+	 * Reveals a cell, as BoardModel.reveal() does, and keeps the board after it
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return the cells newly revealed; only valid until the next move
+	 */
+	public RevealDelta reveal(int row, int col) {
+		return apply(Move.of(Move.REVEAL, model.index(row, col)));
+	}
+
+	/**
+	 * Chords a cell, as BoardModel.chord() does, and keeps the board after it
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return the cells newly revealed; only valid until the next move
+	 */
+	public RevealDelta chord(int row, int col) {
+		return apply(Move.of(Move.CHORD, model.index(row, col)));
+	}
+
+	/**
+	 * Flags or unflags a cell, as BoardModel.toggleFlag() does, and keeps the board after it
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 */
+	public void toggleFlag(int row, int col) {
+		apply(Move.of(Move.FLAG, model.index(row, col)));
+	}
+
+	/**
+	 * Makes a move packed by the Move class and keeps the board after it, unless it changed nothing
+	 * @param move - the packed move
+	 * @return the cells newly revealed; only valid until the next move
+	 */
+	public RevealDelta apply(int move) {
+		Version current = versions.get(position);
+		int index = Move.cell(move);
+		int before = model.cell(index);
+		RevealDelta delta = model.apply(move);
+		CellTrie cells;
+		if(model.areMinesPlaced() != current.minesPlaced) {
+			// Placing the mines set every cell
+			cells = CellTrie.of(model);
+		}
+		else {
+			changes.clear();
+			for(int i = 0; i < delta.size(); i++) {
+				changes.add(delta.get(i));
+			}
+			if(model.cell(index) != before) changes.add(index);
+			if(changes.count == 0) return delta;
+			cells = current.cells.with(model, changes);
+		}
+		versions.subList(position + 1, versions.size()).clear();
+		versions.add(new Version(cells, model, move));
+		position++;
+		return delta;
+	}
+
+	/**
+	 * Returns true if there is a move to take back
+	 * @return whether undo() would do anything
+	 */
+	public boolean canUndo() {
+		return position > 0;
+	}
+
+	/**
+	 * Returns true if there is a move taken back to make again
+	 * @return whether redo() would do anything
+	 */
+	public boolean canRedo() {
+		return position < versions.size() - 1;
+	}
+
+	/**
+	 * Returns the number of moves that can be taken back
+	 * @return the value of this object's position variable
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * Returns the number of moves kept, including any taken back
+	 * @return the number of versions of the board after the first
+	 */
+	public int size() {
+		return versions.size() - 1;
+	}
+
+	/**
+	 * Takes back the last move
+	 * @return true if there was a move to take back
+	 */
+	public boolean undo() {
+		if(!canUndo()) return false;
+		seek(position - 1);
+		return true;
+	}
+
+	/**
+	 * Makes the last move taken back again
+	 * @return true if there was a move to make again
+	 */
+	public boolean redo() {
+		if(!canRedo()) return false;
+		seek(position + 1);
+		return true;
+	}
+
+	/**
+	 * Puts the board in the state it was in after the given number of moves, telling its
+	 * listeners about every cell that differs
+	 * @param target - the number of moves to have made, from 0 to size()
+	 */
+	public void seek(int target) {
+		target = Math.max(0, Math.min(size(), target));
+		if(target == position) return;
+		long start = Metrics.start();
+		Version from = versions.get(position);
+		Version to = versions.get(target);
+		changes.clear();
+		from.cells.diff(to.cells, changes);
+		for(int i = 0; i < changes.count; i++) {
+			model.setCell(changes.cells[i], to.cells.get(changes.cells[i]));
+		}
+		model.restoreCounters(to.minesPlaced, to.mines, to.minesRemaining, to.revealedSafe, to.correctFlags, to.state);
+		MoveLog log = model.getMoveLog();
+		if(log != null) {
+			if(target < position) log.truncate(to.logSize);
+			for(int v = position + 1; v <= target; v++) {
+				log.add(versions.get(v).move);
+				// Moves that changed nothing were not kept, so the log may now be shorter than it was
+				versions.get(v).logSize = log.size();
+			}
+		}
+		position = target;
+		int width = model.getWidth();
+		for(int i = 0; i < changes.count; i++) {
+			model.fireCellChanged(changes.cells[i] / width, changes.cells[i] % width);
+		}
+		if(from.minesRemaining != to.minesRemaining) model.fireMinesRemainingChanged();
+		Metrics.finish(Operation.UNDO, start, changes.count);
+	}
+
+	/**
+	 * The state of the board after some move
+	 */
+	private static class Version {
+		/** The packed state of every cell, shared with the versions before and after */
+		final CellTrie cells;
+		/** Whether the mines had been placed */
+		final boolean minesPlaced;
+		/** The flat indices of the mines, or null if they had not been placed */
+		final int[] mines;
+		/** The number of mines not yet flagged */
+		final int minesRemaining;
+		/** The number of safe cells revealed */
+		final int revealedSafe;
+		/** The number of mines flagged */
+		final int correctFlags;
+		/** The state of the game */
+		final GameState state;
+		/** The move that led to this version, packed by the Move class, or -1 for the first */
+		final int move;
+		/** The number of moves in the board's log at this version, or 0 if it has none */
+		int logSize;
+
+		/**
+		 * Creates a new Version of a board as it is now
+		 * @param cells - the packed state of every cell
+		 * @param model - the board
+		 * @param move - the move that led to this version, or -1 for the first
+		 */
+		Version(CellTrie cells, BoardModel model, int move) {
+			this.cells = cells;
+			minesPlaced = model.areMinesPlaced();
+			mines = minesPlaced ? model.getMines() : null;
+			minesRemaining = model.getMinesRemaining();
+			revealedSafe = model.getRevealedSafe();
+			correctFlags = model.getCorrectFlags();
+			state = model.getState();
+			this.move = move;
+			logSize = model.getMoveLog() == null ? 0 : model.getMoveLog().size();
+		}
+	}
+}
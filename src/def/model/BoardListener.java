@@ -0,0 +1,21 @@
+package def.model;
+
+/**
+ * An interface for anything that wants to be told when the state of a BoardModel changes,
+ * such as the views that draw it.
+ * @author Louis Jacobowitz
+ */
+public interface BoardListener {
+	/**
+	 * Called whenever a single cell changes state (revealed, flagged or unflagged)
+	 * @param row - the row of the changed cell
+	 * @param col - the column of the changed cell
+	 */
+	void cellChanged(int row, int col);
+
+	/**
+	 * Called whenever the number of mines not yet flagged changes
+	 * @param minesRemaining - the new number of unflagged mines
+	 */
+	void minesRemainingChanged(int minesRemaining);
+}
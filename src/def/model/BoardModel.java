@@ -0,0 +1,725 @@
+package def.model;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import def.metrics.Metrics;
+import def.metrics.Operation;
+
+/**
+ * A headless model of a Minesweeper board. All of the state for every cell is packed into a
+ * single byte: the low four bits hold the number of surrounding mines, and the high bits hold
+ * whether the cell is a mine, has been revealed, or has been flagged. Cells are stored row by
+ * row in one flat CellStore, so a board costs one byte per cell and needs no UI toolkit at all.
+ * The cells are in an array on the heap unless the board is given somewhere else to keep them,
+ * such as OffHeapCells for a board too big to want on the heap.
+ * @author Louis Jacobowitz
+ */
+public class BoardModel {
+	/** The bits of a cell holding the number of surrounding mines */
+	public static final int NUMBER_MASK = 0x0F;
+	/** The bit of a cell set if the cell is a mine */
+	public static final int MINE = 0x10;
+	/** The bit of a cell set if the cell has been revealed */
+	public static final int REVEALED = 0x20;
+	/** The bit of a cell set if the cell has been flagged */
+	public static final int FLAGGED = 0x40;
+	/** By default, how many cells around the first click are kept free of mines */
+	public static final int DEFAULT_SAFE_RADIUS = 1;
+	/** The height of the board */
+	private final int height;
+	/** The width of the board */
+	private final int width;
+	/** The number of mines on the board */
+	private final int numMines;
+	/** The neighbors of every cell, for the board's topology */
+	private final NeighborTable neighbors;
+	/** The number of mines currently not flagged */
+	private int minesRemaining;
+	/** The packed state of every cell, row by row */
+	private final CellStore cells;
+	/** Everything listening for changes to this board */
+	private BoardListener[] listeners;
+	/** The engine that reveals cells on this board */
+	private final RevealEngine revealEngine;
+	/** The seed from which the mines are placed */
+	private long seed;
+	/** Whether the mines have been placed yet */
+	private boolean minesPlaced;
+	/** How many cells around the first click are kept free of mines, or -1 to not protect the first click */
+	private int safeRadius;
+	/** The log every move is recorded in, or null if moves are not recorded */
+	private MoveLog moveLog;
+	/** The flat indices of the mines, or null until they are placed */
+	private int[] mines;
+	/** The number of cells revealed that are not mines */
+	private int revealedSafe;
+	/** The number of flags on cells that are mines */
+	private int correctFlags;
+	/** Whether the game is still going, won or lost */
+	private GameState state;
+
+	/**
+	 * Creates a new, empty board of the given size, with a random seed. No mines are placed yet.
+	 * @param height - the number of rows on the board
+	 * @param width - the number of columns on the board
+	 * @param numMines - the number of mines the board will hold
+	 */
+	public BoardModel(int height, int width, int numMines) {
+		this(height, width, numMines, new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Creates a new, empty board of the given size. No mines are placed yet; they are placed
+	 * from the given seed when the first cell is revealed, away from that cell.
+	 * @param height - the number of rows on the board
+	 * @param width - the number of columns on the board
+	 * @param numMines - the number of mines the board will hold
+	 * @param seed - the seed from which the mines are placed
+	 */
+	public BoardModel(int height, int width, int numMines, long seed) {
+		this(height, width, numMines, seed, Topology.SQUARE);
+	}
+
+	/**
+	 * Creates a new, empty board of the given size and shape. No mines are placed yet; they are
+	 * placed from the given seed when the first cell is revealed, away from that cell.
+	 * @param height - the number of rows on the board
+	 * @param width - the number of columns on the board
+	 * @param numMines - the number of mines the board will hold
+	 * @param seed - the seed from which the mines are placed
+	 * @param topology - which cells neighbor each other
+	 */
+	public BoardModel(int height, int width, int numMines, long seed, Topology topology) {
+		this(height, width, numMines, seed, topology, new HeapCells(checkSize(height, width)));
+	}
+
+	/**
+	 * Creates a new, empty board of the given size and shape, keeping its cells in the given
+	 * store. No mines are placed yet; they are placed from the given seed when the first cell is
+	 * revealed, away from that cell. The board does not own the store: whoever made it frees it,
+	 * once the board is no longer used.
+	 * @param height - the number of rows on the board
+	 * @param width - the number of columns on the board
+	 * @param numMines - the number of mines the board will hold
+	 * @param seed - the seed from which the mines are placed
+	 * @param topology - which cells neighbor each other
+	 * @param cells - where to keep the cells; must hold exactly one per cell of the board, all 0
+	 */
+	public BoardModel(int height, int width, int numMines, long seed, Topology topology, CellStore cells) {
+		int size = checkSize(height, width);
+		if(cells.size() != size) {
+			throw new IllegalArgumentException("Expected " + size + " cells, got " + cells.size());
+		}
+		if(numMines < 0 || numMines > size) {
+			throw new IllegalArgumentException("Invalid number of mines: " + numMines);
+		}
+		this.height = height;
+		this.width = width;
+		this.numMines = numMines;
+		neighbors = NeighborTable.of(topology, height, width);
+		minesRemaining = numMines;
+		this.cells = cells;
+		listeners = new BoardListener[0];
+		revealEngine = new RevealEngine(this);
+		this.seed = seed;
+		safeRadius = DEFAULT_SAFE_RADIUS;
+		state = GameState.PLAYING;
+	}
+
+	/**
+	 * Returns the number of cells on a board of the given size, making sure it is one a board can have
+	 * @param height - the number of rows on the board
+	 * @param width - the number of columns on the board
+	 * @return the number of cells
+	 * @throws IllegalArgumentException if there are no cells or too many to index
+	 */
+	private static int checkSize(int height, int width) {
+		if(height <= 0 || width <= 0 || (long) height * width > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid board size: " + height + "x" + width);
+		}
+		return height * width;
+	}
+
+	/**
+	 * Clears every cell on the board, removing all mines, flags and revealed cells
+	 */
+	public void reset() {
+		cells.clear();
+		minesRemaining = numMines;
+		minesPlaced = false;
+		mines = null;
+		revealedSafe = 0;
+		correctFlags = 0;
+		state = GameState.PLAYING;
+	}
+
+	/**
+	 * Clears every cell on the board and sets the seed from which the next mines are placed
+	 * @param newSeed - the new seed
+	 */
+	public void reset(long newSeed) {
+		reset();
+		seed = newSeed;
+	}
+
+	/**
+	 * Returns the seed from which the mines are placed
+	 * @return the value of this object's seed variable
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Sets how many cells around the first click are kept free of mines
+	 * @param radius - the distance from the first click to keep clear, or -1 to allow a mine under the first click
+	 */
+	public void setSafeRadius(int radius) {
+		safeRadius = radius;
+	}
+
+	/**
+	 * Returns how many cells around the first click are kept free of mines
+	 * @return the value of this object's safeRadius variable
+	 */
+	public int getSafeRadius() {
+		return safeRadius;
+	}
+
+	/**
+	 * Starts recording every move made on this board in the given log
+	 * @param log - the log to record moves in, or null to stop recording
+	 */
+	public void setMoveLog(MoveLog log) {
+		moveLog = log;
+	}
+
+	/**
+	 * Returns the log moves are recorded in
+	 * @return the value of this object's moveLog variable
+	 */
+	public MoveLog getMoveLog() {
+		return moveLog;
+	}
+
+	/**
+	 * Returns true if the mines have been placed, either by the first reveal or by computeNumbers()
+	 * @return the value of this object's minesPlaced variable
+	 */
+	public boolean areMinesPlaced() {
+		return minesPlaced;
+	}
+
+	/**
+	 * Places the mines from this board's seed, keeping the cells around the given cell clear,
+	 * and sets the number of surrounding mines for every cell
+	 * @param safeRow - the row of the cell to keep clear
+	 * @param safeCol - the column of the cell to keep clear
+	 * @return the flat indices of the placed mines
+	 */
+	public int[] placeMines(int safeRow, int safeCol) {
+		long start = Metrics.start();
+		MinePlacer placer = new MinePlacer(seed);
+		mines = safeRadius < 0 ? placer.place(this) : placer.place(this, safeRow, safeCol, safeRadius);
+		computeNumbers();
+		Metrics.finish(Operation.PLACE_MINES, start, numMines);
+		return mines;
+	}
+
+	/**
+	 * Places mines on the given cells, rather than from this board's seed, and sets the number
+	 * of surrounding mines for every cell. Used to play a board generated elsewhere.
+	 * @param positions - the flat indices of the mines; there must be exactly as many as this board holds
+	 */
+	public void placeMines(int[] positions) {
+		if(positions.length != numMines) {
+			throw new IllegalArgumentException("Expected " + numMines + " mines, got " + positions.length);
+		}
+		long start = Metrics.start();
+		for(int index : positions) {
+			cells.set(index, cells.get(index) | MINE);
+		}
+		mines = positions.clone();
+		if(moveLog != null) moveLog.setMines(positions);
+		computeNumbers();
+		Metrics.finish(Operation.PLACE_MINES, start, numMines);
+	}
+
+	/**
+	 * Registers a listener to be told about changes to this board
+	 * @param l - the listener to add
+	 */
+	public void addListener(BoardListener l) {
+		listeners = Arrays.copyOf(listeners, listeners.length + 1);
+		listeners[listeners.length - 1] = l;
+	}
+
+	/**
+	 * Removes a previously registered listener
+	 * @param l - the listener to remove
+	 */
+	public void removeListener(BoardListener l) {
+		for(int i = 0; i < listeners.length; i++) {
+			if(listeners[i] == l) {
+				BoardListener[] shorter = new BoardListener[listeners.length - 1];
+				System.arraycopy(listeners, 0, shorter, 0, i);
+				System.arraycopy(listeners, i + 1, shorter, i, shorter.length - i);
+				listeners = shorter;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Removes every listener at once, so that a burst of changes can be reported afterward in one go
+	 * @return the listeners removed, to be handed back to attachListeners()
+	 */
+	BoardListener[] detachListeners() {
+		BoardListener[] detached = listeners;
+		listeners = new BoardListener[0];
+		return detached;
+	}
+
+	/**
+	 * Puts back listeners removed by detachListeners()
+	 * @param attached - the listeners to put back
+	 */
+	void attachListeners(BoardListener[] attached) {
+		listeners = attached;
+	}
+
+	/**
+	 * Returns which cells of the board neighbor each other
+	 * @return the topology of this object's neighbor table
+	 */
+	public Topology getTopology() {
+		return neighbors.getTopology();
+	}
+
+	/**
+	 * Returns the neighbors of every cell of the board
+	 * @return the value of this object's neighbors variable
+	 */
+	public NeighborTable getNeighbors() {
+		return neighbors;
+	}
+
+	/**
+	 * Returns the height of the board
+	 * @return the number of rows
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the width of the board
+	 * @return the number of columns
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the total number of cells on the board
+	 * @return height times width
+	 */
+	public int size() {
+		return cells.size();
+	}
+
+	/**
+	 * Returns the number of mines on the board
+	 * @return the value of this object's numMines variable
+	 */
+	public int getNumMines() {
+		return numMines;
+	}
+
+	/**
+	 * Returns the number of mines that have not been flagged
+	 * @return the value of this object's minesRemaining variable
+	 */
+	public int getMinesRemaining() {
+		return minesRemaining;
+	}
+
+	/**
+	 * Returns whether the game is still going, won or lost
+	 * @return the value of this object's state variable
+	 */
+	public GameState getState() {
+		return state;
+	}
+
+	/**
+	 * Returns the number of cells revealed that are not mines
+	 * @return the value of this object's revealedSafe variable
+	 */
+	public int getRevealedSafe() {
+		return revealedSafe;
+	}
+
+	/**
+	 * Returns the number of flags on cells that are mines
+	 * @return the value of this object's correctFlags variable
+	 */
+	public int getCorrectFlags() {
+		return correctFlags;
+	}
+
+	/**
+	 * Returns the flat indices of every mine on the board. The array must not be changed.
+	 * @return the mines, or an empty array if they have not been placed
+	 */
+	public int[] getMines() {
+		return mines == null ? new int[0] : mines;
+	}
+
+	/**
+	 * Works out the counters, the mine list and the state of the game from the cells, after
+	 * the cells were set wholesale - by restoring a save or a snapshot
+	 */
+	void recount() {
+		int flags = 0;
+		revealedSafe = 0;
+		correctFlags = 0;
+		boolean lost = false;
+		int[] found = new int[numMines];
+		int m = 0;
+		for(int i = 0, size = cells.size(); i < size; i++) {
+			int cell = cells.get(i);
+			if((cell & FLAGGED) != 0) flags++;
+			if((cell & MINE) != 0) {
+				if(m < found.length) found[m++] = i;
+				if((cell & FLAGGED) != 0) correctFlags++;
+				if((cell & REVEALED) != 0) lost = true;
+			}
+			else if((cell & REVEALED) != 0) {
+				revealedSafe++;
+			}
+		}
+		mines = minesPlaced ? Arrays.copyOf(found, m) : null;
+		minesRemaining = numMines - flags;
+		state = lost ? GameState.LOST : GameState.PLAYING;
+		checkWon();
+	}
+
+	/**
+	 * Ends the game as won if every safe cell has been revealed, or every mine flagged and nothing else
+	 */
+	private void checkWon() {
+		if(state != GameState.PLAYING || !minesPlaced) return;
+		if(revealedSafe == cells.size() - numMines || (correctFlags == numMines && minesRemaining == 0)) {
+			state = GameState.WON;
+		}
+	}
+
+	/**
+	 * Copies the packed state of every cell into an array, for taking a snapshot
+	 * @param dest - the array to copy into, or null to allocate one
+	 * @return the array holding the copy
+	 */
+	byte[] copyCells(byte[] dest) {
+		if(dest == null || dest.length != cells.size()) dest = new byte[cells.size()];
+		cells.read(0, dest, 0, dest.length);
+		return dest;
+	}
+
+	/**
+	 * Puts every cell back to a snapshot. Listeners are not told; the caller reports what changed.
+	 * @param snapshot - the packed state of every cell
+	 * @param placed - whether the mines had been placed
+	 */
+	void restoreCells(byte[] snapshot, boolean placed) {
+		cells.write(0, snapshot, 0, snapshot.length);
+		minesPlaced = placed;
+		recount();
+	}
+
+	/**
+	 * Puts the counters and the state of the game back to what they were at some earlier point,
+	 * after the cells have been put back. Listeners are not told; the caller reports what changed.
+	 * @param placed - whether the mines had been placed
+	 * @param placedMines - the flat indices of the mines, or null if they had not been placed
+	 * @param remaining - the number of mines not yet flagged
+	 * @param safe - the number of safe cells revealed
+	 * @param flags - the number of mines flagged
+	 * @param gameState - the state of the game
+	 */
+	void restoreCounters(boolean placed, int[] placedMines, int remaining, int safe, int flags, GameState gameState) {
+		minesPlaced = placed;
+		mines = placedMines;
+		minesRemaining = remaining;
+		revealedSafe = safe;
+		correctFlags = flags;
+		state = gameState;
+	}
+
+	/**
+	 * Returns the flat index of the cell at the given position
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return the index of the cell in the flat cell array
+	 */
+	public int index(int row, int col) {
+		return row * width + col;
+	}
+
+	/**
+	 * Writes the flat indices of every neighbor of the given cell into an array
+	 * @param index - the flat index of the cell
+	 * @param out - where to put the neighbors; must hold at least the topology's most neighbors
+	 * @return the number of neighbors written
+	 */
+	public int neighbors(int index, int[] out) {
+		return neighbors.neighbors(index, out);
+	}
+
+	/**
+	 * Returns true if the given position lies on the board
+	 * @param row - the row to check
+	 * @param col - the column to check
+	 * @return whether the position is inside the board
+	 */
+	public boolean inBounds(int row, int col) {
+		return row >= 0 && row < height && col >= 0 && col < width;
+	}
+
+	/**
+	 * Returns the packed state of the cell at the given index
+	 * @param index - the flat index of the cell
+	 * @return the packed cell byte, as an int
+	 */
+	public int cell(int index) {
+		return cells.get(index);
+	}
+
+	/**
+	 * Overwrites the packed state of the cell at the given index
+	 * @param index - the flat index of the cell
+	 * @param value - the new packed cell byte
+	 */
+	void setCell(int index, int value) {
+		cells.set(index, value);
+	}
+
+	/**
+	 * Returns true if the cell at the given position is a mine
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return whether the cell is a mine
+	 */
+	public boolean isMine(int row, int col) {
+		return (cells.get(index(row, col)) & MINE) != 0;
+	}
+
+	/**
+	 * Returns true if the cell at the given position has been revealed
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return whether the cell has been revealed
+	 */
+	public boolean isRevealed(int row, int col) {
+		return (cells.get(index(row, col)) & REVEALED) != 0;
+	}
+
+	/**
+	 * Returns true if the cell at the given position has been flagged
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return whether the cell has been flagged
+	 */
+	public boolean isFlagged(int row, int col) {
+		return (cells.get(index(row, col)) & FLAGGED) != 0;
+	}
+
+	/**
+	 * Returns the number of mines surrounding the cell at the given position
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return the number of surrounding mines
+	 */
+	public int getNumber(int row, int col) {
+		return cells.get(index(row, col)) & NUMBER_MASK;
+	}
+
+	/**
+	 * Makes the cell at the given position a mine. Does not update any neighbor counts;
+	 * call computeNumbers() once all mines have been placed.
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 */
+	public void setMine(int row, int col) {
+		int index = index(row, col);
+		cells.set(index, cells.get(index) | MINE);
+	}
+
+	/**
+	 * Sets the number of surrounding mines for every cell on the board, based on where the mines are.
+	 * Once this is called, the mines count as placed and the first reveal will not place any more.
+	 */
+	public void computeNumbers() {
+		minesPlaced = true;
+		NeighborCounter.count(this);
+		if(mines == null) {
+			recount();
+			return;
+		}
+		// Flags placed before the mines were may now be on mines
+		correctFlags = 0;
+		for(int index : mines) {
+			if((cells.get(index) & FLAGGED) != 0) correctFlags++;
+		}
+	}
+
+	/**
+	 * Reveals the cell at the given position, if it is neither revealed nor flagged. If the cell
+	 * has no surrounding mines, the whole opening around it is revealed as well.
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return the cells newly revealed; only valid until the next move. Nothing is revealed once the game is over.
+	 */
+	public RevealDelta reveal(int row, int col) {
+		if(state != GameState.PLAYING) return revealEngine.none();
+		if(moveLog != null) moveLog.add(Move.of(Move.REVEAL, index(row, col)));
+		if(!minesPlaced) placeMines(row, col);
+		long start = Metrics.start();
+		RevealDelta delta = fireRevealed(revealEngine.reveal(index(row, col)));
+		Metrics.finish(Operation.REVEAL, start, delta.size());
+		return delta;
+	}
+
+	/**
+	 * Reveals every unflagged neighbor of a revealed cell, if the number of flags around it
+	 * matches its number of surrounding mines.
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return the cells newly revealed; only valid until the next move. Nothing is revealed once the game is over.
+	 */
+	public RevealDelta chord(int row, int col) {
+		if(state != GameState.PLAYING) return revealEngine.none();
+		if(moveLog != null) moveLog.add(Move.of(Move.CHORD, index(row, col)));
+		long start = Metrics.start();
+		RevealDelta delta = fireRevealed(revealEngine.chord(index(row, col)));
+		Metrics.finish(Operation.CHORD, start, delta.size());
+		return delta;
+	}
+
+	/**
+	 * Makes a move packed by the Move class
+	 * @param move - the packed move
+	 * @return the cells newly revealed; only valid until the next move
+	 */
+	public RevealDelta apply(int move) {
+		int index = Move.cell(move);
+		int row = index / width;
+		int col = index - row * width;
+		switch(Move.action(move)) {
+		case Move.REVEAL:
+			return reveal(row, col);
+		case Move.CHORD:
+			return chord(row, col);
+		case Move.FLAG:
+			toggleFlag(row, col);
+			return revealEngine.none();
+		default:
+			throw new IllegalArgumentException("Invalid move: " + move);
+		}
+	}
+
+	/**
+	 * Flags the cell at the given position, if it has not yet been revealed and is not already
+	 * flagged, and the game is not over
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 */
+	public void flag(int row, int col) {
+		int index = index(row, col);
+		int cell = cells.get(index);
+		if(state == GameState.PLAYING && (cell & (REVEALED | FLAGGED)) == 0) {
+			cells.set(index, cell | FLAGGED);
+			minesRemaining--;
+			if((cell & MINE) != 0) correctFlags++;
+			checkWon();
+			if(moveLog != null) moveLog.add(Move.of(Move.FLAG, index));
+			fireCellChanged(row, col);
+			fireMinesRemainingChanged();
+		}
+	}
+
+	/**
+	 * Unflags the cell at the given position if it is flagged and the game is not over
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 */
+	public void unflag(int row, int col) {
+		int index = index(row, col);
+		int cell = cells.get(index);
+		if(state == GameState.PLAYING && (cell & FLAGGED) != 0) {
+			cells.set(index, cell & ~FLAGGED);
+			minesRemaining++;
+			if((cell & MINE) != 0) correctFlags--;
+			checkWon();
+			if(moveLog != null) moveLog.add(Move.of(Move.FLAG, index));
+			fireCellChanged(row, col);
+			fireMinesRemainingChanged();
+		}
+	}
+
+	/**
+	 * Flags the cell at the given position if it is unflagged, or unflags it if it is flagged
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 */
+	public void toggleFlag(int row, int col) {
+		if(isFlagged(row, col)) unflag(row, col);
+		else flag(row, col);
+	}
+
+	/**
+	 * Tells every listener that a cell changed
+	 * @param row - the changed cell's row
+	 * @param col - the changed cell's column
+	 */
+	void fireCellChanged(int row, int col) {
+		for(BoardListener l : listeners) {
+			l.cellChanged(row, col);
+		}
+	}
+
+	/**
+	 * Counts the cells in a delta toward the end of the game, then tells every listener about each of them
+	 * @param delta - the cells that were just revealed
+	 * @return the same delta
+	 */
+	private RevealDelta fireRevealed(RevealDelta delta) {
+		if(delta.hitMine()) {
+			state = GameState.LOST;
+			for(int i = 0; i < delta.size(); i++) {
+				if((cells.get(delta.get(i)) & MINE) == 0) revealedSafe++;
+			}
+		}
+		else {
+			revealedSafe += delta.size();
+			checkWon();
+		}
+		if(listeners.length > 0) {
+			for(int i = 0; i < delta.size(); i++) {
+				int index = delta.get(i);
+				fireCellChanged(index / width, index % width);
+			}
+		}
+		return delta;
+	}
+
+	/**
+	 * Tells every listener that the number of unflagged mines changed
+	 */
+	void fireMinesRemainingChanged() {
+		for(BoardListener l : listeners) {
+			l.minesRemainingChanged(minesRemaining);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package def.model;
+
+/**
+ * Where a BoardModel keeps the packed byte of each of its cells. Boards keep their cells in a
+ * plain array on the heap unless given somewhere else to keep them, such as OffHeapCells; the
+ * board, and everything working on it through its cell accessors, is the same either way.
+ * @author Louis Jacobowitz
+ */
+public interface CellStore {
+	/**
+	 * Returns the number of cells
+	 * @return the number of cells held
+	 */
+	int size();
+
+	/**
+	 * Returns the packed byte of one cell
+	 * @param index - the flat index of the cell
+	 * @return the cell's byte, as an int
+	 */
+	int get(int index);
+
+	/**
+	 * Sets the packed byte of one cell
+	 * @param index - the flat index of the cell
+	 * @param value - the cell's new byte
+	 */
+	void set(int index, int value);
+
+	/**
+	 * Copies a run of cells into an array
+	 * @param index - the flat index of the first cell
+	 * @param dest - the array to copy into
+	 * @param offset - where in the array to put the first cell
+	 * @param length - the number of cells
+	 */
+	void read(int index, byte[] dest, int offset, int length);
+
+	/**
+	 * Copies a run of cells from an array
+	 * @param index - the flat index of the first cell
+	 * @param src - the array to copy from
+	 * @param offset - where in the array the first cell is
+	 * @param length - the number of cells
+	 */
+	void write(int index, byte[] src, int offset, int length);
+
+	/**
+	 * Sets every cell to 0
+	 */
+	void clear();
+}
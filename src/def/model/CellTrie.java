@@ -0,0 +1,206 @@
+package def.model;
+
+import java.util.Arrays;
+
+/**
+ * An immutable copy of the packed cells of a board, kept as a trie of fixed-size blocks so that
+ * versions share every block they have in common. Changing some cells copies only the blocks
+ * holding them and the nodes on the paths down to those blocks; the rest of the trie is shared
+ * with the version it was made from. Comparing two versions skips every subtree they share, so
+ * it costs in proportion to how much differs between them rather than to the size of the board.
+ * <p>
+ * The leaves are byte arrays of BLOCK cells, and each node above them holds up to BRANCH
+ * children, so even a board of a hundred million cells is only five nodes deep.
+ * @author Louis Jacobowitz
+ */
+final class CellTrie {
+	/** The number of bits of a cell's index that pick its place within a block */
+	private static final int BLOCK_BITS = 6;
+	/** The number of cells in a block */
+	private static final int BLOCK = 1 << BLOCK_BITS;
+	/** The number of bits of a cell's index that pick a child at each level above the blocks */
+	private static final int BRANCH_BITS = 5;
+	/** The most children of a node */
+	private static final int BRANCH = 1 << BRANCH_BITS;
+	/** The number of levels of nodes above the blocks */
+	private final int depth;
+	/** The top of the trie: a byte[] block if depth is 0, otherwise an Object[] node */
+	private final Object root;
+
+	/**
+	 * Creates a new CellTrie
+	 * @param depth - the number of levels of nodes above the blocks
+	 * @param root - the top of the trie
+	 */
+	private CellTrie(int depth, Object root) {
+		this.depth = depth;
+		this.root = root;
+	}
+
+	/**
+	 * Copies every cell of a board into a new trie
+	 * @param model - the board
+	 * @return the trie, sharing nothing with any other
+	 */
+	static CellTrie of(BoardModel model) {
+		int size = model.size();
+		int depth = 0;
+		for(long reach = BLOCK; reach < size; reach <<= BRANCH_BITS) {
+			depth++;
+		}
+		return new CellTrie(depth, build(model, depth, 0));
+	}
+
+	/**
+	 * Copies the cells of a board under one node of a new trie
+	 * @param model - the board
+	 * @param level - the number of levels of nodes from this one down to the blocks
+	 * @param first - the index of the first cell under the node
+	 * @return the node, or block if level is 0
+	 */
+	private static Object build(BoardModel model, int level, int first) {
+		if(level == 0) {
+			byte[] block = new byte[BLOCK];
+			for(int i = 0, end = Math.min(BLOCK, model.size() - first); i < end; i++) {
+				block[i] = (byte) model.cell(first + i);
+			}
+			return block;
+		}
+		int shift = shift(level);
+		int children = (int) Math.min(BRANCH, (model.size() - first + (1L << shift) - 1) >> shift);
+		Object[] node = new Object[children];
+		for(int c = 0; c < children; c++) {
+			node[c] = build(model, level - 1, first + (c << shift));
+		}
+		return node;
+	}
+
+	/**
+	 * Returns the number of cells under each child of a node
+	 * @param level - the number of levels of nodes from the node down to the blocks
+	 * @return the log base 2 of the number of cells under each child
+	 */
+	private static int shift(int level) {
+		return BLOCK_BITS + (level - 1) * BRANCH_BITS;
+	}
+
+	/**
+	 * Returns the packed state of one cell
+	 * @param index - the flat index of the cell
+	 * @return the packed cell byte, as an int
+	 */
+	int get(int index) {
+		Object node = root;
+		for(int level = depth; level > 0; level--) {
+			node = ((Object[]) node)[(index >>> shift(level)) & (BRANCH - 1)];
+		}
+		return ((byte[]) node)[index & (BLOCK - 1)];
+	}
+
+	/**
+	 * Makes a new version of the trie with some cells set to their state on a board
+	 * @param model - the board the new states are read from
+	 * @param changes - the cells that changed, in any order and possibly repeated; they are sorted
+	 * @return the new version, sharing every block holding none of the cells with this one
+	 */
+	CellTrie with(BoardModel model, Changes changes) {
+		if(changes.count == 0) return this;
+		Arrays.sort(changes.cells, 0, changes.count);
+		return new CellTrie(depth, update(root, depth, 0, model, changes.cells, 0, changes.count));
+	}
+
+	/**
+	 * Copies one node of the trie with some of the cells under it changed
+	 * @param node - the node, or block if level is 0
+	 * @param level - the number of levels of nodes from this one down to the blocks
+	 * @param first - the index of the first cell under the node
+	 * @param model - the board the new states are read from
+	 * @param indices - the flat indices of the changed cells, in ascending order
+	 * @param from - the first entry of indices under the node
+	 * @param to - the entry of indices after the last one under the node
+	 * @return the copy
+	 */
+	private static Object update(Object node, int level, int first, BoardModel model, int[] indices, int from, int to) {
+		if(level == 0) {
+			byte[] block = ((byte[]) node).clone();
+			for(int i = from; i < to; i++) {
+				block[indices[i] - first] = (byte) model.cell(indices[i]);
+			}
+			return block;
+		}
+		Object[] copy = ((Object[]) node).clone();
+		int shift = shift(level);
+		int i = from;
+		while(i < to) {
+			int child = (indices[i] - first) >>> shift;
+			long childEnd = first + ((long) (child + 1) << shift);
+			// The cells are in order, so every cell under this child comes before the next child's
+			int j = i + 1;
+			while(j < to && indices[j] < childEnd) j++;
+			copy[child] = update(copy[child], level - 1, first + (child << shift), model, indices, i, j);
+			i = j;
+		}
+		return copy;
+	}
+
+	/**
+	 * Finds every cell whose state differs between this version and another of the same board
+	 * @param other - the other version
+	 * @param changes - where to add the cells that differ
+	 */
+	void diff(CellTrie other, Changes changes) {
+		diff(root, other.root, depth, 0, changes);
+	}
+
+	/**
+	 * Finds the cells that differ under two nodes, skipping them if they are shared
+	 * @param a - the node of this version, or block if level is 0
+	 * @param b - the node of the other version
+	 * @param level - the number of levels of nodes from these down to the blocks
+	 * @param first - the index of the first cell under the nodes
+	 * @param changes - where to add the cells that differ
+	 */
+	private static void diff(Object a, Object b, int level, int first, Changes changes) {
+		if(a == b) return;
+		if(level == 0) {
+			byte[] x = (byte[]) a;
+			byte[] y = (byte[]) b;
+			for(int i = 0; i < BLOCK; i++) {
+				if(x[i] != y[i]) changes.add(first + i);
+			}
+			return;
+		}
+		Object[] x = (Object[]) a;
+		Object[] y = (Object[]) b;
+		int shift = shift(level);
+		for(int c = 0; c < x.length; c++) {
+			diff(x[c], y[c], level - 1, first + (c << shift), changes);
+		}
+	}
+
+	/**
+	 * A growable list of the flat indices of changed cells, reused from one move to the next
+	 */
+	static class Changes {
+		/** The indices; only the first count entries are used */
+		int[] cells = new int[64];
+		/** The number of indices in the list */
+		int count;
+
+		/**
+		 * Empties the list, keeping its capacity
+		 */
+		void clear() {
+			count = 0;
+		}
+
+		/**
+		 * Adds a cell to the list
+		 * @param index - the flat index of the cell
+		 */
+		void add(int index) {
+			if(count == cells.length) cells = Arrays.copyOf(cells, count * 2);
+			cells[count++] = index;
+		}
+	}
+}
@@ -0,0 +1,381 @@
+package def.model;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A board that many threads can play on at once, for co-op games where several players or bots
+ * click on the same board. Cells are packed exactly as in BoardModel, four to an int of an
+ * AtomicIntegerArray, and every change to a cell is a compare-and-set on its byte lane, so no move
+ * ever takes a lock.
+ * <p>
+ * A reveal works like RevealEngine's flood fill, except that a cell is claimed with a CAS that
+ * sets its revealed bit before it is queued. Only one thread can win that CAS, so when two
+ * cascades overlap, each cell is revealed and counted by exactly one of them, and each zero cell
+ * has its neighbors queued by exactly one of them; together they open exactly the cells a single
+ * cascade would have. Flags are CASes too, so a flag and a reveal racing for the same cell cannot
+ * both win. The only state shared by every move is a couple of counters touched once per move, so
+ * moves on different parts of the board proceed in parallel.
+ * <p>
+ * Mines are placed on the first reveal, from the seed, keeping that cell clear just as BoardModel
+ * does; that is the one step that takes a lock, and it happens once per game.
+ * @author Louis Jacobowitz
+ */
+public class ConcurrentBoard {
+	/** The height of the board */
+	private final int height;
+	/** The width of the board */
+	private final int width;
+	/** The number of mines on the board */
+	private final int numMines;
+	/** The seed from which the mines are placed */
+	private final long seed;
+	/** The neighbors of every cell, for the board's topology */
+	private final NeighborTable neighbors;
+	/** The state of every cell, packed as in BoardModel, four cells to an int */
+	private final AtomicIntegerArray cells;
+	/** The number of safe cells revealed */
+	private final AtomicInteger revealedSafe;
+	/** The number of flags in the high 32 bits, and the number of them on mines in the low 32 */
+	private final AtomicLong flags;
+	/** Whether the game is being played, won or lost */
+	private final AtomicReference<GameState> state;
+	/** Each thread's delta, filled by its moves and reused between them */
+	private final ThreadLocal<RevealDelta> deltas;
+	/** The listeners told about changes; they are called on whichever thread made the move */
+	private final CopyOnWriteArrayList<BoardListener> listeners;
+	/** Whether the mines have been placed */
+	private volatile boolean minesPlaced;
+
+	/**
+	 * Creates a new, empty board. The mines are placed on the first reveal.
+	 * @param height - the number of rows
+	 * @param width - the number of columns
+	 * @param numMines - the number of mines
+	 * @param seed - the seed from which the mines are placed
+	 */
+	public ConcurrentBoard(int height, int width, int numMines, long seed) {
+		this(height, width, numMines, seed, Topology.SQUARE);
+	}
+
+	/**
+	 * Creates a new, empty board of the given shape. The mines are placed on the first reveal.
+	 * @param height - the number of rows
+	 * @param width - the number of columns
+	 * @param numMines - the number of mines
+	 * @param seed - the seed from which the mines are placed
+	 * @param topology - which cells neighbor each other
+	 */
+	public ConcurrentBoard(int height, int width, int numMines, long seed, Topology topology) {
+		this.height = height;
+		this.width = width;
+		this.numMines = numMines;
+		this.seed = seed;
+		neighbors = NeighborTable.of(topology, height, width);
+		cells = new AtomicIntegerArray((int) (((long) height * width + 3) >>> 2));
+		revealedSafe = new AtomicInteger();
+		flags = new AtomicLong();
+		state = new AtomicReference<>(GameState.PLAYING);
+		deltas = ThreadLocal.withInitial(() -> new RevealDelta(Math.min(size(), 1024)));
+		listeners = new CopyOnWriteArrayList<>();
+	}
+
+	/**
+	 * Returns which cells of the board neighbor each other
+	 * @return the topology of this object's neighbor table
+	 */
+	public Topology getTopology() {
+		return neighbors.getTopology();
+	}
+
+	/**
+	 * Returns the height of the board
+	 * @return the number of rows
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the width of the board
+	 * @return the number of columns
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the number of cells on the board
+	 * @return height times width
+	 */
+	public int size() {
+		return height * width;
+	}
+
+	/**
+	 * Returns the number of mines on the board
+	 * @return the value of this object's numMines variable
+	 */
+	public int getNumMines() {
+		return numMines;
+	}
+
+	/**
+	 * Returns the number of mines not yet flagged, which goes below zero if there are too many flags
+	 * @return the number of mines minus the number of flags
+	 */
+	public int getMinesRemaining() {
+		return numMines - (int) (flags.get() >>> 32);
+	}
+
+	/**
+	 * Returns the number of safe cells revealed
+	 * @return the value of this object's revealedSafe counter
+	 */
+	public int getRevealedSafe() {
+		return revealedSafe.get();
+	}
+
+	/**
+	 * Returns whether the game is being played, won or lost
+	 * @return the current state
+	 */
+	public GameState getState() {
+		return state.get();
+	}
+
+	/**
+	 * Returns whether the mines have been placed
+	 * @return the value of this object's minesPlaced variable
+	 */
+	public boolean areMinesPlaced() {
+		return minesPlaced;
+	}
+
+	/**
+	 * Returns the flat index of a cell
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return row * width + col
+	 */
+	public int index(int row, int col) {
+		return row * width + col;
+	}
+
+	/**
+	 * Returns true if the given position is on the board
+	 * @param row - the row
+	 * @param col - the column
+	 * @return whether the position is in bounds
+	 */
+	public boolean inBounds(int row, int col) {
+		return row >= 0 && row < height && col >= 0 && col < width;
+	}
+
+	/**
+	 * Returns the packed state of a cell, in the format of BoardModel
+	 * @param index - the flat index of the cell
+	 * @return the packed cell byte, as an int
+	 */
+	public int cell(int index) {
+		return cells.get(index >>> 2) >>> ((index & 3) << 3) & 0xFF;
+	}
+
+	/**
+	 * Registers a listener to be told about changes to this board. It is called on the thread
+	 * that made each move, so it must be thread-safe itself.
+	 * @param l - the listener to add
+	 */
+	public void addListener(BoardListener l) {
+		listeners.add(l);
+	}
+
+	/**
+	 * Removes a previously registered listener
+	 * @param l - the listener to remove
+	 */
+	public void removeListener(BoardListener l) {
+		listeners.remove(l);
+	}
+
+	/**
+	 * Reveals the given cell, and if it has no surrounding mines, the whole opening around it.
+	 * Cells another thread reveals first are left to that thread.
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return the cells this move revealed; only valid until this thread's next move on this board
+	 */
+	public RevealDelta reveal(int row, int col) {
+		RevealDelta delta = deltas.get();
+		delta.clear();
+		if(state.get() != GameState.PLAYING) return delta;
+		int index = index(row, col);
+		if(!minesPlaced) placeMines(index);
+		claim(index, delta);
+		fill(delta);
+		return finish(delta);
+	}
+
+	/**
+	 * Reveals every unflagged neighbor of a revealed cell, if it has exactly as many flags around
+	 * it as it has surrounding mines
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return the cells this move revealed; only valid until this thread's next move on this board
+	 */
+	public RevealDelta chord(int row, int col) {
+		RevealDelta delta = deltas.get();
+		delta.clear();
+		if(state.get() != GameState.PLAYING) return delta;
+		int index = index(row, col);
+		int cell = cell(index);
+		if((cell & BoardModel.REVEALED) == 0 || (cell & BoardModel.MINE) != 0) return delta;
+		int flagsAround = 0;
+		int kind = neighbors.kind(index);
+		for(int i = neighbors.starts[kind], end = neighbors.starts[kind + 1]; i < end; i++) {
+			if((cell(index + neighbors.deltas[i]) & BoardModel.FLAGGED) != 0) flagsAround++;
+		}
+		if(flagsAround != (cell & BoardModel.NUMBER_MASK)) return delta;
+		claimNeighbors(index, delta);
+		fill(delta);
+		return finish(delta);
+	}
+
+	/**
+	 * Flags the cell at the given position if it is unflagged, or unflags it if it is flagged,
+	 * unless it is revealed or the game is over
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return true if the flag was changed
+	 */
+	public boolean toggleFlag(int row, int col) {
+		if(state.get() != GameState.PLAYING) return false;
+		int index = index(row, col);
+		int word = index >>> 2;
+		int shift = (index & 3) << 3;
+		int before;
+		while(true) {
+			int packed = cells.get(word);
+			before = packed >>> shift & 0xFF;
+			if((before & BoardModel.REVEALED) != 0) return false;
+			if(cells.compareAndSet(word, packed, packed ^ (BoardModel.FLAGGED << shift))) break;
+		}
+		boolean flagged = (before & BoardModel.FLAGGED) == 0;
+		long change = (1L << 32) + ((before & BoardModel.MINE) != 0 ? 1 : 0);
+		long total = flags.addAndGet(flagged ? change : -change);
+		// Every mine flagged, and nothing else
+		if(minesPlaced && (int) total == numMines && (int) (total >>> 32) == numMines) {
+			state.compareAndSet(GameState.PLAYING, GameState.WON);
+		}
+		for(BoardListener l : listeners) {
+			l.cellChanged(row, col);
+			l.minesRemainingChanged(getMinesRemaining());
+		}
+		return true;
+	}
+
+	/**
+	 * Places the mines from the seed, keeping the first revealed cell clear, unless another
+	 * thread has already placed them
+	 * @param index - the flat index of the first cell revealed
+	 */
+	private synchronized void placeMines(int index) {
+		if(minesPlaced) return;
+		// A BoardModel places the mines exactly as a single-player game from the same seed would
+		BoardModel model = new BoardModel(height, width, numMines, seed, neighbors.getTopology());
+		model.placeMines(index / width, index % width);
+		int flaggedMines = 0;
+		for(int i = 0; i < size(); i++) {
+			int placed = model.cell(i) & (BoardModel.MINE | BoardModel.NUMBER_MASK);
+			if(placed == 0) continue;
+			// Flags may be toggled while this runs, so the mine and number bits are OR-ed in
+			int word = i >>> 2;
+			int shift = (i & 3) << 3;
+			int packed;
+			do {
+				packed = cells.get(word);
+			} while(!cells.compareAndSet(word, packed, packed | (placed << shift)));
+			// A flag already on a new mine becomes a correct flag; flags toggled later see the mine themselves
+			if((placed & BoardModel.MINE) != 0 && (packed >>> shift & BoardModel.FLAGGED) != 0) flaggedMines++;
+		}
+		flags.addAndGet(flaggedMines);
+		minesPlaced = true;
+	}
+
+	/**
+	 * Reveals every cell queued in the delta that has no surrounding mines, and queues its neighbors in turn
+	 * @param delta - the delta holding the cells claimed so far, which doubles as the queue
+	 */
+	private void fill(RevealDelta delta) {
+		for(int head = 0; head < delta.count; head++) {
+			int index = delta.cells[head];
+			int cell = cell(index);
+			if((cell & BoardModel.MINE) != 0) {
+				delta.hitMine = true;
+			}
+			else if((cell & BoardModel.NUMBER_MASK) == 0) {
+				claimNeighbors(index, delta);
+			}
+		}
+	}
+
+	/**
+	 * Claims every neighbor of the given cell
+	 * @param index - the flat index of the cell
+	 * @param delta - the delta to queue claimed cells in
+	 */
+	private void claimNeighbors(int index, RevealDelta delta) {
+		int kind = neighbors.kind(index);
+		for(int i = neighbors.starts[kind], end = neighbors.starts[kind + 1]; i < end; i++) {
+			claim(index + neighbors.deltas[i], delta);
+		}
+	}
+
+	/**
+	 * Reveals a cell and queues it, if it is neither revealed nor flagged. If another thread
+	 * changes the cell first, the CAS is retried on the new state, so the cell is claimed by
+	 * whichever thread reveals it first and is then left alone by everyone else.
+	 * @param index - the flat index of the cell
+	 * @param delta - the delta to queue the cell in
+	 */
+	private void claim(int index, RevealDelta delta) {
+		int word = index >>> 2;
+		int shift = (index & 3) << 3;
+		while(true) {
+			int packed = cells.get(word);
+			if((packed >>> shift & (BoardModel.REVEALED | BoardModel.FLAGGED)) != 0) return;
+			if(cells.compareAndSet(word, packed, packed | (BoardModel.REVEALED << shift))) break;
+		}
+		delta.add(index);
+	}
+
+	/**
+	 * Counts the cells a move revealed, ends the game if it was won or lost, and tells the listeners
+	 * @param delta - the cells the move revealed
+	 * @return the delta
+	 */
+	private RevealDelta finish(RevealDelta delta) {
+		int safe = delta.size();
+		if(delta.hitMine()) {
+			for(int i = 0; i < delta.size(); i++) {
+				if((cell(delta.get(i)) & BoardModel.MINE) != 0) safe--;
+			}
+			state.compareAndSet(GameState.PLAYING, GameState.LOST);
+		}
+		if(safe > 0 && revealedSafe.addAndGet(safe) == size() - numMines) {
+			state.compareAndSet(GameState.PLAYING, GameState.WON);
+		}
+		if(!listeners.isEmpty()) {
+			for(int i = 0; i < delta.size(); i++) {
+				int index = delta.get(i);
+				for(BoardListener l : listeners) {
+					l.cellChanged(index / width, index % width);
+				}
+			}
+		}
+		return delta;
+	}
+}
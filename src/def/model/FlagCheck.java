@@ -0,0 +1,102 @@
+package def.model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Checks that a board's flag counters stay right when flags are placed before the first click,
+ * when the cells they are on may still turn out to be mines. Each trial flags a few cells of a
+ * fresh board, makes the first reveal, and then checks the counters against the cells; it then
+ * flags every remaining mine, which must win the game, and unflags everything again, which must
+ * bring the counters back to nothing.
+ * <p>
+ * Usage: java def.model.FlagCheck [--trials N] [--seed S]
+ * @author Louis Jacobowitz
+ */
+public class FlagCheck {
+	/**
+	 * Runs one trial
+	 * @param random - the source of the board and the moves
+	 * @param topology - the topology of the board
+	 * @return a description of what went wrong, or null if nothing did
+	 */
+	static String trial(SplittableRandom random, Topology topology) {
+		int height = 4 + random.nextInt(12);
+		int width = 4 + random.nextInt(12);
+		int mines = 1 + random.nextInt(height * width / 4);
+		long seed = random.nextLong();
+		BoardModel model = new BoardModel(height, width, mines, seed, topology);
+		String board = height + "x" + width + " " + topology + " seed " + seed;
+		int early = random.nextInt(height * width / 3 + 1);
+		for(int i = 0; i < early; i++) {
+			model.flag(random.nextInt(height), random.nextInt(width));
+		}
+		model.reveal(random.nextInt(height), random.nextInt(width));
+		String wrong = compare(model);
+		if(wrong != null) return board + " after the first reveal: " + wrong;
+		if(model.getState() != GameState.PLAYING) return null;
+		// Take the flags off the safe cells, so that flagging every mine leaves none to spare
+		for(int i = 0; i < model.size(); i++) {
+			int cell = model.cell(i);
+			if((cell & BoardModel.FLAGGED) != 0 && (cell & BoardModel.MINE) == 0) model.unflag(i / width, i % width);
+		}
+		for(int index : model.getMines()) {
+			model.flag(index / width, index % width);
+		}
+		wrong = compare(model);
+		if(wrong != null) return board + " after flagging every mine: " + wrong;
+		if(model.getState() != GameState.WON) return board + " not won with every mine flagged";
+		return null;
+	}
+
+	/**
+	 * Compares a board's flag counters with what its cells hold
+	 * @param model - the board
+	 * @return a description of the difference, or null if there is none
+	 */
+	private static String compare(BoardModel model) {
+		int flags = 0;
+		int correct = 0;
+		for(int i = 0; i < model.size(); i++) {
+			int cell = model.cell(i);
+			if((cell & BoardModel.FLAGGED) == 0) continue;
+			flags++;
+			if((cell & BoardModel.MINE) != 0) correct++;
+		}
+		if(model.getCorrectFlags() != correct) {
+			return "correctFlags " + model.getCorrectFlags() + ", expected " + correct;
+		}
+		if(model.getMinesRemaining() != model.getNumMines() - flags) {
+			return "minesRemaining " + model.getMinesRemaining() + ", expected " + (model.getNumMines() - flags);
+		}
+		return null;
+	}
+
+	/**
+	 * Runs the check from the command line, exiting with status 1 if any trial went wrong
+	 * @param args - the options described in the class comment
+	 */
+	public static void main(String[] args) {
+		int trials = 2000;
+		long seed = 1;
+		for(int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch(args[i]) {
+			case "--trials": trials = Integer.parseInt(value); break;
+			case "--seed": seed = Long.parseLong(value); break;
+			default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		SplittableRandom random = new SplittableRandom(seed);
+		int failures = 0;
+		for(int t = 0; t < trials; t++) {
+			Topology topology = Topology.values()[t % Topology.values().length];
+			String wrong = trial(random, topology);
+			if(wrong != null) {
+				failures++;
+				System.out.println(wrong);
+			}
+		}
+		System.out.println(trials + " trials, " + failures + " failed");
+		if(failures > 0) System.exit(1);
+	}
+}
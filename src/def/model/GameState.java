@@ -0,0 +1,14 @@
+package def.model;
+
+/**
+ * Whether a game is still going, and if not, how it ended.
+ * @author Louis Jacobowitz
+ */
+public enum GameState {
+	/** The game is still going */
+	PLAYING,
+	/** Every safe cell was revealed, or every mine flagged */
+	WON,
+	/** A mine was revealed */
+	LOST
+}
@@ -0,0 +1,50 @@
+package def.model;
+
+import java.util.Arrays;
+
+/**
+ * Cells kept in a byte array on the heap, where a BoardModel keeps them by default.
+ * @author Louis Jacobowitz
+ */
+final class HeapCells implements CellStore {
+	/** The packed state of every cell, row by row */
+	private final byte[] cells;
+
+	/**
+	 * Creates new cells, all 0
+	 * @param size - the number of cells
+	 */
+	HeapCells(int size) {
+		cells = new byte[size];
+	}
+
+	@Override
+	public int size() {
+		return cells.length;
+	}
+
+	@Override
+	public int get(int index) {
+		return cells[index];
+	}
+
+	@Override
+	public void set(int index, int value) {
+		cells[index] = (byte) value;
+	}
+
+	@Override
+	public void read(int index, byte[] dest, int offset, int length) {
+		System.arraycopy(cells, index, dest, offset, length);
+	}
+
+	@Override
+	public void write(int index, byte[] src, int offset, int length) {
+		System.arraycopy(src, offset, cells, index, length);
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(cells, (byte) 0);
+	}
+}
@@ -0,0 +1,137 @@
+package def.model;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Places mines on a BoardModel. Mines are chosen with Floyd's algorithm for sampling without
+ * replacement, so placement takes time proportional to the number of mines no matter how dense
+ * the board is - there are no retries when a random cell already holds a mine. Placement is
+ * driven by a seeded SplittableRandom, so the same seed always produces the same board.
+ * @author Louis Jacobowitz
+ */
+public class MinePlacer {
+	/** The source of randomness for this placer */
+	private final SplittableRandom random;
+
+	/**
+	 * Creates a new MinePlacer with the given seed
+	 * @param seed - the seed for the random number generator
+	 */
+	public MinePlacer(long seed) {
+		random = new SplittableRandom(seed);
+	}
+
+	/**
+	 * Places the model's number of mines anywhere on the board
+	 * @param model - the board to place mines on; must not already hold any mines
+	 * @return the flat indices of the placed mines
+	 */
+	public int[] place(BoardModel model) {
+		return place(model, new int[0]);
+	}
+
+	/**
+	 * Places the model's number of mines, keeping every cell within the given distance of
+	 * the given cell free of mines. If the board is too dense for that many cells to be kept
+	 * free, the zone shrinks until the mines fit.
+	 * @param model - the board to place mines on; must not already hold any mines
+	 * @param safeRow - the row of the cell to keep free, usually the first click
+	 * @param safeCol - the column of the cell to keep free
+	 * @param radius - how many cells around the safe cell to also keep free
+	 * @return the flat indices of the placed mines
+	 */
+	public int[] place(BoardModel model, int safeRow, int safeCol, int radius) {
+		for(int r = radius; r >= 0; r--) {
+			int[] zone = exclusionZone(model, safeRow, safeCol, r);
+			if(model.getNumMines() <= model.size() - zone.length) {
+				return place(model, zone);
+			}
+		}
+		return place(model);
+	}
+
+	/**
+	 * Places the model's number of mines on any cell not in the given exclusion zone
+	 * @param model - the board to place mines on; must not already hold any mines
+	 * @param excluded - the flat indices of the cells to keep free, in ascending order
+	 * @return the flat indices of the placed mines
+	 */
+	private int[] place(BoardModel model, int[] excluded) {
+		int n = model.size() - excluded.length;
+		int k = model.getNumMines();
+		int[] mines = new int[k];
+		// Floyd's algorithm: for each j, pick t in [0, j]; if t was already taken, take j instead,
+		// which cannot have been taken yet. Every k-subset is equally likely.
+		for(int j = n - k, m = 0; j < n; j++, m++) {
+			int index = toCell(random.nextInt(j + 1), excluded);
+			if((model.cell(index) & BoardModel.MINE) != 0) {
+				index = toCell(j, excluded);
+			}
+			model.setCell(index, model.cell(index) | BoardModel.MINE);
+			mines[m] = index;
+		}
+		return mines;
+	}
+
+	/**
+	 * Maps a position among the cells outside the exclusion zone to a flat cell index
+	 * @param t - the position, from 0 to the number of allowed cells
+	 * @param excluded - the flat indices of the excluded cells, in ascending order
+	 * @return the index of the t-th allowed cell
+	 */
+	private static int toCell(int t, int[] excluded) {
+		for(int e : excluded) {
+			if(t >= e) t++;
+			else break;
+		}
+		return t;
+	}
+
+	/**
+	 * Returns every cell within the given number of steps of a cell, moving from each cell only
+	 * to its neighbors, in ascending order. On a square board, that is the square of cells
+	 * around the cell.
+	 * @param model - the board
+	 * @param row - the row of the center cell
+	 * @param col - the column of the center cell
+	 * @param radius - how many steps from the center to go
+	 * @return the flat indices of the cells in the zone
+	 */
+	private static int[] exclusionZone(BoardModel model, int row, int col, int radius) {
+		int[] around = new int[model.getTopology().getMaxNeighbors()];
+		int[] zone = { model.index(row, col) };
+		int size = 1;
+		// Each pass adds the neighbors of the cells the last pass added
+		for(int step = 0, first = 0; step < radius; step++) {
+			int last = size;
+			for(int z = first; z < last; z++) {
+				int n = model.neighbors(zone[z], around);
+				for(int i = 0; i < n; i++) {
+					int cell = around[i];
+					if(contains(zone, size, cell)) continue;
+					if(size == zone.length) zone = Arrays.copyOf(zone, size * 2 + 8);
+					zone[size++] = cell;
+				}
+			}
+			first = last;
+		}
+		zone = Arrays.copyOf(zone, size);
+		Arrays.sort(zone);
+		return zone;
+	}
+
+	/**
+	 * Returns true if a cell is among the first entries of an array
+	 * @param zone - the array
+	 * @param size - the number of entries to look at
+	 * @param cell - the flat index of the cell
+	 * @return whether the cell was found
+	 */
+	private static boolean contains(int[] zone, int size, int cell) {
+		for(int z = 0; z < size; z++) {
+			if(zone[z] == cell) return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,61 @@
+package def.model;
+
+/**
+ * Packs a move - an action and the cell it is made on - into a single int, so that sequences
+ * of moves can be kept in plain int arrays. The action is kept in the top two bits and the flat
+ * index of the cell in the rest, so moves can only be made on boards of up to 2^30 cells; a
+ * cell beyond that is refused rather than packed into a different move.
+ * @author Louis Jacobowitz
+ */
+public final class Move {
+	/** The action of revealing a cell */
+	public static final int REVEAL = 0;
+	/** The action of flagging or unflagging a cell */
+	public static final int FLAG = 1;
+	/** The action of chording a cell */
+	public static final int CHORD = 2;
+	/** A move meaning the player has no move to make */
+	public static final int NONE = -1;
+	/** How far the action is shifted up */
+	private static final int ACTION_SHIFT = 30;
+	/** The most cells a board can have for moves to be made on it */
+	public static final int MAX_CELLS = 1 << ACTION_SHIFT;
+	/** The bits holding the cell */
+	private static final int CELL_MASK = (1 << ACTION_SHIFT) - 1;
+
+	/**
+	 * This class only holds static methods and is never instantiated
+	 */
+	private Move() {
+	}
+
+	/**
+	 * Packs a move
+	 * @param action - REVEAL, FLAG or CHORD
+	 * @param index - the flat index of the cell
+	 * @return the packed move
+	 * @throws IllegalArgumentException if the index does not fit in a move
+	 */
+	public static int of(int action, int index) {
+		if(index < 0 || index >= MAX_CELLS) throw new IllegalArgumentException("Cell " + index + " does not fit in a move");
+		return (action << ACTION_SHIFT) | index;
+	}
+
+	/**
+	 * Returns the action of a packed move
+	 * @param move - the packed move
+	 * @return REVEAL, FLAG or CHORD
+	 */
+	public static int action(int move) {
+		return move >>> ACTION_SHIFT;
+	}
+
+	/**
+	 * Returns the cell of a packed move
+	 * @param move - the packed move
+	 * @return the flat index of the cell
+	 */
+	public static int cell(int move) {
+		return move & CELL_MASK;
+	}
+}
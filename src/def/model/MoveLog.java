@@ -0,0 +1,199 @@
+package def.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * An append-only record of every move made on a board, together with everything needed to
+ * generate the same board again: its size, its topology, its seed and how far the first click was
+ * kept clear. If the mines did not come from the seed - a board from the no-guess pool, say -
+ * their positions are recorded instead. Moves are packed by the Move class, four bytes each, so even a very long
+ * game takes a few tens of kilobytes. Feeding the log to a Replayer plays the game back exactly.
+ * @author Louis Jacobowitz
+ */
+public class MoveLog {
+	/** The first four bytes of every log file: "MSWL" */
+	private static final int MAGIC = 0x4D53574C;
+	/** The version of the file format written by this class */
+	private static final int VERSION = 2;
+	/** The height of the board */
+	private final int height;
+	/** The width of the board */
+	private final int width;
+	/** The number of mines on the board */
+	private final int numMines;
+	/** The seed the mines are placed from */
+	private final long seed;
+	/** How many cells around the first click were kept clear, or -1 for none */
+	private final int safeRadius;
+	/** Which cells of the board neighbor each other */
+	private final Topology topology;
+	/** The positions of the mines, if they were not placed from the seed, or null if they were */
+	private int[] mines;
+	/** The moves, packed by the Move class */
+	private int[] moves;
+	/** The number of moves recorded */
+	private int count;
+
+	/**
+	 * Creates a new, empty log for a board of the given configuration
+	 * @param height - the height of the board
+	 * @param width - the width of the board
+	 * @param numMines - the number of mines on the board
+	 * @param seed - the seed the mines are placed from
+	 * @param safeRadius - how many cells around the first click are kept clear, or -1 for none
+	 */
+	public MoveLog(int height, int width, int numMines, long seed, int safeRadius) {
+		this(height, width, numMines, seed, safeRadius, Topology.SQUARE);
+	}
+
+	/**
+	 * Creates a new, empty log for a board of the given configuration and shape
+	 * @param height - the height of the board
+	 * @param width - the width of the board
+	 * @param numMines - the number of mines on the board
+	 * @param seed - the seed the mines are placed from
+	 * @param safeRadius - how many cells around the first click are kept clear, or -1 for none
+	 * @param topology - which cells of the board neighbor each other
+	 */
+	public MoveLog(int height, int width, int numMines, long seed, int safeRadius, Topology topology) {
+		this.height = height;
+		this.width = width;
+		this.numMines = numMines;
+		this.seed = seed;
+		this.safeRadius = safeRadius;
+		this.topology = topology;
+		moves = new int[64];
+	}
+
+	/**
+	 * Creates a new, empty log for a board that has not yet had any moves made on it
+	 * @param model - the board
+	 * @return a log of the board's configuration
+	 * @throws IllegalArgumentException if the board has more cells than a move can address
+	 */
+	public static MoveLog of(BoardModel model) {
+		if(model.size() > Move.MAX_CELLS) throw new IllegalArgumentException("Too many cells to log moves on: " + model.size());
+		return new MoveLog(model.getHeight(), model.getWidth(), model.getNumMines(), model.getSeed(), model.getSafeRadius(), model.getTopology());
+	}
+
+	/**
+	 * Records a move
+	 * @param move - the move, packed by the Move class
+	 */
+	public void add(int move) {
+		if(count == moves.length) moves = Arrays.copyOf(moves, count * 2);
+		moves[count++] = move;
+	}
+
+	/**
+	 * Forgets every move after the given number, for when moves are taken back
+	 * @param size - the number of moves to keep
+	 */
+	void truncate(int size) {
+		count = Math.max(0, Math.min(count, size));
+	}
+
+	/**
+	 * Records that the mines were placed on the given cells rather than from the seed
+	 * @param positions - the flat indices of the mines
+	 */
+	void setMines(int[] positions) {
+		mines = positions.clone();
+	}
+
+	/**
+	 * Returns the number of moves recorded
+	 * @return the value of this object's count variable
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Returns one recorded move
+	 * @param i - the position of the move, from 0
+	 * @return the move, packed by the Move class
+	 */
+	public int get(int i) {
+		if(i >= count) throw new IndexOutOfBoundsException("Move " + i + " of " + count);
+		return moves[i];
+	}
+
+	/**
+	 * Creates a board in the state it was in before the first move
+	 * @return a new board
+	 */
+	public BoardModel newBoard() {
+		BoardModel model = new BoardModel(height, width, numMines, seed, topology);
+		model.setSafeRadius(safeRadius);
+		if(mines != null) model.placeMines(mines);
+		return model;
+	}
+
+	/**
+	 * Writes the log to a file, replacing the file if it exists
+	 * @param path - the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(Path path) throws IOException {
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(height);
+			out.writeInt(width);
+			out.writeInt(numMines);
+			out.writeLong(seed);
+			out.writeInt(safeRadius);
+			out.writeInt(topology.ordinal());
+			if(mines == null) {
+				out.writeInt(-1);
+			}
+			else {
+				out.writeInt(mines.length);
+				for(int m : mines) out.writeInt(m);
+			}
+			out.writeInt(count);
+			for(int i = 0; i < count; i++) out.writeInt(moves[i]);
+		}
+	}
+
+	/**
+	 * Reads a log from a file
+	 * @param path - the file to read
+	 * @return the log
+	 * @throws IOException if the file cannot be read, or is not a log this version understands
+	 */
+	public static MoveLog load(Path path) throws IOException {
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			if(in.readInt() != MAGIC) throw new IOException("Not a move log: " + path);
+			int version = in.readInt();
+			if(version > VERSION) throw new IOException("Written by a newer version (" + version + "): " + path);
+			int height = in.readInt();
+			int width = in.readInt();
+			int numMines = in.readInt();
+			long seed = in.readLong();
+			int safeRadius = in.readInt();
+			// Logs from before version 2 are all of square boards
+			int topology = version >= 2 ? in.readInt() : Topology.SQUARE.ordinal();
+			if(topology < 0 || topology >= Topology.values().length) throw new IOException("Unknown topology (" + topology + "): " + path);
+			MoveLog log = new MoveLog(height, width, numMines, seed, safeRadius, Topology.values()[topology]);
+			int mineCount = in.readInt();
+			if(mineCount >= 0) {
+				log.mines = new int[mineCount];
+				for(int i = 0; i < mineCount; i++) log.mines[i] = in.readInt();
+			}
+			int moveCount = in.readInt();
+			log.moves = new int[Math.max(moveCount, 64)];
+			for(int i = 0; i < moveCount; i++) log.moves[i] = in.readInt();
+			log.count = moveCount;
+			return log;
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package def.model;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the number of surrounding mines for every cell on a BoardModel. Rather than checking
+ * eight neighbors per cell, the count is done as two separable passes over a zero-padded row of
+ * mine bits: a horizontal pass sums each cell with its left and right neighbors, and a vertical
+ * pass adds up those sums for the rows above, at and below the cell. Large boards are split into
+ * stripes of rows which are counted in parallel; each stripe only reads the rows just outside it,
+ * so stripes never write to the same cells.
+ * <p>
+ * That shortcut only works for the square topology. On any other, each cell's count is summed
+ * over its neighbors in the board's NeighborTable instead, again in parallel on large boards; each
+ * cell only writes to itself, so cells can be counted in any order.
+ * @author Louis Jacobowitz
+ */
+public class NeighborCounter {
+	/** Boards with fewer cells than this are counted on the calling thread */
+	private static final int PARALLEL_THRESHOLD = 1 << 16;
+	/** The fewest rows a stripe will hold */
+	private static final int MIN_STRIPE_ROWS = 64;
+	/** How far to shift a cell to bring its mine bit down to the lowest bit */
+	private static final int MINE_SHIFT = Integer.numberOfTrailingZeros(BoardModel.MINE);
+
+	/**
+	 * This class only holds static methods and is never instantiated
+	 */
+	private NeighborCounter() {
+	}
+
+	/**
+	 * Sets the number of surrounding mines for every cell on the board
+	 * @param model - the board to count
+	 */
+	public static void count(BoardModel model) {
+		if(model.getTopology() != Topology.SQUARE) {
+			countTable(model);
+			return;
+		}
+		int height = model.getHeight();
+		if(model.size() < PARALLEL_THRESHOLD) {
+			countRows(model, 0, height);
+			return;
+		}
+		int stripeRows = Math.max(MIN_STRIPE_ROWS, height / (4 * Runtime.getRuntime().availableProcessors()));
+		int stripes = (height + stripeRows - 1) / stripeRows;
+		IntStream.range(0, stripes).parallel().forEach(s ->
+				countRows(model, s * stripeRows, Math.min(height, (s + 1) * stripeRows)));
+	}
+
+	/**
+	 * Sets the number of surrounding mines for every cell by summing over the board's neighbor table
+	 * @param model - the board to count
+	 */
+	private static void countTable(BoardModel model) {
+		NeighborTable table = model.getNeighbors();
+		int[] starts = table.starts;
+		int[] deltas = table.deltas;
+		IntStream cells = IntStream.range(0, model.size());
+		if(model.size() >= PARALLEL_THRESHOLD) cells = cells.parallel();
+		cells.forEach(index -> {
+			int count = 0;
+			int kind = table.kind(index);
+			for(int i = starts[kind], end = starts[kind + 1]; i < end; i++) {
+				count += (model.cell(index + deltas[i]) & BoardModel.MINE) >> MINE_SHIFT;
+			}
+			model.setCell(index, (model.cell(index) & ~BoardModel.NUMBER_MASK) | count);
+		});
+	}
+
+	/**
+	 * Sets the number of surrounding mines for every cell in a stripe of rows
+	 * @param model - the board to count
+	 * @param firstRow - the first row of the stripe
+	 * @param endRow - one past the last row of the stripe
+	 */
+	private static void countRows(BoardModel model, int firstRow, int endRow) {
+		int width = model.getWidth();
+		// Mine bits of the current row, with a zero column on either side
+		byte[] mines = new byte[width + 2];
+		// Horizontal sums of the rows above, at and below the row being counted
+		byte[] above = new byte[width];
+		byte[] current = new byte[width];
+		byte[] below = new byte[width];
+		horizontalSums(model, firstRow - 1, mines, above);
+		horizontalSums(model, firstRow, mines, current);
+		for(int row = firstRow; row < endRow; row++) {
+			horizontalSums(model, row + 1, mines, below);
+			int base = row * width;
+			for(int col = 0; col < width; col++) {
+				int cell = model.cell(base + col);
+				int count = above[col] + current[col] + below[col] - ((cell & BoardModel.MINE) >> MINE_SHIFT);
+				model.setCell(base + col, (cell & ~BoardModel.NUMBER_MASK) | count);
+			}
+			byte[] spare = above;
+			above = current;
+			current = below;
+			below = spare;
+		}
+	}
+
+	/**
+	 * Sums each cell of a row with its left and right neighbors
+	 * @param model - the board to count
+	 * @param row - the row to sum; rows off the board sum to zero
+	 * @param mines - a scratch buffer two cells wider than the board
+	 * @param sums - where to store the sums
+	 */
+	private static void horizontalSums(BoardModel model, int row, byte[] mines, byte[] sums) {
+		int width = sums.length;
+		if(row < 0 || row >= model.getHeight()) {
+			Arrays.fill(sums, (byte) 0);
+			return;
+		}
+		int base = row * width;
+		for(int col = 0; col < width; col++) {
+			mines[col + 1] = (byte) ((model.cell(base + col) & BoardModel.MINE) >> MINE_SHIFT);
+		}
+		for(int col = 0; col < width; col++) {
+			sums[col] = (byte) (mines[col] + mines[col + 1] + mines[col + 2]);
+		}
+	}
+}
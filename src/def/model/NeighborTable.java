@@ -0,0 +1,236 @@
+package def.model;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The neighbors of every cell of a board shape, worked out once from its Topology. Walking a
+ * cell's neighbors is then a plain loop over part of an array, with no bounds checks or
+ * wraparound and the same code for every topology.
+ * <p>
+ * Listing every neighbor of every cell would take 36 bytes a cell, against the one byte a cell
+ * the board itself takes, and a reveal would spend its time waiting on the table rather than the
+ * board. But almost every cell sees its neighbors at the same offsets from itself as the cell
+ * next to it: on a square board, only the edges and corners differ from the middle, so there are
+ * just nine patterns of offsets in all. The table therefore keeps each distinct pattern once, in
+ * compressed sparse row form - the offsets of every pattern end to end in one array, with a
+ * second array holding where each pattern's run starts.
+ * <p>
+ * Which pattern a cell has depends only on how near it is to each edge, and for some topologies
+ * on whether its row is odd: every row farther than the topology's reach from both the top and
+ * the bottom is alike but for its parity, and the same goes for columns. So rows and columns are
+ * each sorted into a handful of classes, the pattern of each pair of classes is found once from
+ * one representative cell, and a cell's pattern is looked up from its row and column with no
+ * per-cell storage at all. The neighbors of cell i are i + deltas[j] for every j from
+ * starts[kind(i)] to starts[kind(i) + 1].
+ * <p>
+ * Tables never change once built, so boards of the same shape share one: the tables of the last
+ * few shapes asked for are cached, for as long as memory allows.
+ * @author Louis Jacobowitz
+ */
+public final class NeighborTable {
+	/** The number of tables kept in the cache */
+	private static final int CACHE_SIZE = 8;
+	/** The most recently used tables, keyed by topology and size */
+	private static final Map<String, SoftReference<NeighborTable>> CACHE = new LinkedHashMap<String, SoftReference<NeighborTable>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, SoftReference<NeighborTable>> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+	/** The topology the table was built from */
+	private final Topology topology;
+	/** The height of the board */
+	private final int height;
+	/** The width of the board */
+	private final int width;
+	/** For each row, the class of the row times the number of column classes */
+	private final int[] rowBases;
+	/** For each column, the class of the column */
+	private final byte[] columnClasses;
+	/** The pattern of each pair of row and column classes, indexed by row base plus column class */
+	private final byte[] classKinds;
+	/** For each pattern, the index in deltas of its first offset; one longer than the number of patterns */
+	final int[] starts;
+	/** The offsets, from a cell to its neighbors, of every pattern end to end */
+	final int[] deltas;
+
+	/**
+	 * Builds the table of a board shape
+	 * @param topology - which cells neighbor each other
+	 * @param height - the height of the board
+	 * @param width - the width of the board
+	 */
+	private NeighborTable(Topology topology, int height, int width) {
+		this.topology = topology;
+		this.height = height;
+		this.width = width;
+		int reach = topology.getReach();
+		int[] rowClasses = new int[height];
+		int[] columns = new int[width];
+		int[] representativeRows = classify(height, reach, rowClasses);
+		int[] representativeColumns = classify(width, reach, columns);
+		rowBases = new int[height];
+		for(int row = 0; row < height; row++) {
+			rowBases[row] = rowClasses[row] * representativeColumns.length;
+		}
+		columnClasses = new byte[width];
+		for(int col = 0; col < width; col++) {
+			columnClasses[col] = (byte) columns[col];
+		}
+		classKinds = new byte[representativeRows.length * representativeColumns.length];
+		List<int[]> patterns = new ArrayList<>();
+		Map<String, Integer> numbers = new HashMap<>();
+		int[] around = new int[9];
+		for(int r = 0; r < representativeRows.length; r++) {
+			for(int c = 0; c < representativeColumns.length; c++) {
+				int row = representativeRows[r];
+				int col = representativeColumns[c];
+				int index = row * width + col;
+				int n = topology.neighbors(row, col, height, width, around);
+				for(int i = 0; i < n; i++) {
+					around[i] -= index;
+				}
+				int[] pattern = Arrays.copyOf(around, n);
+				String key = Arrays.toString(pattern);
+				Integer kind = numbers.get(key);
+				if(kind == null) {
+					kind = patterns.size();
+					patterns.add(pattern);
+					numbers.put(key, kind);
+				}
+				classKinds[r * representativeColumns.length + c] = (byte) (int) kind;
+			}
+		}
+		starts = new int[patterns.size() + 1];
+		for(int k = 0; k < patterns.size(); k++) {
+			starts[k + 1] = starts[k] + patterns.get(k).length;
+		}
+		deltas = new int[starts[patterns.size()]];
+		for(int k = 0; k < patterns.size(); k++) {
+			System.arraycopy(patterns.get(k), 0, deltas, starts[k], patterns.get(k).length);
+		}
+	}
+
+	/**
+	 * Sorts the rows or columns of a board into classes that share their patterns of neighbors:
+	 * each within the reach of an edge is a class of its own, and the rest fall into two classes
+	 * by parity. A dimension too short to have two rows clear of both edges gives every row a
+	 * class of its own.
+	 * @param length - the number of rows or columns
+	 * @param reach - the topology's reach
+	 * @param classes - where to put the class of each row or column
+	 * @return one row or column of each class, indexed by class
+	 */
+	private static int[] classify(int length, int reach, int[] classes) {
+		if(length < 2 * reach + 2) {
+			int[] representatives = new int[length];
+			for(int i = 0; i < length; i++) {
+				representatives[i] = i;
+				classes[i] = i;
+			}
+			return representatives;
+		}
+		int[] representatives = new int[2 * reach + 2];
+		for(int c = 0; c < reach + 2; c++) {
+			representatives[c] = c;
+		}
+		for(int c = reach + 2; c < representatives.length; c++) {
+			representatives[c] = length - reach + c - reach - 2;
+		}
+		for(int i = 0; i < length; i++) {
+			if(i < reach) classes[i] = i;
+			else if(i >= length - reach) classes[i] = i - length + 2 * reach + 2;
+			// The middle rows keep their parity, which decides the pattern on a hex board
+			else classes[i] = reach + ((i - reach) & 1);
+		}
+		return representatives;
+	}
+
+	/**
+	 * Returns the table of a board shape, building it if it is not cached
+	 * @param topology - which cells neighbor each other
+	 * @param height - the height of the board
+	 * @param width - the width of the board
+	 * @return the table
+	 */
+	public static NeighborTable of(Topology topology, int height, int width) {
+		String key = topology + ":" + height + "x" + width;
+		synchronized(CACHE) {
+			SoftReference<NeighborTable> cached = CACHE.get(key);
+			NeighborTable table = cached == null ? null : cached.get();
+			if(table != null) return table;
+		}
+		// Built outside the lock, so a large table does not hold up boards of other shapes
+		NeighborTable table = new NeighborTable(topology, height, width);
+		synchronized(CACHE) {
+			// Held softly, so the cache never keeps a table the collector needs the room of
+			CACHE.put(key, new SoftReference<>(table));
+		}
+		return table;
+	}
+
+	/**
+	 * Returns the topology the table was built from
+	 * @return the value of this object's topology variable
+	 */
+	public Topology getTopology() {
+		return topology;
+	}
+
+	/**
+	 * Returns the height of the board
+	 * @return the number of rows
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the width of the board
+	 * @return the number of columns
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the number of the pattern of neighbors of a cell
+	 * @param index - the flat index of the cell
+	 * @return the pattern's number, an index into starts
+	 */
+	int kind(int index) {
+		int row = index / width;
+		return classKinds[rowBases[row] + columnClasses[index - row * width]];
+	}
+
+	/**
+	 * Returns the number of distinct patterns of neighbors on the board
+	 * @return the number of patterns
+	 */
+	public int patterns() {
+		return starts.length - 1;
+	}
+
+	/**
+	 * Writes the flat indices of every neighbor of a cell into an array, in ascending order
+	 * @param index - the flat index of the cell
+	 * @param out - where to put the neighbors; must hold at least the topology's most neighbors
+	 * @return the number of neighbors written
+	 */
+	public int neighbors(int index, int[] out) {
+		int kind = kind(index);
+		int n = 0;
+		for(int i = starts[kind], end = starts[kind + 1]; i < end; i++) {
+			out[n++] = index + deltas[i];
+		}
+		return n;
+	}
+}
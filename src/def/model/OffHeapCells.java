@@ -0,0 +1,244 @@
+package def.model;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Cells kept outside the Java heap, for boards of billions of cells. Every array on the heap is
+ * something the garbage collector has to account for, and a board's array is by far the largest
+ * thing a game allocates; these cells are held in direct buffers instead, or in a file mapped into
+ * memory, so a board of any size adds nothing to the heap the collector works over. A buffer holds
+ * at most a gigabyte, so the cells are split across as many buffers as they need.
+ * <p>
+ * Memory outside the heap is not freed by the collector promptly, if at all, so it is given back
+ * explicitly by close(). Direct buffers count against -XX:MaxDirectMemorySize, which by default is
+ * the size of the heap; mapped files do not, and can be larger than physical memory, with the
+ * operating system paging cells in and out as they are used.
+ * @author Louis Jacobowitz
+ */
+public final class OffHeapCells implements CellStore, AutoCloseable {
+	/** The number of bits of an index that pick a cell within its buffer */
+	private static final int CHUNK_BITS = 30;
+	/** The most cells in one buffer */
+	private static final int CHUNK = 1 << CHUNK_BITS;
+	/** The bits of an index that pick a cell within its buffer */
+	private static final int CHUNK_MASK = CHUNK - 1;
+	/** The number of cells */
+	private final int size;
+	/** The buffers holding the cells, or null once they have been released */
+	private ByteBuffer[] chunks;
+	/** The file the cells are mapped from, or null if they are in direct buffers */
+	private final FileChannel file;
+
+	/**
+	 * Creates a new OffHeapCells
+	 * @param size - the number of cells
+	 * @param chunks - the buffers holding the cells
+	 * @param file - the file the cells are mapped from, or null
+	 */
+	private OffHeapCells(int size, ByteBuffer[] chunks, FileChannel file) {
+		this.size = size;
+		this.chunks = chunks;
+		this.file = file;
+	}
+
+	/**
+	 * Allocates cells in direct buffers, all 0
+	 * @param size - the number of cells
+	 * @return the cells
+	 * @throws OutOfMemoryError if the direct memory limit does not leave room for them
+	 */
+	public static OffHeapCells allocate(int size) {
+		ByteBuffer[] chunks = new ByteBuffer[chunkCount(size)];
+		try {
+			for(int c = 0; c < chunks.length; c++) {
+				chunks[c] = ByteBuffer.allocateDirect(chunkSize(size, c));
+			}
+		} catch(OutOfMemoryError e) {
+			// Give back the buffers already allocated rather than wait for the collector to
+			for(ByteBuffer chunk : chunks) {
+				if(chunk != null) release(chunk);
+			}
+			throw e;
+		}
+		return new OffHeapCells(size, chunks, null);
+	}
+
+	/**
+	 * Maps cells from a file, creating it or growing it to fit if needed. Cells already in the
+	 * file keep their values; cells beyond its old end are 0.
+	 * @param path - the file
+	 * @param size - the number of cells
+	 * @return the cells
+	 * @throws IOException if the file could not be opened or mapped
+	 */
+	public static OffHeapCells map(Path path, int size) throws IOException {
+		FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		ByteBuffer[] chunks = new ByteBuffer[chunkCount(size)];
+		try {
+			for(int c = 0; c < chunks.length; c++) {
+				chunks[c] = file.map(FileChannel.MapMode.READ_WRITE, (long) c << CHUNK_BITS, chunkSize(size, c));
+			}
+		} catch(IOException | RuntimeException e) {
+			for(ByteBuffer chunk : chunks) {
+				if(chunk != null) release(chunk);
+			}
+			file.close();
+			throw e;
+		}
+		return new OffHeapCells(size, chunks, file);
+	}
+
+	/**
+	 * Returns the number of buffers needed for some number of cells
+	 * @param size - the number of cells
+	 * @return the number of buffers
+	 */
+	private static int chunkCount(int size) {
+		if(size < 0) throw new IllegalArgumentException("Negative size: " + size);
+		return (int) (((long) size + CHUNK - 1) >>> CHUNK_BITS);
+	}
+
+	/**
+	 * Returns the number of cells in one of the buffers
+	 * @param size - the number of cells in all
+	 * @param chunk - the index of the buffer
+	 * @return the number of cells in it
+	 */
+	private static int chunkSize(int size, int chunk) {
+		return Math.min(CHUNK, size - (chunk << CHUNK_BITS));
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns true if the cells are mapped from a file
+	 * @return whether there is a file behind the cells
+	 */
+	public boolean isMapped() {
+		return file != null;
+	}
+
+	@Override
+	public int get(int index) {
+		return chunks()[index >>> CHUNK_BITS].get(index & CHUNK_MASK);
+	}
+
+	@Override
+	public void set(int index, int value) {
+		chunks()[index >>> CHUNK_BITS].put(index & CHUNK_MASK, (byte) value);
+	}
+
+	@Override
+	public void read(int index, byte[] dest, int offset, int length) {
+		ByteBuffer[] buffers = chunks();
+		while(length > 0) {
+			int within = index & CHUNK_MASK;
+			int n = Math.min(length, CHUNK - within);
+			// A duplicate has a position of its own, so the buffer can be read in bulk without disturbing it
+			ByteBuffer view = buffers[index >>> CHUNK_BITS].duplicate();
+			view.position(within);
+			view.get(dest, offset, n);
+			index += n;
+			offset += n;
+			length -= n;
+		}
+	}
+
+	@Override
+	public void write(int index, byte[] src, int offset, int length) {
+		ByteBuffer[] buffers = chunks();
+		while(length > 0) {
+			int within = index & CHUNK_MASK;
+			int n = Math.min(length, CHUNK - within);
+			ByteBuffer view = buffers[index >>> CHUNK_BITS].duplicate();
+			view.position(within);
+			view.put(src, offset, n);
+			index += n;
+			offset += n;
+			length -= n;
+		}
+	}
+
+	@Override
+	public void clear() {
+		byte[] zeros = new byte[Math.min(size, 1 << 16)];
+		for(int index = 0; index < size; ) {
+			int n = Math.min(zeros.length, size - index);
+			write(index, zeros, 0, n);
+			index += n;
+		}
+	}
+
+	/**
+	 * Returns the buffers, making sure they have not been released
+	 * @return the buffers
+	 * @throws IllegalStateException if the cells have been closed
+	 */
+	private ByteBuffer[] chunks() {
+		ByteBuffer[] buffers = chunks;
+		if(buffers == null) throw new IllegalStateException("Cells already closed");
+		return buffers;
+	}
+
+	/**
+	 * Releases the memory holding the cells, writing them back to the file first if they are
+	 * mapped from one. The cells may not be used afterward.
+	 * @throws IOException if the file could not be written or closed
+	 */
+	@Override
+	public void close() throws IOException {
+		ByteBuffer[] buffers = chunks;
+		if(buffers == null) return;
+		chunks = null;
+		try {
+			if(file != null) {
+				for(ByteBuffer buffer : buffers) {
+					((MappedByteBuffer) buffer).force();
+				}
+			}
+		} finally {
+			for(ByteBuffer buffer : buffers) {
+				release(buffer);
+			}
+			if(file != null) file.close();
+		}
+	}
+
+	/**
+	 * Frees the memory behind a direct or mapped buffer straight away. There is no public way to
+	 * do that before Java 22, so this calls Unsafe.invokeCleaner on Java 9 and later, or the
+	 * buffer's cleaner on Java 8, reflectively, as this project is built for Java 8. If neither
+	 * is there, the memory is left for the collector to free once the buffer is unreachable.
+	 * @param buffer - the buffer, which must not be used again
+	 */
+	private static void release(ByteBuffer buffer) {
+		try {
+			Class<?> unsafeType = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = unsafeType.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeType.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			return;
+		} catch(ReflectiveOperationException | RuntimeException e) {
+			// Not Java 9 or later; try the Java 8 way
+		}
+		try {
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if(cleaner != null) cleaner.getClass().getMethod("clean").invoke(cleaner);
+		} catch(ReflectiveOperationException | RuntimeException e) {
+			// Leave it to the collector
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package def.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plays back a MoveLog on a board of its own, and can jump to the position after any move. Every
+ * so many moves a snapshot of the board is kept, so seeking restores the nearest snapshot at or
+ * before the target and replays only the moves after it; stepping forward or back by one costs
+ * at most one interval of moves, however long the game is. Snapshots are taken the first time
+ * playback passes them. The interval grows with the size of the board, so that the snapshots of
+ * a whole game stay within a fixed memory budget.
+ * <p>
+ * Listeners on the replayer's board are told about every cell that differs after a seek, so a
+ * view of the board stays correct without redrawing it whole.
+ * @author Louis Jacobowitz
+ */
+public class Replayer {
+	/** The smallest number of moves between snapshots */
+	public static final int MIN_INTERVAL = 64;
+	/** Roughly the most memory the snapshots of one game may take, in bytes */
+	private static final long SNAPSHOT_BUDGET = 64L << 20;
+	/** The log being played back */
+	private final MoveLog log;
+	/** The board the log is played back on */
+	private final BoardModel model;
+	/** The number of moves between snapshots */
+	private final int interval;
+	/** The snapshots taken so far; snapshot i is the board after i * interval moves */
+	private final List<Snapshot> snapshots;
+	/** The number of moves applied to the board */
+	private int position;
+	/** Scratch space holding the board as it was before a seek */
+	private byte[] before;
+
+	/**
+	 * Creates a new Replayer, positioned before the first move
+	 * @param log - the log to play back
+	 */
+	public Replayer(MoveLog log) {
+		this.log = log;
+		model = log.newBoard();
+		long perSnapshot = Math.max(model.size(), 1);
+		long fits = Math.max(SNAPSHOT_BUDGET / perSnapshot, 1);
+		interval = (int) Math.max(MIN_INTERVAL, (log.size() + fits - 1) / fits);
+		snapshots = new ArrayList<>();
+		snapshots.add(new Snapshot(model));
+	}
+
+	/**
+	 * Returns the board the log is played back on
+	 * @return the value of this object's model variable
+	 */
+	public BoardModel getModel() {
+		return model;
+	}
+
+	/**
+	 * Returns the number of moves applied to the board
+	 * @return the value of this object's position variable
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * Returns the number of moves in the log
+	 * @return the length of the game
+	 */
+	public int length() {
+		return log.size();
+	}
+
+	/**
+	 * Puts the board in the state it was in after the given number of moves
+	 * @param target - the number of moves to have applied, from 0 to length()
+	 */
+	public void seek(int target) {
+		target = Math.max(0, Math.min(log.size(), target));
+		if(target == position) return;
+		before = model.copyCells(before);
+		int remainingBefore = model.getMinesRemaining();
+		int nearest = Math.min(target / interval, snapshots.size() - 1);
+		// Keep going from where the board is if that is no further from the target than the snapshot
+		if(position > target || position < nearest * interval) {
+			snapshots.get(nearest).restore(model);
+			position = nearest * interval;
+		}
+		// Moves are applied with no listeners, and listeners told what changed once at the end
+		BoardListener[] listeners = model.detachListeners();
+		while(position < target) {
+			model.apply(log.get(position++));
+			if(position % interval == 0 && position / interval == snapshots.size()) {
+				snapshots.add(new Snapshot(model));
+			}
+		}
+		model.attachListeners(listeners);
+		int width = model.getWidth();
+		for(int i = 0; i < before.length; i++) {
+			if(before[i] != (byte) model.cell(i)) model.fireCellChanged(i / width, i % width);
+		}
+		if(model.getMinesRemaining() != remainingBefore) model.fireMinesRemainingChanged();
+	}
+
+	/**
+	 * Applies the next move, if there is one
+	 */
+	public void stepForward() {
+		seek(position + 1);
+	}
+
+	/**
+	 * Takes back the last move, if there is one
+	 */
+	public void stepBack() {
+		seek(position - 1);
+	}
+
+	/**
+	 * The state of the board after some number of moves
+	 */
+	private static class Snapshot {
+		/** The packed state of every cell */
+		final byte[] cells;
+		/** Whether the mines had been placed */
+		final boolean minesPlaced;
+
+		/**
+		 * Takes a snapshot of a board
+		 * @param model - the board
+		 */
+		Snapshot(BoardModel model) {
+			cells = model.copyCells(null);
+			minesPlaced = model.areMinesPlaced();
+		}
+
+		/**
+		 * Puts a board back to this snapshot
+		 * @param model - the board
+		 */
+		void restore(BoardModel model) {
+			model.restoreCells(cells, minesPlaced);
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package def.model;
+
+/**
+ * The set of cells newly revealed by a single move, stored as a compact array of flat cell
+ * indices. A RevealDelta is owned and reused by the RevealEngine that fills it, so its contents
+ * are only valid until the next move is made.
+ * @author Louis Jacobowitz
+ */
+public class RevealDelta {
+	/** The indices of the newly revealed cells; only the first count entries are used */
+	int[] cells;
+	/** The number of newly revealed cells */
+	int count;
+	/** Whether any of the newly revealed cells was a mine */
+	boolean hitMine;
+
+	/**
+	 * Creates a new, empty delta
+	 * @param capacity - the initial number of cells the delta can hold without growing
+	 */
+	RevealDelta(int capacity) {
+		cells = new int[Math.max(capacity, 16)];
+	}
+
+	/**
+	 * Empties this delta so it can be filled again
+	 */
+	void clear() {
+		count = 0;
+		hitMine = false;
+	}
+
+	/**
+	 * Adds a cell to this delta, growing the backing array if it is full
+	 * @param index - the flat index of the newly revealed cell
+	 */
+	void add(int index) {
+		if(count == cells.length) {
+			int[] bigger = new int[cells.length * 2];
+			System.arraycopy(cells, 0, bigger, 0, count);
+			cells = bigger;
+		}
+		cells[count++] = index;
+	}
+
+	/**
+	 * Returns the number of cells revealed by the move
+	 * @return the value of this object's count variable
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Returns the flat index of one of the revealed cells
+	 * @param i - which revealed cell to return, from 0 to size() - 1
+	 * @return the flat index of that cell
+	 */
+	public int get(int i) {
+		return cells[i];
+	}
+
+	/**
+	 * Returns true if the move revealed a mine
+	 * @return the value of this object's hitMine variable
+	 */
+	public boolean hitMine() {
+		return hitMine;
+	}
+
+	/**
+	 * Copies the revealed cell indices into the given array
+	 * @param dest - the array to copy into; must hold at least size() entries
+	 * @param offset - where in dest to start copying
+	 */
+	public void copyTo(int[] dest, int offset) {
+		System.arraycopy(cells, 0, dest, offset, count);
+	}
+}
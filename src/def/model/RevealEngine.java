@@ -0,0 +1,114 @@
+package def.model;
+
+/**
+ * Reveals cells on a BoardModel, opening up every cell connected to a cell with no surrounding
+ * mines. The flood fill is iterative: the delta that collects newly revealed cells doubles as the
+ * work queue, since every cell is marked revealed as soon as it is queued and so is queued at most
+ * once. The delta is reused between moves, so once it has grown to fit the largest opening seen
+ * so far, a reveal allocates nothing no matter how big the opening is.
+ * @author Louis Jacobowitz
+ */
+public class RevealEngine {
+	/** The model whose cells are revealed */
+	private final BoardModel model;
+	/** The delta filled by each move */
+	private final RevealDelta delta;
+	/** The model's neighbor table, giving the pattern of neighbors of each cell */
+	private final NeighborTable table;
+	/** The start of each pattern's run of offsets in deltas, from the model's neighbor table */
+	private final int[] starts;
+	/** The offsets from a cell to its neighbors, from the model's neighbor table */
+	private final int[] deltas;
+
+	/**
+	 * Creates a new RevealEngine working on the given model
+	 * @param model - the board to reveal cells on
+	 */
+	public RevealEngine(BoardModel model) {
+		this.model = model;
+		delta = new RevealDelta(Math.min(model.size(), 1024));
+		table = model.getNeighbors();
+		starts = table.starts;
+		deltas = table.deltas;
+	}
+
+	/**
+	 * Empties the delta, for a move that reveals nothing
+	 * @return the empty delta
+	 */
+	public RevealDelta none() {
+		delta.clear();
+		return delta;
+	}
+
+	/**
+	 * Reveals the given cell, and if it has no surrounding mines, the whole opening around it
+	 * @param index - the flat index of the cell to reveal
+	 * @return the cells newly revealed by this move
+	 */
+	public RevealDelta reveal(int index) {
+		delta.clear();
+		push(index);
+		fill();
+		return delta;
+	}
+
+	/**
+	 * Reveals every unflagged neighbor of the given revealed cell, if it has exactly as many
+	 * flags around it as it has surrounding mines
+	 * @param index - the flat index of the cell to chord
+	 * @return the cells newly revealed by this move
+	 */
+	public RevealDelta chord(int index) {
+		delta.clear();
+		int cell = model.cell(index);
+		if((cell & BoardModel.REVEALED) == 0 || (cell & BoardModel.MINE) != 0) return delta;
+		int flagsAround = 0;
+		int kind = table.kind(index);
+		for(int i = starts[kind], end = starts[kind + 1]; i < end; i++) {
+			if((model.cell(index + deltas[i]) & BoardModel.FLAGGED) != 0) flagsAround++;
+		}
+		if(flagsAround != (cell & BoardModel.NUMBER_MASK)) return delta;
+		pushNeighbors(index);
+		fill();
+		return delta;
+	}
+
+	/**
+	 * Expands every queued cell with no surrounding mines, until the queue is exhausted
+	 */
+	private void fill() {
+		for(int head = 0; head < delta.count; head++) {
+			int index = delta.cells[head];
+			int cell = model.cell(index);
+			if((cell & BoardModel.MINE) != 0) {
+				delta.hitMine = true;
+			}
+			else if((cell & BoardModel.NUMBER_MASK) == 0) {
+				pushNeighbors(index);
+			}
+		}
+	}
+
+	/**
+	 * Queues every neighbor of the given cell
+	 * @param index - the flat index of the cell
+	 */
+	private void pushNeighbors(int index) {
+		int kind = table.kind(index);
+		for(int i = starts[kind], end = starts[kind + 1]; i < end; i++) {
+			push(index + deltas[i]);
+		}
+	}
+
+	/**
+	 * Marks the given cell revealed and queues it, unless it is already revealed or flagged
+	 * @param index - the flat index of the cell
+	 */
+	private void push(int index) {
+		int cell = model.cell(index);
+		if((cell & (BoardModel.REVEALED | BoardModel.FLAGGED)) != 0) return;
+		model.setCell(index, cell | BoardModel.REVEALED);
+		delta.add(index);
+	}
+}
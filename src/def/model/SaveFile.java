@@ -0,0 +1,148 @@
+package def.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes saved games. A save is a fixed 64-byte header followed by three bit planes -
+ * the mines, the revealed cells and the flagged cells - with one bit per cell in flat index
+ * order, so a board takes three bits per cell on disk. Numbers are not stored, since they follow
+ * from the mines.
+ * <p>
+ * Everything is little-endian. The header holds, in order: the magic number, the format version
+ * (a short), a short of flags, the height, width, number of mines and number of mines not flagged
+ * (ints), the seed (a long), the time in seconds (an int) and, from version 2, the topology (a
+ * byte holding its ordinal); the rest is reserved and zero. Version 1 saves, from before there
+ * were topologies, are all square.
+ * Each plane is padded to a whole number of longs, so that plane i of a board of n cells starts
+ * at byte 64 + i * planeBytes(n) and its words can be read with aligned long reads.
+ * @author Louis Jacobowitz
+ */
+public final class SaveFile {
+	/** The first four bytes of every save: "MSWP" */
+	static final int MAGIC = 0x5057534D;
+	/** The version of the format written by this class */
+	static final short VERSION = 2;
+	/** The flag set if the mines had been placed when the game was saved */
+	static final short MINES_PLACED = 0x1;
+	/** The size of the header, in bytes */
+	static final int HEADER_BYTES = 64;
+	/** The position of the version in the header */
+	static final int VERSION_OFFSET = 4;
+	/** The position of the flags in the header */
+	static final int FLAGS_OFFSET = 6;
+	/** The position of the height in the header */
+	static final int HEIGHT_OFFSET = 8;
+	/** The position of the width in the header */
+	static final int WIDTH_OFFSET = 12;
+	/** The position of the number of mines in the header */
+	static final int MINES_OFFSET = 16;
+	/** The position of the number of mines not flagged in the header */
+	static final int REMAINING_OFFSET = 20;
+	/** The position of the seed in the header */
+	static final int SEED_OFFSET = 24;
+	/** The position of the time in the header */
+	static final int TIME_OFFSET = 32;
+	/** The position of the topology in the header, from version 2 */
+	static final int TOPOLOGY_OFFSET = 36;
+	/** The cell bits stored in each plane, in the order the planes appear */
+	static final int[] PLANE_BITS = { BoardModel.MINE, BoardModel.REVEALED, BoardModel.FLAGGED };
+	/** The size of the buffer planes are written through */
+	private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+	/**
+	 * Not to be instantiated
+	 */
+	private SaveFile() {
+	}
+
+	/**
+	 * Returns the number of bytes one plane takes for a board of the given size
+	 * @param cells - the number of cells on the board
+	 * @return the size of a plane, a multiple of eight
+	 */
+	static long planeBytes(int cells) {
+		return ((cells + 63L) >>> 6) << 3;
+	}
+
+	/**
+	 * Writes a game to a file, replacing the file if it exists
+	 * @param model - the board to save
+	 * @param timeSeconds - the time on the clock, in seconds
+	 * @param path - the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void save(BoardModel model, int timeSeconds, Path path) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC);
+			buffer.putShort(VERSION);
+			buffer.putShort(model.areMinesPlaced() ? MINES_PLACED : 0);
+			buffer.putInt(model.getHeight());
+			buffer.putInt(model.getWidth());
+			buffer.putInt(model.getNumMines());
+			buffer.putInt(model.getMinesRemaining());
+			buffer.putLong(model.getSeed());
+			buffer.putInt(timeSeconds);
+			buffer.put((byte) model.getTopology().ordinal());
+			while(buffer.position() < HEADER_BYTES) buffer.put((byte) 0);
+			int n = model.size();
+			for(int bit : PLANE_BITS) {
+				for(int base = 0; base < n; base += 64) {
+					long word = 0;
+					int end = Math.min(n - base, 64);
+					for(int k = 0; k < end; k++) {
+						if((model.cell(base + k) & bit) != 0) word |= 1L << k;
+					}
+					if(!buffer.hasRemaining()) drain(channel, buffer);
+					buffer.putLong(word);
+				}
+			}
+			drain(channel, buffer);
+		}
+	}
+
+	/**
+	 * Opens a saved game by mapping the file into memory. Nothing past the header is read until
+	 * it is asked for.
+	 * @param path - the file to open
+	 * @return a view of the saved game
+	 * @throws IOException if the file cannot be read, or is not a save this version understands
+	 */
+	public static SavedGame open(Path path) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if(channel.size() < HEADER_BYTES) throw new IOException("Not a saved game: " + path);
+			// The mapping stays valid after the channel is closed
+			ByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+			if(map.getInt(0) != MAGIC) throw new IOException("Not a saved game: " + path);
+			if(map.getShort(VERSION_OFFSET) > VERSION) {
+				throw new IOException("Saved by a newer version (" + map.getShort(VERSION_OFFSET) + "): " + path);
+			}
+			if(map.getShort(VERSION_OFFSET) >= 2 && (map.get(TOPOLOGY_OFFSET) < 0 || map.get(TOPOLOGY_OFFSET) >= Topology.values().length)) {
+				throw new IOException("Unknown topology (" + map.get(TOPOLOGY_OFFSET) + "): " + path);
+			}
+			SavedGame game = new SavedGame(map);
+			if(channel.size() < HEADER_BYTES + PLANE_BITS.length * planeBytes(game.size())) {
+				throw new IOException("Saved game is truncated: " + path);
+			}
+			return game;
+		}
+	}
+
+	/**
+	 * Writes out everything in the buffer and empties it
+	 * @param channel - the channel to write to
+	 * @param buffer - the buffer to write out
+	 * @throws IOException if the write fails
+	 */
+	private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) channel.write(buffer);
+		buffer.clear();
+	}
+}
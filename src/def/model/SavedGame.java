@@ -0,0 +1,185 @@
+package def.model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A saved game, read straight out of a memory-mapped save file. The header is read up front, but
+ * the bit planes are only read cell by cell as they are asked for, so looking at one corner of a
+ * board of millions of cells only brings that corner's pages of the file into memory. Restoring
+ * the whole game onto a BoardModel reads every plane once, a word of 64 cells at a time, without
+ * copying the file onto the heap first.
+ * @author Louis Jacobowitz
+ */
+public class SavedGame {
+	/** The mapped save file */
+	private final ByteBuffer map;
+	/** The height of the board */
+	private final int height;
+	/** The width of the board */
+	private final int width;
+	/** The number of mines on the board */
+	private final int numMines;
+	/** The number of mines not flagged */
+	private final int minesRemaining;
+	/** The seed the mines were placed from */
+	private final long seed;
+	/** The time on the clock, in seconds */
+	private final int time;
+	/** Which cells of the board neighbor each other */
+	private final Topology topology;
+	/** Whether the mines had been placed */
+	private final boolean minesPlaced;
+	/** The size of each plane, in bytes */
+	private final int planeBytes;
+
+	/**
+	 * Creates a new SavedGame reading the header of a mapped save file
+	 * @param map - the mapped file, in little-endian order
+	 */
+	SavedGame(ByteBuffer map) {
+		this.map = map;
+		height = map.getInt(SaveFile.HEIGHT_OFFSET);
+		width = map.getInt(SaveFile.WIDTH_OFFSET);
+		numMines = map.getInt(SaveFile.MINES_OFFSET);
+		minesRemaining = map.getInt(SaveFile.REMAINING_OFFSET);
+		seed = map.getLong(SaveFile.SEED_OFFSET);
+		time = map.getInt(SaveFile.TIME_OFFSET);
+		// Version 1 saves have no topology, only a reserved byte where it now goes
+		topology = map.getShort(SaveFile.VERSION_OFFSET) >= 2 ? Topology.values()[map.get(SaveFile.TOPOLOGY_OFFSET)] : Topology.SQUARE;
+		minesPlaced = (map.getShort(SaveFile.FLAGS_OFFSET) & SaveFile.MINES_PLACED) != 0;
+		planeBytes = (int) SaveFile.planeBytes(size());
+	}
+
+	/**
+	 * Returns the height of the board
+	 * @return the number of rows
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the width of the board
+	 * @return the number of columns
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the number of cells on the board
+	 * @return height times width
+	 */
+	public int size() {
+		return height * width;
+	}
+
+	/**
+	 * Returns the number of mines on the board
+	 * @return the value of this object's numMines variable
+	 */
+	public int getNumMines() {
+		return numMines;
+	}
+
+	/**
+	 * Returns the number of mines that had not been flagged
+	 * @return the value of this object's minesRemaining variable
+	 */
+	public int getMinesRemaining() {
+		return minesRemaining;
+	}
+
+	/**
+	 * Returns the seed the mines were placed from
+	 * @return the value of this object's seed variable
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Returns the time on the clock when the game was saved
+	 * @return the time in seconds
+	 */
+	public int getTime() {
+		return time;
+	}
+
+	/**
+	 * Returns which cells of the board neighbor each other
+	 * @return the value of this object's topology variable
+	 */
+	public Topology getTopology() {
+		return topology;
+	}
+
+	/**
+	 * Returns true if the mines had been placed when the game was saved
+	 * @return the value of this object's minesPlaced variable
+	 */
+	public boolean areMinesPlaced() {
+		return minesPlaced;
+	}
+
+	/**
+	 * Returns the packed state of a cell, in the format of BoardModel, reading only the words of
+	 * the file that cover the cell and its neighbors
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return the packed cell byte, as an int
+	 */
+	public int cell(int row, int col) {
+		int index = row * width + col;
+		int cell = 0;
+		for(int p = 0; p < SaveFile.PLANE_BITS.length; p++) {
+			if(bit(p, index)) cell |= SaveFile.PLANE_BITS[p];
+		}
+		// The neighbors are found from the topology rather than a NeighborTable, which would cover the whole board
+		int[] around = new int[9];
+		int n = topology.neighbors(row, col, height, width, around);
+		int count = 0;
+		for(int i = 0; i < n; i++) {
+			if(bit(0, around[i])) count++;
+		}
+		return cell | count;
+	}
+
+	/**
+	 * Creates a board holding the saved game. Listeners are not copied; a board is always saved
+	 * without them.
+	 * @return a new board in the saved state
+	 */
+	public BoardModel restore() {
+		BoardModel model = new BoardModel(height, width, numMines, seed, topology);
+		int n = size();
+		for(int p = 0; p < SaveFile.PLANE_BITS.length; p++) {
+			int bit = SaveFile.PLANE_BITS[p];
+			// Flags can be placed before the first click; mines and revealed cells cannot
+			if(!minesPlaced && bit != BoardModel.FLAGGED) continue;
+			int offset = SaveFile.HEADER_BYTES + p * planeBytes;
+			for(int base = 0; base < n; base += 64) {
+				long word = map.getLong(offset + (base >>> 3));
+				while(word != 0) {
+					int index = base + Long.numberOfTrailingZeros(word);
+					model.setCell(index, model.cell(index) | bit);
+					word &= word - 1;
+				}
+			}
+		}
+		if(minesPlaced) model.computeNumbers();
+		else model.recount();
+		return model;
+	}
+
+	/**
+	 * Returns one bit of one plane
+	 * @param plane - which plane, in the order of SaveFile.PLANE_BITS
+	 * @param index - the flat index of the cell
+	 * @return whether the cell's bit is set
+	 */
+	private boolean bit(int plane, int index) {
+		long word = map.getLong(SaveFile.HEADER_BYTES + plane * planeBytes + ((index >>> 6) << 3));
+		return (word >>> (index & 63) & 1) != 0;
+	}
+}
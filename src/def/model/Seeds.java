@@ -0,0 +1,39 @@
+package def.model;
+
+/**
+ * Derives seeds from other seeds, so that many boards can be generated reproducibly from a single
+ * number. These are the constants and finalizer of the SplitMix64 generator, which SplittableRandom
+ * also uses.
+ * @author Louis Jacobowitz
+ */
+public final class Seeds {
+	/** The increment of a seed sequence; an odd constant with well-mixed bits */
+	public static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * Not to be instantiated
+	 */
+	private Seeds() {
+	}
+
+	/**
+	 * Scrambles the bits of a number, turning consecutive seeds into unrelated ones
+	 * @param z - the number to scramble
+	 * @return the scrambled number
+	 */
+	public static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Returns the i-th seed of the sequence derived from a seed
+	 * @param seed - the seed the sequence is derived from
+	 * @param i - the position in the sequence
+	 * @return the derived seed
+	 */
+	public static long derive(long seed, long i) {
+		return mix(seed + i * GOLDEN_GAMMA);
+	}
+}
@@ -0,0 +1,157 @@
+package def.model;
+
+import java.util.Arrays;
+
+/**
+ * The shape of a board: which cells count as each cell's neighbors. A topology only says how to
+ * find the neighbors of one cell; a board looks them up in a NeighborTable built from the
+ * topology once per board shape, so counting, cascading and chording never need to know which
+ * topology they are working on.
+ * @author Louis Jacobowitz
+ */
+public enum Topology {
+	/** The usual board: the eight cells around a cell, stopping at the edges */
+	SQUARE("Square", 8, 1) {
+		@Override
+		int collect(int row, int col, int height, int width, int[] out) {
+			int n = 0;
+			for(int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height - 1); r++) {
+				for(int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+					out[n++] = r * width + c;
+				}
+			}
+			return n;
+		}
+	},
+	/** The eight cells around a cell, wrapping around from each edge to the opposite one */
+	TORUS("Torus", 8, 1) {
+		@Override
+		int collect(int row, int col, int height, int width, int[] out) {
+			int n = 0;
+			for(int dr = -1; dr <= 1; dr++) {
+				int r = Math.floorMod(row + dr, height);
+				for(int dc = -1; dc <= 1; dc++) {
+					out[n++] = r * width + Math.floorMod(col + dc, width);
+				}
+			}
+			return n;
+		}
+	},
+	/**
+	 * Hexagonal cells, stored as rows with every odd row pushed half a cell to the right: the
+	 * six cells around a cell are the two beside it and two each in the rows above and below
+	 */
+	HEX("Hex", 6, 1) {
+		@Override
+		int collect(int row, int col, int height, int width, int[] out) {
+			int n = 0;
+			// The rows above and below reach one column left from an even row, and one right from an odd row
+			int shift = row & 1;
+			for(int dr = -1; dr <= 1; dr++) {
+				int r = row + dr;
+				if(r < 0 || r >= height) continue;
+				int first = dr == 0 ? col - 1 : col - 1 + shift;
+				int last = dr == 0 ? col + 1 : col + shift;
+				for(int c = Math.max(first, 0); c <= Math.min(last, width - 1); c++) {
+					out[n++] = r * width + c;
+				}
+			}
+			return n;
+		}
+	},
+	/** The cells a knight's move away from a cell, stopping at the edges */
+	KNIGHT("Knight", 8, 2) {
+		@Override
+		int collect(int row, int col, int height, int width, int[] out) {
+			int n = 0;
+			for(int k = 0; k < KNIGHT_ROWS.length; k++) {
+				int r = row + KNIGHT_ROWS[k];
+				int c = col + KNIGHT_COLS[k];
+				if(r >= 0 && r < height && c >= 0 && c < width) out[n++] = r * width + c;
+			}
+			return n;
+		}
+	};
+
+	/** The row offsets of the knight's moves, in row-major order */
+	private static final int[] KNIGHT_ROWS = { -2, -2, -1, -1, 1, 1, 2, 2 };
+	/** The column offsets of the knight's moves, parallel to KNIGHT_ROWS */
+	private static final int[] KNIGHT_COLS = { -1, 1, -2, 2, -2, 2, -1, 1 };
+	/** The name of the topology, for display */
+	private final String label;
+	/** The most neighbors any cell can have */
+	private final int maxNeighbors;
+	/** The most rows or columns away from a cell any of its neighbors can be */
+	private final int reach;
+
+	/**
+	 * Creates a new Topology
+	 * @param label - the name of the topology, for display
+	 * @param maxNeighbors - the most neighbors any cell can have
+	 * @param reach - the most rows or columns away from a cell any of its neighbors can be
+	 */
+	Topology(String label, int maxNeighbors, int reach) {
+		this.label = label;
+		this.maxNeighbors = maxNeighbors;
+		this.reach = reach;
+	}
+
+	/**
+	 * Returns the name of the topology, for display
+	 * @return the value of this object's label variable
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Returns the most neighbors any cell can have, which is how big a buffer of neighbors must be
+	 * @return the value of this object's maxNeighbors variable
+	 */
+	public int getMaxNeighbors() {
+		return maxNeighbors;
+	}
+
+	/**
+	 * Returns the most rows or columns away from a cell any of its neighbors can be; cells
+	 * farther than this from every edge differ in their neighbors only by where they are
+	 * @return the value of this object's reach variable
+	 */
+	public int getReach() {
+		return reach;
+	}
+
+	/**
+	 * Writes the flat indices of every neighbor of a cell into an array, in ascending order.
+	 * A cell is never its own neighbor, and is never given the same neighbor twice, even on a
+	 * torus too small for its neighbors to all be different cells.
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @param height - the height of the board
+	 * @param width - the width of the board
+	 * @param out - where to put the neighbors; must hold at least nine entries
+	 * @return the number of neighbors written
+	 */
+	public int neighbors(int row, int col, int height, int width, int[] out) {
+		int n = collect(row, col, height, width, out);
+		Arrays.sort(out, 0, n);
+		int self = row * width + col;
+		int kept = 0;
+		for(int i = 0; i < n; i++) {
+			if(out[i] != self && (kept == 0 || out[i] != out[kept - 1])) out[kept++] = out[i];
+		}
+		return kept;
+	}
+
+	/**
+	 * Writes the flat indices of the cells around a cell into an array, in any order, possibly
+	 * including the cell itself or the same cell more than once
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @param height - the height of the board
+	 * @param width - the width of the board
+	 * @param out - where to put the cells; must hold at least nine entries
+	 * @return the number of cells written
+	 */
+	abstract int collect(int row, int col, int height, int width, int[] out);
+}
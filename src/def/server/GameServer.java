@@ -0,0 +1,188 @@
+package def.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A headless server hosting many games at once over local TCP, for races where every player
+ * plays the board from the same seed. Mines are placed when a game starts, with the center cell
+ * kept clear, rather than on the first reveal, so the same seed always gives the same board. Each connection is a Session with a board of its own, run
+ * on a thread of its own that simply blocks while it waits for the client. On a JVM with virtual
+ * threads (Java 21 on), sessions run on virtual threads, so tens of thousands of them cost little
+ * more than their boards; on older JVMs they fall back to platform threads with small stacks.
+ * The protocol is described in Protocol.
+ * <p>
+ * Usage: java def.server.GameServer [--port P] [--max-cells N]
+ * @author Louis Jacobowitz
+ */
+public class GameServer {
+	/** The most cells a board may have, unless told otherwise */
+	public static final long DEFAULT_MAX_CELLS = 1 << 20;
+	/** How many connections may wait to be accepted */
+	private static final int BACKLOG = 4096;
+	/** The stack size of each session's thread when it is a platform thread, in bytes */
+	private static final long PLATFORM_STACK = 256 << 10;
+	/** How often the server reports on its sessions, in milliseconds */
+	private static final long REPORT_MILLIS = 5000;
+	/** The socket connections are accepted on */
+	private final ServerSocket serverSocket;
+	/** The most cells a board may have */
+	private final long maxCells;
+	/** Makes the thread each session runs on */
+	private final ThreadFactory threads;
+	/** The number of sessions connected */
+	private final AtomicInteger sessions;
+	/** The number of moves made over all sessions */
+	private final LongAdder moves;
+
+	/**
+	 * Creates a new GameServer listening on the loopback address. It does not accept connections until run.
+	 * @param port - the port to listen on, or 0 for any free port
+	 * @param maxCells - the most cells a board may have
+	 * @throws IOException if the port cannot be listened on
+	 */
+	public GameServer(int port, long maxCells) throws IOException {
+		serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+		this.maxCells = maxCells;
+		threads = sessionThreads();
+		sessions = new AtomicInteger();
+		moves = new LongAdder();
+	}
+
+	/**
+	 * Returns the port the server is listening on
+	 * @return the port number
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Returns the most cells a board may have
+	 * @return the value of this object's maxCells variable
+	 */
+	public long getMaxCells() {
+		return maxCells;
+	}
+
+	/**
+	 * Returns the number of sessions connected
+	 * @return the number of open sessions
+	 */
+	public int getSessions() {
+		return sessions.get();
+	}
+
+	/**
+	 * Returns the number of moves made over all sessions
+	 * @return the number of moves
+	 */
+	public long getMoves() {
+		return moves.sum();
+	}
+
+	/**
+	 * Accepts connections, starting a session for each, until the server is closed
+	 * @throws IOException if accepting fails for a reason other than the server being closed
+	 */
+	public void run() throws IOException {
+		while(!serverSocket.isClosed()) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch(IOException e) {
+				if(serverSocket.isClosed()) return;
+				throw e;
+			}
+			sessions.incrementAndGet();
+			threads.newThread(new Session(this, socket)).start();
+		}
+	}
+
+	/**
+	 * Stops accepting connections. Sessions already running carry on until their clients leave.
+	 * @throws IOException if the socket cannot be closed
+	 */
+	public void close() throws IOException {
+		serverSocket.close();
+	}
+
+	/**
+	 * Counts a session that has ended
+	 */
+	void sessionEnded() {
+		sessions.decrementAndGet();
+	}
+
+	/**
+	 * Counts a move made in some session
+	 */
+	void moveMade() {
+		moves.increment();
+	}
+
+	/**
+	 * Returns a factory for the threads sessions run on: virtual threads if this JVM has them,
+	 * otherwise daemon platform threads with small stacks. Virtual threads are looked up
+	 * reflectively, as this project is built for Java 8.
+	 * @return the thread factory
+	 */
+	private static ThreadFactory sessionThreads() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "session-", 0L);
+			return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+		} catch(ReflectiveOperationException | RuntimeException e) {
+			// No virtual threads on this JVM
+		}
+		AtomicLong count = new AtomicLong();
+		return r -> {
+			Thread thread = new Thread(null, r, "session-" + count.getAndIncrement(), PLATFORM_STACK);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Runs a server from the command line, reporting on its sessions every few seconds
+	 * @param args - the options described in the class comment
+	 * @throws IOException if the server cannot listen on its port
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = Protocol.DEFAULT_PORT;
+		long maxCells = DEFAULT_MAX_CELLS;
+		for(int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch(args[i]) {
+			case "--port": port = Integer.parseInt(value); break;
+			case "--max-cells": maxCells = Long.parseLong(value); break;
+			default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		GameServer server = new GameServer(port, maxCells);
+		System.out.printf("listening on %d%n", server.getPort());
+		Thread reporter = new Thread(() -> {
+			long lastMoves = 0;
+			while(true) {
+				try {
+					Thread.sleep(REPORT_MILLIS);
+				} catch(InterruptedException e) {
+					return;
+				}
+				long total = server.getMoves();
+				System.out.printf("sessions: %d  moves/s: %.0f%n", server.getSessions(), (total - lastMoves) * 1000.0 / REPORT_MILLIS);
+				lastMoves = total;
+			}
+		}, "server-report");
+		reporter.setDaemon(true);
+		reporter.start();
+		server.run();
+	}
+}
@@ -0,0 +1,362 @@
+package def.server;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+import def.metrics.Histogram;
+import def.model.Seeds;
+
+/**
+ * Holds open many simultaneous sessions against a GameServer and plays a move in each of them
+ * every so often, measuring how long the server takes to answer. All of the sessions are driven
+ * from a single thread with a Selector, so the load generator itself needs no thread per session
+ * and can open as many sessions as the operating system allows sockets. Every session plays a
+ * race: its n-th game is on the board from the n-th seed derived from the shared seed, like every
+ * other session's, and since the server places the mines from the seed alone, that is the same
+ * board for every session. Moves reveal a random cell the session has not yet seen revealed.
+ * <p>
+ * Latencies from the first seconds, while the server is still starting its sessions and
+ * compiling its hot paths, are left out of the final report; progress reports show the latencies
+ * of the last second alone.
+ * <p>
+ * Usage: java def.server.LoadGenerator [--host H] [--port P] [--sessions N] [--interval MILLIS]
+ * [--warmup SECONDS] [--duration SECONDS] [--seed S] [--height H] [--width W] [--mines M]
+ * @author Louis Jacobowitz
+ */
+public class LoadGenerator {
+	/** How often progress is reported, in milliseconds */
+	private static final long REPORT_MILLIS = 1000;
+	/** The number of nanoseconds in a millisecond */
+	private static final long NANOS_PER_MILLI = 1_000_000L;
+	/** The address of the server */
+	private final InetSocketAddress address;
+	/** The number of sessions to hold open */
+	private final int sessions;
+	/** The time each session waits after a response before its next move, in nanoseconds */
+	private final long interval;
+	/** How long to play before measuring, once every session is open, in nanoseconds */
+	private final long warmup;
+	/** How long to keep playing and measuring after the warmup, in nanoseconds */
+	private final long duration;
+	/** The seed every session's games are derived from */
+	private final long seed;
+	/** The height of every board */
+	private final int height;
+	/** The width of every board */
+	private final int width;
+	/** The number of mines on every board */
+	private final int mines;
+	/** How long the server took to answer each request since the warmup, in nanoseconds */
+	private final Histogram latency;
+	/** How long the server took to answer each request since the last progress report, in nanoseconds */
+	private final Histogram recent;
+	/** The buffer every session reads into; there is only one thread, so one buffer does */
+	private final ByteBuffer readBuffer;
+	/** The sessions waiting to make their next request, soonest first */
+	private final PriorityQueue<Client> due;
+	/** The number of requests answered */
+	private long answered;
+	/** The number of games finished */
+	private long games;
+	/** The number of requests answered with an error */
+	private long errors;
+
+	/**
+	 * Creates a new LoadGenerator
+	 * @param address - the address of the server
+	 * @param sessions - the number of sessions to hold open
+	 * @param intervalMillis - the time each session waits after a response before its next move
+	 * @param warmupSeconds - how long to play before measuring, once every session is open
+	 * @param durationSeconds - how long to keep playing and measuring after the warmup
+	 * @param seed - the seed every session's games are derived from
+	 * @param height - the height of every board
+	 * @param width - the width of every board
+	 * @param mines - the number of mines on every board
+	 */
+	public LoadGenerator(InetSocketAddress address, int sessions, long intervalMillis, long warmupSeconds, long durationSeconds, long seed, int height, int width, int mines) {
+		this.address = address;
+		this.sessions = sessions;
+		interval = intervalMillis * NANOS_PER_MILLI;
+		warmup = warmupSeconds * 1000 * NANOS_PER_MILLI;
+		duration = durationSeconds * 1000 * NANOS_PER_MILLI;
+		this.seed = seed;
+		this.height = height;
+		this.width = width;
+		this.mines = mines;
+		latency = new Histogram();
+		recent = new Histogram();
+		readBuffer = ByteBuffer.allocateDirect(1 << 16);
+		due = new PriorityQueue<>((a, b) -> Long.compare(a.nextAt, b.nextAt));
+	}
+
+	/**
+	 * Opens every session, plays for the set duration and reports the latencies
+	 * @param out - where to print progress and the final report
+	 * @throws IOException if a session cannot be opened, or the server goes away
+	 */
+	public void run(PrintStream out) throws IOException {
+		SplittableRandom random = new SplittableRandom(seed);
+		Selector selector = Selector.open();
+		Client[] clients = new Client[sessions];
+		long connectStart = System.nanoTime();
+		for(int i = 0; i < sessions; i++) {
+			SocketChannel channel = SocketChannel.open(address);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			channel.configureBlocking(false);
+			clients[i] = new Client(channel, random.split());
+			clients[i].key = channel.register(selector, SelectionKey.OP_READ, clients[i]);
+			// Spread the first moves over one interval, so the sessions do not all move at once
+			clients[i].nextAt = System.nanoTime() + random.nextLong(Math.max(interval, 1));
+			due.add(clients[i]);
+		}
+		long start = System.nanoTime();
+		out.printf("opened %d sessions in %d ms%n", sessions, (start - connectStart) / NANOS_PER_MILLI);
+		long measureFrom = start + warmup;
+		long end = measureFrom + duration;
+		long nextReport = start + REPORT_MILLIS * NANOS_PER_MILLI;
+		boolean measuring = false;
+		try {
+			long now = start;
+			while(now < end) {
+				while(!due.isEmpty() && due.peek().nextAt <= now) {
+					due.poll().send(now);
+				}
+				long wait = due.isEmpty() ? REPORT_MILLIS : (due.peek().nextAt - now) / NANOS_PER_MILLI;
+				selector.select(Math.max(1, wait));
+				now = System.nanoTime();
+				for(SelectionKey key : selector.selectedKeys()) {
+					Client client = (Client) key.attachment();
+					if(key.isValid() && key.isWritable()) client.flush();
+					if(key.isValid() && key.isReadable()) client.read(now);
+				}
+				selector.selectedKeys().clear();
+				if(!measuring && now >= measureFrom) {
+					measuring = true;
+					latency.reset();
+					answered = 0;
+					games = 0;
+					errors = 0;
+				}
+				if(now >= nextReport) {
+					out.printf("%s  answers/s: %d  p99: %.2f ms  max: %.2f ms%n", measuring ? "measuring" : "warming up",
+							recent.getCount(), recent.getPercentile(0.99) / 1e6, recent.getMax() / 1e6);
+					recent.reset();
+					nextReport += REPORT_MILLIS * NANOS_PER_MILLI;
+				}
+			}
+		} finally {
+			for(Client client : clients) {
+				if(client != null) client.channel.close();
+			}
+			selector.close();
+		}
+		double seconds = (double) (System.nanoTime() - measureFrom) / (1000 * NANOS_PER_MILLI);
+		out.printf("sessions: %d  answers: %d (%.0f/s)  games: %d  errors: %d%n", sessions, answered, answered / seconds, games, errors);
+		out.printf("latency  mean: %.2f ms  p50: %.2f ms  p99: %.2f ms  p99.9: %.2f ms  max: %.2f ms%n",
+				latency.getMean() / 1e6, latency.getPercentile(0.5) / 1e6, latency.getPercentile(0.99) / 1e6,
+				latency.getPercentile(0.999) / 1e6, latency.getMax() / 1e6);
+	}
+
+	/**
+	 * One session, with what it knows of its current board
+	 */
+	private class Client {
+		/** The connection to the server */
+		final SocketChannel channel;
+		/** Chooses the cells to reveal */
+		final SplittableRandom random;
+		/** The cells known to be revealed or flagged */
+		final BitSet open;
+		/** The part of a response read so far */
+		final StringBuilder line;
+		/** The session's registration with the selector */
+		SelectionKey key;
+		/** The part of a request the server has not yet taken, or null if it took it all */
+		ByteBuffer unsent;
+		/** When the next request is due to be sent */
+		long nextAt;
+		/** When the request waiting to be answered was sent */
+		long sentAt;
+		/** Whether a game is being played */
+		boolean playing;
+		/** The number of games this session has finished */
+		int gamesPlayed;
+
+		/**
+		 * Creates a new Client
+		 * @param channel - the connection to the server
+		 * @param random - chooses the cells to reveal
+		 */
+		Client(SocketChannel channel, SplittableRandom random) {
+			this.channel = channel;
+			this.random = random;
+			open = new BitSet(height * width);
+			line = new StringBuilder();
+		}
+
+		/**
+		 * Sends the next request: a new game if none is being played, otherwise a reveal
+		 * @param now - the current time, in nanoseconds
+		 * @throws IOException if the request cannot be written
+		 */
+		void send(long now) throws IOException {
+			String request;
+			if(!playing) {
+				request = Protocol.NEW + " " + height + " " + width + " " + mines + " " + Seeds.derive(seed, gamesPlayed) + "\n";
+			}
+			else {
+				int index = hiddenCell();
+				request = Protocol.REVEAL + " " + index / width + " " + index % width + "\n";
+			}
+			sentAt = now;
+			ByteBuffer buffer = ByteBuffer.wrap(request.getBytes(StandardCharsets.US_ASCII));
+			channel.write(buffer);
+			if(buffer.hasRemaining()) {
+				unsent = buffer;
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			}
+		}
+
+		/**
+		 * Chooses a cell this session has not seen revealed or flagged
+		 * @return the flat index of the cell
+		 */
+		int hiddenCell() {
+			int size = height * width;
+			for(int tries = 0; tries < 16; tries++) {
+				int index = random.nextInt(size);
+				if(!open.get(index)) return index;
+			}
+			int index = open.nextClearBit(random.nextInt(size));
+			return index < size ? index : open.nextClearBit(0);
+		}
+
+		/**
+		 * Writes whatever is left of the last request, once the server can take it
+		 * @throws IOException if the request cannot be written
+		 */
+		void flush() throws IOException {
+			channel.write(unsent);
+			if(!unsent.hasRemaining()) {
+				unsent = null;
+				key.interestOps(SelectionKey.OP_READ);
+			}
+		}
+
+		/**
+		 * Reads whatever the server has sent, handling each complete response
+		 * @param now - the current time, in nanoseconds
+		 * @throws IOException if the server went away
+		 */
+		void read(long now) throws IOException {
+			readBuffer.clear();
+			int n = channel.read(readBuffer);
+			if(n < 0) throw new IOException("server closed a session");
+			readBuffer.flip();
+			while(readBuffer.hasRemaining()) {
+				char c = (char) readBuffer.get();
+				if(c != '\n') {
+					line.append(c);
+					continue;
+				}
+				handle(now);
+				line.setLength(0);
+			}
+		}
+
+		/**
+		 * Handles one complete response, and schedules the next request
+		 * @param now - the current time, in nanoseconds
+		 */
+		void handle(long now) {
+			latency.record(now - sentAt);
+			recent.record(now - sentAt);
+			answered++;
+			char kind = line.charAt(0);
+			if(kind == Protocol.OK) {
+				playing = true;
+				open.clear();
+			}
+			else if(kind == Protocol.ERROR) {
+				errors++;
+			}
+			else {
+				readCells();
+				if(kind != Protocol.PLAYING) {
+					playing = false;
+					gamesPlayed++;
+					games++;
+				}
+			}
+			nextAt = now + interval;
+			due.add(this);
+		}
+
+		/**
+		 * Marks the cells listed in a move's response as revealed, flagged or hidden
+		 */
+		void readCells() {
+			// Skip the state, mines remaining and count
+			int i = 0;
+			for(int spaces = 0; i < line.length() && spaces < 3; i++) {
+				if(line.charAt(i) == ' ') spaces++;
+			}
+			while(i < line.length()) {
+				int index = 0;
+				char c;
+				while((c = line.charAt(i++)) != '=') {
+					index = index * 10 + (c - '0');
+				}
+				char value = line.charAt(i);
+				i += 2;
+				if(value == Protocol.HIDDEN) open.clear(index);
+				else open.set(index);
+			}
+		}
+	}
+
+	/**
+	 * Runs a load test from the command line
+	 * @param args - the options described in the class comment
+	 * @throws IOException if the server cannot be reached
+	 */
+	public static void main(String[] args) throws IOException {
+		String host = "127.0.0.1";
+		int port = Protocol.DEFAULT_PORT;
+		int sessions = 10_000;
+		long intervalMillis = 1000;
+		long warmupSeconds = 10;
+		long durationSeconds = 30;
+		long seed = 1;
+		int height = 16;
+		int width = 30;
+		int mines = 99;
+		for(int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch(args[i]) {
+			case "--host": host = value; break;
+			case "--port": port = Integer.parseInt(value); break;
+			case "--sessions": sessions = Integer.parseInt(value); break;
+			case "--interval": intervalMillis = Long.parseLong(value); break;
+			case "--warmup": warmupSeconds = Long.parseLong(value); break;
+			case "--duration": durationSeconds = Long.parseLong(value); break;
+			case "--seed": seed = Long.parseLong(value); break;
+			case "--height": height = Integer.parseInt(value); break;
+			case "--width": width = Integer.parseInt(value); break;
+			case "--mines": mines = Integer.parseInt(value); break;
+			default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		new LoadGenerator(new InetSocketAddress(host, port), sessions, intervalMillis, warmupSeconds, durationSeconds, seed, height, width, mines).run(System.out);
+	}
+}
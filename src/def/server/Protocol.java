@@ -0,0 +1,134 @@
+package def.server;
+
+import def.model.BoardModel;
+import def.model.GameState;
+import def.model.RevealDelta;
+
+/**
+ * The line-based protocol spoken between a GameServer and its clients. Every message is one line
+ * of ASCII ending in a newline, with fields separated by single spaces. Requests are answered in
+ * the order they were sent, so a client may send several before reading their responses.
+ * <p>
+ * Requests:
+ * <ul>
+ * <li>{@code N height width mines seed} - starts a new game. The mines are placed from the seed
+ * as soon as the game starts, with the cells around the center cell, at row height / 2 and
+ * column width / 2, kept clear; so racing players who send the same seed play the same board,
+ * and revealing the center first is always safe. Answered with {@code O height width mines}.</li>
+ * <li>{@code R row col} - reveals a cell.</li>
+ * <li>{@code F row col} - flags a cell, or unflags it if it is flagged.</li>
+ * <li>{@code C row col} - chords a revealed cell.</li>
+ * <li>{@code Q} - ends the session.</li>
+ * </ul>
+ * A move is answered with the cells it changed: {@code state minesRemaining count index=value ...},
+ * where the state is P while playing, W once won and L once lost, each index is the flat index
+ * of a cell, and each value is the cell's number, M for a revealed mine, F for a flag or H for
+ * a cell that went back to hidden. Anything that cannot be done is answered with {@code E message}.
+ * @author Louis Jacobowitz
+ */
+public final class Protocol {
+	/** The port the server listens on unless told otherwise */
+	public static final int DEFAULT_PORT = 7737;
+	/** Starts a new game */
+	public static final char NEW = 'N';
+	/** Reveals a cell */
+	public static final char REVEAL = 'R';
+	/** Flags or unflags a cell */
+	public static final char FLAG = 'F';
+	/** Chords a cell */
+	public static final char CHORD = 'C';
+	/** Ends the session */
+	public static final char QUIT = 'Q';
+	/** Answers a new game */
+	public static final char OK = 'O';
+	/** Answers a request that could not be done */
+	public static final char ERROR = 'E';
+	/** The state of a game being played */
+	public static final char PLAYING = 'P';
+	/** The state of a game that was won */
+	public static final char WON = 'W';
+	/** The state of a game that was lost */
+	public static final char LOST = 'L';
+	/** The value of a revealed mine */
+	public static final char MINE = 'M';
+	/** The value of a flagged cell */
+	public static final char FLAGGED = 'F';
+	/** The value of a hidden cell */
+	public static final char HIDDEN = 'H';
+
+	/**
+	 * Protocol is never instantiated
+	 */
+	private Protocol() {
+	}
+
+	/**
+	 * Returns the letter for the state of a game
+	 * @param state - the state
+	 * @return P, W or L
+	 */
+	public static char stateLetter(GameState state) {
+		switch(state) {
+		case WON: return WON;
+		case LOST: return LOST;
+		default: return PLAYING;
+		}
+	}
+
+	/**
+	 * Returns the value sent for a cell
+	 * @param cell - the packed state of the cell, as kept by BoardModel
+	 * @return the cell's number as a digit, or M, F or H
+	 */
+	public static char cellValue(int cell) {
+		if((cell & BoardModel.REVEALED) != 0) {
+			return (cell & BoardModel.MINE) != 0 ? MINE : (char) ('0' + (cell & BoardModel.NUMBER_MASK));
+		}
+		return (cell & BoardModel.FLAGGED) != 0 ? FLAGGED : HIDDEN;
+	}
+
+	/**
+	 * Writes the response to a reveal or chord, without the newline
+	 * @param model - the board the move was made on
+	 * @param delta - the cells the move revealed
+	 * @param out - the buffer to write to, which is cleared first
+	 */
+	public static void writeDelta(BoardModel model, RevealDelta delta, StringBuilder out) {
+		writeHeader(model, delta.size(), out);
+		for(int i = 0; i < delta.size(); i++) {
+			appendCell(model, delta.get(i), out);
+		}
+	}
+
+	/**
+	 * Writes the response to a move that changed a single cell, without the newline
+	 * @param model - the board the move was made on
+	 * @param index - the flat index of the cell
+	 * @param out - the buffer to write to, which is cleared first
+	 */
+	public static void writeCell(BoardModel model, int index, StringBuilder out) {
+		writeHeader(model, 1, out);
+		appendCell(model, index, out);
+	}
+
+	/**
+	 * Writes the state, mines remaining and cell count that start every move's response
+	 * @param model - the board the move was made on
+	 * @param count - the number of cells that follow
+	 * @param out - the buffer to write to, which is cleared first
+	 */
+	private static void writeHeader(BoardModel model, int count, StringBuilder out) {
+		out.setLength(0);
+		out.append(stateLetter(model.getState())).append(' ').append(model.getMinesRemaining()).append(' ').append(count);
+	}
+
+	/**
+	 * Appends one changed cell to a response
+	 * @param model - the board
+	 * @param index - the flat index of the cell
+	 * @param out - the buffer to append to
+	 */
+	private static void appendCell(BoardModel model, int index, StringBuilder out) {
+		out.append(' ').append(index).append('=').append(cellValue(model.cell(index)));
+	}
+}
@@ -0,0 +1,274 @@
+package def.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+
+import def.model.BoardModel;
+import def.model.RevealDelta;
+
+/**
+ * One client's connection to a GameServer, run on a thread of its own. The session reads a
+ * request, makes the move on its board and writes the response, until the client quits or goes
+ * away. Each session has its own BoardModel, so sessions never touch each other's state and
+ * need no locking.
+ * <p>
+ * A server holds tens of thousands of sessions, so each one is kept small: requests are parsed
+ * straight out of a small byte buffer rather than through a Reader, responses are built in
+ * buffers kept between moves, and a new game of the same size reuses the board of the last.
+ * Making a move allocates nothing beyond what the board itself needs.
+ * @author Louis Jacobowitz
+ */
+class Session implements Runnable {
+	/** The longest request accepted, in bytes */
+	private static final int MAX_REQUEST = 128;
+	/** The server the session belongs to */
+	private final GameServer server;
+	/** The client's connection */
+	private final Socket socket;
+	/** The bytes read from the client and not yet handled */
+	private final byte[] input;
+	/** The buffer responses are built in */
+	private final StringBuilder response;
+	/** The responses waiting to be written */
+	private byte[] output;
+	/** The number of bytes of output in use */
+	private int outputLength;
+	/** The index in input of the first byte not yet handled */
+	private int position;
+	/** The index in input after the last byte read */
+	private int limit;
+	/** The board being played, or null before the first game */
+	private BoardModel model;
+
+	/**
+	 * Creates a new Session
+	 * @param server - the server the session belongs to
+	 * @param socket - the client's connection
+	 */
+	Session(GameServer server, Socket socket) {
+		this.server = server;
+		this.socket = socket;
+		input = new byte[MAX_REQUEST];
+		response = new StringBuilder(64);
+		output = new byte[256];
+	}
+
+	/**
+	 * Answers requests until the client quits or disconnects
+	 */
+	@Override
+	public void run() {
+		try(Socket s = socket) {
+			s.setTcpNoDelay(true);
+			InputStream in = s.getInputStream();
+			OutputStream out = s.getOutputStream();
+			while(true) {
+				int end = nextLine(in);
+				if(end < 0 || input[position] == Protocol.QUIT) break;
+				handle(end);
+				position = end + 1;
+				append(response);
+				// Only write once every request already received has been answered, so pipelined requests share a write
+				if(indexOfNewline() < 0 && in.available() == 0) {
+					out.write(output, 0, outputLength);
+					outputLength = 0;
+				}
+			}
+		} catch(IOException e) {
+			// The client went away; there is nothing left to answer
+		} finally {
+			server.sessionEnded();
+		}
+	}
+
+	/**
+	 * Makes sure a whole request is in the input buffer, reading more from the client if needed
+	 * @param in - the client's input stream
+	 * @return the index of the newline ending the request, or -1 if the client disconnected
+	 * @throws IOException if the client sent a request that is too long, or could not be read from
+	 */
+	private int nextLine(InputStream in) throws IOException {
+		while(true) {
+			int end = indexOfNewline();
+			if(end >= 0) {
+				if(end > position) return end;
+				// Skip blank lines
+				position = end + 1;
+				continue;
+			}
+			if(position > 0) {
+				System.arraycopy(input, position, input, 0, limit - position);
+				limit -= position;
+				position = 0;
+			}
+			if(limit == input.length) throw new IOException("Request too long");
+			int n = in.read(input, limit, input.length - limit);
+			if(n < 0) return -1;
+			limit += n;
+		}
+	}
+
+	/**
+	 * Finds the end of the next request in the input buffer
+	 * @return the index of the newline, or -1 if there is no complete request
+	 */
+	private int indexOfNewline() {
+		for(int i = position; i < limit; i++) {
+			if(input[i] == '\n') return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Carries out one request, leaving the response in the response buffer
+	 * @param end - the index of the newline ending the request
+	 */
+	private void handle(int end) {
+		char action = (char) input[position];
+		try {
+			int field = position + 1;
+			switch(action) {
+			case Protocol.NEW: {
+				long height = number(field, end);
+				field = nextField(field, end);
+				long width = number(field, end);
+				field = nextField(field, end);
+				long mines = number(field, end);
+				field = nextField(field, end);
+				newGame(height, width, mines, number(field, end));
+				return;
+			}
+			case Protocol.REVEAL:
+			case Protocol.FLAG:
+			case Protocol.CHORD: {
+				long row = number(field, end);
+				field = nextField(field, end);
+				move(action, row, number(field, end));
+				return;
+			}
+			default:
+				error("unknown request");
+			}
+		} catch(NumberFormatException e) {
+			error("malformed request");
+		}
+	}
+
+	/**
+	 * Reads the number in a field of the request
+	 * @param field - the index of the space before the field
+	 * @param end - the index of the newline ending the request
+	 * @return the number
+	 * @throws NumberFormatException if the field is missing, is not a number or does not fit in a long
+	 */
+	private long number(int field, int end) {
+		if(field >= end || input[field] != ' ') throw new NumberFormatException();
+		int i = field + 1;
+		boolean negative = i < end && input[i] == '-';
+		if(negative) i++;
+		if(i >= end || input[i] == ' ') throw new NumberFormatException();
+		long value = 0;
+		for(; i < end && input[i] != ' '; i++) {
+			int digit = input[i] - '0';
+			if(digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) throw new NumberFormatException();
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Finds the next field of the request
+	 * @param field - the index of the space before the current field
+	 * @param end - the index of the newline ending the request
+	 * @return the index of the space before the next field, or end if there is none
+	 */
+	private int nextField(int field, int end) {
+		int i = field + 1;
+		while(i < end && input[i] != ' ') i++;
+		return i;
+	}
+
+	/**
+	 * Starts a new game, reusing the last board if it is the same size. The mines are placed
+	 * straight away, keeping the cells around the center cell clear, rather than around whichever
+	 * cell the client reveals first, so that every game from the same seed is on the same board.
+	 * @param height - the number of rows
+	 * @param width - the number of columns
+	 * @param mines - the number of mines
+	 * @param seed - the seed the mines are placed from
+	 */
+	private void newGame(long height, long width, long mines, long seed) {
+		if(height < 1 || width < 1 || height > Integer.MAX_VALUE || width > Integer.MAX_VALUE
+				|| Math.multiplyExact(height, width) > server.getMaxCells()) {
+			error("board size not allowed");
+			return;
+		}
+		if(mines < 0 || mines >= height * width) {
+			error("mine count not allowed");
+			return;
+		}
+		if(model != null && model.getHeight() == height && model.getWidth() == width && model.getNumMines() == mines) {
+			model.reset(seed);
+		}
+		else {
+			model = new BoardModel((int) height, (int) width, (int) mines, seed);
+		}
+		model.placeMines(model.getHeight() / 2, model.getWidth() / 2);
+		response.setLength(0);
+		response.append(Protocol.OK).append(' ').append(height).append(' ').append(width).append(' ').append(mines);
+	}
+
+	/**
+	 * Makes a move on the current board
+	 * @param action - R, F or C
+	 * @param row - the row of the cell
+	 * @param col - the column of the cell
+	 */
+	private void move(char action, long row, long col) {
+		if(model == null) {
+			error("no game");
+			return;
+		}
+		if(row < 0 || row >= model.getHeight() || col < 0 || col >= model.getWidth()) {
+			error("cell out of bounds");
+			return;
+		}
+		server.moveMade();
+		int r = (int) row;
+		int c = (int) col;
+		if(action == Protocol.FLAG) {
+			model.toggleFlag(r, c);
+			Protocol.writeCell(model, model.index(r, c), response);
+			return;
+		}
+		RevealDelta delta = action == Protocol.REVEAL ? model.reveal(r, c) : model.chord(r, c);
+		Protocol.writeDelta(model, delta, response);
+	}
+
+	/**
+	 * Puts an error in the response buffer
+	 * @param message - what went wrong
+	 */
+	private void error(String message) {
+		response.setLength(0);
+		response.append(Protocol.ERROR).append(' ').append(message);
+	}
+
+	/**
+	 * Adds a response, and the newline ending it, to the output waiting to be written
+	 * @param text - the response, which is all ASCII
+	 */
+	private void append(CharSequence text) {
+		int length = text.length();
+		if(outputLength + length + 1 > output.length) {
+			output = Arrays.copyOf(output, Math.max(output.length * 2, outputLength + length + 1));
+		}
+		for(int i = 0; i < length; i++) {
+			output[outputLength++] = (byte) text.charAt(i);
+		}
+		output[outputLength++] = '\n';
+	}
+}
@@ -0,0 +1,114 @@
+package def.sim;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import def.model.BoardModel;
+import def.model.ConcurrentBoard;
+import def.model.GameState;
+import def.model.RevealDelta;
+
+/**
+ * Measures how the throughput of moves on a shared ConcurrentBoard grows with the number of
+ * threads making them. Each run clears one large board with some number of bot threads. The bots
+ * are allowed to see the mines, so that every run plays the board to the end: each bot walks the
+ * board in its own order, flagging every mine and revealing every safe cell it finds still
+ * hidden. Their cascades overlap all the time, so each run also checks that the board ends won
+ * and that every revealed cell was revealed by exactly one move.
+ * <p>
+ * Usage: java def.sim.CoopBenchmark [--height H] [--width W] [--mines M] [--threads T] [--seed S]
+ * <br>Runs are made with 1, 2, 4, ... threads up to T.
+ * @author Louis Jacobowitz
+ */
+public class CoopBenchmark {
+	/** The step each bot walks the board by; a prime, so it visits every cell of any board whose size it does not divide */
+	private static final int STEP = 1_000_003;
+
+	/**
+	 * Clears one board with the given number of threads
+	 * @param height - the height of the board
+	 * @param width - the width of the board
+	 * @param mines - the number of mines
+	 * @param seed - the seed of the board
+	 * @param threads - the number of bot threads
+	 * @return the report of the run
+	 * @throws InterruptedException if interrupted while waiting for the bots
+	 */
+	static String run(int height, int width, int mines, long seed, int threads) throws InterruptedException {
+		ConcurrentBoard board = new ConcurrentBoard(height, width, mines, seed);
+		int size = board.size();
+		LongAdder moves = new LongAdder();
+		LongAdder revealed = new LongAdder();
+		SplittableRandom random = new SplittableRandom(seed);
+		long start = System.nanoTime();
+		board.reveal(height / 2, width / 2);
+		revealed.add(board.getRevealedSafe());
+		Thread[] bots = new Thread[threads];
+		for(int t = 0; t < threads; t++) {
+			long offset = random.nextInt(size);
+			bots[t] = new Thread(() -> {
+				int step = size % STEP == 0 ? 1 : STEP;
+				long botMoves = 0;
+				long botRevealed = 0;
+				for(long i = 0; i < size && board.getState() == GameState.PLAYING; i++) {
+					int index = (int) ((offset + i * step) % size);
+					int cell = board.cell(index);
+					if((cell & (BoardModel.REVEALED | BoardModel.FLAGGED)) != 0) continue;
+					botMoves++;
+					if((cell & BoardModel.MINE) != 0) {
+						board.toggleFlag(index / width, index % width);
+					}
+					else {
+						RevealDelta delta = board.reveal(index / width, index % width);
+						botRevealed += delta.size();
+					}
+				}
+				moves.add(botMoves);
+				revealed.add(botRevealed);
+			}, "coop-" + t);
+			bots[t].start();
+		}
+		for(Thread bot : bots) {
+			bot.join();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		// Flagging the last mine can win before the last safe cell is revealed, so only check that the moves agree with the board
+		int onBoard = 0;
+		for(int i = 0; i < size; i++) {
+			if((board.cell(i) & BoardModel.REVEALED) != 0) onBoard++;
+		}
+		boolean correct = board.getState() == GameState.WON && board.getRevealedSafe() == onBoard && revealed.sum() == onBoard;
+		return String.format("threads: %2d  time: %6.3f s  moves/s: %10.0f  cells/s: %10.0f  %s", threads, seconds,
+				moves.sum() / seconds, revealed.sum() / seconds, correct ? "ok" : "MISMATCH: " + board.getState()
+				+ ", revealed " + revealed.sum() + " by moves, " + board.getRevealedSafe() + " counted, " + onBoard + " on the board");
+	}
+
+	/**
+	 * Runs the benchmark from the command line
+	 * @param args - the options described in the class comment
+	 * @throws InterruptedException if interrupted while waiting for the bots
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int height = 2000;
+		int width = 2000;
+		int mines = 480_000;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long seed = 1;
+		for(int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch(args[i]) {
+			case "--height": height = Integer.parseInt(value); break;
+			case "--width": width = Integer.parseInt(value); break;
+			case "--mines": mines = Integer.parseInt(value); break;
+			case "--threads": threads = Integer.parseInt(value); break;
+			case "--seed": seed = Long.parseLong(value); break;
+			default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		// The first run only warms up the JIT
+		run(height, width, mines, seed, 1);
+		for(int t = 1; t <= threads; t *= 2) {
+			System.out.println(run(height, width, mines, seed, t));
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package def.sim;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import def.model.BoardModel;
+import def.model.OffHeapCells;
+import def.model.Topology;
+
+/**
+ * Measures what keeping a huge board's cells off the heap saves. Each run builds one board with
+ * its cells on the heap, in direct buffers or in a mapped file, places the mines and makes the
+ * first reveal, and reports how long that took, how much heap the JVM ended up using and how
+ * much garbage collection it caused. Each run is best made in a JVM of its own, with a heap just
+ * big enough for the board the heap store needs: -Xmx3g for the default board. The list of
+ * where the mines are stays on the heap whichever store the cells are in, at four bytes a mine.
+ * Direct buffers count against -XX:MaxDirectMemorySize, which is the size of the heap unless set,
+ * and a mapped file is only as fast as the page cache holding it, since mines land at random.
+ * <p>
+ * Usage: java def.sim.OffHeapBenchmark [--height H] [--width W] [--mines M] [--seed S]
+ * [--topology square|torus|hex|knight] [--store heap|direct|mapped] [--file F]
+ * <br>With --store mapped, the cells are kept in the file F, which is replaced and then deleted.
+ * @author Louis Jacobowitz
+ */
+public class OffHeapBenchmark {
+	/**
+	 * Returns the total number of collections and the time spent in them so far
+	 * @return the number of collections and the milliseconds they took
+	 */
+	private static long[] collections() {
+		long[] total = new long[2];
+		for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			total[0] += Math.max(collector.getCollectionCount(), 0);
+			total[1] += Math.max(collector.getCollectionTime(), 0);
+		}
+		return total;
+	}
+
+	/**
+	 * Plays the first move of one board
+	 * @param model - the board
+	 * @param store - which store its cells are in, for the report
+	 * @param start - when the store began to be allocated, from System.nanoTime()
+	 * @param before - the collections before the store was allocated, from collections()
+	 * @return the report of the run
+	 */
+	static String run(BoardModel model, String store, long start, long[] before) {
+		long allocated = System.nanoTime();
+		int row = model.getHeight() / 2;
+		int col = model.getWidth() / 2;
+		int revealed = model.reveal(row, col).size();
+		long done = System.nanoTime();
+		long[] after = collections();
+		Runtime runtime = Runtime.getRuntime();
+		return String.format("%-6s %,d cells  allocate: %d ms  place and reveal: %d ms  revealed: %,d"
+				+ "  heap used: %d MB  collections: %d taking %d ms", store, model.size(), (allocated - start) / 1_000_000,
+				(done - allocated) / 1_000_000, revealed,
+				(runtime.totalMemory() - runtime.freeMemory()) >> 20, after[0] - before[0], after[1] - before[1]);
+	}
+
+	/**
+	 * Runs the benchmark from the command line
+	 * @param args - the options described in the class comment
+	 * @throws IOException if the file could not be used
+	 */
+	public static void main(String[] args) throws IOException {
+		int height = 20_000;
+		int width = 20_000;
+		int mines = -1;
+		long seed = 1;
+		Topology topology = Topology.SQUARE;
+		String store = "direct";
+		Path file = Paths.get("board.cells");
+		for(int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch(args[i]) {
+			case "--height": height = Integer.parseInt(value); break;
+			case "--width": width = Integer.parseInt(value); break;
+			case "--mines": mines = Integer.parseInt(value); break;
+			case "--seed": seed = Long.parseLong(value); break;
+			case "--topology": topology = Topology.valueOf(value.toUpperCase()); break;
+			case "--store": store = value; break;
+			case "--file": file = Paths.get(value); break;
+			default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		int size = Math.multiplyExact(height, width);
+		if(mines < 0) mines = (int) (size * 16L / 100);
+		long[] before = collections();
+		long start = System.nanoTime();
+		switch(store) {
+		case "heap":
+			System.out.println(run(new BoardModel(height, width, mines, seed, topology), store, start, before));
+			break;
+		case "direct":
+			try(OffHeapCells cells = OffHeapCells.allocate(size)) {
+				System.out.println(run(new BoardModel(height, width, mines, seed, topology, cells), store, start, before));
+			}
+			break;
+		case "mapped":
+			// A new, empty file reads as all 0, with no need to write every cell
+			Files.deleteIfExists(file);
+			try(OffHeapCells cells = OffHeapCells.map(file, size)) {
+				System.out.println(run(new BoardModel(height, width, mines, seed, topology, cells), store, start, before));
+			} finally {
+				Files.deleteIfExists(file);
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown store: " + store);
+		}
+	}
+}
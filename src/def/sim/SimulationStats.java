@@ -0,0 +1,98 @@
+package def.sim;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals over every game a Simulator has played. The totals are kept in LongAdders, so
+ * many threads can record games at once without contending, and can be read at any time while
+ * the simulation is running.
+ * @author Louis Jacobowitz
+ */
+public class SimulationStats {
+	/** The number of games played */
+	private final LongAdder games = new LongAdder();
+	/** The number of games won */
+	private final LongAdder wins = new LongAdder();
+	/** The number of games won without a single guess */
+	private final LongAdder winsWithoutGuessing = new LongAdder();
+	/** The number of reveal and chord moves made */
+	private final LongAdder clicks = new LongAdder();
+	/** The number of moves that were guesses */
+	private final LongAdder guesses = new LongAdder();
+	/** The number of games that needed at least one guess */
+	private final LongAdder gamesNeedingGuesses = new LongAdder();
+	/** The number of moves that revealed at least one cell */
+	private final LongAdder cascades = new LongAdder();
+	/** The number of cells revealed by all moves */
+	private final LongAdder cascadeCells = new LongAdder();
+	/** The most cells revealed by a single move */
+	private final LongAccumulator largestCascade = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Records one finished game
+	 * @param won - whether the game was won
+	 * @param gameClicks - the number of reveal and chord moves made
+	 * @param gameGuesses - the number of moves that were guesses
+	 * @param gameCascades - the number of moves that revealed at least one cell
+	 * @param gameCascadeCells - the number of cells revealed
+	 * @param gameLargestCascade - the most cells revealed by one move
+	 */
+	public void record(boolean won, int gameClicks, int gameGuesses, int gameCascades, long gameCascadeCells, int gameLargestCascade) {
+		games.increment();
+		if(won) {
+			wins.increment();
+			if(gameGuesses == 0) winsWithoutGuessing.increment();
+		}
+		if(gameGuesses > 0) gamesNeedingGuesses.increment();
+		clicks.add(gameClicks);
+		guesses.add(gameGuesses);
+		cascades.add(gameCascades);
+		cascadeCells.add(gameCascadeCells);
+		largestCascade.accumulate(gameLargestCascade);
+	}
+
+	/**
+	 * Returns the number of games played so far
+	 * @return the number of games
+	 */
+	public long getGames() {
+		return games.sum();
+	}
+
+	/**
+	 * Returns the header line for CSV output
+	 * @return the column names, comma separated
+	 */
+	public static String csvHeader() {
+		return "elapsed_ms,games,wins,win_rate,wins_without_guessing,clicks_per_game,guesses_per_game,"
+				+ "games_needing_guesses,mean_cascade,largest_cascade";
+	}
+
+	/**
+	 * Returns the current totals as a CSV line
+	 * @param elapsedMillis - the time since the simulation started
+	 * @return the totals, comma separated, in the order of csvHeader()
+	 */
+	public String toCsv(long elapsedMillis) {
+		long g = Math.max(1, games.sum());
+		long c = Math.max(1, cascades.sum());
+		return String.format("%d,%d,%d,%.6f,%d,%.4f,%.4f,%d,%.4f,%d", elapsedMillis, games.sum(), wins.sum(),
+				(double) wins.sum() / g, winsWithoutGuessing.sum(), (double) clicks.sum() / g, (double) guesses.sum() / g,
+				gamesNeedingGuesses.sum(), (double) cascadeCells.sum() / c, largestCascade.get());
+	}
+
+	/**
+	 * Returns the current totals in a readable form
+	 * @return a one-line summary
+	 */
+	@Override
+	public String toString() {
+		long g = Math.max(1, games.sum());
+		long c = Math.max(1, cascades.sum());
+		return String.format("games: %d  win rate: %.2f%%  no-guess wins: %.2f%%  clicks/game: %.1f  guesses/game: %.2f  "
+				+ "needed a guess: %.2f%%  mean cascade: %.1f  largest cascade: %d", games.sum(), 100.0 * wins.sum() / g,
+				100.0 * winsWithoutGuessing.sum() / g, (double) clicks.sum() / g, (double) guesses.sum() / g,
+				100.0 * gamesNeedingGuesses.sum() / g, (double) cascadeCells.sum() / c, largestCascade.get());
+	}
+}
@@ -0,0 +1,233 @@
+package def.sim;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import def.model.BoardModel;
+import def.model.GameState;
+import def.model.Move;
+import def.model.RevealDelta;
+import def.model.Seeds;
+import def.model.Topology;
+
+/**
+ * Plays huge numbers of seeded games headlessly, to measure how hard a board configuration is.
+ * Games are spread over one thread per core. Each thread keeps one board and one strategy for
+ * its whole run and resets them between games, so once running, playing a game allocates
+ * nothing beyond what the strategy itself needs. Game i is always played on the board generated
+ * from the i-th seed, so a run is reproducible no matter how the games land on threads.
+ * <p>
+ * Usage: java def.sim.Simulator [--games N] [--height H] [--width W] [--mines M] [--seed S]
+ * [--threads T] [--strategy solver|random-guess] [--safe-radius R] [--topology square|torus|hex|knight]
+ * [--csv FILE]
+ * @author Louis Jacobowitz
+ */
+public class Simulator {
+	/** The number of games a thread claims at a time */
+	private static final int CHUNK = 256;
+	/** How often progress is reported, in milliseconds */
+	private static final long REPORT_MILLIS = 1000;
+	/** The height of every board */
+	private final int height;
+	/** The width of every board */
+	private final int width;
+	/** The number of mines on every board */
+	private final int mines;
+	/** How many cells around the first click are kept free of mines */
+	private final int safeRadius;
+	/** Which cells of every board neighbor each other */
+	private final Topology topology;
+	/** The number of games to play */
+	private final long games;
+	/** The seed from which every game's seed is derived */
+	private final long seed;
+	/** The number of threads to play on */
+	private final int threads;
+	/** Makes a strategy for each thread */
+	private final Supplier<Strategy> strategies;
+	/** The totals over every game played */
+	private final SimulationStats stats;
+	/** The index of the next game to be claimed by a thread */
+	private final AtomicLong nextGame;
+
+	/**
+	 * Creates a new Simulator
+	 * @param height - the height of every board
+	 * @param width - the width of every board
+	 * @param mines - the number of mines on every board
+	 * @param safeRadius - how many cells around the first click are kept free of mines, or -1 for none
+	 * @param games - the number of games to play
+	 * @param seed - the seed from which every game's seed is derived
+	 * @param threads - the number of threads to play on
+	 * @param strategies - makes a strategy for each thread
+	 */
+	public Simulator(int height, int width, int mines, int safeRadius, long games, long seed, int threads, Supplier<Strategy> strategies) {
+		this(height, width, mines, safeRadius, Topology.SQUARE, games, seed, threads, strategies);
+	}
+
+	/**
+	 * Creates a new Simulator playing boards of the given topology
+	 * @param height - the height of every board
+	 * @param width - the width of every board
+	 * @param mines - the number of mines on every board
+	 * @param safeRadius - how many cells around the first click are kept free of mines, or -1 for none
+	 * @param topology - which cells of every board neighbor each other
+	 * @param games - the number of games to play
+	 * @param seed - the seed from which every game's seed is derived
+	 * @param threads - the number of threads to play on
+	 * @param strategies - makes a strategy for each thread
+	 */
+	public Simulator(int height, int width, int mines, int safeRadius, Topology topology, long games, long seed, int threads,
+			Supplier<Strategy> strategies) {
+		this.height = height;
+		this.width = width;
+		this.mines = mines;
+		this.safeRadius = safeRadius;
+		this.topology = topology;
+		this.games = games;
+		this.seed = seed;
+		this.threads = threads;
+		this.strategies = strategies;
+		stats = new SimulationStats();
+		nextGame = new AtomicLong();
+	}
+
+	/**
+	 * Plays every game, reporting the running totals once a second
+	 * @param console - where to print progress, or null for none
+	 * @param csv - where to write a CSV row of totals once a second, or null for none
+	 * @return the final totals
+	 * @throws InterruptedException if interrupted while waiting for the games to finish
+	 */
+	public SimulationStats run(PrintStream console, PrintWriter csv) throws InterruptedException {
+		long start = System.nanoTime();
+		Thread[] workers = new Thread[threads];
+		for(int t = 0; t < threads; t++) {
+			workers[t] = new Thread(this::work, "simulator-" + t);
+			workers[t].setDaemon(true);
+			workers[t].start();
+		}
+		if(csv != null) csv.println(SimulationStats.csvHeader());
+		for(Thread worker : workers) {
+			while(worker.isAlive()) {
+				worker.join(REPORT_MILLIS);
+				if(worker.isAlive()) report(console, csv, start);
+			}
+		}
+		report(console, csv, start);
+		return stats;
+	}
+
+	/**
+	 * Prints the current totals
+	 * @param console - where to print progress, or null for none
+	 * @param csv - where to write a CSV row, or null for none
+	 * @param start - the time the simulation started, from System.nanoTime()
+	 */
+	private void report(PrintStream console, PrintWriter csv, long start) {
+		long elapsed = (System.nanoTime() - start) / 1_000_000L;
+		if(console != null) console.println(stats);
+		if(csv != null) {
+			csv.println(stats.toCsv(elapsed));
+			csv.flush();
+		}
+	}
+
+	/**
+	 * The body of each thread: claims games in chunks and plays them until none are left
+	 */
+	private void work() {
+		BoardModel model = new BoardModel(height, width, mines, seed, topology);
+		model.setSafeRadius(safeRadius);
+		Strategy strategy = strategies.get();
+		strategy.attach(model);
+		long first;
+		while((first = nextGame.getAndAdd(CHUNK)) < games) {
+			long last = Math.min(games, first + CHUNK);
+			for(long g = first; g < last; g++) {
+				play(model, strategy, Seeds.derive(seed, g));
+			}
+		}
+	}
+
+	/**
+	 * Plays a single game and records it
+	 * @param model - the thread's board
+	 * @param strategy - the thread's strategy
+	 * @param gameSeed - the seed of this game's board
+	 */
+	private void play(BoardModel model, Strategy strategy, long gameSeed) {
+		model.reset(gameSeed);
+		strategy.newGame();
+		int clicks = 0;
+		int guesses = 0;
+		int cascades = 0;
+		long cascadeCells = 0;
+		int largestCascade = 0;
+		int move;
+		while((move = strategy.nextMove()) != Move.NONE) {
+			if(strategy.lastMoveWasGuess()) guesses++;
+			RevealDelta delta = model.apply(move);
+			if(Move.action(move) != Move.FLAG) clicks++;
+			if(delta.hitMine()) break;
+			if(delta.size() > 0) {
+				cascades++;
+				cascadeCells += delta.size();
+				largestCascade = Math.max(largestCascade, delta.size());
+			}
+			if(model.getState() != GameState.PLAYING) break;
+		}
+		stats.record(model.getState() == GameState.WON, clicks, guesses, cascades, cascadeCells, largestCascade);
+	}
+
+	/**
+	 * Runs a simulation from the command line
+	 * @param args - the options described in the class comment
+	 * @throws IOException if the CSV file cannot be written
+	 * @throws InterruptedException if interrupted while waiting for the games to finish
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		long games = 1_000_000L;
+		int height = 16;
+		int width = 30;
+		int mines = 99;
+		long seed = 1;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int safeRadius = BoardModel.DEFAULT_SAFE_RADIUS;
+		Topology topology = Topology.SQUARE;
+		String strategy = "solver";
+		String csvFile = null;
+		for(int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch(args[i]) {
+			case "--games": games = Long.parseLong(value); break;
+			case "--height": height = Integer.parseInt(value); break;
+			case "--width": width = Integer.parseInt(value); break;
+			case "--mines": mines = Integer.parseInt(value); break;
+			case "--seed": seed = Long.parseLong(value); break;
+			case "--threads": threads = Integer.parseInt(value); break;
+			case "--safe-radius": safeRadius = Integer.parseInt(value); break;
+			case "--topology": topology = Topology.valueOf(value.toUpperCase()); break;
+			case "--strategy": strategy = value; break;
+			case "--csv": csvFile = value; break;
+			default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		final boolean useProbabilities;
+		if("solver".equals(strategy)) useProbabilities = true;
+		else if("random-guess".equals(strategy)) useProbabilities = false;
+		else throw new IllegalArgumentException("Unknown strategy: " + strategy);
+		Simulator simulator = new Simulator(height, width, mines, safeRadius, topology, games, seed, threads,
+				() -> new SolverStrategy(useProbabilities));
+		PrintWriter csv = csvFile == null ? null : new PrintWriter(new FileWriter(csvFile));
+		try {
+			simulator.run(System.out, csv);
+		} finally {
+			if(csv != null) csv.close();
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package def.sim;
+
+import def.model.BoardModel;
+import def.model.Move;
+import def.model.Seeds;
+import def.solver.ConstraintSolver;
+import def.solver.ProbabilityEngine;
+
+/**
+ * Plays by revealing cells the constraint solver knows are safe, and guesses only when it has to.
+ * The first click is always in the middle of the board. Guesses are made either on the cell the
+ * probability engine finds least likely to be a mine, or on a random hidden cell.
+ * @author Louis Jacobowitz
+ */
+public class SolverStrategy implements Strategy {
+	/** Whether to guess using the probability engine rather than at random */
+	private final boolean useProbabilities;
+	/** The board being played */
+	private BoardModel model;
+	/** The solver finding certain moves */
+	private ConstraintSolver solver;
+	/** The engine choosing guesses */
+	private ProbabilityEngine probabilities;
+	/** The state of the generator for random guesses, seeded from each game's seed */
+	private long randomState;
+	/** Whether the last move was a guess */
+	private boolean guessed;
+
+	/**
+	 * Creates a new SolverStrategy
+	 * @param useProbabilities - whether to guess the safest cell rather than a random one
+	 */
+	public SolverStrategy(boolean useProbabilities) {
+		this.useProbabilities = useProbabilities;
+	}
+
+	@Override
+	public void attach(BoardModel m) {
+		model = m;
+		solver = new ConstraintSolver(model);
+		// The simulator already keeps every core busy, so components are solved on the calling thread
+		probabilities = new ProbabilityEngine(model, null);
+	}
+
+	@Override
+	public void newGame() {
+		solver.rescan();
+		randomState = model.getSeed();
+	}
+
+	@Override
+	public int nextMove() {
+		guessed = false;
+		if(!model.areMinesPlaced()) {
+			return Move.of(Move.REVEAL, model.index(model.getHeight() / 2, model.getWidth() / 2));
+		}
+		int safe = solver.nextSafe();
+		if(safe >= 0) {
+			return Move.of(Move.REVEAL, safe);
+		}
+		guessed = true;
+		int guess = useProbabilities ? probabilities.compute().safest() : randomHiddenCell();
+		return guess < 0 ? Move.NONE : Move.of(Move.REVEAL, guess);
+	}
+
+	@Override
+	public boolean lastMoveWasGuess() {
+		return guessed;
+	}
+
+	/**
+	 * Picks a hidden, unflagged cell not known to be a mine, uniformly at random
+	 * @return the flat index of the cell, or -1 if there is none
+	 */
+	private int randomHiddenCell() {
+		int candidates = 0;
+		for(int i = 0; i < model.size(); i++) {
+			if(isCandidate(i)) candidates++;
+		}
+		if(candidates == 0) return -1;
+		int pick = (int) ((Seeds.mix(randomState += Seeds.GOLDEN_GAMMA) >>> 1) % candidates);
+		for(int i = 0; i < model.size(); i++) {
+			if(isCandidate(i) && pick-- == 0) return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns true if a cell may be guessed
+	 * @param index - the flat index of the cell
+	 * @return whether the cell is hidden, unflagged and not known to be a mine
+	 */
+	private boolean isCandidate(int index) {
+		return (model.cell(index) & (BoardModel.REVEALED | BoardModel.FLAGGED)) == 0 && !solver.isKnownMine(index);
+	}
+}
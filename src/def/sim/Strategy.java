@@ -0,0 +1,33 @@
+package def.sim;
+
+import def.model.BoardModel;
+
+/**
+ * A way of playing Minesweeper, for the simulator. Each simulator thread gets its own Strategy
+ * and its own board, which are both reused for every game that thread plays.
+ * @author Louis Jacobowitz
+ */
+public interface Strategy {
+	/**
+	 * Gives the strategy the board it will be playing on. Called once, before the first game.
+	 * @param model - the board, which is reset between games
+	 */
+	void attach(BoardModel model);
+
+	/**
+	 * Tells the strategy the board has been reset for a new game
+	 */
+	void newGame();
+
+	/**
+	 * Chooses the next move
+	 * @return a move packed by def.model.Move, or Move.NONE to give up
+	 */
+	int nextMove();
+
+	/**
+	 * Returns true if the last move chosen was a guess rather than a certain deduction
+	 * @return whether the last move was a guess
+	 */
+	boolean lastMoveWasGuess();
+}
@@ -0,0 +1,347 @@
+package def.solver;
+
+import java.util.BitSet;
+
+import def.metrics.Metrics;
+import def.metrics.Operation;
+import def.model.BoardListener;
+import def.model.BoardModel;
+
+/**
+ * Finds cells that are certainly safe or certainly mines, using only the numbers a player can see.
+ * Every revealed number is a constraint: the number of mines among its hidden neighbors. The
+ * solver listens to its board and, when a cell changes, only re-examines the constraints that
+ * cell touches, so the work per move depends on how many cells the move changed rather than on
+ * the size of the board.
+ * <p>
+ * Two rules are applied. The single-point rule looks at one constraint: if all of its mines are
+ * accounted for, its other hidden neighbors are safe, and if it has exactly as many hidden
+ * neighbors as missing mines, they are all mines. The pair rule compares two constraints that
+ * share hidden cells: if one constraint's hidden cells are a subset of the other's and both are
+ * missing the same number of mines, the other's extra cells are safe; and if a constraint is
+ * missing exactly as many more mines than the other as it has extra cells, those extra cells are
+ * all mines and the other's extra cells are safe (the 1-2 pattern).
+ * <p>
+ * Flags placed by the player are trusted to be correct.
+ * @author Louis Jacobowitz
+ */
+public class ConstraintSolver implements BoardListener {
+	/** The board being solved */
+	private final BoardModel model;
+	/** The cells found to be certainly safe */
+	private final BitSet knownSafe;
+	/** The cells found to be certainly mines */
+	private final BitSet knownMine;
+	/** The revealed cells whose constraints need to be examined again */
+	private final IntQueue dirty;
+	/** Which cells are in the dirty queue */
+	private final BitSet dirtySet;
+	/** Safe cells found but not yet handed out */
+	private final IntQueue safeCells;
+	/** Mine cells found but not yet handed out */
+	private final IntQueue mineCells;
+	/** Scratch space for the neighbors of a cell */
+	private final int[] around;
+	/** Scratch space for the neighbors of a neighbor */
+	private final int[] aroundNeighbor;
+	/** Scratch space for the hidden cells of the constraint being examined */
+	private final int[] hiddenA;
+	/** Scratch space for the hidden cells of the constraint it is being compared to */
+	private final int[] hiddenB;
+	/** Scratch space for the constraints sharing hidden cells with the one being examined */
+	private final int[] partners;
+
+	/**
+	 * Creates a new solver for the given board and starts listening to it
+	 * @param model - the board to solve
+	 */
+	public ConstraintSolver(BoardModel model) {
+		this.model = model;
+		knownSafe = new BitSet();
+		knownMine = new BitSet();
+		dirty = new IntQueue();
+		dirtySet = new BitSet();
+		safeCells = new IntQueue();
+		mineCells = new IntQueue();
+		around = new int[8];
+		aroundNeighbor = new int[8];
+		hiddenA = new int[8];
+		hiddenB = new int[8];
+		partners = new int[64];
+		model.addListener(this);
+		rescan();
+	}
+
+	/**
+	 * Stops listening to the board. Should be called once this solver is discarded.
+	 */
+	public void dispose() {
+		model.removeListener(this);
+	}
+
+	/**
+	 * Forgets everything found so far and queues every revealed cell to be examined again.
+	 * Needed after the board has been reset, since a reset is not reported to listeners.
+	 */
+	public void rescan() {
+		knownSafe.clear();
+		knownMine.clear();
+		dirty.clear();
+		dirtySet.clear();
+		safeCells.clear();
+		mineCells.clear();
+		for(int i = 0; i < model.size(); i++) {
+			if((model.cell(i) & BoardModel.REVEALED) != 0) markDirty(i);
+		}
+	}
+
+	/**
+	 * Queues the constraints touched by a changed cell to be examined again
+	 * @param row - the row of the changed cell
+	 * @param col - the column of the changed cell
+	 */
+	@Override
+	public void cellChanged(int row, int col) {
+		int index = model.index(row, col);
+		if((model.cell(index) & BoardModel.REVEALED) != 0) markDirty(index);
+		markNeighborsDirty(index);
+	}
+
+	/**
+	 * Does nothing; the solver does not use the global mine count
+	 * @param minesRemaining - the number of mines not yet flagged
+	 */
+	@Override
+	public void minesRemainingChanged(int minesRemaining) {
+	}
+
+	/**
+	 * Examines every queued constraint, and everything its deductions touch in turn, until
+	 * nothing more can be found
+	 */
+	public void update() {
+		if(dirty.isEmpty()) return;
+		long start = Metrics.start();
+		int examined = 0;
+		while(!dirty.isEmpty()) {
+			int index = dirty.poll();
+			dirtySet.clear(index);
+			examine(index);
+			examined++;
+		}
+		Metrics.finish(Operation.SOLVER, start, examined);
+	}
+
+	/**
+	 * Returns a hidden, unflagged cell that is certainly safe
+	 * @return the flat index of a safe cell, or -1 if none is known
+	 */
+	public int nextSafe() {
+		update();
+		while(!safeCells.isEmpty()) {
+			int index = safeCells.poll();
+			if((model.cell(index) & (BoardModel.REVEALED | BoardModel.FLAGGED)) == 0) return index;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns a hidden, unflagged cell that is certainly a mine
+	 * @return the flat index of a mine cell, or -1 if none is known
+	 */
+	public int nextMine() {
+		update();
+		while(!mineCells.isEmpty()) {
+			int index = mineCells.poll();
+			if((model.cell(index) & (BoardModel.REVEALED | BoardModel.FLAGGED)) == 0) return index;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns true if the given cell has been found to be certainly safe
+	 * @param index - the flat index of the cell
+	 * @return whether the cell is known to be safe
+	 */
+	public boolean isKnownSafe(int index) {
+		return knownSafe.get(index);
+	}
+
+	/**
+	 * Returns true if the given cell has been found to be certainly a mine
+	 * @param index - the flat index of the cell
+	 * @return whether the cell is known to be a mine
+	 */
+	public boolean isKnownMine(int index) {
+		return knownMine.get(index);
+	}
+
+	/**
+	 * Applies both rules to one revealed cell. As soon as anything is found, returns; the cells
+	 * found queue this constraint again, so it is re-examined with its new hidden cells.
+	 * @param a - the flat index of the revealed cell
+	 */
+	private void examine(int a) {
+		int cell = model.cell(a);
+		if((cell & BoardModel.REVEALED) == 0 || (cell & BoardModel.MINE) != 0) return;
+		int missingA = (cell & BoardModel.NUMBER_MASK) - knownMinesAround(a);
+		int countA = hiddenAround(a, hiddenA);
+		if(countA == 0) return;
+		// Single-point rule
+		if(missingA == 0) {
+			for(int i = 0; i < countA; i++) markSafe(hiddenA[i]);
+			return;
+		}
+		if(missingA == countA) {
+			for(int i = 0; i < countA; i++) markMine(hiddenA[i]);
+			return;
+		}
+		// Pair rule, against every constraint sharing a hidden cell with this one
+		int numPartners = 0;
+		for(int i = 0; i < countA; i++) {
+			int n = model.neighbors(hiddenA[i], aroundNeighbor);
+			for(int k = 0; k < n; k++) {
+				int b = aroundNeighbor[k];
+				if(b == a || (model.cell(b) & BoardModel.REVEALED) == 0 || contains(partners, numPartners, b)) continue;
+				partners[numPartners++] = b;
+			}
+		}
+		for(int p = 0; p < numPartners; p++) {
+			int b = partners[p];
+			if((model.cell(b) & BoardModel.MINE) != 0) continue;
+			int missingB = (model.cell(b) & BoardModel.NUMBER_MASK) - knownMinesAround(b);
+			int countB = hiddenAround(b, hiddenB);
+			if(comparePair(hiddenA, countA, missingA, hiddenB, countB, missingB)
+					|| comparePair(hiddenB, countB, missingB, hiddenA, countA, missingA)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Applies the pair rule to constraint Y compared with constraint X
+	 * @param x - the hidden cells of X
+	 * @param countX - the number of hidden cells of X
+	 * @param missingX - the number of mines missing from X
+	 * @param y - the hidden cells of Y
+	 * @param countY - the number of hidden cells of Y
+	 * @param missingY - the number of mines missing from Y
+	 * @return true if anything was found
+	 */
+	private boolean comparePair(int[] x, int countX, int missingX, int[] y, int countY, int missingY) {
+		int onlyY = 0;
+		for(int i = 0; i < countY; i++) {
+			if(!contains(x, countX, y[i])) onlyY++;
+		}
+		if(onlyY == 0) return false;
+		int onlyX = countX - (countY - onlyY);
+		if(missingY - missingX == onlyY) {
+			// Y's extra cells must hold all of Y's extra mines, and then X's mines are all shared
+			for(int i = 0; i < countY; i++) {
+				if(!contains(x, countX, y[i])) markMine(y[i]);
+			}
+			for(int i = 0; i < countX; i++) {
+				if(!contains(y, countY, x[i])) markSafe(x[i]);
+			}
+			return true;
+		}
+		if(onlyX == 0 && missingY == missingX) {
+			// X is inside Y and holds all of Y's mines
+			for(int i = 0; i < countY; i++) {
+				if(!contains(x, countX, y[i])) markSafe(y[i]);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of neighbors of a cell that are flagged or known to be mines
+	 * @param index - the flat index of the cell
+	 * @return the number of mines around it already accounted for
+	 */
+	private int knownMinesAround(int index) {
+		int n = model.neighbors(index, around);
+		int mines = 0;
+		for(int k = 0; k < n; k++) {
+			if((model.cell(around[k]) & BoardModel.FLAGGED) != 0 || knownMine.get(around[k])) mines++;
+		}
+		return mines;
+	}
+
+	/**
+	 * Collects the neighbors of a cell that are hidden and not yet known to be safe or mines
+	 * @param index - the flat index of the cell
+	 * @param out - where to put the hidden neighbors
+	 * @return the number of hidden neighbors
+	 */
+	private int hiddenAround(int index, int[] out) {
+		int n = model.neighbors(index, around);
+		int count = 0;
+		for(int k = 0; k < n; k++) {
+			int nb = around[k];
+			if((model.cell(nb) & (BoardModel.REVEALED | BoardModel.FLAGGED)) == 0 && !knownMine.get(nb) && !knownSafe.get(nb)) {
+				out[count++] = nb;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Records a cell as certainly safe
+	 * @param index - the flat index of the cell
+	 */
+	private void markSafe(int index) {
+		if(knownSafe.get(index) || knownMine.get(index)) return;
+		knownSafe.set(index);
+		safeCells.add(index);
+		markNeighborsDirty(index);
+	}
+
+	/**
+	 * Records a cell as certainly a mine
+	 * @param index - the flat index of the cell
+	 */
+	private void markMine(int index) {
+		if(knownSafe.get(index) || knownMine.get(index)) return;
+		knownMine.set(index);
+		mineCells.add(index);
+		markNeighborsDirty(index);
+	}
+
+	/**
+	 * Queues every revealed neighbor of a cell to be examined again
+	 * @param index - the flat index of the cell
+	 */
+	private void markNeighborsDirty(int index) {
+		int n = model.neighbors(index, around);
+		for(int k = 0; k < n; k++) {
+			if((model.cell(around[k]) & BoardModel.REVEALED) != 0) markDirty(around[k]);
+		}
+	}
+
+	/**
+	 * Queues a revealed cell to be examined again, if it is not already queued
+	 * @param index - the flat index of the cell
+	 */
+	private void markDirty(int index) {
+		if(!dirtySet.get(index)) {
+			dirtySet.set(index);
+			dirty.add(index);
+		}
+	}
+
+	/**
+	 * Returns true if a value is among the first entries of an array
+	 * @param values - the array to search
+	 * @param count - how many entries of the array to search
+	 * @param v - the value to look for
+	 * @return whether the value was found
+	 */
+	private static boolean contains(int[] values, int count, int v) {
+		for(int i = 0; i < count; i++) {
+			if(values[i] == v) return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,74 @@
+package def.solver;
+
+/**
+ * A growable first-in, first-out queue of ints, backed by a ring buffer so that a queue that
+ * has reached its working size never allocates again.
+ * @author Louis Jacobowitz
+ */
+class IntQueue {
+	/** The ring buffer holding the queued values */
+	private int[] values;
+	/** The position of the first queued value */
+	private int head;
+	/** The number of queued values */
+	private int size;
+
+	/**
+	 * Creates a new, empty queue
+	 */
+	IntQueue() {
+		values = new int[16];
+	}
+
+	/**
+	 * Returns true if nothing is queued
+	 * @return whether the queue is empty
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the number of queued values
+	 * @return the value of this object's size variable
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Adds a value to the back of the queue
+	 * @param v - the value to add
+	 */
+	void add(int v) {
+		if(size == values.length) {
+			int[] bigger = new int[values.length * 2];
+			for(int i = 0; i < size; i++) {
+				bigger[i] = values[(head + i) & (values.length - 1)];
+			}
+			values = bigger;
+			head = 0;
+		}
+		values[(head + size) & (values.length - 1)] = v;
+		size++;
+	}
+
+	/**
+	 * Removes and returns the value at the front of the queue
+	 * @return the oldest queued value
+	 */
+	int poll() {
+		int v = values[head];
+		head = (head + 1) & (values.length - 1);
+		size--;
+		return v;
+	}
+
+	/**
+	 * Empties the queue
+	 */
+	void clear() {
+		head = 0;
+		size = 0;
+	}
+}
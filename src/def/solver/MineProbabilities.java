@@ -0,0 +1,69 @@
+package def.solver;
+
+/**
+ * The chance of each hidden cell on a board being a mine, as worked out by a ProbabilityEngine.
+ * @author Louis Jacobowitz
+ */
+public class MineProbabilities {
+	/** The chance of each cell being a mine: NaN for revealed cells and 1 for flagged ones */
+	private final double[] probability;
+	/** The chance of a mine for any hidden cell with no revealed neighbors */
+	private final double interiorProbability;
+	/** Whether every component was enumerated exactly, rather than sampled */
+	private final boolean exact;
+
+	/**
+	 * Creates a new set of probabilities
+	 * @param probability - the chance of each cell being a mine
+	 * @param interiorProbability - the chance of a mine for cells off the frontier
+	 * @param exact - whether the probabilities are exact
+	 */
+	MineProbabilities(double[] probability, double interiorProbability, boolean exact) {
+		this.probability = probability;
+		this.interiorProbability = interiorProbability;
+		this.exact = exact;
+	}
+
+	/**
+	 * Returns the chance that the given cell is a mine
+	 * @param index - the flat index of the cell
+	 * @return a probability from 0 to 1, or NaN if the cell has been revealed
+	 */
+	public double get(int index) {
+		return probability[index];
+	}
+
+	/**
+	 * Returns the chance of a mine for a hidden cell that borders no revealed number
+	 * @return a probability from 0 to 1
+	 */
+	public double getInteriorProbability() {
+		return interiorProbability;
+	}
+
+	/**
+	 * Returns true if every part of the frontier was enumerated exactly. If not, some of the
+	 * probabilities were estimated by sampling.
+	 * @return the value of this object's exact variable
+	 */
+	public boolean isExact() {
+		return exact;
+	}
+
+	/**
+	 * Returns the hidden, unflagged cell least likely to be a mine
+	 * @return the flat index of the safest cell, or -1 if every cell is revealed or flagged
+	 */
+	public int safest() {
+		int best = -1;
+		double bestProbability = 1;
+		for(int i = 0; i < probability.length; i++) {
+			// NaN (revealed) never compares less, and flagged cells are never below 1
+			if(probability[i] < bestProbability) {
+				best = i;
+				bestProbability = probability[i];
+			}
+		}
+		return best;
+	}
+}
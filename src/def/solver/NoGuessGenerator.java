@@ -0,0 +1,92 @@
+package def.solver;
+
+import def.model.BoardModel;
+import def.model.GameState;
+
+/**
+ * Generates boards that can be solved from the first click without ever guessing. A candidate
+ * board is placed from a seed and then played out: cells the constraint solver proves safe are
+ * revealed and cells it proves to be mines are flagged, and when it gets stuck, the probability
+ * engine is asked for any cell with no chance at all of being a mine (which also takes the total
+ * number of mines into account). If the board is cleared this way, it needed no guesses; if the
+ * engine finds nothing certain, or has to fall back to sampling, the candidate is rejected.
+ * <p>
+ * A generator keeps one board, solver and engine and reuses them for every candidate, so it is
+ * meant to be used by a single thread.
+ * @author Louis Jacobowitz
+ */
+public class NoGuessGenerator {
+	/** The board candidates are placed and played on */
+	private final BoardModel model;
+	/** The solver finding certain moves */
+	private final ConstraintSolver solver;
+	/** The engine finding certain moves the solver misses */
+	private final ProbabilityEngine probabilities;
+
+	/**
+	 * Creates a new generator for boards of the given size
+	 * @param height - the number of rows on each board
+	 * @param width - the number of columns on each board
+	 * @param numMines - the number of mines on each board
+	 */
+	public NoGuessGenerator(int height, int width, int numMines) {
+		model = new BoardModel(height, width, numMines, 0);
+		solver = new ConstraintSolver(model);
+		// Generators already run one per thread, so components are solved on the calling thread
+		probabilities = new ProbabilityEngine(model, null);
+	}
+
+	/**
+	 * Places a candidate board from the given seed and checks whether it can be solved without guessing
+	 * @param seed - the seed from which the mines are placed
+	 * @param row - the row of the first click
+	 * @param col - the column of the first click
+	 * @return the flat indices of the mines if the board needs no guesses, or null if it does
+	 */
+	public int[] generate(long seed, int row, int col) {
+		model.reset(seed);
+		int[] mines = model.placeMines(row, col);
+		solver.rescan();
+		return isSolvable(row, col) ? mines : null;
+	}
+
+	/**
+	 * Plays out the board from the given first click, using only certain moves
+	 * @param row - the row of the first click
+	 * @param col - the column of the first click
+	 * @return true if the game was won
+	 */
+	private boolean isSolvable(int row, int col) {
+		model.reveal(row, col);
+		int width = model.getWidth();
+		while(model.getState() == GameState.PLAYING) {
+			int safe = solver.nextSafe();
+			if(safe >= 0) {
+				model.reveal(safe / width, safe % width);
+				continue;
+			}
+			int mine = solver.nextMine();
+			if(mine >= 0) {
+				model.flag(mine / width, mine % width);
+				continue;
+			}
+			MineProbabilities p = probabilities.compute();
+			if(!p.isExact()) return false;
+			boolean progress = false;
+			for(int i = 0; i < model.size(); i++) {
+				if((model.cell(i) & (BoardModel.REVEALED | BoardModel.FLAGGED)) != 0) continue;
+				double chance = p.get(i);
+				if(chance == 0) {
+					model.reveal(i / width, i % width);
+					progress = true;
+				}
+				else if(chance == 1) {
+					model.flag(i / width, i % width);
+					progress = true;
+				}
+			}
+			if(!progress) return false;
+		}
+		return model.getState() == GameState.WON;
+	}
+}
@@ -0,0 +1,334 @@
+package def.solver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Keeps a stock of ready-made boards that need no guessing, so a game can start on one at once
+ * instead of waiting for a generator. Finding such a board means trying candidate after candidate
+ * (most expert boards need a guess somewhere), which is far too slow for the UI thread, so the
+ * pool is filled by background threads and the UI only ever takes from it.
+ * <p>
+ * Whether a board needs guesses depends on where the first click is, so boards are kept per
+ * first-click class: cells that the mirror images of the board (and, on a square board, its
+ * transpose) map onto each other. A board generated for one cell of a class is mirrored onto
+ * whichever cell of the class the player actually clicks. Each configuration of height, width
+ * and mine count registered with the pool gets its own shelf, holding up to a fixed number of
+ * boards per class.
+ * @author Louis Jacobowitz
+ */
+public class NoGuessPool {
+	/** By default, how many boards are kept ready for each first-click class */
+	public static final int DEFAULT_DEPTH = 2;
+	/** How many candidates a worker tries before checking whether another class is needed more */
+	private static final int ATTEMPTS_PER_TASK = 64;
+	/** The shelves of boards, keyed by configuration */
+	private final Map<String, Shelf> shelves;
+	/** The shelves in the order they were registered, which is the order they are filled in */
+	private final List<Shelf> fillOrder;
+	/** How many boards are kept ready for each first-click class */
+	private final int depth;
+	/** The threads filling the pool */
+	private final Thread[] workers;
+	/** Whether the pool has been shut down */
+	private boolean closed;
+
+	/**
+	 * Creates a new, empty pool, filled by one thread fewer than there are cores
+	 * @param depth - how many boards to keep ready for each first-click class
+	 */
+	public NoGuessPool(int depth) {
+		this(depth, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+	}
+
+	/**
+	 * Creates a new, empty pool
+	 * @param depth - how many boards to keep ready for each first-click class
+	 * @param threads - how many background threads fill the pool
+	 */
+	public NoGuessPool(int depth, int threads) {
+		this.depth = depth;
+		shelves = new HashMap<>();
+		fillOrder = new ArrayList<>();
+		SplittableRandom seeds = new SplittableRandom();
+		workers = new Thread[threads];
+		for(int t = 0; t < threads; t++) {
+			workers[t] = new Thread(new Worker(seeds.split()), "no-guess-" + t);
+			workers[t].setDaemon(true);
+			workers[t].setPriority(Thread.MIN_PRIORITY);
+			workers[t].start();
+		}
+	}
+
+	/**
+	 * Starts keeping boards of the given configuration. Does nothing if it is already registered.
+	 * @param height - the number of rows on each board
+	 * @param width - the number of columns on each board
+	 * @param numMines - the number of mines on each board
+	 */
+	public synchronized void register(int height, int width, int numMines) {
+		String key = key(height, width, numMines);
+		if(shelves.containsKey(key)) return;
+		Shelf shelf = new Shelf(height, width, numMines);
+		shelves.put(key, shelf);
+		fillOrder.add(shelf);
+		notifyAll();
+	}
+
+	/**
+	 * Takes a ready board whose first click is the given cell, if there is one. Never blocks on
+	 * generation; if the cell's class has run dry, returns null and has that class refilled first.
+	 * @param height - the number of rows on the board
+	 * @param width - the number of columns on the board
+	 * @param numMines - the number of mines on the board
+	 * @param row - the row of the first click
+	 * @param col - the column of the first click
+	 * @return the flat indices of the mines, or null if no board is ready
+	 */
+	public synchronized int[] take(int height, int width, int numMines, int row, int col) {
+		Shelf shelf = shelves.get(key(height, width, numMines));
+		if(shelf == null) return null;
+		int cls = shelf.classOf[row * width + col];
+		int[] mines = shelf.boards.get(cls).poll();
+		if(mines == null) {
+			shelf.starved[cls] = true;
+			notifyAll();
+			return null;
+		}
+		notifyAll();
+		return shelf.mirror(mines, cls, row, col);
+	}
+
+	/**
+	 * Returns the number of boards ready for the given configuration
+	 * @param height - the number of rows on each board
+	 * @param width - the number of columns on each board
+	 * @param numMines - the number of mines on each board
+	 * @return the number of boards ready over every first-click class
+	 */
+	public synchronized int available(int height, int width, int numMines) {
+		Shelf shelf = shelves.get(key(height, width, numMines));
+		if(shelf == null) return 0;
+		int total = 0;
+		for(ArrayDeque<int[]> boards : shelf.boards) total += boards.size();
+		return total;
+	}
+
+	/**
+	 * Stops the background threads. Boards already in the pool can still be taken.
+	 */
+	public synchronized void shutdown() {
+		closed = true;
+		notifyAll();
+	}
+
+	/**
+	 * Picks the class most in need of a board: one a player found empty, if any, and otherwise
+	 * the emptiest class of the earliest registered shelf that is not full
+	 * @return the class to work on, as the shelf and class index, or null if every class is full
+	 */
+	private Task neediest() {
+		Task best = null;
+		int bestStock = depth;
+		for(Shelf shelf : fillOrder) {
+			for(int c = 0; c < shelf.classCell.length; c++) {
+				int stock = shelf.boards.get(c).size() + shelf.pending[c];
+				if(stock >= depth) continue;
+				if(shelf.starved[c] && shelf.pending[c] == 0) return new Task(shelf, c);
+				if(stock < bestStock) {
+					best = new Task(shelf, c);
+					bestStock = stock;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the key of a configuration
+	 * @param height - the number of rows
+	 * @param width - the number of columns
+	 * @param numMines - the number of mines
+	 * @return a string naming the configuration
+	 */
+	private static String key(int height, int width, int numMines) {
+		return height + "x" + width + "/" + numMines;
+	}
+
+	/**
+	 * The boards kept for one configuration
+	 */
+	private class Shelf {
+		/** The number of rows on each board */
+		final int height;
+		/** The number of columns on each board */
+		final int width;
+		/** The number of mines on each board */
+		final int numMines;
+		/** The first-click class of every cell */
+		final int[] classOf;
+		/** The cell each class's boards are generated for */
+		final int[] classCell;
+		/** The ready boards of each class */
+		final List<ArrayDeque<int[]>> boards;
+		/** How many boards of each class are being generated right now */
+		final int[] pending;
+		/** Whether a player has found each class empty since it was last refilled */
+		final boolean[] starved;
+
+		/**
+		 * Creates a new, empty shelf, working out the first-click classes
+		 * @param height - the number of rows on each board
+		 * @param width - the number of columns on each board
+		 * @param numMines - the number of mines on each board
+		 */
+		Shelf(int height, int width, int numMines) {
+			this.height = height;
+			this.width = width;
+			this.numMines = numMines;
+			classOf = new int[height * width];
+			int[] cellOfClass = new int[height * width];
+			int classes = 0;
+			// Cells are visited in order, so the first cell of each orbit is its smallest
+			Arrays.fill(classOf, -1);
+			for(int i = 0; i < classOf.length; i++) {
+				if(classOf[i] >= 0) continue;
+				for(int t = 0; t < symmetries(); t++) {
+					classOf[transform(t, i)] = classes;
+				}
+				cellOfClass[classes++] = i;
+			}
+			classCell = Arrays.copyOf(cellOfClass, classes);
+			boards = new ArrayList<>(classes);
+			for(int c = 0; c < classes; c++) boards.add(new ArrayDeque<>(depth));
+			pending = new int[classes];
+			starved = new boolean[classes];
+		}
+
+		/**
+		 * Returns the number of symmetries of the board: four mirror images, or eight with the
+		 * transposes if the board is square
+		 * @return the number of transforms
+		 */
+		int symmetries() {
+			return height == width ? 8 : 4;
+		}
+
+		/**
+		 * Maps a cell through one of the board's symmetries
+		 * @param t - which symmetry: bit 0 mirrors the rows, bit 1 the columns, bit 2 transposes
+		 * @param index - the flat index of the cell
+		 * @return the flat index of the cell it maps to
+		 */
+		int transform(int t, int index) {
+			int row = index / width;
+			int col = index - row * width;
+			if((t & 4) != 0) {
+				int swap = row;
+				row = col;
+				col = swap;
+			}
+			if((t & 1) != 0) row = height - 1 - row;
+			if((t & 2) != 0) col = width - 1 - col;
+			return row * width + col;
+		}
+
+		/**
+		 * Maps a board generated for a class's cell onto the cell actually clicked
+		 * @param mines - the flat indices of the mines, for the class's cell
+		 * @param cls - the class
+		 * @param row - the row of the cell clicked
+		 * @param col - the column of the cell clicked
+		 * @return the flat indices of the mines, for the cell clicked
+		 */
+		int[] mirror(int[] mines, int cls, int row, int col) {
+			int target = row * width + col;
+			for(int t = 0; t < symmetries(); t++) {
+				if(transform(t, classCell[cls]) != target) continue;
+				for(int m = 0; m < mines.length; m++) {
+					mines[m] = transform(t, mines[m]);
+				}
+				return mines;
+			}
+			throw new IllegalStateException("Cell " + target + " is not in class " + cls);
+		}
+	}
+
+	/**
+	 * One class of one shelf, chosen to be worked on
+	 */
+	private static class Task {
+		/** The shelf */
+		final Shelf shelf;
+		/** The class */
+		final int cls;
+
+		/**
+		 * Creates a new Task
+		 * @param shelf - the shelf
+		 * @param cls - the class
+		 */
+		Task(Shelf shelf, int cls) {
+			this.shelf = shelf;
+			this.cls = cls;
+		}
+	}
+
+	/**
+	 * The body of each background thread: repeatedly picks the class most in need of a board and
+	 * tries candidates for it, sleeping while every class is full
+	 */
+	private class Worker implements Runnable {
+		/** The source of candidate seeds for this worker */
+		private final SplittableRandom random;
+		/** A generator for each configuration this worker has worked on */
+		private final Map<Shelf, NoGuessGenerator> generators;
+
+		/**
+		 * Creates a new Worker
+		 * @param random - the source of candidate seeds
+		 */
+		Worker(SplittableRandom random) {
+			this.random = random;
+			generators = new HashMap<>();
+		}
+
+		@Override
+		public void run() {
+			while(true) {
+				Task task = null;
+				synchronized(NoGuessPool.this) {
+					while(!closed && (task = neediest()) == null) {
+						try {
+							NoGuessPool.this.wait();
+						} catch(InterruptedException e) {
+							return;
+						}
+					}
+					if(closed) return;
+					task.shelf.pending[task.cls]++;
+				}
+				Shelf shelf = task.shelf;
+				NoGuessGenerator generator = generators.computeIfAbsent(shelf,
+						s -> new NoGuessGenerator(s.height, s.width, s.numMines));
+				int cell = shelf.classCell[task.cls];
+				int[] mines = null;
+				for(int a = 0; a < ATTEMPTS_PER_TASK && mines == null; a++) {
+					mines = generator.generate(random.nextLong(), cell / shelf.width, cell % shelf.width);
+				}
+				synchronized(NoGuessPool.this) {
+					shelf.pending[task.cls]--;
+					if(mines != null) {
+						shelf.boards.get(task.cls).add(mines);
+						shelf.starved[task.cls] = false;
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package def.solver;
+
+import java.util.SplittableRandom;
+
+import def.model.BoardModel;
+import def.model.GameState;
+import def.model.Topology;
+
+/**
+ * Checks a ProbabilityEngine against brute force. Each trial plays a small random board part of
+ * the way, revealing and flagging cells at random until only a few hidden cells are left, which
+ * usually leaves several separate frontier components and some cells off the frontier. Every way
+ * of placing the remaining mines among those cells is then tried, and the share of the ways
+ * consistent with the revealed numbers that put a mine on each cell is compared with the
+ * engine's probability for it.
+ * <p>
+ * Usage: java def.solver.ProbabilityCheck [--trials N] [--hidden H] [--seed S]
+ * <br>Boards are left with at most H hidden cells, at most 20.
+ * @author Louis Jacobowitz
+ */
+public class ProbabilityCheck {
+	/** The most a probability may differ from the brute-force one and still be counted as right */
+	private static final double TOLERANCE = 1e-9;
+
+	/**
+	 * Runs one trial
+	 * @param random - the source of the board and the moves
+	 * @param topology - the topology of the board
+	 * @param maxHidden - the most hidden, unflagged cells to leave
+	 * @return the largest difference between the engine and brute force, or 0 if the board was
+	 * finished before enough cells were revealed
+	 */
+	static double trial(SplittableRandom random, Topology topology, int maxHidden) {
+		int height = 4 + random.nextInt(6);
+		int width = 4 + random.nextInt(6);
+		int mines = 2 + random.nextInt(height * width / 3);
+		BoardModel model = new BoardModel(height, width, mines, random.nextLong(), topology);
+		model.reveal(random.nextInt(height), random.nextInt(width));
+		int size = model.size();
+		while(model.getState() == GameState.PLAYING && hidden(model) > maxHidden) {
+			int index = random.nextInt(size);
+			int cell = model.cell(index);
+			if((cell & (BoardModel.REVEALED | BoardModel.FLAGGED)) != 0) continue;
+			// Flag a mine now and then, so the engine has flags to account for too
+			if((cell & BoardModel.MINE) == 0) model.reveal(index / width, index % width);
+			else if(random.nextInt(4) == 0) model.toggleFlag(index / width, index % width);
+		}
+		if(model.getState() != GameState.PLAYING) return 0;
+		double[] expected = bruteForce(model);
+		MineProbabilities actual = new ProbabilityEngine(model).compute();
+		double worst = 0;
+		for(int i = 0; i < size; i++) {
+			if((model.cell(i) & (BoardModel.REVEALED | BoardModel.FLAGGED)) != 0) continue;
+			worst = Math.max(worst, Math.abs(actual.get(i) - expected[i]));
+		}
+		return worst;
+	}
+
+	/**
+	 * Returns the number of cells neither revealed nor flagged
+	 * @param model - the board
+	 * @return the number of such cells
+	 */
+	private static int hidden(BoardModel model) {
+		int count = 0;
+		for(int i = 0; i < model.size(); i++) {
+			if((model.cell(i) & (BoardModel.REVEALED | BoardModel.FLAGGED)) == 0) count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Works out the chance of each hidden, unflagged cell being a mine by trying every placement
+	 * of the remaining mines among them
+	 * @param model - the board, with at most 20 such cells
+	 * @return the chance of each cell being a mine, indexed by flat index
+	 */
+	private static double[] bruteForce(BoardModel model) {
+		int size = model.size();
+		int[] unknown = new int[hidden(model)];
+		int[] bit = new int[size];
+		int n = 0;
+		for(int i = 0; i < size; i++) {
+			bit[i] = -1;
+			if((model.cell(i) & (BoardModel.REVEALED | BoardModel.FLAGGED)) == 0) {
+				bit[i] = n;
+				unknown[n++] = i;
+			}
+		}
+		// Each revealed number becomes a mask of the unknown cells around it and the number of mines they must hold
+		int[] masks = new int[size];
+		int[] needs = new int[size];
+		int constraints = 0;
+		int[] around = new int[model.getTopology().getMaxNeighbors()];
+		for(int i = 0; i < size; i++) {
+			int cell = model.cell(i);
+			if((cell & BoardModel.REVEALED) == 0) continue;
+			int mask = 0;
+			int need = cell & BoardModel.NUMBER_MASK;
+			int count = model.neighbors(i, around);
+			for(int k = 0; k < count; k++) {
+				if((model.cell(around[k]) & BoardModel.FLAGGED) != 0) need--;
+				else if(bit[around[k]] >= 0) mask |= 1 << bit[around[k]];
+			}
+			if(mask == 0) continue;
+			masks[constraints] = mask;
+			needs[constraints++] = need;
+		}
+		int mines = model.getMinesRemaining();
+		long[] hits = new long[n];
+		long ways = 0;
+		for(int placement = 0; placement < 1 << n; placement++) {
+			if(Integer.bitCount(placement) != mines) continue;
+			boolean consistent = true;
+			for(int c = 0; c < constraints && consistent; c++) {
+				consistent = Integer.bitCount(placement & masks[c]) == needs[c];
+			}
+			if(!consistent) continue;
+			ways++;
+			for(int b = 0; b < n; b++) {
+				if((placement & 1 << b) != 0) hits[b]++;
+			}
+		}
+		double[] probability = new double[size];
+		for(int b = 0; b < n; b++) {
+			probability[unknown[b]] = (double) hits[b] / ways;
+		}
+		return probability;
+	}
+
+	/**
+	 * Runs the check from the command line
+	 * @param args - the options described in the class comment
+	 */
+	public static void main(String[] args) {
+		int trials = 2000;
+		int maxHidden = 18;
+		long seed = 1;
+		for(int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch(args[i]) {
+			case "--trials": trials = Integer.parseInt(value); break;
+			case "--hidden": maxHidden = Math.min(20, Integer.parseInt(value)); break;
+			case "--seed": seed = Long.parseLong(value); break;
+			default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		SplittableRandom random = new SplittableRandom(seed);
+		for(Topology topology : Topology.values()) {
+			double worst = 0;
+			int failures = 0;
+			for(int t = 0; t < trials; t++) {
+				double error = trial(random, topology, maxHidden);
+				worst = Math.max(worst, error);
+				if(error > TOLERANCE) failures++;
+			}
+			System.out.printf("%-8s trials: %d  largest error: %.3g  %s%n", topology, trials, worst,
+					failures == 0 ? "ok" : "MISMATCH in " + failures + " trials");
+		}
+	}
+}
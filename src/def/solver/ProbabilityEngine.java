@@ -0,0 +1,709 @@
+package def.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import def.model.BoardModel;
+
+/**
+ * Works out the chance of every hidden cell being a mine, for when no cell is certainly safe.
+ * <p>
+ * The hidden cells next to revealed numbers (the frontier) are split into components: groups of
+ * cells tied together by shared numbers, which can be solved independently of each other. Each
+ * component is enumerated exactly by backtracking, counting for every possible number of mines in
+ * the component how many arrangements there are and how often each cell is a mine in them.
+ * Components are solved in parallel on a fork/join pool, and results are memoized, so components
+ * a move did not touch are not enumerated again. The components are then combined with the
+ * number of mines left on the board: an arrangement using k frontier mines is weighted by the
+ * number of ways of placing the other mines among the hidden cells away from the frontier.
+ * <p>
+ * A component too big to enumerate within a node budget is estimated instead, by repeatedly
+ * searching for a random arrangement until a time budget runs out.
+ * @author Louis Jacobowitz
+ */
+public class ProbabilityEngine {
+	/** The most backtracking steps spent on exactly enumerating one component */
+	private static final long NODE_LIMIT = 1L << 22;
+	/** The most backtracking steps spent looking for a single sample */
+	private static final long SAMPLE_NODE_LIMIT = 1L << 14;
+	/** The number of solved components remembered between calls */
+	private static final int CACHE_SIZE = 512;
+	/** By default, how long to spend sampling each component too big to enumerate, in nanoseconds */
+	private static final long DEFAULT_SAMPLE_NANOS = 8_000_000L;
+	/** The board being examined */
+	private final BoardModel model;
+	/** The pool the components are solved on */
+	private final ForkJoinPool pool;
+	/** Solved components, by their layout */
+	private final Map<ComponentKey, ComponentResult> cache;
+	/** How long to spend sampling each component too big to enumerate, in nanoseconds */
+	private long sampleNanos;
+	/** Scratch space for the neighbors of a cell */
+	private final int[] around;
+	/** Scratch space mapping each cell to its place on the frontier, reused between calls */
+	private int[] frontierPosition;
+
+	/**
+	 * Creates a new ProbabilityEngine for the given board, solving components on the common pool
+	 * @param model - the board to examine
+	 */
+	public ProbabilityEngine(BoardModel model) {
+		this(model, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a new ProbabilityEngine for the given board
+	 * @param model - the board to examine
+	 * @param pool - the pool to solve components on, or null to solve them all on the calling thread
+	 */
+	public ProbabilityEngine(BoardModel model, ForkJoinPool pool) {
+		this.model = model;
+		this.pool = pool;
+		cache = Collections.synchronizedMap(new LinkedHashMap<ComponentKey, ComponentResult>(64, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ComponentKey, ComponentResult> eldest) {
+				return size() > CACHE_SIZE;
+			}
+		});
+		sampleNanos = DEFAULT_SAMPLE_NANOS;
+		around = new int[8];
+	}
+
+	/**
+	 * Sets how long to spend sampling each component too big to enumerate
+	 * @param nanos - the time budget per component, in nanoseconds
+	 */
+	public void setSampleNanos(long nanos) {
+		sampleNanos = nanos;
+	}
+
+	/**
+	 * Works out the chance of every cell on the board being a mine. Flags are trusted to be correct.
+	 * @return the probabilities
+	 */
+	public MineProbabilities compute() {
+		int n = model.size();
+		double[] probability = new double[n];
+		if(frontierPosition == null || frontierPosition.length != n) {
+			frontierPosition = new int[n];
+		}
+		// Find the frontier, the numbers bordering it, and how many hidden cells are off it
+		int[] frontier = new int[16];
+		int frontierSize = 0;
+		int[] constraints = new int[16];
+		int constraintCount = 0;
+		int interior = 0;
+		for(int i = 0; i < n; i++) {
+			int cell = model.cell(i);
+			frontierPosition[i] = -1;
+			if((cell & BoardModel.REVEALED) != 0) {
+				probability[i] = Double.NaN;
+				if((cell & BoardModel.MINE) == 0 && hasHiddenNeighbor(i)) {
+					if(constraintCount == constraints.length) constraints = Arrays.copyOf(constraints, constraintCount * 2);
+					constraints[constraintCount++] = i;
+				}
+			}
+			else if((cell & BoardModel.FLAGGED) != 0) {
+				probability[i] = 1;
+			}
+			else if(hasRevealedNeighbor(i)) {
+				if(frontierSize == frontier.length) frontier = Arrays.copyOf(frontier, frontierSize * 2);
+				frontierPosition[i] = frontierSize;
+				frontier[frontierSize++] = i;
+			}
+			else {
+				interior++;
+			}
+		}
+		List<Component> components = findComponents(frontier, frontierSize, constraints, constraintCount);
+		List<ComponentResult> results;
+		if(pool == null || components.size() < 2) {
+			results = components.stream().map(this::solve).collect(Collectors.toList());
+		}
+		else {
+			results = pool.submit(() ->
+					components.parallelStream().map(this::solve).collect(Collectors.toList())).join();
+		}
+		return combine(probability, components, results, interior);
+	}
+
+	/**
+	 * Groups the frontier into components of cells linked by shared numbers
+	 * @param frontier - the frontier cells
+	 * @param frontierSize - the number of frontier cells
+	 * @param constraints - the revealed numbers bordering the frontier, in ascending order
+	 * @param constraintCount - the number of such numbers
+	 * @return the components
+	 */
+	private List<Component> findComponents(int[] frontier, int frontierSize, int[] constraints, int constraintCount) {
+		int[] parent = new int[frontierSize];
+		for(int i = 0; i < frontierSize; i++) parent[i] = i;
+		for(int c = 0; c < constraintCount; c++) {
+			int count = model.neighbors(constraints[c], around);
+			int first = -1;
+			for(int k = 0; k < count; k++) {
+				int p = frontierPosition[around[k]];
+				if(p < 0) continue;
+				if(first < 0) first = find(parent, p);
+				else parent[find(parent, p)] = first;
+			}
+		}
+		// Hand out the constraints to the components, in order, so each component is built the same way every time
+		Map<Integer, Component> byRoot = new LinkedHashMap<>();
+		for(int c = 0; c < constraintCount; c++) {
+			int count = model.neighbors(constraints[c], around);
+			int root = -1;
+			for(int k = 0; k < count && root < 0; k++) {
+				int p = frontierPosition[around[k]];
+				if(p >= 0) root = find(parent, p);
+			}
+			Component component = byRoot.get(root);
+			if(component == null) {
+				component = new Component();
+				byRoot.put(root, component);
+			}
+			component.addConstraint(constraints[c], flagsAround(constraints[c]));
+		}
+		List<Component> components = new ArrayList<>(byRoot.values());
+		for(Component component : components) {
+			component.build();
+		}
+		return components;
+	}
+
+	/**
+	 * Finds the root of a union-find tree, compressing the path along the way
+	 * @param parent - the union-find forest
+	 * @param p - the element whose root is wanted
+	 * @return the root of p's tree
+	 */
+	private static int find(int[] parent, int p) {
+		while(parent[p] != p) {
+			parent[p] = parent[parent[p]];
+			p = parent[p];
+		}
+		return p;
+	}
+
+	/**
+	 * Solves a component, using the remembered result if this exact layout has been seen before
+	 * @param component - the component to solve
+	 * @return the arrangement counts of the component
+	 */
+	private ComponentResult solve(Component component) {
+		ComponentResult result = cache.get(component.key);
+		if(result != null) return result;
+		result = new Enumerator(component).enumerate();
+		if(result.exact) {
+			cache.put(component.key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Combines the components with the number of mines left, to get the chance of each cell being a mine
+	 * @param probability - the array to fill in, with revealed and flagged cells already set
+	 * @param components - the components of the frontier
+	 * @param results - the arrangement counts of each component
+	 * @param interior - the number of hidden cells off the frontier
+	 * @return the probabilities
+	 */
+	private MineProbabilities combine(double[] probability, List<Component> components, List<ComponentResult> results, int interior) {
+		int mines = model.getMinesRemaining();
+		int numComponents = components.size();
+		boolean exact = true;
+		// prefix[c] is the distribution of frontier mines over components before c, suffix[c] over those after c.
+		// Each is rescaled so its largest entry is 1, to keep products of many components in range;
+		// prefixScale and suffixScale hold the natural logs of the factors taken out, so that
+		// distributions on different scales can still be compared
+		double[][] prefix = new double[numComponents + 1][];
+		double[][] suffix = new double[numComponents + 1][];
+		double[] prefixScale = new double[numComponents + 1];
+		double[] suffixScale = new double[numComponents + 1];
+		prefix[0] = new double[] {1};
+		suffix[numComponents] = new double[] {1};
+		for(int c = 0; c < numComponents; c++) {
+			prefix[c + 1] = convolve(prefix[c], results.get(c).weight);
+			prefixScale[c + 1] = prefixScale[c] + rescale(prefix[c + 1]);
+			exact &= results.get(c).exact;
+		}
+		for(int c = numComponents - 1; c >= 0; c--) {
+			suffix[c] = convolve(results.get(c).weight, suffix[c + 1]);
+			suffixScale[c] = suffixScale[c + 1] + rescale(suffix[c]);
+		}
+		double[] total = prefix[numComponents];
+		double totalScale = prefixScale[numComponents];
+		double[] factor = interiorFactors(total.length - 1, mines, interior);
+		double z = 0;
+		double interiorMines = 0;
+		for(int t = 0; t < total.length; t++) {
+			z += total[t] * factor[t];
+			interiorMines += total[t] * factor[t] * (mines - t);
+		}
+		if(z == 0 || Double.isNaN(z)) {
+			// The flags contradict the numbers; fall back on the overall density
+			double density = interior + frontierCount(components) == 0 ? 0 : (double) mines / (interior + frontierCount(components));
+			for(Component component : components) {
+				for(int cell : component.cells) probability[cell] = density;
+			}
+			fillInterior(probability, density);
+			return new MineProbabilities(probability, density, false);
+		}
+		for(int c = 0; c < numComponents; c++) {
+			Component component = components.get(c);
+			ComponentResult result = results.get(c);
+			double[] others = convolve(prefix[c], suffix[c + 1]);
+			// Bring the other components' distribution onto the scale of the total before dividing by it
+			double othersScale = prefixScale[c] + suffixScale[c + 1] + rescale(others) - totalScale;
+			for(int k = 0; k < result.weight.length; k++) {
+				if(result.cellWeight[k] == null) continue;
+				double g = 0;
+				for(int r = 0; r < others.length; r++) {
+					g += others[r] * factor[k + r];
+				}
+				g = g / z * Math.exp(othersScale);
+				for(int v = 0; v < component.cells.length; v++) {
+					probability[component.cells[v]] += result.cellWeight[k][v] * g;
+				}
+			}
+		}
+		double interiorProbability = interior == 0 ? 0 : interiorMines / z / interior;
+		fillInterior(probability, interiorProbability);
+		return new MineProbabilities(probability, interiorProbability, exact);
+	}
+
+	/**
+	 * Returns, for each possible number of frontier mines, the relative number of ways to place
+	 * the remaining mines among the cells off the frontier
+	 * @param maxFrontierMines - the most mines the frontier can hold
+	 * @param mines - the number of unflagged mines on the board
+	 * @param interior - the number of hidden cells off the frontier
+	 * @return the weight for each number of frontier mines, scaled so the largest is 1
+	 */
+	private static double[] interiorFactors(int maxFrontierMines, int mines, int interior) {
+		double[] factor = new double[maxFrontierMines + 1];
+		// Only the ratios between the weights matter, so walk the binomial coefficients by their
+		// ratio C(n, m + 1) / C(n, m) = (n - m) / (m + 1), starting from the fewest interior mines
+		int lowest = Math.max(0, mines - maxFrontierMines);
+		int highest = Math.min(interior, mines);
+		if(lowest > highest) return factor;
+		double[] logWays = new double[highest - lowest + 1];
+		double max = 0;
+		for(int m = lowest; m < highest; m++) {
+			logWays[m - lowest + 1] = logWays[m - lowest] + Math.log((double) (interior - m) / (m + 1));
+			max = Math.max(max, logWays[m - lowest + 1]);
+		}
+		for(int m = lowest; m <= highest; m++) {
+			factor[mines - m] = Math.exp(logWays[m - lowest] - max);
+		}
+		return factor;
+	}
+
+	/**
+	 * Convolves two distributions over mine counts
+	 * @param a - the first distribution
+	 * @param b - the second distribution
+	 * @return the distribution of the sum
+	 */
+	private static double[] convolve(double[] a, double[] b) {
+		double[] out = new double[a.length + b.length - 1];
+		for(int i = 0; i < a.length; i++) {
+			if(a[i] == 0) continue;
+			for(int j = 0; j < b.length; j++) {
+				out[i + j] += a[i] * b[j];
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Divides a distribution by its largest entry, so that it is 1
+	 * @param distribution - the distribution to rescale
+	 * @return the natural log of the factor taken out, or 0 if every entry is 0
+	 */
+	private static double rescale(double[] distribution) {
+		double max = 0;
+		for(double v : distribution) max = Math.max(max, v);
+		if(max == 0) return 0;
+		for(int i = 0; i < distribution.length; i++) distribution[i] /= max;
+		return Math.log(max);
+	}
+
+	/**
+	 * Sets every hidden cell off the frontier to the given probability
+	 * @param probability - the probabilities being filled in
+	 * @param p - the probability for cells off the frontier
+	 */
+	private void fillInterior(double[] probability, double p) {
+		for(int i = 0; i < probability.length; i++) {
+			if(frontierPosition[i] < 0 && (model.cell(i) & (BoardModel.REVEALED | BoardModel.FLAGGED)) == 0) {
+				probability[i] = p;
+			}
+		}
+	}
+
+	/**
+	 * Returns the total number of cells in the given components
+	 * @param components - the components
+	 * @return the number of frontier cells
+	 */
+	private static int frontierCount(List<Component> components) {
+		int count = 0;
+		for(Component component : components) count += component.cells.length;
+		return count;
+	}
+
+	/**
+	 * Returns true if a cell has a hidden, unflagged neighbor
+	 * @param index - the flat index of the cell
+	 * @return whether any neighbor is hidden and unflagged
+	 */
+	private boolean hasHiddenNeighbor(int index) {
+		int count = model.neighbors(index, around);
+		for(int k = 0; k < count; k++) {
+			if((model.cell(around[k]) & (BoardModel.REVEALED | BoardModel.FLAGGED)) == 0) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns true if a cell has a revealed neighbor that is not a mine
+	 * @param index - the flat index of the cell
+	 * @return whether the cell borders a revealed number
+	 */
+	private boolean hasRevealedNeighbor(int index) {
+		int count = model.neighbors(index, around);
+		for(int k = 0; k < count; k++) {
+			int cell = model.cell(around[k]);
+			if((cell & BoardModel.REVEALED) != 0 && (cell & BoardModel.MINE) == 0) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of flagged neighbors of a cell
+	 * @param index - the flat index of the cell
+	 * @return the number of flags around it
+	 */
+	private int flagsAround(int index) {
+		int count = model.neighbors(index, around);
+		int flags = 0;
+		for(int k = 0; k < count; k++) {
+			if((model.cell(around[k]) & BoardModel.FLAGGED) != 0) flags++;
+		}
+		return flags;
+	}
+
+	/**
+	 * A group of frontier cells and the numbers linking them
+	 * @author Louis Jacobowitz
+	 */
+	private class Component {
+		/** The revealed numbers of this component, while it is being built */
+		private final List<int[]> pending = new ArrayList<>();
+		/** The frontier cells of this component */
+		int[] cells;
+		/** For each number, the positions in cells of its hidden neighbors */
+		int[][] constraintVars;
+		/** For each number, how many of its hidden neighbors are mines */
+		int[] missing;
+		/** This component's layout, for memoization */
+		ComponentKey key;
+
+		/**
+		 * Adds a revealed number to this component
+		 * @param index - the flat index of the number's cell
+		 * @param flags - the number of flags around it
+		 */
+		void addConstraint(int index, int flags) {
+			int count = model.neighbors(index, around);
+			int[] hidden = new int[count + 1];
+			int h = 1;
+			for(int k = 0; k < count; k++) {
+				if(frontierPosition[around[k]] >= 0) hidden[h++] = around[k];
+			}
+			hidden[0] = (model.cell(index) & BoardModel.NUMBER_MASK) - flags;
+			pending.add(Arrays.copyOf(hidden, h));
+		}
+
+		/**
+		 * Numbers this component's cells in the order the numbers reach them, and builds its key
+		 */
+		void build() {
+			Map<Integer, Integer> position = new LinkedHashMap<>();
+			for(int[] constraint : pending) {
+				for(int k = 1; k < constraint.length; k++) {
+					if(!position.containsKey(constraint[k])) position.put(constraint[k], position.size());
+				}
+			}
+			cells = new int[position.size()];
+			for(Map.Entry<Integer, Integer> e : position.entrySet()) cells[e.getValue()] = e.getKey();
+			constraintVars = new int[pending.size()][];
+			missing = new int[pending.size()];
+			int keyLength = 1 + cells.length;
+			for(int c = 0; c < pending.size(); c++) {
+				int[] constraint = pending.get(c);
+				missing[c] = constraint[0];
+				constraintVars[c] = new int[constraint.length - 1];
+				for(int k = 1; k < constraint.length; k++) constraintVars[c][k - 1] = position.get(constraint[k]);
+				keyLength += 1 + constraint.length;
+			}
+			int[] signature = new int[keyLength];
+			int s = 0;
+			signature[s++] = cells.length;
+			for(int cell : cells) signature[s++] = cell;
+			for(int c = 0; c < missing.length; c++) {
+				signature[s++] = missing[c];
+				signature[s++] = constraintVars[c].length;
+				for(int v : constraintVars[c]) signature[s++] = v;
+			}
+			key = new ComponentKey(signature);
+			pending.clear();
+		}
+	}
+
+	/**
+	 * The layout of a component: its cells and its numbers. Two components with the same key
+	 * have the same arrangements.
+	 * @author Louis Jacobowitz
+	 */
+	private static class ComponentKey {
+		/** The cells and numbers, flattened */
+		private final int[] signature;
+		/** The hash of the signature */
+		private final int hash;
+
+		/**
+		 * Creates a new key
+		 * @param signature - the flattened layout
+		 */
+		ComponentKey(int[] signature) {
+			this.signature = signature;
+			hash = Arrays.hashCode(signature);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof ComponentKey && Arrays.equals(signature, ((ComponentKey) o).signature);
+		}
+	}
+
+	/**
+	 * The arrangements of a component, counted by the number of mines in them
+	 * @author Louis Jacobowitz
+	 */
+	private static class ComponentResult {
+		/** For each number of mines, the relative number of arrangements */
+		final double[] weight;
+		/** For each number of mines and each cell, the relative number of arrangements with a mine there */
+		final double[][] cellWeight;
+		/** Whether the counts are exact rather than sampled */
+		final boolean exact;
+
+		/**
+		 * Creates a new result
+		 * @param weight - the arrangement counts by number of mines
+		 * @param cellWeight - the per-cell counts by number of mines
+		 * @param exact - whether the counts are exact
+		 */
+		ComponentResult(double[] weight, double[][] cellWeight, boolean exact) {
+			this.weight = weight;
+			this.cellWeight = cellWeight;
+			this.exact = exact;
+		}
+	}
+
+	/**
+	 * Backtracks through the arrangements of one component. The search is iterative, so the
+	 * size of a component is not limited by the stack.
+	 * @author Louis Jacobowitz
+	 */
+	private class Enumerator {
+		/** The component being searched */
+		private final Component component;
+		/** For each cell, the numbers it borders */
+		private final int[][] varConstraints;
+		/** For each number, the mines placed around it so far */
+		private final int[] placed;
+		/** For each number, the neighbors not yet decided */
+		private final int[] undecided;
+		/** For each cell, how many values have been tried: 0, 1 or 2 */
+		private final int[] tried;
+		/** For each cell, whether its current value has been applied to its numbers */
+		private final boolean[] applied;
+		/** For each cell, the value tried first */
+		private final int[] firstValue;
+		/** For each cell, its current value */
+		private final int[] value;
+		/** The number of mines placed so far */
+		private int mines;
+		/** The arrangement counts by number of mines */
+		private final double[] weight;
+		/** The per-cell counts by number of mines */
+		private final double[][] cellWeight;
+
+		/**
+		 * Creates a new Enumerator for a component
+		 * @param component - the component to search
+		 */
+		Enumerator(Component component) {
+			this.component = component;
+			int nv = component.cells.length;
+			int[] degree = new int[nv];
+			for(int[] vars : component.constraintVars) {
+				for(int v : vars) degree[v]++;
+			}
+			varConstraints = new int[nv][];
+			for(int v = 0; v < nv; v++) varConstraints[v] = new int[degree[v]];
+			for(int c = 0; c < component.constraintVars.length; c++) {
+				for(int v : component.constraintVars[c]) varConstraints[v][--degree[v]] = c;
+			}
+			placed = new int[component.missing.length];
+			undecided = new int[component.missing.length];
+			tried = new int[nv];
+			applied = new boolean[nv];
+			firstValue = new int[nv];
+			value = new int[nv];
+			weight = new double[nv + 1];
+			cellWeight = new double[nv + 1][];
+		}
+
+		/**
+		 * Counts every arrangement of the component, or samples them if there are too many
+		 * @return the counts
+		 */
+		ComponentResult enumerate() {
+			boolean exact = search(false, NODE_LIMIT);
+			if(!exact) {
+				Arrays.fill(weight, 0);
+				Arrays.fill(cellWeight, null);
+				SplittableRandom random = new SplittableRandom(component.key.hash);
+				long deadline = System.nanoTime() + sampleNanos;
+				do {
+					for(int v = 0; v < firstValue.length; v++) firstValue[v] = random.nextInt(2);
+					search(true, SAMPLE_NODE_LIMIT);
+				} while(System.nanoTime() < deadline);
+			}
+			double max = 0;
+			for(double w : weight) max = Math.max(max, w);
+			if(max > 0) {
+				for(int k = 0; k < weight.length; k++) {
+					weight[k] /= max;
+					if(cellWeight[k] != null) {
+						for(int v = 0; v < cellWeight[k].length; v++) cellWeight[k][v] /= max;
+					}
+				}
+			}
+			return new ComponentResult(weight, cellWeight, exact);
+		}
+
+		/**
+		 * Searches the arrangements of the component, recording each one found
+		 * @param stopAtFirst - whether to stop after the first arrangement found
+		 * @param nodeLimit - the most steps to take
+		 * @return true if the search finished within the limit
+		 */
+		private boolean search(boolean stopAtFirst, long nodeLimit) {
+			int nv = component.cells.length;
+			for(int c = 0; c < placed.length; c++) {
+				placed[c] = 0;
+				undecided[c] = component.constraintVars[c].length;
+			}
+			Arrays.fill(applied, false);
+			mines = 0;
+			long nodes = 0;
+			int i = 0;
+			tried[0] = 0;
+			while(i >= 0) {
+				if(i == nv) {
+					record();
+					if(stopAtFirst) return true;
+					i--;
+					continue;
+				}
+				if(applied[i]) {
+					undo(i);
+				}
+				if(tried[i] == 2) {
+					i--;
+					continue;
+				}
+				value[i] = tried[i] == 0 ? firstValue[i] : 1 - firstValue[i];
+				tried[i]++;
+				if(++nodes > nodeLimit) return false;
+				if(fits(i)) {
+					apply(i);
+					i++;
+					if(i < nv) tried[i] = 0;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Returns true if the current value of a cell is consistent with all of its numbers
+		 * @param v - the cell
+		 * @return whether the value fits
+		 */
+		private boolean fits(int v) {
+			for(int c : varConstraints[v]) {
+				if(value[v] == 1 ? placed[c] + 1 > component.missing[c] : placed[c] + undecided[c] - 1 < component.missing[c]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Applies the current value of a cell to its numbers
+		 * @param v - the cell
+		 */
+		private void apply(int v) {
+			for(int c : varConstraints[v]) {
+				undecided[c]--;
+				placed[c] += value[v];
+			}
+			mines += value[v];
+			applied[v] = true;
+		}
+
+		/**
+		 * Takes the current value of a cell back off its numbers
+		 * @param v - the cell
+		 */
+		private void undo(int v) {
+			for(int c : varConstraints[v]) {
+				undecided[c]++;
+				placed[c] -= value[v];
+			}
+			mines -= value[v];
+			applied[v] = false;
+		}
+
+		/**
+		 * Records the current, complete arrangement
+		 */
+		private void record() {
+			weight[mines]++;
+			if(cellWeight[mines] == null) cellWeight[mines] = new double[value.length];
+			double[] counts = cellWeight[mines];
+			for(int v = 0; v < value.length; v++) {
+				counts[v] += value[v];
+			}
+		}
+	}
+}
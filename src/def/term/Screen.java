@@ -0,0 +1,308 @@
+package def.term;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A grid of styled characters drawn on an ANSI terminal. Each frame is put together in memory,
+ * then flush() compares it with what the terminal already shows and sends only the characters
+ * that differ, each run of them after a single cursor-addressing sequence, and the style only when
+ * it changes. Short gaps between changed characters are written over rather than jumped, when that
+ * takes fewer bytes. A region of rows can also be scrolled by the terminal itself, so moving the
+ * view up or down a few rows sends only the rows that came into view.
+ * <p>
+ * Each cell of the grid is packed into an int: the character in the low 16 bits, the ordinal of
+ * its style above that, and whether it is highlighted above that. Only ASCII is drawn, so that a
+ * character always takes one byte and one column.
+ * @author Louis Jacobowitz
+ */
+class Screen {
+	/** The escape character starting every control sequence */
+	private static final byte ESC = 0x1B;
+	/** The bit of a packed cell marking it highlighted, drawn in reverse video */
+	private static final int HIGHLIGHT = 1 << 24;
+	/** A blank cell in the plain style, which is what a cleared terminal shows */
+	private static final int BLANK = ' ' | Style.PLAIN.ordinal() << 16;
+	/** The longest gap between changed characters written over rather than jumped */
+	private static final int MAX_GAP = 4;
+	/** Where the escape sequences are written */
+	private final OutputStream out;
+	/** The number of rows */
+	private int rows;
+	/** The number of columns */
+	private int cols;
+	/** The frame being put together, row by row */
+	private int[] next;
+	/** What the terminal shows, row by row */
+	private int[] shown;
+	/** The bytes of the frame being sent */
+	private byte[] buffer;
+	/** The number of bytes of buffer in use */
+	private int length;
+	/** The style the terminal is drawing in, as a packed cell with no character */
+	private int pen;
+	/** The row the terminal's cursor is on, or -1 if it is not known */
+	private int cursorRow;
+	/** The column the terminal's cursor is on, or -1 if it is not known */
+	private int cursorCol;
+	/** Whether the terminal has to be cleared before the next frame is sent */
+	private boolean clear;
+
+	/**
+	 * Creates a new Screen. Nothing is sent until the first flush.
+	 * @param out - where to write the escape sequences
+	 * @param rows - the number of rows of the terminal
+	 * @param cols - the number of columns of the terminal
+	 */
+	Screen(OutputStream out, int rows, int cols) {
+		this.out = out;
+		buffer = new byte[4096];
+		resize(rows, cols);
+	}
+
+	/**
+	 * Changes the size of the grid, and has the next flush clear the terminal and draw the whole frame
+	 * @param newRows - the number of rows of the terminal
+	 * @param newCols - the number of columns of the terminal
+	 */
+	void resize(int newRows, int newCols) {
+		rows = Math.max(newRows, 1);
+		cols = Math.max(newCols, 1);
+		next = new int[rows * cols];
+		shown = new int[rows * cols];
+		Arrays.fill(next, BLANK);
+		clear = true;
+	}
+
+	/**
+	 * Has the next flush clear the terminal and draw the whole frame, for when something else
+	 * may have drawn over it
+	 */
+	void invalidate() {
+		clear = true;
+	}
+
+	/**
+	 * Returns the number of rows
+	 * @return the value of this object's rows variable
+	 */
+	int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Returns the number of columns
+	 * @return the value of this object's cols variable
+	 */
+	int getCols() {
+		return cols;
+	}
+
+	/**
+	 * Puts a character in the frame. Positions off the grid are ignored.
+	 * @param row - the row
+	 * @param col - the column
+	 * @param c - the character, which must be ASCII
+	 * @param style - how to draw it
+	 * @param highlight - whether to draw it in reverse video
+	 */
+	void put(int row, int col, char c, Style style, boolean highlight) {
+		if(row < 0 || row >= rows || col < 0 || col >= cols) return;
+		next[row * cols + col] = c | style.ordinal() << 16 | (highlight ? HIGHLIGHT : 0);
+	}
+
+	/**
+	 * Puts text in the frame, cut off at the right edge, and fills the rest of the row with blanks
+	 * in the same style
+	 * @param row - the row
+	 * @param text - the text, which must be ASCII
+	 * @param style - how to draw it
+	 */
+	void line(int row, String text, Style style) {
+		for(int col = 0; col < cols; col++) {
+			put(row, col, col < text.length() ? text.charAt(col) : ' ', style, false);
+		}
+	}
+
+	/**
+	 * Moves the rows of a region of the terminal up or down, by having the terminal scroll them,
+	 * so that the rows still in view need not be sent again. Rows scrolled into view are blank
+	 * until the next flush draws them.
+	 * @param top - the first row of the region
+	 * @param bottom - the last row of the region
+	 * @param lines - how many rows to move the contents up, or down if negative
+	 */
+	void scroll(int top, int bottom, int lines) {
+		int height = bottom - top + 1;
+		if(lines == 0 || clear || Math.abs(lines) >= height) return;
+		// The rows scrolled in are cleared in the current background, so go back to the plain one first
+		pen(BLANK);
+		csi().number(top + 1).ascii(';').number(bottom + 1).ascii('r');
+		csi().number(Math.abs(lines)).ascii(lines > 0 ? 'S' : 'T');
+		// Resetting the region sends the cursor home
+		csi().ascii('r');
+		cursorRow = 0;
+		cursorCol = 0;
+		int kept = height - Math.abs(lines);
+		int from = (lines > 0 ? top + lines : top) * cols;
+		int to = (lines > 0 ? top : top - lines) * cols;
+		System.arraycopy(shown, from, shown, to, kept * cols);
+		int blankFrom = lines > 0 ? top + kept : top;
+		Arrays.fill(shown, blankFrom * cols, (blankFrom + Math.abs(lines)) * cols, BLANK);
+	}
+
+	/**
+	 * Sends the frame, writing only the characters that differ from what the terminal shows
+	 * @throws IOException if the terminal could not be written to
+	 */
+	void flush() throws IOException {
+		if(clear) {
+			csi().ascii('0').ascii('m');
+			csi().ascii('2').ascii('J');
+			pen = BLANK;
+			cursorRow = -1;
+			Arrays.fill(shown, BLANK);
+			clear = false;
+		}
+		for(int row = 0; row < rows; row++) {
+			int base = row * cols;
+			int col = 0;
+			while(col < cols) {
+				if(next[base + col] == shown[base + col]) {
+					col++;
+					continue;
+				}
+				if(row != cursorRow || col < cursorCol || col - cursorCol > MAX_GAP || !sameLook(base, cursorCol, col)) {
+					csi().number(row + 1).ascii(';').number(col + 1).ascii('H');
+				}
+				else {
+					// Cheaper to write the unchanged characters in between than to move over them
+					for(int c = cursorCol; c < col; c++) {
+						ascii((char) next[base + c]);
+					}
+				}
+				while(col < cols && next[base + col] != shown[base + col]) {
+					int cell = next[base + col];
+					pen(cell);
+					ascii((char) cell);
+					shown[base + col] = cell;
+					col++;
+				}
+				cursorRow = row;
+				// Writing the last column leaves the cursor waiting to wrap, which terminals handle differently
+				cursorCol = col < cols ? col : -1;
+			}
+		}
+		if(length > 0) {
+			out.write(buffer, 0, length);
+			out.flush();
+			length = 0;
+		}
+	}
+
+	/**
+	 * Returns true if every cell of a gap in a row looks the same drawn in the style the terminal
+	 * is drawing in: it is in that style, or it is a blank and neither style colors the background
+	 * @param base - the index of the first cell of the row
+	 * @param from - the first column of the gap, or -1 if the cursor's column is not known
+	 * @param to - the column after the gap
+	 * @return whether the gap can be written over without changing style
+	 */
+	private boolean sameLook(int base, int from, int to) {
+		if(from < 0) return false;
+		for(int c = from; c < to; c++) {
+			int cell = next[base + c];
+			if((cell & ~0xFFFF) != pen && ((char) cell != ' ' || !clearBlank(cell) || !clearBlank(pen))) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if a blank drawn in a cell's style looks like one drawn in the plain style
+	 * @param cell - the packed cell
+	 * @return whether the style neither colors the background nor is highlighted
+	 */
+	private static boolean clearBlank(int cell) {
+		return (cell & HIGHLIGHT) == 0 && !Style.of(cell >>> 16 & 0xFF).hasBackground();
+	}
+
+	/**
+	 * Switches the terminal to the style of a cell, if it is not drawing in it already
+	 * @param cell - the packed cell
+	 */
+	private void pen(int cell) {
+		int look = cell & ~0xFFFF;
+		if(look == pen) return;
+		csi().text(Style.of(look >>> 16 & 0xFF).getParameters());
+		if((look & HIGHLIGHT) != 0) text(";7");
+		ascii('m');
+		pen = look;
+	}
+
+	/**
+	 * Sends the sequences that put the terminal in a screen of its own, with the cursor hidden,
+	 * so the shell's screen comes back untouched afterward
+	 * @throws IOException if the terminal could not be written to
+	 */
+	void open() throws IOException {
+		csi().text("?1049h");
+		csi().text("?25l");
+		clear = true;
+		flush();
+	}
+
+	/**
+	 * Sends the sequences that give the terminal back as it was before open()
+	 * @throws IOException if the terminal could not be written to
+	 */
+	void close() throws IOException {
+		csi().text("0m");
+		csi().text("?25h");
+		csi().text("?1049l");
+		out.write(buffer, 0, length);
+		out.flush();
+		length = 0;
+	}
+
+	/**
+	 * Starts a control sequence
+	 * @return this screen, to chain calls
+	 */
+	private Screen csi() {
+		return ascii((char) ESC).ascii('[');
+	}
+
+	/**
+	 * Adds a number, in decimal, to the bytes being sent
+	 * @param n - the number, which is not negative
+	 * @return this screen, to chain calls
+	 */
+	private Screen number(int n) {
+		if(n >= 10) number(n / 10);
+		return ascii((char) ('0' + n % 10));
+	}
+
+	/**
+	 * Adds ASCII text to the bytes being sent
+	 * @param s - the text
+	 * @return this screen, to chain calls
+	 */
+	private Screen text(String s) {
+		for(int i = 0; i < s.length(); i++) {
+			ascii(s.charAt(i));
+		}
+		return this;
+	}
+
+	/**
+	 * Adds one ASCII character to the bytes being sent
+	 * @param c - the character
+	 * @return this screen, to chain calls
+	 */
+	private Screen ascii(char c) {
+		if(length == buffer.length) buffer = Arrays.copyOf(buffer, length * 2);
+		buffer[length++] = (byte) c;
+		return this;
+	}
+}
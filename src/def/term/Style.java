@@ -0,0 +1,94 @@
+package def.term;
+
+/**
+ * The looks a character can be drawn with on a Screen, each an ANSI select-graphic-rendition
+ * sequence. Every sequence starts from the terminal's defaults, so switching to a style never
+ * depends on the style before it. The numbers take the colors players know from the tiles.
+ * @author Louis Jacobowitz
+ */
+enum Style {
+	/** Text in the terminal's own colors */
+	PLAIN("0", false),
+	/** The status and help lines */
+	BAR("0;7", true),
+	/** A cell that has not been revealed */
+	HIDDEN("0;2", false),
+	/** A revealed cell with one mine around it */
+	NUMBER_1("0;1;94", false),
+	/** A revealed cell with two mines around it */
+	NUMBER_2("0;1;32", false),
+	/** A revealed cell with three mines around it */
+	NUMBER_3("0;1;91", false),
+	/** A revealed cell with four mines around it */
+	NUMBER_4("0;1;34", false),
+	/** A revealed cell with five mines around it */
+	NUMBER_5("0;1;31", false),
+	/** A revealed cell with six mines around it */
+	NUMBER_6("0;1;36", false),
+	/** A revealed cell with seven mines around it */
+	NUMBER_7("0;1;35", false),
+	/** A revealed cell with eight mines around it */
+	NUMBER_8("0;1;90", false),
+	/** A flagged cell */
+	FLAG("0;1;93", false),
+	/** A mine, shown at the end of the game */
+	MINE("0;1", false),
+	/** The mine that was revealed */
+	EXPLODED("0;1;97;41", true),
+	/** A cell that was flagged but was not a mine */
+	WRONG_FLAG("0;1;91;47", true);
+
+	/** The styles of revealed cells, indexed by the number of mines around them */
+	private static final Style[] NUMBERS = {PLAIN, NUMBER_1, NUMBER_2, NUMBER_3, NUMBER_4, NUMBER_5, NUMBER_6, NUMBER_7, NUMBER_8};
+	/** Every style, indexed by ordinal */
+	private static final Style[] VALUES = values();
+	/** The parameters of the sequence selecting this style */
+	private final String parameters;
+	/** Whether this style colors the background, so that a blank drawn in it can be seen */
+	private final boolean background;
+
+	/**
+	 * Creates a new Style
+	 * @param parameters - the parameters of the sequence selecting it
+	 * @param background - whether it colors the background
+	 */
+	Style(String parameters, boolean background) {
+		this.parameters = parameters;
+		this.background = background;
+	}
+
+	/**
+	 * Returns the parameters of the sequence selecting this style
+	 * @return the value of this object's parameters variable
+	 */
+	String getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * Returns true if this style colors the background, so that a blank drawn in it looks
+	 * different from a blank drawn in the plain style
+	 * @return the value of this object's background variable
+	 */
+	boolean hasBackground() {
+		return background;
+	}
+
+	/**
+	 * Returns the style of a revealed, non-mine cell with the given number of mines around it
+	 * @param num - number of surrounding mines
+	 * @return the style for that cell
+	 */
+	static Style number(int num) {
+		return NUMBERS[num];
+	}
+
+	/**
+	 * Returns the style with the given ordinal
+	 * @param ordinal - the ordinal
+	 * @return the style
+	 */
+	static Style of(int ordinal) {
+		return VALUES[ordinal];
+	}
+}
@@ -0,0 +1,169 @@
+package def.term;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The terminal the game is played on: switches it to read keys one at a time without echoing
+ * them, finds its size, and turns the bytes it sends into keys. The standard library has no
+ * terminal control of its own, so the settings are made with stty, which every Unix-like system
+ * has, on /dev/tty; close() puts back the settings found when it opened.
+ * @author Louis Jacobowitz
+ */
+class Terminal implements AutoCloseable {
+	/** The up arrow */
+	static final int UP = 0x10000;
+	/** The down arrow */
+	static final int DOWN = 0x10001;
+	/** The right arrow */
+	static final int RIGHT = 0x10002;
+	/** The left arrow */
+	static final int LEFT = 0x10003;
+	/** The page up key */
+	static final int PAGE_UP = 0x10004;
+	/** The page down key */
+	static final int PAGE_DOWN = 0x10005;
+	/** The home key */
+	static final int HOME = 0x10006;
+	/** The end key */
+	static final int END = 0x10007;
+	/** A key, or sequence of them, with no meaning here */
+	static final int NONE = 0x1FFFF;
+	/** The end of the input */
+	static final int EOF = -1;
+	/** The escape character, which starts the sequences sent by special keys */
+	private static final int ESC = 0x1B;
+	/** Where the keys are read from */
+	private final InputStream in;
+	/** The terminal's settings before it was opened, as printed by stty -g */
+	private final String saved;
+	/** Whether the settings from before it was opened have been put back */
+	private boolean restored;
+
+	/**
+	 * Opens the terminal, switching it to hand over keys as they are pressed, without echo
+	 * @param in - where the keys are read from
+	 * @throws IOException if there is no terminal, or its settings could not be changed
+	 */
+	Terminal(InputStream in) throws IOException {
+		this.in = in;
+		saved = stty("-g").trim();
+		stty("-icanon", "-echo", "min", "1", "time", "0");
+	}
+
+	/**
+	 * Returns the size of the terminal
+	 * @return the number of rows and the number of columns
+	 * @throws IOException if the size could not be found
+	 */
+	int[] size() throws IOException {
+		String[] parts = stty("size").trim().split("\\s+");
+		try {
+			return new int[] {Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+		} catch(NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			throw new IOException("Unexpected terminal size: " + String.join(" ", parts));
+		}
+	}
+
+	/**
+	 * Returns true if a key has been pressed that has not been read yet
+	 * @return whether read() would return without waiting
+	 * @throws IOException if the terminal could not be read from
+	 */
+	boolean ready() throws IOException {
+		return in.available() > 0;
+	}
+
+	/**
+	 * Waits for a key and returns it
+	 * @return the character typed, one of the key constants, or EOF
+	 * @throws IOException if the terminal could not be read from
+	 */
+	int read() throws IOException {
+		int b = in.read();
+		// A lone escape is the escape key; a special key sends the rest of its sequence straight after
+		if(b != ESC || in.available() == 0) return b;
+		int kind = in.read();
+		if(kind != '[' && kind != 'O') return NONE;
+		int parameter = 0;
+		int c = in.read();
+		while(c >= '0' && c <= '9') {
+			parameter = parameter * 10 + c - '0';
+			c = in.read();
+		}
+		// Skip any further parameters, such as modifier keys, up to the final byte of the sequence
+		while(c != EOF && (c < 0x40 || c > 0x7E)) {
+			c = in.read();
+		}
+		switch(c) {
+		case 'A': return UP;
+		case 'B': return DOWN;
+		case 'C': return RIGHT;
+		case 'D': return LEFT;
+		case 'H': return HOME;
+		case 'F': return END;
+		case '~':
+			switch(parameter) {
+			case 1: case 7: return HOME;
+			case 4: case 8: return END;
+			case 5: return PAGE_UP;
+			case 6: return PAGE_DOWN;
+			default: return NONE;
+			}
+		default:
+			return NONE;
+		}
+	}
+
+	/**
+	 * Puts back the terminal's settings from before it was opened, unless they have been already.
+	 * A shutdown hook may call this while the terminal is being closed, and only one puts them back.
+	 * @throws IOException if the settings could not be changed
+	 */
+	synchronized void restore() throws IOException {
+		if(restored) return;
+		restored = true;
+		stty(saved);
+	}
+
+	/**
+	 * Puts back the terminal's settings from before it was opened
+	 * @throws IOException if the settings could not be changed
+	 */
+	@Override
+	public void close() throws IOException {
+		restore();
+	}
+
+	/**
+	 * Runs stty on the terminal
+	 * @param arguments - the arguments to stty
+	 * @return what stty printed
+	 * @throws IOException if stty could not be run or failed
+	 */
+	private static String stty(String... arguments) throws IOException {
+		String[] command = new String[arguments.length + 1];
+		command[0] = "stty";
+		System.arraycopy(arguments, 0, command, 1, arguments.length);
+		Process process = new ProcessBuilder(command)
+				.redirectInput(new File("/dev/tty"))
+				.redirectError(ProcessBuilder.Redirect.INHERIT)
+				.start();
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try(InputStream s = process.getInputStream()) {
+			byte[] chunk = new byte[256];
+			for(int n; (n = s.read(chunk)) >= 0; ) {
+				output.write(chunk, 0, n);
+			}
+		}
+		try {
+			if(process.waitFor() != 0) throw new IOException("stty " + String.join(" ", arguments) + " failed");
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted waiting for stty", e);
+		}
+		return output.toString("US-ASCII");
+	}
+}
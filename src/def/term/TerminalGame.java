@@ -0,0 +1,308 @@
+package def.term;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.SplittableRandom;
+
+import def.model.BoardHistory;
+import def.model.BoardModel;
+import def.model.GameState;
+import def.model.Topology;
+
+/**
+ * Plays Minesweeper in a terminal, for machines with no display - over SSH, say. The game is the
+ * same BoardModel the window plays on, with moves made through a BoardHistory so they can be
+ * taken back. The board is drawn with ANSI escapes on a Screen, which sends only the characters
+ * that changed since the last frame, so a move costs a few bytes over the link rather than a
+ * screenful.
+ * <p>
+ * Boards bigger than the terminal are shown through a view that follows the cursor. Moving up or
+ * down scrolls the view just far enough to keep a margin around the cursor, and the terminal
+ * scrolls the rows itself, so only the new rows are sent. Terminals cannot scroll sideways, so
+ * moving past the left or right edge jumps the view by half its width, and the whole view is
+ * sent only that often. Keys that arrive while a frame is being made, from holding a key down or
+ * typing ahead on a slow link, are all handled before the next frame, so the screen never falls
+ * behind the keyboard.
+ * <p>
+ * Keys: arrows or hjkl move, HJKL or page up and down move by half a screen, home and end go to
+ * the ends of the row, space or enter reveals (or chords a number), f flags, c chords, u undoes,
+ * r redoes, n starts a new game, ctrl-L redraws after the terminal is resized, and q quits.
+ * <p>
+ * Usage: java def.term.TerminalGame [--height H] [--width W] [--mines M] [--seed S]
+ * [--topology square|torus|hex|knight]
+ * @author Louis Jacobowitz
+ */
+public class TerminalGame {
+	/** The number of terminal columns each cell takes, so that cells come out roughly square */
+	private static final int CELL_COLS = 2;
+	/** The number of rows of the terminal above the board */
+	private static final int TOP_ROWS = 1;
+	/** The number of rows of the terminal below the board */
+	private static final int BOTTOM_ROWS = 1;
+	/** The number of cells kept between the cursor and the top or bottom of the view, where the board allows */
+	private static final int MARGIN = 2;
+	/** The key a terminal sends for ctrl-L */
+	private static final int CTRL_L = 12;
+	/** The line of help shown below the board */
+	private static final String HELP = " arrows/hjkl move  space reveal  f flag  c chord  u undo  r redo  n new  q quit";
+	/** The terminal being played on */
+	private final Terminal terminal;
+	/** The grid of characters drawn on the terminal */
+	private final Screen screen;
+	/** The height of every board */
+	private final int height;
+	/** The width of every board */
+	private final int width;
+	/** The number of mines on every board */
+	private final int mines;
+	/** Which cells of every board neighbor each other */
+	private final Topology topology;
+	/** The source of the seed for each new game */
+	private final SplittableRandom seeds;
+	/** The moves of the game being played, and through them its board */
+	private BoardHistory history;
+	/** The board being played */
+	private BoardModel model;
+	/** The row of the cell the cursor is on */
+	private int cursorRow;
+	/** The column of the cell the cursor is on */
+	private int cursorCol;
+	/** The row of the board at the top of the view */
+	private int top;
+	/** The column of the board at the left of the view */
+	private int left;
+	/** The number of rows of the board the view shows */
+	private int viewRows;
+	/** The number of columns of the board the view shows */
+	private int viewCols;
+	/** Whether the player has asked to quit */
+	private boolean quit;
+
+	/**
+	 * Creates a new TerminalGame and starts its first game
+	 * @param terminal - the terminal to play on
+	 * @param screen - the grid of characters drawn on the terminal, already the terminal's size
+	 * @param height - the height of every board
+	 * @param width - the width of every board
+	 * @param mines - the number of mines on every board
+	 * @param topology - which cells of every board neighbor each other
+	 * @param seed - the seed the seeds of the games are drawn from
+	 */
+	TerminalGame(Terminal terminal, Screen screen, int height, int width, int mines, Topology topology, long seed) {
+		this.terminal = terminal;
+		this.screen = screen;
+		this.height = height;
+		this.width = width;
+		this.mines = mines;
+		this.topology = topology;
+		seeds = new SplittableRandom(seed);
+		layOut();
+		newGame();
+	}
+
+	/**
+	 * Starts a new game with the cursor in the middle of the board
+	 */
+	private void newGame() {
+		model = new BoardModel(height, width, mines, seeds.nextLong(), topology);
+		history = new BoardHistory(model);
+		moveTo(height / 2, width / 2);
+	}
+
+	/**
+	 * Works out how much of the board fits on the screen
+	 */
+	private void layOut() {
+		viewRows = Math.max(1, Math.min(height, screen.getRows() - TOP_ROWS - BOTTOM_ROWS));
+		// One column is kept spare for the odd rows of a hex board, which are shifted right
+		viewCols = Math.max(1, Math.min(width, (screen.getCols() - 1) / CELL_COLS));
+	}
+
+	/**
+	 * Plays until the player quits or the input ends
+	 * @throws IOException if the terminal could not be read from or written to
+	 */
+	void run() throws IOException {
+		while(!quit) {
+			draw();
+			screen.flush();
+			handle(terminal.read());
+			// Handle every key already waiting before drawing again
+			while(!quit && terminal.ready()) {
+				handle(terminal.read());
+			}
+		}
+	}
+
+	/**
+	 * Carries out one key
+	 * @param key - the character typed, or one of the Terminal's key constants
+	 * @throws IOException if the terminal's size could not be found
+	 */
+	private void handle(int key) throws IOException {
+		int page = Math.max(1, viewRows / 2);
+		int side = Math.max(1, viewCols / 2);
+		switch(key) {
+		case Terminal.EOF: case 'q': quit = true; break;
+		case Terminal.UP: case 'k': moveTo(cursorRow - 1, cursorCol); break;
+		case Terminal.DOWN: case 'j': moveTo(cursorRow + 1, cursorCol); break;
+		case Terminal.LEFT: case 'h': moveTo(cursorRow, cursorCol - 1); break;
+		case Terminal.RIGHT: case 'l': moveTo(cursorRow, cursorCol + 1); break;
+		case Terminal.PAGE_UP: case 'K': moveTo(cursorRow - page, cursorCol); break;
+		case Terminal.PAGE_DOWN: case 'J': moveTo(cursorRow + page, cursorCol); break;
+		case 'H': moveTo(cursorRow, cursorCol - side); break;
+		case 'L': moveTo(cursorRow, cursorCol + side); break;
+		case Terminal.HOME: moveTo(cursorRow, 0); break;
+		case Terminal.END: moveTo(cursorRow, width - 1); break;
+		case ' ': case '\r': case '\n':
+			if(model.isRevealed(cursorRow, cursorCol)) history.chord(cursorRow, cursorCol);
+			else history.reveal(cursorRow, cursorCol);
+			break;
+		case 'f': history.toggleFlag(cursorRow, cursorCol); break;
+		case 'c': history.chord(cursorRow, cursorCol); break;
+		case 'u': history.undo(); break;
+		case 'r': history.redo(); break;
+		case 'n': newGame(); break;
+		case CTRL_L:
+			int[] size = terminal.size();
+			screen.resize(size[0], size[1]);
+			layOut();
+			moveTo(cursorRow, cursorCol);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Moves the cursor to a cell, keeping it on the board, and moves the view to follow it
+	 * @param row - the row of the cell
+	 * @param col - the column of the cell
+	 */
+	private void moveTo(int row, int col) {
+		cursorRow = Math.max(0, Math.min(height - 1, row));
+		cursorCol = Math.max(0, Math.min(width - 1, col));
+		int margin = Math.min(MARGIN, (viewRows - 1) / 2);
+		int newTop = Math.min(top, cursorRow - margin);
+		newTop = Math.max(newTop, cursorRow + margin - viewRows + 1);
+		newTop = Math.max(0, Math.min(height - viewRows, newTop));
+		screen.scroll(TOP_ROWS, TOP_ROWS + viewRows - 1, newTop - top);
+		top = newTop;
+		if(cursorCol < left || cursorCol >= left + viewCols) {
+			left = cursorCol - viewCols / 2;
+		}
+		left = Math.max(0, Math.min(width - viewCols, left));
+	}
+
+	/**
+	 * Puts the next frame together on the screen: the status line, the part of the board in
+	 * view, and the help line
+	 */
+	private void draw() {
+		String state = model.getState() == GameState.WON ? "You won!" : model.getState() == GameState.LOST ? "Boom!" : "";
+		screen.line(0, String.format(" Mines: %d  Cell: %d,%d  Moves: %d  %s", model.getMinesRemaining(), cursorRow, cursorCol,
+				history.getPosition(), state), Style.BAR);
+		for(int r = 0; r < viewRows; r++) {
+			int row = top + r;
+			int shift = topology == Topology.HEX && (row & 1) == 1 ? 1 : 0;
+			if(shift == 1) screen.put(TOP_ROWS + r, 0, ' ', Style.PLAIN, false);
+			for(int c = 0; c < viewCols; c++) {
+				int col = left + c;
+				int x = shift + c * CELL_COLS;
+				draw(row, col, TOP_ROWS + r, x);
+				for(int pad = 1; pad < CELL_COLS; pad++) {
+					screen.put(TOP_ROWS + r, x + pad, ' ', Style.PLAIN, false);
+				}
+			}
+			for(int x = shift + viewCols * CELL_COLS; x < screen.getCols(); x++) {
+				screen.put(TOP_ROWS + r, x, ' ', Style.PLAIN, false);
+			}
+		}
+		for(int y = TOP_ROWS + viewRows; y < screen.getRows() - BOTTOM_ROWS; y++) {
+			screen.line(y, "", Style.PLAIN);
+		}
+		screen.line(screen.getRows() - 1, HELP, Style.BAR);
+	}
+
+	/**
+	 * Puts one cell of the board on the screen
+	 * @param row - the row of the cell on the board
+	 * @param col - the column of the cell on the board
+	 * @param y - the row of the screen to draw it on
+	 * @param x - the column of the screen to draw it on
+	 */
+	private void draw(int row, int col, int y, int x) {
+		int cell = model.cell(model.index(row, col));
+		GameState state = model.getState();
+		boolean mine = (cell & BoardModel.MINE) != 0;
+		boolean cursor = row == cursorRow && col == cursorCol;
+		if((cell & BoardModel.REVEALED) != 0) {
+			if(mine) {
+				screen.put(y, x, '*', Style.EXPLODED, cursor);
+			}
+			else {
+				int number = cell & BoardModel.NUMBER_MASK;
+				screen.put(y, x, number == 0 ? ' ' : (char) ('0' + number), Style.number(number), cursor);
+			}
+		}
+		else if((cell & BoardModel.FLAGGED) != 0) {
+			// Once the game is lost, flags on cells that were not mines are shown as mistakes
+			if(state == GameState.LOST && !mine) screen.put(y, x, 'X', Style.WRONG_FLAG, cursor);
+			else screen.put(y, x, 'F', Style.FLAG, cursor);
+		}
+		else if(mine && state == GameState.LOST) {
+			screen.put(y, x, '*', Style.MINE, cursor);
+		}
+		else if(mine && state == GameState.WON) {
+			screen.put(y, x, 'F', Style.FLAG, cursor);
+		}
+		else {
+			screen.put(y, x, '.', Style.HIDDEN, cursor);
+		}
+	}
+
+	/**
+	 * Runs the game from the command line
+	 * @param args - the options described in the class comment
+	 * @throws IOException if the terminal could not be used
+	 */
+	public static void main(String[] args) throws IOException {
+		int height = 16;
+		int width = 30;
+		int mines = 99;
+		long seed = System.nanoTime();
+		Topology topology = Topology.SQUARE;
+		for(int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch(args[i]) {
+			case "--height": height = Integer.parseInt(value); break;
+			case "--width": width = Integer.parseInt(value); break;
+			case "--mines": mines = Integer.parseInt(value); break;
+			case "--seed": seed = Long.parseLong(value); break;
+			case "--topology": topology = Topology.valueOf(value.toUpperCase()); break;
+			default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		try(Terminal terminal = new Terminal(System.in)) {
+			int[] size = terminal.size();
+			Screen screen = new Screen(System.out, size[0], size[1]);
+			// Put the terminal back even if the game is killed with ctrl-C
+			Thread restore = new Thread(() -> {
+				try {
+					screen.close();
+					terminal.restore();
+				} catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, "terminal-restore");
+			Runtime.getRuntime().addShutdownHook(restore);
+			screen.open();
+			try {
+				new TerminalGame(terminal, screen, height, width, mines, topology, seed).run();
+			} finally {
+				screen.close();
+				Runtime.getRuntime().removeShutdownHook(restore);
+			}
+		}
+	}
+}